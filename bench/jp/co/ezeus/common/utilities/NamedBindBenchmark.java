@@ -0,0 +1,220 @@
+package jp.co.ezeus.common.utilities;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import jp.co.ezeus.common.dto.BindBuffer;
+
+/**
+ * <p>
+ * 名前付きパラメータのバインド処理計測クラス
+ * </p>
+ * SQL_INSERT_EMPLOYEE_INFO（名前付きパラメータ12個）について、1回の実行分のバインド変数設定の所要時間を 次の方法で比較する。<br>
+ * ・位置指定：パラメータ順の値の配列からBindBuffer.setValue()で設定する<br>
+ * ・位置指定（Map）：パラメータ順に同じMapから値を取得し、BindBuffer.setValue()で設定する<br>
+ * ・名前指定（Map）：SqlTemplate.bind(Map, BindBuffer)で設定する（DBResourceControl.bindNamed()の処理）<br>
+ * ・位置指定（型指定）：BindBufferの型毎のsetterで設定する<br>
+ * ・名前指定（BindBuffer）：SqlTemplate.bind(BindBuffer, BindBuffer)で複写する<br>
+ * DBへの発行は含まない。 テスト用の実行環境を持たないため、mainメソッドで実行する。<br>
+ * 名前指定（Map）はMapの検索を含むため、配列からの位置指定ではなく、Mapからの位置指定と比較する。
+ *
+ * <pre>
+ * javac -d out src/jp/co/ezeus/common/ ... bench/jp/co/ezeus/common/utilities/NamedBindBenchmark.java
+ * java -cp out jp.co.ezeus.common.utilities.NamedBindBenchmark [SQLファイル] [計測回数]
+ * </pre>
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public final class NamedBindBenchmark {
+
+    /**
+     * SQLファイルの既定値
+     */
+    private static final String DEFAULT_SQL_FILE = "resources/sql/SQL_INSERT_EMPLOYEE_INFO.sql";
+
+    /**
+     * 1回の計測での実行回数
+     */
+    private static final int BATCH = 1000000;
+
+    /**
+     * 計測結果を最適化で除去させないための値
+     */
+    private static long sink;
+
+    /**
+     * コンストラクタ
+     */
+    private NamedBindBenchmark() {
+    }
+
+    /**
+     * 計測を実行し、1回あたりの所要時間（ナノ秒）を出力する。
+     *
+     * @param args SQLファイル、計測回数
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        String file = (args.length > 0) ? args[0] : DEFAULT_SQL_FILE;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+        SqlTemplate template = SqlTemplate.compile(new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8));
+        List<String> names = template.getParameterNames();
+
+        Map<String, Object> params = new HashMap<String, Object>();
+        Object[] positional = new Object[template.getParameterCount()];
+        String[] positionNames = new String[template.getParameterCount()];
+        BindBuffer named = new BindBuffer();
+        for (int i = 0; i < names.size(); i++) {
+            Object value = sampleValue(names.get(i), i);
+            params.put(names.get(i), value);
+            named.setValue(i + 1, value);
+            for (int index : template.indexesOf(names.get(i))) {
+                positional[index - 1] = value;
+                positionNames[index - 1] = names.get(i);
+            }
+        }
+        BindBuffer buffer = new BindBuffer();
+
+        System.out.println(file + " parameters=" + template.getParameterCount() + " names=" + names.size());
+        // JITコンパイルを済ませるため、計測前に同じ回数実行する
+        for (int round = 0; round < 3; round++) {
+            positional(positional, buffer);
+            positionalMap(positionNames, params, buffer);
+            namedMap(template, params, buffer);
+            positionalTyped(named, buffer);
+            namedBuffer(template, named, buffer);
+        }
+        double[] best = { Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE };
+        for (int round = 0; round < rounds; round++) {
+            best[0] = Math.min(best[0], positional(positional, buffer));
+            best[1] = Math.min(best[1], positionalMap(positionNames, params, buffer));
+            best[2] = Math.min(best[2], namedMap(template, params, buffer));
+            best[3] = Math.min(best[3], positionalTyped(named, buffer));
+            best[4] = Math.min(best[4], namedBuffer(template, named, buffer));
+        }
+        System.out.printf("positional setValue(Object[])   %8.1f ns/op%n", best[0]);
+        System.out.printf("positional setValue(Map.get)    %8.1f ns/op%n", best[1]);
+        System.out.printf("named bind(Map)                 %8.1f ns/op  (x%.2f)%n", best[2], best[2] / best[1]);
+        System.out.printf("positional typed setters        %8.1f ns/op%n", best[3]);
+        System.out.printf("named bind(BindBuffer)          %8.1f ns/op  (x%.2f)%n", best[4], best[4] / best[3]);
+        System.out.println("(sink=" + sink + ")");
+    }
+
+    /**
+     * パラメータ順の値の配列から設定する。
+     *
+     * @param values パラメータ順の値
+     * @param buffer 設定先
+     * @return double 1回あたりのナノ秒
+     */
+    private static double positional(Object[] values, BindBuffer buffer) {
+        long start = System.nanoTime();
+        for (int n = 0; n < BATCH; n++) {
+            buffer.clear();
+            for (int i = 0; i < values.length; i++) {
+                buffer.setValue(i + 1, values[i]);
+            }
+            sink += buffer.size();
+        }
+        return (double) (System.nanoTime() - start) / BATCH;
+    }
+
+    /**
+     * パラメータ順にMapから値を取得して設定する。
+     *
+     * @param positionNames パラメータ順のパラメータ名
+     * @param params パラメータ名をキーとする値
+     * @param buffer 設定先
+     * @return double 1回あたりのナノ秒
+     */
+    private static double positionalMap(String[] positionNames, Map<String, Object> params, BindBuffer buffer) {
+        long start = System.nanoTime();
+        for (int n = 0; n < BATCH; n++) {
+            buffer.clear();
+            for (int i = 0; i < positionNames.length; i++) {
+                buffer.setValue(i + 1, params.get(positionNames[i]));
+            }
+            sink += buffer.size();
+        }
+        return (double) (System.nanoTime() - start) / BATCH;
+    }
+
+    /**
+     * パラメータ名をキーとするMapから設定する。
+     *
+     * @param template SQLテンプレート
+     * @param params パラメータ名をキーとする値
+     * @param buffer 設定先
+     * @return double 1回あたりのナノ秒
+     */
+    private static double namedMap(SqlTemplate template, Map<String, Object> params, BindBuffer buffer) {
+        long start = System.nanoTime();
+        for (int n = 0; n < BATCH; n++) {
+            buffer.clear();
+            template.bind(params, buffer);
+            sink += buffer.size();
+        }
+        return (double) (System.nanoTime() - start) / BATCH;
+    }
+
+    /**
+     * 型毎のsetterで設定する。 値は名前指定（BindBuffer）と同じBindBufferから型を判定せずに取得する。
+     *
+     * @param named パラメータ名の出現順の値
+     * @param buffer 設定先
+     * @return double 1回あたりのナノ秒
+     */
+    private static double positionalTyped(BindBuffer named, BindBuffer buffer) {
+        long start = System.nanoTime();
+        for (int n = 0; n < BATCH; n++) {
+            buffer.clear();
+            for (int i = 1; i <= named.size(); i++) {
+                named.copyTo(i, buffer, i);
+            }
+            sink += buffer.size();
+        }
+        return (double) (System.nanoTime() - start) / BATCH;
+    }
+
+    /**
+     * パラメータ名の出現順に設定したBindBufferから複写する。
+     *
+     * @param template SQLテンプレート
+     * @param named パラメータ名の出現順の値
+     * @param buffer 設定先
+     * @return double 1回あたりのナノ秒
+     */
+    private static double namedBuffer(SqlTemplate template, BindBuffer named, BindBuffer buffer) {
+        long start = System.nanoTime();
+        for (int n = 0; n < BATCH; n++) {
+            buffer.clear();
+            template.bind(named, buffer);
+            sink += buffer.size();
+        }
+        return (double) (System.nanoTime() - start) / BATCH;
+    }
+
+    /**
+     * パラメータ名に応じた計測用の値を作成する。
+     *
+     * @param name パラメータ名
+     * @param index パラメータ名の出現順
+     * @return Object
+     */
+    private static Object sampleValue(String name, int index) {
+        if (name.endsWith("date") || "birthday".equals(name)) {
+            return Date.valueOf("2020-04-01");
+        }
+        if (name.endsWith("_id")) {
+            return Integer.valueOf(1000 + index);
+        }
+        return "value" + index;
+    }
+}
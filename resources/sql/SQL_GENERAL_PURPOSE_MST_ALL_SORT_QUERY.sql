@@ -0,0 +1,10 @@
+select
+	division_id,
+	division_cd,
+	sort_number,
+	division_nm
+from
+	general_purpose_mst
+where
+	delete_flg = '0'
+order by division_id, division_nm
\ No newline at end of file
@@ -6,6 +6,6 @@ select
 from
 	general_purpose_mst
 where
-	division_id = ?
+	division_id = :division_id
 	and delete_flg = '0'
 order by division_nm
\ No newline at end of file
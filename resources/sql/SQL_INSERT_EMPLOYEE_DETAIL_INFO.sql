@@ -12,13 +12,13 @@ insert into employee_detail_info(
 	update_date,
 	delete_flg)
 values(
-	?,
-	?,
-	?,
-	?,
-	?,
-	?,
-	?,
+	:employee_id,
+	:adress,
+	:station,
+	:schooling,
+	:cp_number,
+	:cp_adress,
+	:capacity,
 	'USER99',
 	CURRENT_TIMESTAMP,
 	'USER99',
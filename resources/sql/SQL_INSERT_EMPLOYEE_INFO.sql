@@ -17,18 +17,18 @@ insert into employee_info(
 	update_date,
 	delete_flg)
 values(
-	?,
-	?,
-	?,
-	?,
-	?,
-	?,
-	?,
-	?,
-	?,
-	?,
-	?,
-	?,
+	:employee_id,
+	:emp_sei_kj,
+	:emp_mei_kj,
+	:emp_sei_kn,
+	:emp_mei_kn,
+	:emp_ful_kj,
+	:birthday,
+	:sex,
+	:enter_date,
+	:s_group,
+	:position,
+	:mail_adress,
 	'USER99',
 	CURRENT_TIMESTAMP,
 	'USER99',
@@ -0,0 +1,233 @@
+package jp.co.ezeus.common.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * 差分読み込み対象テーブルの定義クラス
+ * </p>
+ * 差分読み込み（@see {@link DeltaTableRefresher}）の対象となるテーブル名、キー列、 取得列を保持し、読み込み用のSQL文を作成する。<br>
+ * 各テーブルは更新日時（update_date）と削除フラグ（delete_flg）を持つことが前提。 列名が異なる場合はsetterで変更する。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class DeltaTableConfig {
+
+    /**
+     * 更新日時の列名の既定値
+     */
+    public static final String DEFAULT_UPDATE_COLUMN = "update_date";
+
+    /**
+     * 削除フラグの列名の既定値
+     */
+    public static final String DEFAULT_DELETE_COLUMN = "delete_flg";
+
+    /**
+     * 削除フラグの有効値
+     */
+    public static final String DELETE_FLG_ACTIVE = "0";
+
+    /**
+     * 差分読み込み時の重複期間の既定値（ミリ秒）
+     */
+    public static final long DEFAULT_OVERLAP_MILLIS = 5000L;
+
+    /**
+     * テーブル名
+     */
+    private final String tableName;
+
+    /**
+     * キー列名
+     */
+    private final String keyColumn;
+
+    /**
+     * 取得列名
+     */
+    private final List<String> columns;
+
+    /**
+     * 更新日時の列名
+     */
+    private String updateColumn = DEFAULT_UPDATE_COLUMN;
+
+    /**
+     * 削除フラグの列名
+     */
+    private String deleteColumn = DEFAULT_DELETE_COLUMN;
+
+    /**
+     * 差分読み込み時の重複期間（ミリ秒）
+     */
+    private long overlapMillis = DEFAULT_OVERLAP_MILLIS;
+
+    /**
+     * コンストラクタ
+     *
+     * @param tableName テーブル名
+     * @param keyColumn キー列名
+     * @param columns 取得列名（キー列を含む）
+     * @author H.Abe
+     */
+    public DeltaTableConfig(String tableName, String keyColumn, String... columns) {
+        if (null == tableName || null == keyColumn) {
+            throw new IllegalArgumentException("tableName and keyColumn are required");
+        }
+        this.tableName = tableName;
+        this.keyColumn = keyColumn;
+        List<String> projection = new ArrayList<String>(Arrays.asList(columns));
+        if (!projection.contains(keyColumn)) {
+            projection.add(0, keyColumn);
+        }
+        this.columns = Collections.unmodifiableList(projection);
+    }
+
+    /**
+     * テーブル名を取得する。
+     *
+     * @return String
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * キー列名を取得する。
+     *
+     * @return String
+     */
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    /**
+     * 取得列名を取得する。
+     *
+     * @return List<String>
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * 更新日時の列名を取得する。
+     *
+     * @return String
+     */
+    public String getUpdateColumn() {
+        return updateColumn;
+    }
+
+    /**
+     * 更新日時の列名を設定する。
+     *
+     * @param updateColumn 更新日時の列名
+     */
+    public void setUpdateColumn(String updateColumn) {
+        this.updateColumn = updateColumn;
+    }
+
+    /**
+     * 削除フラグの列名を取得する。
+     *
+     * @return String
+     */
+    public String getDeleteColumn() {
+        return deleteColumn;
+    }
+
+    /**
+     * 削除フラグの列名を設定する。
+     *
+     * @param deleteColumn 削除フラグの列名
+     */
+    public void setDeleteColumn(String deleteColumn) {
+        this.deleteColumn = deleteColumn;
+    }
+
+    /**
+     * 差分読み込み時の重複期間（ミリ秒）を取得する。
+     *
+     * @return long
+     */
+    public long getOverlapMillis() {
+        return overlapMillis;
+    }
+
+    /**
+     * 差分読み込み時の重複期間（ミリ秒）を設定する。 前回読み込んだ最大更新日時からこの期間を遡って読み込むことで、
+     * 読み込み時点で未コミットだった更新の取りこぼしを防ぐ。 重複して読み込んだ行は上書きされるのみのため、結果は変わらない。
+     *
+     * @param overlapMillis 重複期間（ミリ秒）
+     */
+    public void setOverlapMillis(long overlapMillis) {
+        this.overlapMillis = Math.max(overlapMillis, 0L);
+    }
+
+    /**
+     * 全件読み込み用のSQL文を作成する。 有効データ（削除フラグ = '0'）のみを対象とする。
+     *
+     * @return String
+     * @author H.Abe
+     */
+    public String createFullQuery() {
+        StringBuilder builder = createSelect();
+        builder.append(" where ").append(deleteColumn).append(" = '").append(DELETE_FLG_ACTIVE).append("'");
+        return builder.toString();
+    }
+
+    /**
+     * 差分読み込み用のSQL文を作成する。 更新日時を1つ目のバインド変数とし、論理削除された行も対象とする。
+     *
+     * @return String
+     * @author H.Abe
+     */
+    public String createDeltaQuery() {
+        StringBuilder builder = createSelect();
+        builder.append(" where ").append(updateColumn).append(" >= ?");
+        builder.append(" order by ").append(updateColumn);
+        return builder.toString();
+    }
+
+    /**
+     * ウォーターマーク取得用のSQL文を作成する。 論理削除された行を含めた更新日時の最大値を取得する。
+     *
+     * @return String
+     * @author H.Abe
+     */
+    public String createWatermarkQuery() {
+        return "select max(" + updateColumn + ") from " + tableName;
+    }
+
+    /**
+     * SELECT句、FROM句を作成する。
+     *
+     * @return StringBuilder
+     */
+    private StringBuilder createSelect() {
+        StringBuilder builder = new StringBuilder("select ");
+        for (String column : columns) {
+            builder.append(column).append(", ");
+        }
+        builder.append(updateColumn).append(", ").append(deleteColumn);
+        builder.append(" from ").append(tableName);
+        return builder;
+    }
+
+    /**
+     * 定義内容を文字列で返却する。
+     *
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return "DeltaTableConfig[" + tableName + ", key=" + keyColumn + ", columns=" + columns + "]";
+    }
+}
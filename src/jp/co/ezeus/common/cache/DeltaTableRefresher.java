@@ -0,0 +1,397 @@
+package jp.co.ezeus.common.cache;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import jp.co.ezeus.common.dao.CommonDao;
+import jp.co.ezeus.common.dto.BindBuffer;
+
+/**
+ * <p>
+ * テーブルの差分読み込みクラス
+ * </p>
+ * 1つのテーブルをキー列の値をキーとしてメモリ上に保持し、 前回読み込んだ最大更新日時（ウォーターマーク）以降に更新された行のみを
+ * 読み込んで反映する。 全件の再読み込みを行わないため、読み込み毎のDB負荷とオブジェクト生成を更新件数分に抑える。<br>
+ * 削除フラグが有効値以外の行は論理削除として保持データから除外する。<br>
+ * 初回のrefresh()は有効データの全件読み込みとなる。 以降はstart()にてScheduledExecutorServiceから定期的に実行する。<br>
+ * 保持データはConcurrentHashMapのため、読み込み中も同期化せずに参照できる。
+ *
+ * @see DeltaTableConfig
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class DeltaTableRefresher {
+
+    /**
+     * 読み込みに使用する共通DAO
+     */
+    private final CommonDao dao;
+
+    /**
+     * テーブル定義
+     */
+    private final DeltaTableConfig config;
+
+    /**
+     * 全件読み込み用SQL文
+     */
+    private final String fullQuery;
+
+    /**
+     * 差分読み込み用SQL文
+     */
+    private final String deltaQuery;
+
+    /**
+     * ウォーターマーク取得用SQL文
+     */
+    private final String watermarkQuery;
+
+    /**
+     * 差分読み込みのバインド変数（refresh()は同期化するため、呼び出し元のスレッドのBindBufferを使用せず共有する）
+     */
+    private final BindBuffer deltaBinds = new BindBuffer(1);
+
+    /**
+     * キー列の値（文字列）をキーとする行
+     */
+    private final ConcurrentHashMap<String, Map<String, Object>> rows = new ConcurrentHashMap<String, Map<String, Object>>();
+
+    /**
+     * 読み込み済みの最大更新日時
+     */
+    private volatile Timestamp watermark;
+
+    /**
+     * 最終読み込み成功日時（ミリ秒）
+     */
+    private volatile long lastSuccessAt;
+
+    /**
+     * 最終読み込みの所要時間（ミリ秒）
+     */
+    private volatile long lastDurationMillis;
+
+    /**
+     * 最終読み込みの反映件数
+     */
+    private volatile int lastMergedCount;
+
+    /**
+     * 読み込み回数
+     */
+    private volatile long refreshCount;
+
+    /**
+     * 読み込み失敗回数（refresh()の外からも加算するためAtomicLongとする）
+     */
+    private final AtomicLong failureCount = new AtomicLong();
+
+    /**
+     * 最終読み込み失敗時の例外
+     */
+    private volatile SQLException lastFailure;
+
+    /**
+     * 定期実行の実行者（start()にて生成した場合のみ保持）
+     */
+    private ScheduledExecutorService ownExecutor;
+
+    /**
+     * 定期実行のタスク
+     */
+    private ScheduledFuture<?> scheduled;
+
+    /**
+     * コンストラクタ
+     *
+     * @param dao 読み込みに使用する共通DAO
+     * @param config テーブル定義
+     * @author H.Abe
+     */
+    public DeltaTableRefresher(CommonDao dao, DeltaTableConfig config) {
+        this.dao = dao;
+        this.config = config;
+        this.fullQuery = config.createFullQuery();
+        this.deltaQuery = config.createDeltaQuery();
+        this.watermarkQuery = config.createWatermarkQuery();
+    }
+
+    /**
+     * 更新された行を読み込み、保持データへ反映する。 初回は有効データの全件読み込みを行う。<br>
+     * 差分読み込みは重複期間を含めて行うため、同じ行を再度読み込んだ場合も結果は変わらない。
+     *
+     * @return int 反映件数
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public synchronized int refresh() throws SQLException {
+        long start = System.currentTimeMillis();
+        List<Map<String, Object>> changed;
+        Timestamp newWatermark = watermark;
+        try {
+            if (null == watermark) {
+                changed = dao.commonSelectByQuery(fullQuery);
+            } else {
+                long from = watermark.getTime() - config.getOverlapMillis();
+                changed = dao.commonSelectByBindBuffer(deltaQuery, deltaBinds.setTimestamp(1, new Timestamp(from)));
+            }
+        } catch (SQLException sqlException) {
+            failureCount.incrementAndGet();
+            lastFailure = sqlException;
+            throw new SQLException(sqlException);
+        }
+        for (Map<String, Object> row : changed) {
+            String key = String.valueOf(row.get(config.getKeyColumn()));
+            Object deleteFlg = row.get(config.getDeleteColumn());
+            if (null == deleteFlg || DeltaTableConfig.DELETE_FLG_ACTIVE.equals(deleteFlg.toString())) {
+                rows.put(key, row);
+            } else {
+                rows.remove(key);
+            }
+            Object updated = row.get(config.getUpdateColumn());
+            if (updated instanceof Timestamp && (null == newWatermark || newWatermark.before((Timestamp) updated))) {
+                newWatermark = (Timestamp) updated;
+            }
+        }
+        if (null == newWatermark) {
+            // 有効データが存在しない場合はDBから起点を取得する（APサーバの時刻は使用しない）
+            try {
+                newWatermark = selectWatermark();
+            } catch (SQLException sqlException) {
+                failureCount.incrementAndGet();
+                lastFailure = sqlException;
+                throw new SQLException(sqlException);
+            }
+        }
+        watermark = newWatermark;
+        lastSuccessAt = System.currentTimeMillis();
+        lastDurationMillis = lastSuccessAt - start;
+        lastMergedCount = changed.size();
+        lastFailure = null;
+        refreshCount++;
+        return changed.size();
+    }
+
+    /**
+     * 有効データが存在しない場合のウォーターマークをDBから取得する。 論理削除された行を含めた更新日時の最大値とし、
+     * 行が存在しない場合はエポック（1970-01-01）とする。<br>
+     * APサーバの時刻は使用しないため、APサーバとDBの時刻がずれていても、以降に登録された行を読み落とさない。
+     *
+     * @return Timestamp
+     * @throws SQLException
+     */
+    private Timestamp selectWatermark() throws SQLException {
+        List<Map<String, Object>> result = dao.commonSelectByQuery(watermarkQuery);
+        if (!result.isEmpty() && !result.get(0).isEmpty()) {
+            Object max = result.get(0).values().iterator().next();
+            if (max instanceof Timestamp) {
+                return (Timestamp) max;
+            }
+        }
+        return new Timestamp(0L);
+    }
+
+    /**
+     * 定期的な差分読み込みを開始する。 当クラス専用のデーモンスレッドで実行する。
+     *
+     * @param period 実行間隔
+     * @param unit 実行間隔の単位
+     * @author H.Abe
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        if (null == ownExecutor) {
+            ownExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "delta-refresh-" + config.getTableName());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        start(ownExecutor, period, unit);
+    }
+
+    /**
+     * 定期的な差分読み込みを開始する。 複数テーブルで実行者を共有する場合に使用する。<br>
+     * 読み込みに失敗した場合も定期実行は継続し、失敗回数と例外を保持する。
+     *
+     * @param executor 実行者
+     * @param period 実行間隔
+     * @param unit 実行間隔の単位
+     * @author H.Abe
+     */
+    public synchronized void start(ScheduledExecutorService executor, long period, TimeUnit unit) {
+        if (null != scheduled) {
+            scheduled.cancel(false);
+        }
+        scheduled = executor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    refresh();
+                } catch (SQLException sqlException) {
+                    // 失敗内容はgetLastFailure()で参照する
+                } catch (RuntimeException runtimeException) {
+                    // 例外で定期実行が停止しないよう、失敗として扱う
+                    failureCount.incrementAndGet();
+                    lastFailure = new SQLException(runtimeException);
+                }
+            }
+        }, 0L, period, unit);
+    }
+
+    /**
+     * 定期的な差分読み込みを停止する。 start(long, TimeUnit)で生成した実行者は終了する。
+     *
+     * @author H.Abe
+     */
+    public synchronized void stop() {
+        if (null != scheduled) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        if (null != ownExecutor) {
+            ownExecutor.shutdown();
+            ownExecutor = null;
+        }
+    }
+
+    /**
+     * キー列の値に該当する行を取得する。 該当データが存在しない場合はNULLを返却する。
+     *
+     * @param key キー列の値
+     * @return Map<String, Object>
+     */
+    public Map<String, Object> get(Object key) {
+        return rows.get(String.valueOf(key));
+    }
+
+    /**
+     * 保持している全ての行を取得する。 返却値は参照専用で、読み込みの反映は随時参照できる。
+     *
+     * @return Map<String, Map<String, Object>>
+     */
+    public Map<String, Map<String, Object>> getAll() {
+        return Collections.unmodifiableMap(rows);
+    }
+
+    /**
+     * 保持件数を取得する。
+     *
+     * @return int
+     */
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * テーブル定義を取得する。
+     *
+     * @return DeltaTableConfig
+     */
+    public DeltaTableConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 読み込み済みの最大更新日時を取得する。 未読み込みの場合はNULLを返却する。
+     *
+     * @return Timestamp
+     */
+    public Timestamp getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * データの遅延（ミリ秒）を取得する。 現在日時と最終読み込み成功日時との差であり、DB上の更新が
+     * 保持データへ反映されるまでの最大遅延となる。 未読み込みの場合は-1を返却する。
+     *
+     * @return long
+     */
+    public long getLagMillis() {
+        long success = lastSuccessAt;
+        return (0L == success) ? -1L : System.currentTimeMillis() - success;
+    }
+
+    /**
+     * 最終読み込み成功日時（ミリ秒）を取得する。
+     *
+     * @return long
+     */
+    public long getLastSuccessAt() {
+        return lastSuccessAt;
+    }
+
+    /**
+     * 最終読み込みの所要時間（ミリ秒）を取得する。
+     *
+     * @return long
+     */
+    public long getLastDurationMillis() {
+        return lastDurationMillis;
+    }
+
+    /**
+     * 最終読み込みの反映件数を取得する。
+     *
+     * @return int
+     */
+    public int getLastMergedCount() {
+        return lastMergedCount;
+    }
+
+    /**
+     * 読み込み回数を取得する。
+     *
+     * @return long
+     */
+    public long getRefreshCount() {
+        return refreshCount;
+    }
+
+    /**
+     * 読み込み失敗回数を取得する。
+     *
+     * @return long
+     */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * 最終読み込み失敗時の例外を取得する。 最終読み込みが成功している場合はNULLを返却する。
+     *
+     * @return SQLException
+     */
+    public SQLException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * 読み込み状況を文字列で返却する。
+     *
+     * @return String
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("DeltaTableRefresher[");
+        builder.append(config.getTableName());
+        builder.append(", size=").append(rows.size());
+        builder.append(", watermark=").append(watermark);
+        builder.append(", lag=").append(getLagMillis());
+        builder.append(", lastMerged=").append(lastMergedCount);
+        builder.append(", refresh=").append(refreshCount);
+        builder.append(", failure=").append(failureCount.get());
+        return builder.append("]").toString();
+    }
+}
@@ -0,0 +1,478 @@
+package jp.co.ezeus.common.cache;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import jp.co.ezeus.common.dao.CommonDao;
+import jp.co.ezeus.common.dto.BindingDto;
+import jp.co.ezeus.common.dto.ResultRow;
+import jp.co.ezeus.common.rdbControl.ResultCursor;
+import jp.co.ezeus.common.utilities.DBResourceControl;
+
+/**
+ * <p>
+ * 社員IDの索引クラス
+ * </p>
+ * 全社員の社員ID（SQL_SELECT_EMPLOYEE_ID）をカーソルで1行ずつ読み込み、昇順のlong配列と ブルームフィルタとしてメモリ上に保持する。
+ * 登録時の重複チェック等の存在確認を、SQLを発行せず、値のボクシング等のオブジェクト生成無しに O(log n)で行う。<br>
+ * 読み込み後に登録した社員IDは、追加分の昇順配列へ保持し、一定件数を超えた時点で本体の配列へ併合する。 共通DAOを
+ * @see {@link EmployeeIdIndexingDao}（作業単位を使用する場合は @see {@link EmployeeIdIndexingPluralDao}）で包むと、
+ * DAO経由の社員情報の登録を自動的に反映する。<br>
+ * 参照は現在のスナップショットを取得するのみで、ロックを取得しない。 追加、再読み込みは新しいスナップショットを生成して置き換えるため、
+ * 参照側が変更途中の状態を参照することはない。<br>
+ * 社員IDは数値（数字のみの文字列を含む）とする。 DAOを経由しない登録、削除は反映されないため、reload()で再読み込みを行う。<br>
+ * 読み込み前の判定は、存在する社員IDを存在しないと誤って判定しないよう、IllegalStateExceptionとする。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class EmployeeIdIndex {
+
+    /** 社員ID全件 */
+    public static final String SQL_SELECT_EMPLOYEE_ID = "SQL_SELECT_EMPLOYEE_ID";
+
+    /** 社員IDの列名 */
+    public static final String COLUMN_EMPLOYEE_ID = "employee_id";
+
+    /**
+     * ブルームフィルタの偽陽性率
+     */
+    private static final double FALSE_POSITIVE_RATE = 0.01d;
+
+    /**
+     * 追加分の配列の最小の併合件数
+     */
+    private static final int MIN_DELTA_LIMIT = 256;
+
+    /**
+     * 読み込みに使用する共通DAO
+     */
+    private final CommonDao dao;
+
+    /**
+     * 読み込み時のfetchSize
+     */
+    private final int fetchSize;
+
+    /**
+     * 現在のスナップショット（未読み込みの場合はNULL）
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * 再読み込み中に追加した社員ID（再読み込み中以外はNULL）
+     */
+    private long[] pending;
+
+    /**
+     * 再読み込み中に追加した社員IDの件数
+     */
+    private int pendingCount;
+
+    /**
+     * コンストラクタ
+     *
+     * @param dao 読み込みに使用する共通DAO
+     */
+    public EmployeeIdIndex(CommonDao dao) {
+        this(dao, ResultCursor.DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * コンストラクタ
+     *
+     * @param dao 読み込みに使用する共通DAO
+     * @param fetchSize 読み込み時に1回の通信で取得する行数
+     * @author H.Abe
+     */
+    public EmployeeIdIndex(CommonDao dao, int fetchSize) {
+        this.dao = dao;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * 全社員の社員IDを読み込み、スナップショットを置き換える。 読み込み中の参照は現在のスナップショットで行い、
+     * 読み込み中にadd()で追加した社員IDは読み込み後のスナップショットへ反映する。 読み込みに失敗した場合は現在のスナップショットを保持する。
+     *
+     * @return int 読み込み後の件数
+     * @throws SQLException
+     * @throws IOException
+     * @author H.Abe
+     */
+    public int reload() throws SQLException, IOException {
+        synchronized (this) {
+            if (null != pending) {
+                throw new IllegalStateException("employee id index is already reloading");
+            }
+            pending = new long[16];
+            pendingCount = 0;
+        }
+        long[] loaded = null;
+        try {
+            loaded = load();
+        } finally {
+            synchronized (this) {
+                if (null != loaded) {
+                    Snapshot replaced = Snapshot.of(loaded, loaded.length);
+                    for (int i = 0; i < pendingCount; i++) {
+                        replaced = replaced.add(pending[i]);
+                    }
+                    snapshot = replaced;
+                }
+                pending = null;
+            }
+        }
+        return size();
+    }
+
+    /**
+     * 社員IDが存在するかを判定する。
+     *
+     * @param employeeId 社員ID
+     * @return boolean
+     */
+    public boolean contains(long employeeId) {
+        return current().contains(employeeId);
+    }
+
+    /**
+     * 社員IDが存在するかを判定する。 登録用のパラメータ（Map）の値をそのまま指定する場合に使用する。
+     *
+     * @param employeeId 社員ID（数値、または数字のみの文字列）
+     * @return boolean
+     * @throws IllegalArgumentException 数値に変換できない場合
+     */
+    public boolean contains(Object employeeId) {
+        return current().contains(toKey(employeeId));
+    }
+
+    /**
+     * 社員IDを追加する。 既に存在する場合は追加しない。 未読み込みの場合は、読み込み時にDBから取得するため追加しない。
+     *
+     * @param employeeId 社員ID
+     * @return boolean 追加した場合true
+     * @author H.Abe
+     */
+    public synchronized boolean add(long employeeId) {
+        if (null != pending) {
+            if (pendingCount == pending.length) {
+                pending = Arrays.copyOf(pending, pendingCount * 2);
+            }
+            pending[pendingCount++] = employeeId;
+        }
+        Snapshot current = snapshot;
+        if (null == current || current.contains(employeeId)) {
+            return false;
+        }
+        snapshot = current.add(employeeId);
+        return true;
+    }
+
+    /**
+     * 読み込み済みかを判定する。
+     *
+     * @return boolean
+     */
+    public boolean isLoaded() {
+        return null != snapshot;
+    }
+
+    /**
+     * 件数を取得する。 未読み込みの場合は0を返却する。
+     *
+     * @return int
+     */
+    public int size() {
+        Snapshot current = snapshot;
+        return (null == current) ? 0 : current.size();
+    }
+
+    /**
+     * 範囲内（開始値以上、終了値未満）の社員IDの件数を取得する。
+     *
+     * @param fromInclusive 開始値
+     * @param toExclusive 終了値
+     * @return int
+     */
+    public int countInRange(long fromInclusive, long toExclusive) {
+        return current().countInRange(fromInclusive, toExclusive);
+    }
+
+    /**
+     * 範囲内（開始値以上、終了値未満）の社員IDを昇順で取得する。
+     *
+     * @param fromInclusive 開始値
+     * @param toExclusive 終了値
+     * @return long[]
+     */
+    public long[] range(long fromInclusive, long toExclusive) {
+        return current().range(fromInclusive, toExclusive);
+    }
+
+    /**
+     * 社員IDを索引の値へ変換する。
+     *
+     * @param employeeId 社員ID（数値、または数字のみの文字列）
+     * @return long
+     * @throws IllegalArgumentException 数値に変換できない場合
+     */
+    public static long toKey(Object employeeId) {
+        if (null == employeeId) {
+            throw new IllegalArgumentException("employee id must not be null");
+        }
+        if (employeeId instanceof Number) {
+            return ((Number) employeeId).longValue();
+        }
+        try {
+            return Long.parseLong(employeeId.toString().trim());
+        } catch (NumberFormatException numberFormatException) {
+            throw new IllegalArgumentException("employee id is not numeric: " + employeeId, numberFormatException);
+        }
+    }
+
+    /**
+     * 現在のスナップショットを取得する。
+     *
+     * @return Snapshot
+     * @throws IllegalStateException 未読み込みの場合
+     */
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (null == current) {
+            throw new IllegalStateException("employee id index is not loaded: call reload()");
+        }
+        return current;
+    }
+
+    /**
+     * 全社員の社員IDをカーソルで読み込み、昇順で重複の無い配列を生成する。
+     *
+     * @return long[]
+     * @throws SQLException
+     * @throws IOException
+     */
+    private long[] load() throws SQLException, IOException {
+        String query = DBResourceControl.getInstance().readSQLFile(SQL_SELECT_EMPLOYEE_ID);
+        long[] ids = new long[Math.max(size() + MIN_DELTA_LIMIT, 1024)];
+        int count = 0;
+        ResultCursor cursor = dao.commonOpenCursorByBindQuery(query, Collections.<BindingDto> emptyList(), fetchSize);
+        try {
+            for (Map<String, Object> row : cursor) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count + (count >> 1));
+                }
+                Object value = (row instanceof ResultRow) ? ((ResultRow) row).getValue(0) : row.get(COLUMN_EMPLOYEE_ID);
+                ids[count++] = toKey(value);
+            }
+        } finally {
+            cursor.close();
+        }
+        Arrays.sort(ids, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (0 == unique || ids[unique - 1] != ids[i]) {
+                ids[unique++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, unique);
+    }
+
+    /**
+     * 昇順の配列の範囲内で、値以上となる最初の位置を取得する。
+     *
+     * @param values 昇順の配列
+     * @param length 配列の有効件数
+     * @param value 値
+     * @return int
+     */
+    private static int lowerBound(long[] values, int length, long value) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * <p>
+     * 社員IDの索引のスナップショットクラス
+     * </p>
+     * 読み込み時の昇順配列（本体）、読み込み後に追加した昇順配列（追加分）、両方の値を登録したブルームフィルタを保持する。<br>
+     * 配列は生成後に変更しない。 ブルームフィルタは後続のスナップショットと共有し、追加した値を登録してから公開する。<br>
+     * 共有したブルームフィルタを参照側はロック無しで読むが、追加はビットを立てるのみで消さないため、 古いスナップショットが読む値は
+     * 自身の値のビットを必ず含む（32bitのJVMでlongの読み込みが分断された場合も、新旧どちらのビットも自身の値のビットを含む）。
+     * 古いスナップショットで後から追加した値のビットが見えても、配列の検索で存在しないと判定するため結果は変わらない。
+     * 追加毎にブルームフィルタを複製すると件数に比例する複製が必要となるため共有する。
+     *
+     * @author H.Abe
+     * @version 1.0
+     *
+     */
+    private static final class Snapshot {
+
+        /**
+         * 本体（昇順）
+         */
+        private final long[] base;
+
+        /**
+         * 追加分（昇順）
+         */
+        private final long[] delta;
+
+        /**
+         * ブルームフィルタ
+         */
+        private final LongBloomFilter filter;
+
+        /**
+         * コンストラクタ
+         *
+         * @param base 本体
+         * @param delta 追加分
+         * @param filter ブルームフィルタ
+         */
+        private Snapshot(long[] base, long[] delta, LongBloomFilter filter) {
+            this.base = base;
+            this.delta = delta;
+            this.filter = filter;
+        }
+
+        /**
+         * 昇順配列からスナップショットを生成する。 ブルームフィルタは追加分の余裕を持たせた件数で生成する。
+         *
+         * @param ids 昇順で重複の無い社員ID
+         * @param length 有効件数
+         * @return Snapshot
+         */
+        static Snapshot of(long[] ids, int length) {
+            long[] base = (ids.length == length) ? ids : Arrays.copyOf(ids, length);
+            LongBloomFilter filter = new LongBloomFilter(length + (long) deltaLimit(length) * 2L, FALSE_POSITIVE_RATE);
+            for (long id : base) {
+                filter.put(id);
+            }
+            return new Snapshot(base, new long[0], filter);
+        }
+
+        /**
+         * 追加分を本体へ併合する件数を取得する。 本体の1/64とし、最小件数を下回らないようにする。
+         *
+         * @param baseLength 本体の件数
+         * @return int
+         */
+        static int deltaLimit(int baseLength) {
+            return Math.max(MIN_DELTA_LIMIT, baseLength >>> 6);
+        }
+
+        /**
+         * 社員IDが存在するかを判定する。 ブルームフィルタで存在しないと判定した場合は配列を検索しない。
+         *
+         * @param id 社員ID
+         * @return boolean
+         */
+        boolean contains(long id) {
+            if (!filter.mightContain(id)) {
+                return false;
+            }
+            return Arrays.binarySearch(base, id) >= 0 || (0 != delta.length && Arrays.binarySearch(delta, id) >= 0);
+        }
+
+        /**
+         * 社員IDを追加したスナップショットを生成する。 追加分が併合件数を超えた場合は本体へ併合する。
+         *
+         * @param id 存在しない社員ID
+         * @return Snapshot
+         */
+        Snapshot add(long id) {
+            int position = lowerBound(delta, delta.length, id);
+            if (position < delta.length && delta[position] == id || Arrays.binarySearch(base, id) >= 0) {
+                return this;
+            }
+            long[] added = new long[delta.length + 1];
+            System.arraycopy(delta, 0, added, 0, position);
+            added[position] = id;
+            System.arraycopy(delta, position, added, position + 1, delta.length - position);
+            if (added.length > deltaLimit(base.length)) {
+                // ブルームフィルタも併合後の件数で生成し直し、偽陽性率を保つ
+                return of(merge(base, added), base.length + added.length);
+            }
+            // 共有中のブルームフィルタへ登録する（ビットを立てるのみのため、古いスナップショットの判定は変わらない）
+            filter.put(id);
+            return new Snapshot(base, added, filter);
+        }
+
+        /**
+         * 件数を取得する。
+         *
+         * @return int
+         */
+        int size() {
+            return base.length + delta.length;
+        }
+
+        /**
+         * 範囲内の件数を取得する。
+         *
+         * @param from 開始値（含む）
+         * @param to 終了値（含まない）
+         * @return int
+         */
+        int countInRange(long from, long to) {
+            if (from >= to) {
+                return 0;
+            }
+            return lowerBound(base, base.length, to) - lowerBound(base, base.length, from) + lowerBound(delta, delta.length, to)
+                    - lowerBound(delta, delta.length, from);
+        }
+
+        /**
+         * 範囲内の社員IDを本体と追加分を併合して昇順で取得する。
+         *
+         * @param from 開始値（含む）
+         * @param to 終了値（含まない）
+         * @return long[]
+         */
+        long[] range(long from, long to) {
+            if (from >= to) {
+                return new long[0];
+            }
+            int baseStart = lowerBound(base, base.length, from);
+            int baseEnd = lowerBound(base, base.length, to);
+            int deltaStart = lowerBound(delta, delta.length, from);
+            int deltaEnd = lowerBound(delta, delta.length, to);
+            long[] result = new long[baseEnd - baseStart + deltaEnd - deltaStart];
+            int i = baseStart;
+            int j = deltaStart;
+            for (int k = 0; k < result.length; k++) {
+                result[k] = (j >= deltaEnd || i < baseEnd && base[i] < delta[j]) ? base[i++] : delta[j++];
+            }
+            return result;
+        }
+
+        /**
+         * 2つの昇順配列を併合する。
+         *
+         * @param values1 昇順配列
+         * @param values2 昇順配列
+         * @return long[]
+         */
+        private static long[] merge(long[] values1, long[] values2) {
+            long[] merged = new long[values1.length + values2.length];
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < merged.length; k++) {
+                merged[k] = (j >= values2.length || i < values1.length && values1[i] < values2[j]) ? values1[i++] : values2[j++];
+            }
+            return merged;
+        }
+    }
+}
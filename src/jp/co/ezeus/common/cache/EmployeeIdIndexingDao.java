@@ -0,0 +1,209 @@
+package jp.co.ezeus.common.cache;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import jp.co.ezeus.common.dao.CommonDao;
+import jp.co.ezeus.common.dao.impl.DelegatingCommonDao;
+import jp.co.ezeus.common.dto.BindBuffer;
+import jp.co.ezeus.common.dto.BindingDto;
+
+/**
+ * <p>
+ * 社員IDの索引を更新する共通DAOクラス
+ * </p>
+ * 共通DAOを包み、社員情報の登録が成功した場合に、登録した社員IDを社員IDの索引（@see {@link EmployeeIdIndex}）へ追加する。
+ * 登録が失敗した場合は追加しない。<br>
+ * 共通DAOは1回の発行毎にCOMMITするため、発行後に追加する。 作業単位（トランザクション）内の登録は
+ * @see {@link EmployeeIdIndexingPluralDao} で包み、COMMIT後に追加する。<br>
+ * SQLキーによる登録は、コンストラクタで指定したSQLキー（SQL_INSERT_EMPLOYEE_INFO等）を対象とし、名前付きパラメータは
+ * パラメータ名、置換文字リストは社員IDのパラメータ位置から社員IDを取得する。 SQL文を直接指定した登録（commonInsertByQuery、
+ * commonInsertByBindQuery、commonExecuteByBindBuffer、commonExecuteBatchByBindQuery）は、社員情報（employee_info）への
+ * INSERT文を解析して社員IDの位置を特定する。<br>
+ * 社員IDを特定できない登録（INSERT ... SELECT、複数行のVALUES句、社員IDが式の場合、更新、削除用のメソッドでの登録）は
+ * 反映しないため、EmployeeIdIndex.reload()を行うこと。<br>
+ * 登録前の重複チェックは索引のcontains()で行い、SQL_SELECT_EMPLOYEE_IDによる全件取得を行わない。
+ *
+ * <pre>
+ * EmployeeIdIndex index = new EmployeeIdIndex(dao);
+ * index.reload();
+ * CommonDao indexingDao = new EmployeeIdIndexingDao(dao, index);
+ * if (!index.contains(params.get(&quot;employee_id&quot;))) {
+ *     indexingDao.commonExecuteBySqlKey(&quot;SQL_INSERT_EMPLOYEE_INFO&quot;, params);
+ * }
+ * </pre>
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class EmployeeIdIndexingDao extends DelegatingCommonDao {
+
+    /** 社員情報登録 */
+    public static final String SQL_INSERT_EMPLOYEE_INFO = "SQL_INSERT_EMPLOYEE_INFO";
+
+    /**
+     * 社員IDの索引
+     */
+    private final EmployeeIdIndex index;
+
+    /**
+     * 索引へ反映する登録のSQLキー
+     */
+    private final Set<String> insertKeys;
+
+    /**
+     * コンストラクタ<br>
+     * 索引へ反映する登録のSQLキーはSQL_INSERT_EMPLOYEE_INFOとする。
+     *
+     * @param delegate 委譲先の共通DAO
+     * @param index 社員IDの索引
+     */
+    public EmployeeIdIndexingDao(CommonDao delegate, EmployeeIdIndex index) {
+        this(delegate, index, SQL_INSERT_EMPLOYEE_INFO);
+    }
+
+    /**
+     * コンストラクタ
+     *
+     * @param delegate 委譲先の共通DAO
+     * @param index 社員IDの索引
+     * @param insertKeys 索引へ反映する登録のSQLキー（名前付きパラメータに社員IDを持つもの）
+     */
+    public EmployeeIdIndexingDao(CommonDao delegate, EmployeeIdIndex index, String... insertKeys) {
+        super(delegate);
+        this.index = index;
+        this.insertKeys = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(insertKeys)));
+    }
+
+    /**
+     * 社員IDの索引を取得する。
+     *
+     * @return EmployeeIdIndex
+     */
+    public EmployeeIdIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * SQLキーに対応するDML文を発行する。（名前付きパラメータ） 社員情報の登録が成功した場合は社員IDを索引へ追加する。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param params パラメータ名をキーとする値
+     * @throws SQLException
+     * @author H.Abe
+     */
+    @Override
+    public void commonExecuteBySqlKey(String sqlKey, Map<String, ?> params) throws SQLException {
+        super.commonExecuteBySqlKey(sqlKey, params);
+        if (insertKeys.contains(sqlKey)) {
+            add(params.get(EmployeeIdIndex.COLUMN_EMPLOYEE_ID));
+        }
+    }
+
+    /**
+     * SQLキーに対応するDML文を発行する。（置換文字リスト） 社員情報の登録が成功した場合は、
+     * 社員IDのパラメータ位置（名前付きパラメータの場合はパラメータ名の位置）の置換文字を索引へ追加する。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param binds 置換文字リスト
+     * @throws SQLException
+     * @author H.Abe
+     */
+    @Override
+    public void commonExecuteBySqlKey(String sqlKey, List<String> binds) throws SQLException {
+        EmployeeIdInsert insert = insertKeys.contains(sqlKey) ? EmployeeIdInsert.forSqlKey(sqlKey) : null;
+        Object employeeId = (null == insert) ? null : insert.fromLiterals(binds);
+        super.commonExecuteBySqlKey(sqlKey, binds);
+        add(employeeId);
+    }
+
+    /**
+     * 共通INSERT文を発行する。 社員情報の登録が成功した場合は、社員IDのリテラルを索引へ追加する。
+     *
+     * @param query SQL文
+     * @throws SQLException
+     * @author H.Abe
+     */
+    @Override
+    public void commonInsertByQuery(String query) throws SQLException {
+        EmployeeIdInsert insert = EmployeeIdInsert.parse(query);
+        Object employeeId = (null == insert) ? null : insert.fromLiterals(null);
+        super.commonInsertByQuery(query);
+        add(employeeId);
+    }
+
+    /**
+     * 共通INSERT文を発行する。（バインド変数） 社員情報の登録が成功した場合は、社員IDのバインド変数の値を索引へ追加する。
+     *
+     * @param query SQL文
+     * @param binds バインド変数リスト
+     * @throws SQLException
+     * @author H.Abe
+     */
+    @Override
+    public void commonInsertByBindQuery(String query, List<BindingDto> binds) throws SQLException {
+        EmployeeIdInsert insert = EmployeeIdInsert.parse(query);
+        Object employeeId = (null == insert) ? null : insert.fromBindings(binds);
+        super.commonInsertByBindQuery(query, binds);
+        add(employeeId);
+    }
+
+    /**
+     * 共通DML文を発行する。（BindBuffer） 社員情報の登録が成功した場合は、社員IDのバインド変数の値を索引へ追加する。
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @throws SQLException
+     * @author H.Abe
+     */
+    @Override
+    public void commonExecuteByBindBuffer(String query, BindBuffer binds) throws SQLException {
+        EmployeeIdInsert insert = EmployeeIdInsert.parse(query);
+        Object employeeId = (null == insert) ? null : insert.fromBuffer(binds);
+        super.commonExecuteByBindBuffer(query, binds);
+        add(employeeId);
+    }
+
+    /**
+     * 共通DML文を一括発行する。 社員情報の登録が成功した場合は、全ての行の社員IDを索引へ追加する。
+     *
+     * @param query SQL文
+     * @param rows 行毎のバインド変数
+     * @param batchSize 一括発行件数
+     * @return int[]
+     * @throws SQLException
+     * @author H.Abe
+     */
+    @Override
+    public int[] commonExecuteBatchByBindQuery(String query, List<List<BindingDto>> rows, int batchSize) throws SQLException {
+        EmployeeIdInsert insert = EmployeeIdInsert.parse(query);
+        List<Object> employeeIds = new ArrayList<Object>();
+        if (null != insert) {
+            for (List<BindingDto> row : rows) {
+                employeeIds.add(insert.fromBindings(row));
+            }
+        }
+        int[] counts = super.commonExecuteBatchByBindQuery(query, rows, batchSize);
+        for (Object employeeId : employeeIds) {
+            add(employeeId);
+        }
+        return counts;
+    }
+
+    /**
+     * 社員IDを索引へ追加する。 NULLの場合は追加しない。
+     *
+     * @param employeeId 社員ID
+     */
+    private void add(Object employeeId) {
+        if (null != employeeId) {
+            index.add(EmployeeIdIndex.toKey(employeeId));
+        }
+    }
+}
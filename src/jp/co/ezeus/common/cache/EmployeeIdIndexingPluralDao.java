@@ -0,0 +1,303 @@
+package jp.co.ezeus.common.cache;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import jp.co.ezeus.common.dao.CommonPluralDao;
+import jp.co.ezeus.common.dao.UnitOfWork;
+import jp.co.ezeus.common.dao.impl.DelegatingCommonPluralDao;
+import jp.co.ezeus.common.dto.BindBuffer;
+import jp.co.ezeus.common.dto.BindingDto;
+
+/**
+ * <p>
+ * 社員IDの索引を更新する共通DAOクラス（トランザクション管理無）
+ * </p>
+ * 共通DAOを包み、社員情報の登録を行ったトランザクションの COMMITが成功した場合に、登録した社員IDを
+ * 社員IDの索引（@see {@link EmployeeIdIndex}）へ追加する。 ROLLBACKした場合、COMMITせずに作業単位をcloseした場合は追加しない。<br>
+ * 対象とする登録、社員IDの取得方法は @see {@link EmployeeIdIndexingDao} と同じとする。<br>
+ * 当クラスのbeginUnitOfWork()で開始した作業単位は、作業単位のcommit()、当クラスのcommit()のどちらでも反映する。
+ * 委譲先のbeginUnitOfWork()で開始した作業単位での登録は、当クラスのcommit()で反映する。
+ *
+ * <pre>
+ * CommonPluralDao indexingDao = new EmployeeIdIndexingPluralDao(pluralDao, index);
+ * try (UnitOfWork unitOfWork = indexingDao.beginUnitOfWork()) {
+ *     indexingDao.commonExecuteBySqlKey(&quot;SQL_INSERT_EMPLOYEE_INFO&quot;, employee);
+ *     indexingDao.commonExecuteBySqlKey(&quot;SQL_INSERT_EMPLOYEE_DETAIL_INFO&quot;, detail);
+ *     unitOfWork.commit();
+ * }
+ * </pre>
+ *
+ * 作業単位と同じく、反映待ちの社員IDはスレッド毎に保持する。
+ *
+ * @see EmployeeIdIndexingDao
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class EmployeeIdIndexingPluralDao extends DelegatingCommonPluralDao {
+
+    /**
+     * 社員IDの索引
+     */
+    private final EmployeeIdIndex index;
+
+    /**
+     * 索引へ反映する登録のSQLキー
+     */
+    private final Set<String> insertKeys;
+
+    /**
+     * 当クラスで開始した作業単位
+     */
+    private final ThreadLocal<UnitOfWork> unitOfWork = new ThreadLocal<UnitOfWork>();
+
+    /**
+     * 当クラスで開始していない作業単位で登録し、COMMIT待ちの社員ID
+     */
+    private final ThreadLocal<List<Long>> pending = new ThreadLocal<List<Long>>();
+
+    /**
+     * コンストラクタ<br>
+     * 索引へ反映する登録のSQLキーはSQL_INSERT_EMPLOYEE_INFOとする。
+     *
+     * @param delegate 委譲先の共通DAO
+     * @param index 社員IDの索引
+     */
+    public EmployeeIdIndexingPluralDao(CommonPluralDao delegate, EmployeeIdIndex index) {
+        this(delegate, index, EmployeeIdIndexingDao.SQL_INSERT_EMPLOYEE_INFO);
+    }
+
+    /**
+     * コンストラクタ
+     *
+     * @param delegate 委譲先の共通DAO
+     * @param index 社員IDの索引
+     * @param insertKeys 索引へ反映する登録のSQLキー（名前付きパラメータに社員IDを持つもの）
+     */
+    public EmployeeIdIndexingPluralDao(CommonPluralDao delegate, EmployeeIdIndex index, String... insertKeys) {
+        super(delegate);
+        this.index = index;
+        this.insertKeys = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(insertKeys)));
+    }
+
+    /**
+     * 社員IDの索引を取得する。
+     *
+     * @return EmployeeIdIndex
+     */
+    public EmployeeIdIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * SQLキーに対応するDML文を発行する。（名前付きパラメータ） 社員情報の登録が成功した場合は、社員IDをCOMMIT後に索引へ追加する。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param params パラメータ名をキーとする値
+     * @return int
+     * @throws SQLException
+     * @author H.Abe
+     */
+    @Override
+    public int commonExecuteBySqlKey(String sqlKey, Map<String, ?> params) throws SQLException {
+        int count = super.commonExecuteBySqlKey(sqlKey, params);
+        if (insertKeys.contains(sqlKey)) {
+            addAfterCommit(params.get(EmployeeIdIndex.COLUMN_EMPLOYEE_ID));
+        }
+        return count;
+    }
+
+    /**
+     * SQLキーに対応するDML文を発行する。（置換文字リスト） 社員情報の登録が成功した場合は、
+     * 社員IDのパラメータ位置（名前付きパラメータの場合はパラメータ名の位置）の置換文字をCOMMIT後に索引へ追加する。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param binds 置換文字リスト
+     * @return int
+     * @throws SQLException
+     * @author H.Abe
+     */
+    @Override
+    public int commonExecuteBySqlKey(String sqlKey, List<String> binds) throws SQLException {
+        EmployeeIdInsert insert = insertKeys.contains(sqlKey) ? EmployeeIdInsert.forSqlKey(sqlKey) : null;
+        Object employeeId = (null == insert) ? null : insert.fromLiterals(binds);
+        int count = super.commonExecuteBySqlKey(sqlKey, binds);
+        addAfterCommit(employeeId);
+        return count;
+    }
+
+    /**
+     * 共通INSERT文を発行する。 社員情報の登録が成功した場合は、社員IDのリテラルをCOMMIT後に索引へ追加する。
+     *
+     * @param query SQL文
+     * @return int
+     * @throws SQLException
+     * @author H.Abe
+     */
+    @Override
+    public int commonInsertByQuery(String query) throws SQLException {
+        EmployeeIdInsert insert = EmployeeIdInsert.parse(query);
+        Object employeeId = (null == insert) ? null : insert.fromLiterals(null);
+        int count = super.commonInsertByQuery(query);
+        addAfterCommit(employeeId);
+        return count;
+    }
+
+    /**
+     * 共通INSERT文を発行する。（バインド変数） 社員情報の登録が成功した場合は、社員IDのバインド変数の値をCOMMIT後に索引へ追加する。
+     *
+     * @param query SQL文
+     * @param binds バインド変数リスト
+     * @return int
+     * @throws SQLException
+     * @author H.Abe
+     */
+    @Override
+    public int commonInsertByBindQuery(String query, List<BindingDto> binds) throws SQLException {
+        EmployeeIdInsert insert = EmployeeIdInsert.parse(query);
+        Object employeeId = (null == insert) ? null : insert.fromBindings(binds);
+        int count = super.commonInsertByBindQuery(query, binds);
+        addAfterCommit(employeeId);
+        return count;
+    }
+
+    /**
+     * 共通DML文を発行する。（BindBuffer） 社員情報の登録が成功した場合は、社員IDのバインド変数の値をCOMMIT後に索引へ追加する。
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return int
+     * @throws SQLException
+     * @author H.Abe
+     */
+    @Override
+    public int commonExecuteByBindBuffer(String query, BindBuffer binds) throws SQLException {
+        EmployeeIdInsert insert = EmployeeIdInsert.parse(query);
+        Object employeeId = (null == insert) ? null : insert.fromBuffer(binds);
+        int count = super.commonExecuteByBindBuffer(query, binds);
+        addAfterCommit(employeeId);
+        return count;
+    }
+
+    /**
+     * 共通DML文を一括発行する。 社員情報の登録が成功した場合は、全ての行の社員IDをCOMMIT後に索引へ追加する。
+     *
+     * @param query SQL文
+     * @param rows 行毎のバインド変数
+     * @param batchSize 一括発行件数
+     * @return int[]
+     * @throws SQLException
+     * @author H.Abe
+     */
+    @Override
+    public int[] commonExecuteBatchByBindQuery(String query, List<List<BindingDto>> rows, int batchSize) throws SQLException {
+        EmployeeIdInsert insert = EmployeeIdInsert.parse(query);
+        List<Object> employeeIds = new ArrayList<Object>();
+        if (null != insert) {
+            for (List<BindingDto> row : rows) {
+                employeeIds.add(insert.fromBindings(row));
+            }
+        }
+        int[] counts = super.commonExecuteBatchByBindQuery(query, rows, batchSize);
+        for (Object employeeId : employeeIds) {
+            addAfterCommit(employeeId);
+        }
+        return counts;
+    }
+
+    /**
+     * 作業単位を開始する。 作業単位のCOMMIT後に、作業単位で登録した社員IDを索引へ追加する。
+     *
+     * @return UnitOfWork
+     * @throws SQLException
+     * @author H.Abe
+     */
+    @Override
+    public UnitOfWork beginUnitOfWork() throws SQLException {
+        UnitOfWork begun = super.beginUnitOfWork();
+        unitOfWork.set(begun);
+        pending.remove();
+        return begun;
+    }
+
+    /**
+     * Connectionのリソースを解放する。 COMMIT待ちの社員IDは破棄する。
+     *
+     * @throws SQLException
+     * @author H.Abe
+     */
+    @Override
+    public void closeConnection() throws SQLException {
+        try {
+            super.closeConnection();
+        } finally {
+            pending.remove();
+            unitOfWork.remove();
+        }
+    }
+
+    /**
+     * COMMITを行い、COMMIT待ちの社員IDを索引へ追加する。
+     *
+     * @throws SQLException
+     * @author H.Abe
+     */
+    @Override
+    public void commit() throws SQLException {
+        super.commit();
+        List<Long> committed = pending.get();
+        pending.remove();
+        if (null != committed) {
+            for (Long employeeId : committed) {
+                index.add(employeeId.longValue());
+            }
+        }
+    }
+
+    /**
+     * ROLLBACKを行う。 COMMIT待ちの社員IDは破棄する。
+     *
+     * @throws SQLException
+     * @author H.Abe
+     */
+    @Override
+    public void rollback() throws SQLException {
+        pending.remove();
+        super.rollback();
+    }
+
+    /**
+     * 社員IDをCOMMIT後に索引へ追加するよう登録する。 当クラスで開始した作業単位が有効な場合は作業単位へ登録する。
+     * NULLの場合は登録しない。
+     *
+     * @param value 社員ID
+     * @throws SQLException
+     */
+    private void addAfterCommit(Object value) throws SQLException {
+        if (null == value) {
+            return;
+        }
+        final long employeeId = EmployeeIdIndex.toKey(value);
+        UnitOfWork current = unitOfWork.get();
+        if (null != current && !current.isClosed()) {
+            current.afterCommit(new Runnable() {
+                public void run() {
+                    index.add(employeeId);
+                }
+            });
+            return;
+        }
+        List<Long> ids = pending.get();
+        if (null == ids) {
+            ids = new ArrayList<Long>();
+            pending.set(ids);
+        }
+        ids.add(Long.valueOf(employeeId));
+    }
+}
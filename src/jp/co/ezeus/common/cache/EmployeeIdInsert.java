@@ -0,0 +1,265 @@
+package jp.co.ezeus.common.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import jp.co.ezeus.common.dto.BindBuffer;
+import jp.co.ezeus.common.dto.BindingDto;
+import jp.co.ezeus.common.utilities.DBResourceControl;
+import jp.co.ezeus.common.utilities.SqlDefinition;
+import jp.co.ezeus.common.utilities.SqlTemplate;
+import jp.co.ezeus.common.utilities.UtilDefine;
+
+/**
+ * <p>
+ * 社員情報の登録文の社員ID位置クラス
+ * </p>
+ * 社員情報（employee_info）へのINSERT文を解析し、社員IDの列に対応するVALUES句の値が バインド変数の何番目か、またはリテラルかを保持する。
+ * 置換文字リスト、BindingDto、BindBufferのいずれで登録した場合も、同じ位置から社員IDを取得する。<br>
+ * VALUES句が1行のINSERT文のみを対象とし、複数行のVALUES句、INSERT ... SELECT、社員IDが式の場合は 社員IDを特定できないため対象外とする。
+ *
+ * @see EmployeeIdIndexingDao
+ * @see EmployeeIdIndexingPluralDao
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+final class EmployeeIdInsert {
+
+    /** 社員情報のテーブル名 */
+    static final String TABLE_EMPLOYEE_INFO = "employee_info";
+
+    /**
+     * INSERT文の正規表現（テーブル名、列リスト、VALUES句）
+     */
+    private static final Pattern INSERT = Pattern.compile(
+            "\\s*insert\\s+into\\s+(?:\\w+\\.)?\"?(\\w+)\"?\\s*\\(([^)]*)\\)\\s*values\\s*\\((.*)\\)\\s*;?\\s*",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    /**
+     * リテラルの正規表現（文字列、数値）
+     */
+    private static final Pattern LITERAL = Pattern.compile("'(?:[^']|'')*'|[+-]?\\d+");
+
+    /**
+     * 社員IDのパラメータ位置（1始まり、リテラルの場合は0）
+     */
+    private final int position;
+
+    /**
+     * 社員IDのリテラル（バインド変数の場合はNULL）
+     */
+    private final String literal;
+
+    /**
+     * コンストラクタ
+     *
+     * @param position 社員IDのパラメータ位置（1始まり、リテラルの場合は0）
+     * @param literal 社員IDのリテラル
+     */
+    private EmployeeIdInsert(int position, String literal) {
+        this.position = position;
+        this.literal = literal;
+    }
+
+    /**
+     * SQL文を解析し、社員情報の登録文の場合は社員IDの位置を返却する。
+     *
+     * @param query SQL文（バインド変数は"?"）
+     * @return EmployeeIdInsert 社員情報の登録文でない場合、社員IDを特定できない場合はNULL
+     * @author H.Abe
+     */
+    static EmployeeIdInsert parse(String query) {
+        if (null == query) {
+            return null;
+        }
+        Matcher matcher = INSERT.matcher(query);
+        if (!matcher.matches() || !TABLE_EMPLOYEE_INFO.equalsIgnoreCase(matcher.group(1))) {
+            return null;
+        }
+        List<String> columns = split(matcher.group(2));
+        List<String> values = split(matcher.group(3));
+        if (null == columns || null == values || columns.size() != values.size()) {
+            return null;
+        }
+        int column = -1;
+        for (int i = 0; i < columns.size(); i++) {
+            if (EmployeeIdIndex.COLUMN_EMPLOYEE_ID.equals(columns.get(i).replace("\"", "").toLowerCase(Locale.ROOT))) {
+                column = i;
+                break;
+            }
+        }
+        if (column < 0) {
+            return null;
+        }
+        String value = values.get(column);
+        if ("?".equals(value)) {
+            int position = 1;
+            for (int i = 0; i < column; i++) {
+                position += countBinds(values.get(i));
+            }
+            return new EmployeeIdInsert(position, null);
+        }
+        return LITERAL.matcher(value).matches() ? new EmployeeIdInsert(0, value) : null;
+    }
+
+    /**
+     * SQLキーに対応するSQL文の社員IDの位置を返却する。 名前付きパラメータの場合はパラメータ名から、それ以外の場合はSQL文の解析で特定する。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @return EmployeeIdInsert SQLキーが登録されていない場合、社員IDを特定できない場合はNULL
+     * @author H.Abe
+     */
+    static EmployeeIdInsert forSqlKey(String sqlKey) {
+        SqlDefinition definition = DBResourceControl.getInstance().getSqlDefinition(sqlKey);
+        if (null == definition) {
+            return null;
+        }
+        SqlTemplate template = definition.getTemplate();
+        int[] indexes = template.indexesOf(EmployeeIdIndex.COLUMN_EMPLOYEE_ID);
+        return (0 < indexes.length) ? new EmployeeIdInsert(indexes[0], null) : parse(template.getQuery());
+    }
+
+    /**
+     * 置換文字リストから社員IDを取得する。 文字列リテラルの引用符は除去する。
+     *
+     * @param binds 置換文字リスト
+     * @return Object 社員ID（該当する値が無い場合はNULL）
+     */
+    Object fromLiterals(List<String> binds) {
+        if (0 == position) {
+            return unquote(literal);
+        }
+        return (null == binds || binds.size() < position) ? null : unquote(binds.get(position - 1));
+    }
+
+    /**
+     * BindingDtoのリストから社員IDを取得する。
+     *
+     * @param binds バインド変数リスト
+     * @return Object 社員ID（該当する値が無い場合はNULL）
+     */
+    Object fromBindings(List<BindingDto> binds) {
+        if (0 == position) {
+            return unquote(literal);
+        }
+        if (null == binds || binds.size() < position) {
+            return null;
+        }
+        BindingDto bind = binds.get(position - 1);
+        if (UtilDefine.INT_ARGS_TYPE.equals(bind.getArgsType())) {
+            return Integer.valueOf(bind.getIntValue());
+        } else if (UtilDefine.STRING_ARGS_TYPE.equals(bind.getArgsType())) {
+            return bind.getStringValue();
+        } else if (UtilDefine.CHAR_ARGS_TYPE.equals(bind.getArgsType())) {
+            return bind.getCharValue();
+        }
+        return null;
+    }
+
+    /**
+     * BindBufferから社員IDを取得する。
+     *
+     * @param binds バインド変数
+     * @return Object 社員ID（該当する値が無い場合はNULL）
+     */
+    Object fromBuffer(BindBuffer binds) {
+        if (0 == position) {
+            return unquote(literal);
+        }
+        switch (binds.getType(position)) {
+            case BindBuffer.TYPE_INT:
+            case BindBuffer.TYPE_LONG:
+                return Long.valueOf(binds.getLong(position));
+            case BindBuffer.TYPE_STRING:
+            case BindBuffer.TYPE_UNTYPED:
+            case BindBuffer.TYPE_BIG_DECIMAL:
+                return binds.getReference(position);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 括弧内のリストを最上位のカンマで分割する。 文字列リテラル、引用符付き識別子、括弧内のカンマでは分割しない。
+     *
+     * @param list 括弧内のリスト
+     * @return List<String> 前後の空白を除去した要素（括弧が対応しない場合はNULL）
+     */
+    private static List<String> split(String list) {
+        List<String> items = new ArrayList<String>();
+        int depth = 0;
+        int start = 0;
+        char quote = 0;
+        for (int i = 0; i < list.length(); i++) {
+            char c = list.charAt(i);
+            if (0 != quote) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if ('\'' == c || '"' == c) {
+                quote = c;
+            } else if ('(' == c) {
+                depth++;
+            } else if (')' == c) {
+                if (--depth < 0) {
+                    return null;
+                }
+            } else if (',' == c && 0 == depth) {
+                items.add(list.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        if (0 != quote || 0 != depth) {
+            return null;
+        }
+        items.add(list.substring(start).trim());
+        return items;
+    }
+
+    /**
+     * 値に含まれるバインド変数（"?"）の数を取得する。 文字列リテラル、引用符付き識別子内の"?"は数えない。
+     *
+     * @param value VALUES句の値
+     * @return int
+     */
+    private static int countBinds(String value) {
+        int count = 0;
+        char quote = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (0 != quote) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if ('\'' == c || '"' == c) {
+                quote = c;
+            } else if ('?' == c) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * リテラルから値を取得する。 文字列リテラルは引用符を除去し、NULLリテラルはNULLとする。
+     *
+     * @param value リテラル
+     * @return String
+     */
+    private static String unquote(String value) {
+        if (null == value) {
+            return null;
+        }
+        String trimmed = value.trim();
+        if ("NULL".equalsIgnoreCase(trimmed)) {
+            return null;
+        }
+        if (2 <= trimmed.length() && trimmed.startsWith("'") && trimmed.endsWith("'")) {
+            return trimmed.substring(1, trimmed.length() - 1).replace("''", "'");
+        }
+        return trimmed;
+    }
+}
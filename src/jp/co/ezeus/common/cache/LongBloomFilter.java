@@ -0,0 +1,96 @@
+package jp.co.ezeus.common.cache;
+
+/**
+ * <p>
+ * long値のブルームフィルタクラス
+ * </p>
+ * 登録済みの値を誤って未登録と判定することは無く、未登録の値を登録済みと判定する確率（偽陽性率）を 想定件数に対して指定値以下に抑える。<br>
+ * 値のハッシュは2つのハッシュ値の線形結合（ダブルハッシュ）で求め、判定時にオブジェクトを生成しない。<br>
+ * 登録は同期化した1つのスレッドから行うこと。 参照は同期化せずに行えるが、登録した値の参照は volatile変数等による公開後に行うこと。
+ *
+ * @see EmployeeIdIndex
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+final class LongBloomFilter {
+
+    /**
+     * ビット配列
+     */
+    private final long[] words;
+
+    /**
+     * ビット数
+     */
+    private final long bitCount;
+
+    /**
+     * ハッシュ関数の数
+     */
+    private final int hashCount;
+
+    /**
+     * コンストラクタ
+     *
+     * @param capacity 想定件数
+     * @param falsePositiveRate 偽陽性率（0より大きく1未満）
+     * @author H.Abe
+     */
+    LongBloomFilter(long capacity, double falsePositiveRate) {
+        long expected = Math.max(capacity, 1L);
+        long bits = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (Math.log(2.0d) * Math.log(2.0d)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8L, Math.max(1L, (bits + 63L) >>> 6));
+        this.words = new long[wordCount];
+        this.bitCount = wordCount * 64L;
+        this.hashCount = (int) Math.max(1L, Math.min(16L, Math.round((double) bitCount / expected * Math.log(2.0d))));
+    }
+
+    /**
+     * 値を登録する。
+     *
+     * @param value 値
+     */
+    void put(long value) {
+        long hash1 = mix(value);
+        long hash2 = mix(hash1) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+            words[(int) (bit >>> 6)] |= (1L << bit);
+        }
+    }
+
+    /**
+     * 値が登録されている可能性があるかを判定する。 falseの場合は登録されていない。
+     *
+     * @param value 値
+     * @return boolean
+     */
+    boolean mightContain(long value) {
+        long hash1 = mix(value);
+        long hash2 = mix(hash1) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+            if (0L == (words[(int) (bit >>> 6)] & (1L << bit))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 値のビットを拡散する。 連番の値がビット配列の近い位置に偏らないようにする。
+     *
+     * @param value 値
+     * @return long
+     */
+    private static long mix(long value) {
+        long hash = value * 0x9e3779b97f4a7c15L;
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= (hash >>> 33);
+        return hash;
+    }
+}
@@ -0,0 +1,175 @@
+package jp.co.ezeus.common.cache;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import jp.co.ezeus.common.dao.CommonDao;
+
+/**
+ * <p>
+ * マスタデータキャッシュクラス
+ * </p>
+ * 汎用マスタ、グループマスタ、役職マスタを @see {@link MasterDataSnapshot} としてメモリ上に保持し、 画面表示毎のSQL発行を不要とする。<br>
+ * 参照は現在のスナップショットを取得するのみで、ロックを取得しない。 refresh()は新しいスナップショットを全件読み込んだ後に
+ * 置き換えるため、参照側が読み込み途中の状態を参照することはない。<br>
+ * 初回参照時にスナップショットが存在しない場合は読み込みを行う。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class MasterDataCache {
+
+    /**
+     * 読み込みに使用する共通DAO
+     */
+    private final CommonDao dao;
+
+    /**
+     * 現在のスナップショット
+     */
+    private final AtomicReference<MasterDataSnapshot> snapshot = new AtomicReference<MasterDataSnapshot>();
+
+    /**
+     * 読み込みの排他用ロック（共有される共通DAO、当インスタンスはロックしない）
+     */
+    private final Object loadLock = new Object();
+
+    /**
+     * コンストラクタ
+     *
+     * @param dao 読み込みに使用する共通DAO
+     * @author H.Abe
+     */
+    public MasterDataCache(CommonDao dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * 各マスタを再読み込みし、スナップショットを置き換える。 読み込みに失敗した場合は現在のスナップショットを保持する。
+     *
+     * @return MasterDataSnapshot 置き換え後のスナップショット
+     * @throws SQLException
+     * @throws IOException
+     * @author H.Abe
+     */
+    public MasterDataSnapshot refresh() throws SQLException, IOException {
+        MasterDataSnapshot loaded;
+        synchronized (loadLock) {
+            loaded = MasterDataSnapshot.load(dao);
+        }
+        snapshot.set(loaded);
+        return loaded;
+    }
+
+    /**
+     * 現在のスナップショットを取得する。 未読み込みの場合は読み込みを行う。
+     *
+     * @return MasterDataSnapshot
+     * @throws SQLException
+     * @throws IOException
+     * @author H.Abe
+     */
+    public MasterDataSnapshot getSnapshot() throws SQLException, IOException {
+        MasterDataSnapshot current = snapshot.get();
+        if (null != current) {
+            return current;
+        }
+        synchronized (loadLock) {
+            current = snapshot.get();
+            return (null != current) ? current : refresh();
+        }
+    }
+
+    /**
+     * 区分IDに該当する汎用マスタを区分コード順で取得する。
+     *
+     * @param divisionId 区分ID
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     * @throws IOException
+     * @see MasterDataSnapshot#getGeneralPurposeList(Object)
+     */
+    public List<Map<String, Object>> getGeneralPurposeList(Object divisionId) throws SQLException, IOException {
+        return getSnapshot().getGeneralPurposeList(divisionId);
+    }
+
+    /**
+     * 区分IDに該当する汎用マスタを区分名順で取得する。
+     *
+     * @param divisionId 区分ID
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     * @throws IOException
+     * @see MasterDataSnapshot#getGeneralPurposeSortList(Object)
+     */
+    public List<Map<String, Object>> getGeneralPurposeSortList(Object divisionId) throws SQLException, IOException {
+        return getSnapshot().getGeneralPurposeSortList(divisionId);
+    }
+
+    /**
+     * 区分ID、区分コードに該当する区分名を取得する。
+     *
+     * @param divisionId 区分ID
+     * @param divisionCd 区分コード
+     * @return String
+     * @throws SQLException
+     * @throws IOException
+     * @see MasterDataSnapshot#getGeneralPurposeName(Object, Object)
+     */
+    public String getGeneralPurposeName(Object divisionId, Object divisionCd) throws SQLException, IOException {
+        return getSnapshot().getGeneralPurposeName(divisionId, divisionCd);
+    }
+
+    /**
+     * グループマスタをグループコード順で取得する。
+     *
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     * @throws IOException
+     * @see MasterDataSnapshot#getGroupList()
+     */
+    public List<Map<String, Object>> getGroupList() throws SQLException, IOException {
+        return getSnapshot().getGroupList();
+    }
+
+    /**
+     * グループコードに該当するグループ名を取得する。
+     *
+     * @param groupCd グループコード
+     * @return String
+     * @throws SQLException
+     * @throws IOException
+     * @see MasterDataSnapshot#getGroupName(Object)
+     */
+    public String getGroupName(Object groupCd) throws SQLException, IOException {
+        return getSnapshot().getGroupName(groupCd);
+    }
+
+    /**
+     * 役職マスタを役職コード順で取得する。
+     *
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     * @throws IOException
+     * @see MasterDataSnapshot#getPositionList()
+     */
+    public List<Map<String, Object>> getPositionList() throws SQLException, IOException {
+        return getSnapshot().getPositionList();
+    }
+
+    /**
+     * 役職コードに該当する役職名を取得する。
+     *
+     * @param positionCd 役職コード
+     * @return String
+     * @throws SQLException
+     * @throws IOException
+     * @see MasterDataSnapshot#getPositionName(Object)
+     */
+    public String getPositionName(Object positionCd) throws SQLException, IOException {
+        return getSnapshot().getPositionName(positionCd);
+    }
+}
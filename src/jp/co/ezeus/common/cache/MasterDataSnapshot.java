@@ -0,0 +1,315 @@
+package jp.co.ezeus.common.cache;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import jp.co.ezeus.common.dao.CommonDao;
+import jp.co.ezeus.common.utilities.DBResourceControl;
+
+/**
+ * <p>
+ * マスタデータのスナップショットクラス
+ * </p>
+ * 汎用マスタ（general_purpose_mst）、グループマスタ（group_mst）、役職マスタ（position_mst）の 有効データ（delete_flg =
+ * '0'）を読み込み、検索用の索引と共に保持する。<br>
+ * 汎用マスタは区分ID毎に、区分コード順（SQL_GENERAL_PURPOSE_MST_QUERY）と 区分名順（SQL_GENERAL_PURPOSE_MST_SORT_QUERY）の
+ * 両方の並びを生成時に作成する。 並び順はDBのORDER BYに従うため、SQLファイルを実行した結果と一致する。<br>
+ * 各行は変更できないMapとして保持し、返却するList、行のどちらも呼び出し元から変更できない。 生成後は変更されないため、
+ * 複数スレッドから同期化せずに参照できる。
+ *
+ * @see MasterDataCache
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public final class MasterDataSnapshot {
+
+    /****************************************
+     ****** SQLキー ******
+     ****************************************/
+    /** 汎用マスタ全件（区分ID、区分コード順） */
+    public static final String SQL_GENERAL_PURPOSE_MST_ALL_QUERY = "SQL_GENERAL_PURPOSE_MST_ALL_QUERY";
+
+    /** 汎用マスタ全件（区分ID、区分名順） */
+    public static final String SQL_GENERAL_PURPOSE_MST_ALL_SORT_QUERY = "SQL_GENERAL_PURPOSE_MST_ALL_SORT_QUERY";
+
+    /** グループマスタ */
+    public static final String SQL_GROUP_MST_QUERY = "SQL_GROUP_MST_QUERY";
+
+    /** 役職マスタ */
+    public static final String SQL_POSITION_MST_QUERY = "SQL_POSITION_MST_QUERY";
+
+    /****************************************
+     ****** 列名 ******
+     ****************************************/
+    /** 区分ID */
+    public static final String COLUMN_DIVISION_ID = "division_id";
+
+    /** 区分コード */
+    public static final String COLUMN_DIVISION_CD = "division_cd";
+
+    /** 区分名 */
+    public static final String COLUMN_DIVISION_NM = "division_nm";
+
+    /** グループコード */
+    public static final String COLUMN_GROUP_CD = "group_cd";
+
+    /** グループ名 */
+    public static final String COLUMN_GROUP_NM = "group_nm";
+
+    /** 役職コード */
+    public static final String COLUMN_POSITION_CD = "position_cd";
+
+    /** 役職名 */
+    public static final String COLUMN_POSITION_NM = "position_nm";
+
+    /**
+     * 区分IDをキーとする汎用マスタ（区分コード順）
+     */
+    private final Map<String, List<Map<String, Object>>> generalPurposeByCd;
+
+    /**
+     * 区分IDをキーとする汎用マスタ（区分名順）
+     */
+    private final Map<String, List<Map<String, Object>>> generalPurposeByNm;
+
+    /**
+     * 区分IDをキーとする区分コード→区分名
+     */
+    private final Map<String, Map<String, String>> generalPurposeNames;
+
+    /**
+     * グループマスタ（グループコード順）
+     */
+    private final List<Map<String, Object>> groupList;
+
+    /**
+     * グループコード→グループ名
+     */
+    private final Map<String, String> groupNames;
+
+    /**
+     * 役職マスタ（役職コード順）
+     */
+    private final List<Map<String, Object>> positionList;
+
+    /**
+     * 役職コード→役職名
+     */
+    private final Map<String, String> positionNames;
+
+    /**
+     * 読み込み日時（ミリ秒）
+     */
+    private final long loadedAt;
+
+    /**
+     * コンストラクタ
+     *
+     * @param generalPurposeByCd 汎用マスタ全件（区分ID、区分コード順）
+     * @param generalPurposeByNm 汎用マスタ全件（区分ID、区分名順）
+     * @param groups グループマスタ（グループコード順）
+     * @param positions 役職マスタ（役職コード順）
+     * @author H.Abe
+     */
+    public MasterDataSnapshot(List<Map<String, Object>> generalPurposeByCd, List<Map<String, Object>> generalPurposeByNm,
+            List<Map<String, Object>> groups, List<Map<String, Object>> positions) {
+        this.generalPurposeByCd = groupByDivision(freeze(generalPurposeByCd));
+        this.generalPurposeByNm = groupByDivision(freeze(generalPurposeByNm));
+        Map<String, Map<String, String>> names = new HashMap<String, Map<String, String>>();
+        for (Map.Entry<String, List<Map<String, Object>>> entry : this.generalPurposeByCd.entrySet()) {
+            names.put(entry.getKey(), indexNames(entry.getValue(), COLUMN_DIVISION_CD, COLUMN_DIVISION_NM));
+        }
+        this.generalPurposeNames = Collections.unmodifiableMap(names);
+        this.groupList = freeze(groups);
+        this.groupNames = indexNames(groups, COLUMN_GROUP_CD, COLUMN_GROUP_NM);
+        this.positionList = freeze(positions);
+        this.positionNames = indexNames(positions, COLUMN_POSITION_CD, COLUMN_POSITION_NM);
+        this.loadedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 各マスタを全件読み込み、スナップショットを生成する。 SQL文はプロパティファイル記載のSQLファイルから取得する。
+     *
+     * @param dao 共通DAO
+     * @return MasterDataSnapshot
+     * @throws SQLException
+     * @throws IOException
+     * @author H.Abe
+     */
+    public static MasterDataSnapshot load(CommonDao dao) throws SQLException, IOException {
+        DBResourceControl resource = DBResourceControl.getInstance();
+        List<Map<String, Object>> byCd = dao.commonSelectByQuery(resource.readSQLFile(SQL_GENERAL_PURPOSE_MST_ALL_QUERY));
+        List<Map<String, Object>> byNm = dao.commonSelectByQuery(resource.readSQLFile(SQL_GENERAL_PURPOSE_MST_ALL_SORT_QUERY));
+        List<Map<String, Object>> groups = dao.commonSelectByQuery(resource.readSQLFile(SQL_GROUP_MST_QUERY));
+        List<Map<String, Object>> positions = dao.commonSelectByQuery(resource.readSQLFile(SQL_POSITION_MST_QUERY));
+        return new MasterDataSnapshot(byCd, byNm, groups, positions);
+    }
+
+    /**
+     * 区分IDに該当する汎用マスタを区分コード順で取得する。 SQL_GENERAL_PURPOSE_MST_QUERYの結果に相当する。
+     * 該当データが存在しない場合は空のListを返却する。
+     *
+     * @param divisionId 区分ID
+     * @return List<Map<String, Object>>
+     */
+    public List<Map<String, Object>> getGeneralPurposeList(Object divisionId) {
+        return lookup(generalPurposeByCd, divisionId);
+    }
+
+    /**
+     * 区分IDに該当する汎用マスタを区分名順で取得する。 SQL_GENERAL_PURPOSE_MST_SORT_QUERYの結果に相当する。
+     * 該当データが存在しない場合は空のListを返却する。
+     *
+     * @param divisionId 区分ID
+     * @return List<Map<String, Object>>
+     */
+    public List<Map<String, Object>> getGeneralPurposeSortList(Object divisionId) {
+        return lookup(generalPurposeByNm, divisionId);
+    }
+
+    /**
+     * 区分ID、区分コードに該当する区分名を取得する。 該当データが存在しない場合はNULLを返却する。
+     *
+     * @param divisionId 区分ID
+     * @param divisionCd 区分コード
+     * @return String
+     */
+    public String getGeneralPurposeName(Object divisionId, Object divisionCd) {
+        Map<String, String> names = generalPurposeNames.get(toKey(divisionId));
+        return (null == names) ? null : names.get(toKey(divisionCd));
+    }
+
+    /**
+     * グループマスタをグループコード順で取得する。 SQL_GROUP_MST_QUERYの結果に相当する。
+     *
+     * @return List<Map<String, Object>>
+     */
+    public List<Map<String, Object>> getGroupList() {
+        return groupList;
+    }
+
+    /**
+     * グループコードに該当するグループ名を取得する。 該当データが存在しない場合はNULLを返却する。
+     *
+     * @param groupCd グループコード
+     * @return String
+     */
+    public String getGroupName(Object groupCd) {
+        return groupNames.get(toKey(groupCd));
+    }
+
+    /**
+     * 役職マスタを役職コード順で取得する。 SQL_POSITION_MST_QUERYの結果に相当する。
+     *
+     * @return List<Map<String, Object>>
+     */
+    public List<Map<String, Object>> getPositionList() {
+        return positionList;
+    }
+
+    /**
+     * 役職コードに該当する役職名を取得する。 該当データが存在しない場合はNULLを返却する。
+     *
+     * @param positionCd 役職コード
+     * @return String
+     */
+    public String getPositionName(Object positionCd) {
+        return positionNames.get(toKey(positionCd));
+    }
+
+    /**
+     * 読み込み日時（ミリ秒）を取得する。
+     *
+     * @return long
+     */
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * 行を変更できないMapで包み、変更できないListへ複写する。 DAOが返却する行（ResultRow）は変更できるため、
+     * 呼び出し元の変更が全スレッドのスナップショットへ波及しないようにする。
+     *
+     * @param rows 行
+     * @return List<Map<String, Object>>
+     * @author H.Abe
+     */
+    private static List<Map<String, Object>> freeze(List<Map<String, Object>> rows) {
+        List<Map<String, Object>> frozen = new ArrayList<Map<String, Object>>(rows.size());
+        for (Map<String, Object> row : rows) {
+            frozen.add(Collections.unmodifiableMap(row));
+        }
+        return Collections.unmodifiableList(frozen);
+    }
+
+    /**
+     * 汎用マスタの行を区分ID毎に分割する。 行の並び順は保持する。
+     *
+     * @param rows 汎用マスタの行
+     * @return Map<String, List<Map<String, Object>>>
+     * @author H.Abe
+     */
+    private static Map<String, List<Map<String, Object>>> groupByDivision(List<Map<String, Object>> rows) {
+        Map<String, List<Map<String, Object>>> grouped = new LinkedHashMap<String, List<Map<String, Object>>>();
+        for (Map<String, Object> row : rows) {
+            String key = toKey(row.get(COLUMN_DIVISION_ID));
+            List<Map<String, Object>> list = grouped.get(key);
+            if (null == list) {
+                list = new ArrayList<Map<String, Object>>();
+                grouped.put(key, list);
+            }
+            list.add(row);
+        }
+        Map<String, List<Map<String, Object>>> result = new HashMap<String, List<Map<String, Object>>>();
+        for (Map.Entry<String, List<Map<String, Object>>> entry : grouped.entrySet()) {
+            result.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * コード→名称の索引を作成する。
+     *
+     * @param rows マスタの行
+     * @param codeColumn コードの列名
+     * @param nameColumn 名称の列名
+     * @return Map<String, String>
+     * @author H.Abe
+     */
+    private static Map<String, String> indexNames(List<Map<String, Object>> rows, String codeColumn, String nameColumn) {
+        Map<String, String> names = new HashMap<String, String>();
+        for (Map<String, Object> row : rows) {
+            Object name = row.get(nameColumn);
+            names.put(toKey(row.get(codeColumn)), (null == name) ? null : name.toString());
+        }
+        return Collections.unmodifiableMap(names);
+    }
+
+    /**
+     * 索引からListを取得する。 該当データが存在しない場合は空のListを返却する。
+     *
+     * @param index 索引
+     * @param key キー
+     * @return List<Map<String, Object>>
+     */
+    private static List<Map<String, Object>> lookup(Map<String, List<Map<String, Object>>> index, Object key) {
+        List<Map<String, Object>> list = index.get(toKey(key));
+        return (null == list) ? Collections.<Map<String, Object>> emptyList() : list;
+    }
+
+    /**
+     * 索引のキーへ変換する。 列の型（数値、文字列）に依らず検索できるよう文字列で統一する。
+     *
+     * @param value 値
+     * @return String
+     */
+    private static String toKey(Object value) {
+        return String.valueOf(value);
+    }
+}
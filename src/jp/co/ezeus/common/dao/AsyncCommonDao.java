@@ -0,0 +1,43 @@
+package jp.co.ezeus.common.dao;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import jp.co.ezeus.common.dto.BindBuffer;
+import jp.co.ezeus.common.dto.BindingDto;
+
+/**
+ * <p>
+ * 非同期共通DAOインターフェース
+ * </p>
+ * 共通DAO（@see {@link CommonDao}）の処理を別スレッドで実行し、結果をCompletableFutureにて返却する。<br>
+ * 呼び出し元のコンテキスト（@see {@link DaoContext}）を実行スレッドへ引き継ぐ。 引数のList、Map、BindBufferは
+ * 完了まで変更しないこと（BindBuffer.forCurrentThread()のバッファは使用しない）。<br>
+ * 非同期DAOを作成する際には当クラスに記載する。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public interface AsyncCommonDao {
+
+    public abstract <T> CompletableFuture<T> submit(CommonDaoCallback<T> callback);
+
+    public abstract CompletableFuture<List<Map<String, Object>>> commonSelectByQuery(String query);
+
+    public abstract CompletableFuture<List<Map<String, Object>>> commonSelectByBindQuery(String query, List<BindingDto> binds);
+
+    public abstract CompletableFuture<List<Map<String, Object>>> commonSelectByBindBuffer(String query, BindBuffer binds);
+
+    public abstract CompletableFuture<List<Map<String, Object>>> commonSelectBySqlKey(String sqlKey, List<String> binds);
+
+    public abstract CompletableFuture<List<Map<String, Object>>> commonSelectBySqlKey(String sqlKey, Map<String, ?> params);
+
+    public abstract CompletableFuture<Void> commonExecuteByBindBuffer(String query, BindBuffer binds);
+
+    public abstract CompletableFuture<Void> commonExecuteBySqlKey(String sqlKey, List<String> binds);
+
+    public abstract CompletableFuture<Void> commonExecuteBySqlKey(String sqlKey, Map<String, ?> params);
+
+    public abstract CompletableFuture<int[]> commonExecuteBatchByBindQuery(String query, List<List<BindingDto>> rows, int batchSize);
+}
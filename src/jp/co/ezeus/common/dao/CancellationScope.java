@@ -0,0 +1,80 @@
+package jp.co.ezeus.common.dao;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import jp.co.ezeus.common.rdbControl.CommonRDBControl;
+
+/**
+ * <p>
+ * SQL発行のキャンセル範囲クラス
+ * </p>
+ * コンテキスト（@see {@link DaoContext}）に設定し、範囲内で発行中のSQLを別のスレッドから一括でキャンセルする。<br>
+ * 共通DAOはSQL発行の間だけ共通データアクセス処理を登録し、Connectionの解放前に登録を解除する。
+ * 登録、解除とキャンセルは同期化するため、解放後のConnection（プールから別の処理へ貸し出されたもの）を キャンセルすることはない。<br>
+ * キャンセル後の登録はSQLExceptionとなり、SQLを発行しない。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public final class CancellationScope {
+
+    /**
+     * 発行中の共通データアクセス処理
+     */
+    private final List<CommonRDBControl> running = new ArrayList<CommonRDBControl>();
+
+    /**
+     * キャンセル済みフラグ
+     */
+    private boolean cancelled;
+
+    /**
+     * SQL発行中の共通データアクセス処理を登録する。
+     *
+     * @param rdbControl 共通データアクセス処理
+     * @throws SQLException キャンセル済みの場合
+     * @author H.Abe
+     */
+    public synchronized void register(CommonRDBControl rdbControl) throws SQLException {
+        if (cancelled) {
+            throw new SQLException("query has been cancelled", "57014");
+        }
+        running.add(rdbControl);
+    }
+
+    /**
+     * 共通データアクセス処理の登録を解除する。 Connectionの解放前に呼び出す。
+     *
+     * @param rdbControl 共通データアクセス処理
+     */
+    public synchronized void unregister(CommonRDBControl rdbControl) {
+        running.remove(rdbControl);
+    }
+
+    /**
+     * 登録中の共通データアクセス処理で発行中のSQLをキャンセルする。 以降の登録はSQLExceptionとなる。
+     *
+     * @author H.Abe
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        for (CommonRDBControl rdbControl : running) {
+            try {
+                rdbControl.cancel();
+            } catch (SQLException sqlException) {
+                // キャンセルできない場合はタイムアウトで中断する
+            }
+        }
+    }
+
+    /**
+     * キャンセル済みかを判定する。
+     *
+     * @return boolean
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+}
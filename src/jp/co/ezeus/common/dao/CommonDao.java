@@ -4,7 +4,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import jp.co.ezeus.common.dto.BindBuffer;
 import jp.co.ezeus.common.dto.BindingDto;
+import jp.co.ezeus.common.rdbControl.ResultCursor;
 
 /**
  * <p>
@@ -22,6 +25,8 @@ public interface CommonDao {
 
     public abstract List<Map<String, Object>> commonSelectByBindQuery(String query, List<BindingDto> binds) throws SQLException;
 
+    public abstract List<Map<String, Object>> commonSelectByBindBuffer(String query, BindBuffer binds) throws SQLException;
+
     public abstract void commonUpdateByQuery(String query) throws SQLException;
 
     public abstract void commonUpdateByBindQuery(String query, List<BindingDto> binds) throws SQLException;
@@ -34,7 +39,28 @@ public interface CommonDao {
 
     public abstract void commonDeleteByBindQuery(String query, List<BindingDto> binds) throws SQLException;
 
+    public abstract void commonExecuteByBindBuffer(String query, BindBuffer binds) throws SQLException;
+
+    public abstract List<Map<String, Object>> commonSelectBySqlKey(String sqlKey, List<String> binds) throws SQLException;
+
+    public abstract void commonExecuteBySqlKey(String sqlKey, List<String> binds) throws SQLException;
+
+    public abstract List<Map<String, Object>> commonSelectBySqlKey(String sqlKey, Map<String, ?> params) throws SQLException;
+
+    public abstract void commonExecuteBySqlKey(String sqlKey, Map<String, ?> params) throws SQLException;
+
+    public abstract List<List<Map<String, Object>>> commonSelectMultiBySqlKey(QueryBundle bundle) throws SQLException;
+
+    public abstract List<List<Map<String, Object>>> commonSelectBundle(QueryBundle bundle, long timeout, TimeUnit unit) throws SQLException;
+
+    public abstract KeysetPage commonSelectPageBySqlKey(String sqlKey, Map<String, ?> params, List<String> keyColumns, int pageSize,
+            String pageToken) throws SQLException;
+
+    public abstract int[] commonExecuteBatchByBindQuery(String query, List<List<BindingDto>> rows, int batchSize) throws SQLException;
+
     public abstract ResultSet commonGetResultSetSelectByQuery(String query) throws SQLException;
 
     public abstract ResultSet commonGetResultSetSelectByBindQuery(String query, List<BindingDto> binds) throws SQLException;
+
+    public abstract ResultCursor commonOpenCursorByBindQuery(String query, List<BindingDto> binds, int fetchSize) throws SQLException;
 }
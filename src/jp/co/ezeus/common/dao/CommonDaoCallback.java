@@ -0,0 +1,19 @@
+package jp.co.ezeus.common.dao;
+
+import java.sql.SQLException;
+
+/**
+ * <p>
+ * 共通DAO呼び出し処理インターフェース
+ * </p>
+ * 共通DAOの呼び出しを、非同期実行（@see {@link AsyncCommonDao}）や接続先の振り分け等で 実行するDAOを選択して行う場合に実装する。<br>
+ * 共通DAOの複数メソッドを1つの処理として実行する場合にも使用する。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public interface CommonDaoCallback<T> {
+
+    public abstract T call(CommonDao dao) throws SQLException;
+}
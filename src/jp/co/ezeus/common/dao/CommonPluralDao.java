@@ -4,7 +4,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
+import jp.co.ezeus.common.dto.BindBuffer;
 import jp.co.ezeus.common.dto.BindingDto;
+import jp.co.ezeus.common.rdbControl.ResultCursor;
 
 /**
  * <p>
@@ -22,6 +24,8 @@ public interface CommonPluralDao {
 
     public abstract List<Map<String, Object>> commonSelectByBindQuery(String query, List<BindingDto> binds) throws SQLException;
 
+    public abstract List<Map<String, Object>> commonSelectByBindBuffer(String query, BindBuffer binds) throws SQLException;
+
     public abstract int commonUpdateByQuery(String query) throws SQLException;
 
     public abstract int commonUpdateByBindQuery(String query, List<BindingDto> binds) throws SQLException;
@@ -34,10 +38,28 @@ public interface CommonPluralDao {
 
     public abstract int commonDeleteByBindQuery(String query, List<BindingDto> binds) throws SQLException;
 
+    public abstract int commonExecuteByBindBuffer(String query, BindBuffer binds) throws SQLException;
+
+    public abstract List<Map<String, Object>> commonSelectBySqlKey(String sqlKey, List<String> binds) throws SQLException;
+
+    public abstract int commonExecuteBySqlKey(String sqlKey, List<String> binds) throws SQLException;
+
+    public abstract List<Map<String, Object>> commonSelectBySqlKey(String sqlKey, Map<String, ?> params) throws SQLException;
+
+    public abstract int commonExecuteBySqlKey(String sqlKey, Map<String, ?> params) throws SQLException;
+
+    public abstract List<List<Map<String, Object>>> commonSelectMultiBySqlKey(QueryBundle bundle) throws SQLException;
+
+    public abstract int[] commonExecuteBatchByBindQuery(String query, List<List<BindingDto>> rows, int batchSize) throws SQLException;
+
     public abstract ResultSet commonGetResultSetSelectByQuery(String query) throws SQLException;
 
     public abstract ResultSet commonGetResultSetSelectByBindQuery(String query, List<BindingDto> binds) throws SQLException;
 
+    public abstract ResultCursor commonOpenCursorByBindQuery(String query, List<BindingDto> binds, int fetchSize) throws SQLException;
+
+    public abstract UnitOfWork beginUnitOfWork() throws SQLException;
+
     public abstract void closeConnection() throws SQLException;
 
     public abstract void commit() throws SQLException;
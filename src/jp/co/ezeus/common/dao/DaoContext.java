@@ -0,0 +1,209 @@
+package jp.co.ezeus.common.dao;
+
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * DAO呼び出しコンテキストクラス
+ * </p>
+ * 1つの要求で発行するSQLに共通する期限（デッドライン）、テナントID、キャンセル範囲を保持する。<br>
+ * 共通DAO（@see {@link jp.co.ezeus.common.dao.impl.CommonDaoImpl}）のSELECT文、DML文（一括発行を含む）は、期限までの残り時間をタイムアウトとし、
+ * キャンセル範囲（@see {@link CancellationScope}）へ登録して発行する。<br>
+ * コンテキストはcall()の実行中のみ当スレッドに関連付けられ、終了時に呼び出し前のコンテキストへ戻す。
+ * 非同期DAO（@see {@link AsyncCommonDao}）は呼び出し元のコンテキストを実行スレッドへ引き継ぐ。<br>
+ * 当クラスは変更不可のため、スレッド間で共有できる。
+ *
+ * <pre>
+ * DaoContext context = DaoContext.current().withTimeout(500L, TimeUnit.MILLISECONDS).withTenantId(tenantId);
+ * List&lt;Map&lt;String, Object&gt;&gt; resultList = context.call(new Callable&lt;List&lt;Map&lt;String, Object&gt;&gt;&gt;() { ... });
+ * </pre>
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public final class DaoContext {
+
+    /**
+     * 期限無し
+     */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    /**
+     * 期限、テナントIDを持たないコンテキスト
+     */
+    public static final DaoContext EMPTY = new DaoContext(NO_DEADLINE, null, null);
+
+    /**
+     * スレッドに関連付けたコンテキスト
+     */
+    private static final ThreadLocal<DaoContext> CURRENT = new ThreadLocal<DaoContext>();
+
+    /**
+     * 期限（System.nanoTime()基準、期限無しの場合はNO_DEADLINE）
+     */
+    private final long deadlineNanos;
+
+    /**
+     * テナントID（未指定の場合はNULL）
+     */
+    private final String tenantId;
+
+    /**
+     * キャンセル範囲（未指定の場合はNULL）
+     */
+    private final CancellationScope cancellationScope;
+
+    /**
+     * コンストラクタ
+     *
+     * @param deadlineNanos 期限
+     * @param tenantId テナントID
+     * @param cancellationScope キャンセル範囲
+     */
+    private DaoContext(long deadlineNanos, String tenantId, CancellationScope cancellationScope) {
+        this.deadlineNanos = deadlineNanos;
+        this.tenantId = tenantId;
+        this.cancellationScope = cancellationScope;
+    }
+
+    /**
+     * 当スレッドに関連付けられたコンテキストを取得する。 関連付けられていない場合はEMPTYを返却する。
+     *
+     * @return DaoContext
+     */
+    public static DaoContext current() {
+        DaoContext context = CURRENT.get();
+        return (null != context) ? context : EMPTY;
+    }
+
+    /**
+     * 引数の時間後を期限とするコンテキストを生成する。 既に期限を持つ場合は、早い方を期限とする。
+     *
+     * @param timeout 期限までの時間
+     * @param unit 時間の単位
+     * @return DaoContext
+     * @author H.Abe
+     */
+    public DaoContext withTimeout(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (hasDeadline() && deadlineNanos - deadline < 0L) {
+            return this;
+        }
+        return new DaoContext(deadline, tenantId, cancellationScope);
+    }
+
+    /**
+     * 引数のテナントIDを持つコンテキストを生成する。
+     *
+     * @param tenantId テナントID
+     * @return DaoContext
+     */
+    public DaoContext withTenantId(String tenantId) {
+        return new DaoContext(deadlineNanos, tenantId, cancellationScope);
+    }
+
+    /**
+     * 引数のキャンセル範囲を持つコンテキストを生成する。
+     *
+     * @param cancellationScope キャンセル範囲
+     * @return DaoContext
+     */
+    public DaoContext withCancellationScope(CancellationScope cancellationScope) {
+        return new DaoContext(deadlineNanos, tenantId, cancellationScope);
+    }
+
+    /**
+     * 期限を持つかを判定する。
+     *
+     * @return boolean
+     */
+    public boolean hasDeadline() {
+        return NO_DEADLINE != deadlineNanos;
+    }
+
+    /**
+     * 期限までの残り時間（ナノ秒）を取得する。 期限を持たない場合はLong.MAX_VALUE、期限切れの場合は0以下を返却する。
+     *
+     * @return long
+     */
+    public long getRemainingNanos() {
+        return hasDeadline() ? deadlineNanos - System.nanoTime() : Long.MAX_VALUE;
+    }
+
+    /**
+     * 期限までの残り時間をSQL発行のタイムアウト（秒、切り上げ）として取得する。 期限を持たない場合は0（無制限）、
+     * 期限切れの場合は1を返却する。
+     *
+     * @return int
+     */
+    public int getQueryTimeoutSeconds() {
+        if (!hasDeadline()) {
+            return 0;
+        }
+        long seconds = TimeUnit.NANOSECONDS.toSeconds(Math.max(getRemainingNanos(), 0L) + 999999999L);
+        return (int) Math.max(1L, Math.min(seconds, Integer.MAX_VALUE));
+    }
+
+    /**
+     * 期限切れかを判定する。
+     *
+     * @return boolean
+     */
+    public boolean isExpired() {
+        return getRemainingNanos() <= 0L;
+    }
+
+    /**
+     * 期限切れの場合にSQLTimeoutExceptionを発生させる。
+     *
+     * @throws SQLTimeoutException 期限切れの場合
+     */
+    public void checkDeadline() throws SQLTimeoutException {
+        if (isExpired()) {
+            throw new SQLTimeoutException("deadline exceeded");
+        }
+    }
+
+    /**
+     * テナントIDを取得する。
+     *
+     * @return String
+     */
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    /**
+     * キャンセル範囲を取得する。
+     *
+     * @return CancellationScope
+     */
+    public CancellationScope getCancellationScope() {
+        return cancellationScope;
+    }
+
+    /**
+     * 当コンテキストを当スレッドに関連付けて処理を実行する。 終了後は呼び出し前のコンテキストへ戻す。
+     *
+     * @param callable 処理
+     * @return T
+     * @throws Exception 処理で発生した例外
+     * @author H.Abe
+     */
+    public <T> T call(Callable<T> callable) throws Exception {
+        DaoContext previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return callable.call();
+        } finally {
+            if (null == previous) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
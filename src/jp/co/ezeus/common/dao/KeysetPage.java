@@ -0,0 +1,68 @@
+package jp.co.ezeus.common.dao;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * キーセットページングの1ページ分の結果クラス
+ * </p>
+ * 1ページ分の行と、次ページを取得するための継続トークンを保持する。 継続トークンは内容を解釈せず、次ページの取得時に
+ * そのまま指定する（画面のhidden項目、APIの応答等に格納する）。 最終ページの場合、継続トークンはNULLとなる。
+ *
+ * @see CommonDao#commonSelectPageBySqlKey(String, Map, List, int, String)
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public final class KeysetPage {
+
+    /**
+     * 1ページ分の行
+     */
+    private final List<Map<String, Object>> rows;
+
+    /**
+     * 次ページの継続トークン（最終ページの場合はNULL）
+     */
+    private final String nextToken;
+
+    /**
+     * コンストラクタ
+     *
+     * @param rows 1ページ分の行
+     * @param nextToken 次ページの継続トークン
+     */
+    public KeysetPage(List<Map<String, Object>> rows, String nextToken) {
+        this.rows = Collections.unmodifiableList(rows);
+        this.nextToken = nextToken;
+    }
+
+    /**
+     * 1ページ分の行を取得する。
+     *
+     * @return List<Map<String, Object>>
+     */
+    public List<Map<String, Object>> getRows() {
+        return rows;
+    }
+
+    /**
+     * 次ページの継続トークンを取得する。 最終ページの場合はNULLを返却する。
+     *
+     * @return String
+     */
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    /**
+     * 次ページが存在するかを判定する。
+     *
+     * @return boolean
+     */
+    public boolean hasNext() {
+        return null != nextToken;
+    }
+}
@@ -0,0 +1,154 @@
+package jp.co.ezeus.common.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * SELECT文の一括発行定義クラス
+ * </p>
+ * 互いに依存しない複数のSELECT文（SQLキーとパラメータの組）を登録順に保持する。<br>
+ * 共通DAOのcommonSelectBundle()に指定すると、各SELECT文を別々のConnectionで並行に発行し、 登録順の結果を返却する。
+ * 画面初期表示のマスタ読み込み等、複数のSELECT文を順に発行している処理に使用する。
+ *
+ * <pre>
+ * QueryBundle bundle = new QueryBundle()
+ *         .add(&quot;SQL_GENERAL_PURPOSE_MST_QUERY&quot;, divisionParams)
+ *         .add(&quot;SQL_GROUP_MST_QUERY&quot;, Collections.&lt;String, Object&gt; emptyMap())
+ *         .add(&quot;SQL_POSITION_MST_QUERY&quot;, Collections.&lt;String, Object&gt; emptyMap());
+ * List&lt;List&lt;Map&lt;String, Object&gt;&gt;&gt; results = dao.commonSelectBundle(bundle, 3L, TimeUnit.SECONDS);
+ * </pre>
+ *
+ * @see CommonDao#commonSelectBundle(QueryBundle, long, java.util.concurrent.TimeUnit)
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class QueryBundle {
+
+    /**
+     * 登録したSELECT文
+     */
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    /**
+     * 名前付きパラメータを持つSQLキーを追加する。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param params パラメータ名をキーとする値
+     * @return QueryBundle
+     */
+    public QueryBundle add(String sqlKey, Map<String, ?> params) {
+        entries.add(new Entry(sqlKey, params, null));
+        return this;
+    }
+
+    /**
+     * 置換文字列（replaceBind()と同じ形式）を持つSQLキーを追加する。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param binds 置換文字リスト
+     * @return QueryBundle
+     */
+    public QueryBundle add(String sqlKey, List<String> binds) {
+        entries.add(new Entry(sqlKey, null, binds));
+        return this;
+    }
+
+    /**
+     * 登録したSELECT文を登録順に取得する。
+     *
+     * @return List<Entry>
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * 登録件数を取得する。
+     *
+     * @return int
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * <p>
+     * SELECT文の一括発行定義の要素クラス
+     * </p>
+     * SQLキーと、名前付きパラメータまたは置換文字リストのいずれかを保持する。
+     *
+     * @author H.Abe
+     * @version 1.0
+     *
+     */
+    public static final class Entry {
+
+        /**
+         * SQLキー
+         */
+        private final String sqlKey;
+
+        /**
+         * 名前付きパラメータ（置換文字リストを使用する場合はNULL）
+         */
+        private final Map<String, ?> params;
+
+        /**
+         * 置換文字リスト（名前付きパラメータを使用する場合はNULL）
+         */
+        private final List<String> binds;
+
+        /**
+         * コンストラクタ
+         *
+         * @param sqlKey SQLキー
+         * @param params 名前付きパラメータ
+         * @param binds 置換文字リスト
+         */
+        private Entry(String sqlKey, Map<String, ?> params, List<String> binds) {
+            this.sqlKey = sqlKey;
+            this.params = params;
+            this.binds = binds;
+        }
+
+        /**
+         * SQLキーを取得する。
+         *
+         * @return String
+         */
+        public String getSqlKey() {
+            return sqlKey;
+        }
+
+        /**
+         * 名前付きパラメータを取得する。
+         *
+         * @return Map<String, ?>
+         */
+        public Map<String, ?> getParams() {
+            return params;
+        }
+
+        /**
+         * 置換文字リストを取得する。
+         *
+         * @return List<String>
+         */
+        public List<String> getBinds() {
+            return binds;
+        }
+
+        /**
+         * 名前付きパラメータを使用するかを判定する。
+         *
+         * @return boolean
+         */
+        public boolean isNamed() {
+            return null == binds;
+        }
+    }
+}
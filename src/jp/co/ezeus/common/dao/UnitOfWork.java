@@ -0,0 +1,199 @@
+package jp.co.ezeus.common.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import jp.co.ezeus.common.rdbControl.CommonRDBControl;
+import jp.co.ezeus.common.rdbControl.impl.CommonRDBControlImpl;
+
+/**
+ * <p>
+ * 作業単位（トランザクション）クラス
+ * </p>
+ * 1つのトランザクションで発行する複数のSQLに、同じConnection、PreparedStatementキャッシュを使用させる。<br>
+ * Connectionは最初のSQL発行時に取得し（AutoCommit無効）、close()まで保持する。 close()ではCOMMITされていない更新をROLLBACKし、
+ * 例外の有無に関わらずConnectionを解放する。 try-with-resourcesでの利用を想定している。<br>
+ *
+ * <pre>
+ * try (UnitOfWork unitOfWork = pluralDao.beginUnitOfWork()) {
+ *     pluralDao.commonExecuteBySqlKey(&quot;SQL_INSERT_EMPLOYEE_INFO&quot;, employee);
+ *     pluralDao.commonExecuteBySqlKey(&quot;SQL_INSERT_EMPLOYEE_DETAIL_INFO&quot;, detail);
+ *     unitOfWork.commit();
+ * }
+ * </pre>
+ *
+ * 当クラスはスレッドセーフではないため、1つのスレッド内で使用すること。
+ *
+ * @see CommonPluralDao#beginUnitOfWork()
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class UnitOfWork implements AutoCloseable {
+
+    /**
+     * データソース
+     */
+    private final DataSource dataSource;
+
+    /**
+     * コネクション（未取得の場合はNULL）
+     */
+    private Connection connection;
+
+    /**
+     * 共通データアクセス処理
+     */
+    private CommonRDBControl rdbControl;
+
+    /**
+     * CLOSE済みフラグ
+     */
+    private boolean closed;
+
+    /**
+     * COMMIT後の処理（未登録の場合はNULL）
+     */
+    private List<Runnable> commitActions;
+
+    /**
+     * コンストラクタ
+     *
+     * @param dataSource データソース
+     * @author H.Abe
+     */
+    public UnitOfWork(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * コネクションを取得する。 未取得の場合はデータソースから取得し、AutoCommitを無効にする。
+     *
+     * @return Connection
+     * @throws SQLException CLOSE済みの場合
+     * @author H.Abe
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("unit of work is already closed");
+        }
+        if (null == connection) {
+            Connection acquired = dataSource.getConnection();
+            try {
+                acquired.setAutoCommit(false);
+                rdbControl = CommonRDBControlImpl.forUnitOfWork(acquired);
+            } catch (SQLException sqlException) {
+                acquired.close();
+                throw new SQLException(sqlException);
+            }
+            connection = acquired;
+        }
+        return connection;
+    }
+
+    /**
+     * 当作業単位のコネクションを使用する共通データアクセス処理を取得する。
+     *
+     * @return CommonRDBControl
+     * @throws SQLException CLOSE済みの場合
+     * @author H.Abe
+     */
+    public CommonRDBControl getRDBControl() throws SQLException {
+        getConnection();
+        return rdbControl;
+    }
+
+    /**
+     * コネクションを取得済みかを判定する。
+     *
+     * @return boolean
+     */
+    public boolean isConnected() {
+        return null != connection;
+    }
+
+    /**
+     * CLOSE済みかを判定する。
+     *
+     * @return boolean
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 次のCOMMITが成功した後に行う処理を登録する。 キャッシュ、索引等へ更新を反映する場合に使用する。<br>
+     * 登録した処理はCOMMIT後に登録順に1度だけ行い、ROLLBACK、またはclose()の場合は行わずに破棄する。
+     *
+     * @param action COMMIT後の処理
+     * @throws SQLException CLOSE済みの場合
+     * @author H.Abe
+     */
+    public void afterCommit(Runnable action) throws SQLException {
+        if (closed) {
+            throw new SQLException("unit of work is already closed");
+        }
+        if (null == commitActions) {
+            commitActions = new ArrayList<Runnable>(4);
+        }
+        commitActions.add(action);
+    }
+
+    /**
+     * COMMITを行う。 コネクションが未取得の場合は何もしない。 COMMITが成功した場合はafterCommit()で登録した処理を行う。
+     *
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public void commit() throws SQLException {
+        if (null != connection) {
+            connection.commit();
+        }
+        List<Runnable> actions = commitActions;
+        commitActions = null;
+        if (null != actions) {
+            for (Runnable action : actions) {
+                action.run();
+            }
+        }
+    }
+
+    /**
+     * ROLLBACKを行う。 コネクションが未取得の場合は何もしない。 afterCommit()で登録した処理は破棄する。
+     *
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public void rollback() throws SQLException {
+        commitActions = null;
+        if (null != connection) {
+            connection.rollback();
+        }
+    }
+
+    /**
+     * COMMITされていない更新をROLLBACKし、コネクションを解放する。 ROLLBACKに失敗した場合もコネクションは解放する。
+     *
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        commitActions = null;
+        if (null == connection) {
+            return;
+        }
+        try {
+            connection.rollback();
+        } finally {
+            rdbControl.close(connection);
+            connection = null;
+            rdbControl = null;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package jp.co.ezeus.common.dao.impl;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jp.co.ezeus.common.dao.AsyncCommonDao;
+import jp.co.ezeus.common.dao.CommonDao;
+import jp.co.ezeus.common.dao.CommonDaoCallback;
+import jp.co.ezeus.common.dao.DaoContext;
+import jp.co.ezeus.common.dto.BindBuffer;
+import jp.co.ezeus.common.dto.BindingDto;
+
+/**
+ * <p>
+ * 非同期共通DAO実装クラス
+ * </p>
+ * 共通DAO（@see {@link CommonDaoImpl}）の処理を実行者のスレッドで実行し、結果をCompletableFutureにて返却する。<br>
+ * 実行者を指定しない場合、仮想スレッドを使用できるJava（21以降）では仮想スレッドの実行者を、 それ以外では同時実行数の上限を
+ * スレッド数とするデーモンスレッドのスレッドプールを使用する。<br>
+ * 同時にDBへアクセスする処理数は公平なSemaphoreでコネクションプールの最大接続数以下に制限する。
+ * 上限を超えた処理はDBアクセス前に到着順で待機するため、大量の処理を投入してもコネクション取得で競合しない。<br>
+ * 呼び出し元のコンテキスト（@see {@link DaoContext}）を実行スレッドへ引き継ぎ、期限切れの場合は待機、実行を行わずに
+ * SQLTimeoutExceptionで完了する。
+ *
+ * @see AsyncCommonDao
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class AsyncCommonDaoImpl implements AsyncCommonDao, AutoCloseable {
+
+    /**
+     * 実行スレッド名の採番
+     */
+    private static final AtomicInteger THREAD_SEQUENCE = new AtomicInteger();
+
+    /**
+     * 全インスタンスで共有する実行者のスレッド数の上限（仮想スレッドを使用できない場合）
+     */
+    static final int SHARED_MAX_THREADS = 64;
+
+    /**
+     * 未使用のスレッドを終了するまでの時間（秒）
+     */
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    /**
+     * 委譲先の共通DAO
+     */
+    private final CommonDao dao;
+
+    /**
+     * 実行者
+     */
+    private final ExecutorService executor;
+
+    /**
+     * 実行者を当クラスで生成したか
+     */
+    private final boolean ownExecutor;
+
+    /**
+     * 同時実行数の上限
+     */
+    private final int maxConcurrency;
+
+    /**
+     * 同時実行数を制限するSemaphore（公平）
+     */
+    private final Semaphore permits;
+
+    /**
+     * コンストラクタ<br>
+     * 当クラス専用の実行者を生成する。
+     *
+     * @param dao 委譲先の共通DAO
+     * @param maxConcurrency 同時実行数の上限（コネクションプールの最大接続数）
+     */
+    public AsyncCommonDaoImpl(CommonDao dao, int maxConcurrency) {
+        this(dao, maxConcurrency, createExecutor(Math.max(maxConcurrency, 1)), true);
+    }
+
+    /**
+     * コンストラクタ<br>
+     * 指定の実行者を使用する。 実行者の終了は呼び出し元で行う。
+     *
+     * @param dao 委譲先の共通DAO
+     * @param maxConcurrency 同時実行数の上限（コネクションプールの最大接続数）
+     * @param executor 実行者
+     */
+    public AsyncCommonDaoImpl(CommonDao dao, int maxConcurrency, ExecutorService executor) {
+        this(dao, maxConcurrency, executor, false);
+    }
+
+    /**
+     * コンストラクタ
+     *
+     * @param dao 委譲先の共通DAO
+     * @param maxConcurrency 同時実行数の上限
+     * @param executor 実行者
+     * @param ownExecutor 実行者を当クラスで生成したか
+     */
+    private AsyncCommonDaoImpl(CommonDao dao, int maxConcurrency, ExecutorService executor, boolean ownExecutor) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        this.dao = dao;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    /**
+     * 実行者を生成する。 仮想スレッドを使用できる場合は仮想スレッドの実行者を、 それ以外の場合はスレッド数を上限までとする
+     * デーモンスレッドのスレッドプールを生成する。 上限を超えた処理はキューで待機し、未使用のスレッドは一定時間後に終了する。
+     *
+     * @param maxThreads スレッド数の上限（仮想スレッドを使用できない場合）
+     * @return ExecutorService
+     * @author H.Abe
+     */
+    static ExecutorService createExecutor(int maxThreads) {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException reflectiveOperationException) {
+            // 仮想スレッドを使用できないJavaのため、プラットフォームスレッドを使用する
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "async-dao-" + THREAD_SEQUENCE.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * 共通DAOの処理を非同期で実行する。 実行前、DBアクセスの待機後に期限を確認し、期限切れの場合は SQLTimeoutExceptionで完了する。<br>
+     * 処理で発生した例外はCompletableFutureの例外として返却する。
+     *
+     * @param callback 処理
+     * @return CompletableFuture<T>
+     * @author H.Abe
+     */
+    public <T> CompletableFuture<T> submit(final CommonDaoCallback<T> callback) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        final DaoContext context = DaoContext.current();
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    if (future.isDone()) {
+                        // 開始前にキャンセルされた場合は実行しない
+                        return;
+                    }
+                    try {
+                        future.complete(context.call(new Callable<T>() {
+                            public T call() throws Exception {
+                                return invoke(callback, context);
+                            }
+                        }));
+                    } catch (Exception exception) {
+                        future.completeExceptionally(exception);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException rejectedExecutionException) {
+            future.completeExceptionally(new SQLException(rejectedExecutionException));
+        }
+        return future;
+    }
+
+    /**
+     * 共通SELECT文発行処理を非同期で呼び出す。（バインド変数無し）
+     *
+     * @param query SQL文
+     * @return CompletableFuture<List<Map<String, Object>>>
+     */
+    public CompletableFuture<List<Map<String, Object>>> commonSelectByQuery(final String query) {
+        return submit(new CommonDaoCallback<List<Map<String, Object>>>() {
+            public List<Map<String, Object>> call(CommonDao dao) throws SQLException {
+                return dao.commonSelectByQuery(query);
+            }
+        });
+    }
+
+    /**
+     * 共通SELECT文発行処理を非同期で呼び出す。（バインド変数有り）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return CompletableFuture<List<Map<String, Object>>>
+     */
+    public CompletableFuture<List<Map<String, Object>>> commonSelectByBindQuery(final String query, final List<BindingDto> binds) {
+        return submit(new CommonDaoCallback<List<Map<String, Object>>>() {
+            public List<Map<String, Object>> call(CommonDao dao) throws SQLException {
+                return dao.commonSelectByBindQuery(query, binds);
+            }
+        });
+    }
+
+    /**
+     * 共通SELECT文発行処理を非同期で呼び出す。（バインド変数バッファ）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return CompletableFuture<List<Map<String, Object>>>
+     */
+    public CompletableFuture<List<Map<String, Object>>> commonSelectByBindBuffer(final String query, final BindBuffer binds) {
+        return submit(new CommonDaoCallback<List<Map<String, Object>>>() {
+            public List<Map<String, Object>> call(CommonDao dao) throws SQLException {
+                return dao.commonSelectByBindBuffer(query, binds);
+            }
+        });
+    }
+
+    /**
+     * SQLキーに対応するSELECT文の発行処理を非同期で呼び出す。（置換文字列）
+     *
+     * @param sqlKey SQLキー
+     * @param binds 置換文字列
+     * @return CompletableFuture<List<Map<String, Object>>>
+     */
+    public CompletableFuture<List<Map<String, Object>>> commonSelectBySqlKey(final String sqlKey, final List<String> binds) {
+        return submit(new CommonDaoCallback<List<Map<String, Object>>>() {
+            public List<Map<String, Object>> call(CommonDao dao) throws SQLException {
+                return dao.commonSelectBySqlKey(sqlKey, binds);
+            }
+        });
+    }
+
+    /**
+     * SQLキーに対応するSELECT文の発行処理を非同期で呼び出す。（名前付きバインド変数）
+     *
+     * @param sqlKey SQLキー
+     * @param params 名前付きバインド変数
+     * @return CompletableFuture<List<Map<String, Object>>>
+     */
+    public CompletableFuture<List<Map<String, Object>>> commonSelectBySqlKey(final String sqlKey, final Map<String, ?> params) {
+        return submit(new CommonDaoCallback<List<Map<String, Object>>>() {
+            public List<Map<String, Object>> call(CommonDao dao) throws SQLException {
+                return dao.commonSelectBySqlKey(sqlKey, params);
+            }
+        });
+    }
+
+    /**
+     * 共通DML文発行処理を非同期で呼び出す。（バインド変数バッファ）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return CompletableFuture<Void>
+     */
+    public CompletableFuture<Void> commonExecuteByBindBuffer(final String query, final BindBuffer binds) {
+        return submit(new CommonDaoCallback<Void>() {
+            public Void call(CommonDao dao) throws SQLException {
+                dao.commonExecuteByBindBuffer(query, binds);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * SQLキーに対応するDML文の発行処理を非同期で呼び出す。（置換文字列）
+     *
+     * @param sqlKey SQLキー
+     * @param binds 置換文字列
+     * @return CompletableFuture<Void>
+     */
+    public CompletableFuture<Void> commonExecuteBySqlKey(final String sqlKey, final List<String> binds) {
+        return submit(new CommonDaoCallback<Void>() {
+            public Void call(CommonDao dao) throws SQLException {
+                dao.commonExecuteBySqlKey(sqlKey, binds);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * SQLキーに対応するDML文の発行処理を非同期で呼び出す。（名前付きバインド変数）
+     *
+     * @param sqlKey SQLキー
+     * @param params 名前付きバインド変数
+     * @return CompletableFuture<Void>
+     */
+    public CompletableFuture<Void> commonExecuteBySqlKey(final String sqlKey, final Map<String, ?> params) {
+        return submit(new CommonDaoCallback<Void>() {
+            public Void call(CommonDao dao) throws SQLException {
+                dao.commonExecuteBySqlKey(sqlKey, params);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 共通DML文一括発行処理を非同期で呼び出す。
+     *
+     * @param query SQL文
+     * @param rows 行毎のバインド変数
+     * @param batchSize 一括発行件数
+     * @return CompletableFuture<int[]>
+     */
+    public CompletableFuture<int[]> commonExecuteBatchByBindQuery(final String query, final List<List<BindingDto>> rows, final int batchSize) {
+        return submit(new CommonDaoCallback<int[]>() {
+            public int[] call(CommonDao dao) throws SQLException {
+                return dao.commonExecuteBatchByBindQuery(query, rows, batchSize);
+            }
+        });
+    }
+
+    /**
+     * 同時実行数の上限を取得する。
+     *
+     * @return int
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * DBアクセス中の処理数を取得する。
+     *
+     * @return int
+     */
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * DBアクセスを待機している処理数（概数）を取得する。
+     *
+     * @return int
+     */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * 当クラスで生成した実行者を終了する。 実行中の処理は完了まで実行する。
+     *
+     * @author H.Abe
+     */
+    public void close() {
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 同時実行数の枠を取得して共通DAOの処理を実行する。
+     *
+     * @param callback 処理
+     * @param context コンテキスト
+     * @return T
+     * @throws SQLException
+     * @author H.Abe
+     */
+    private <T> T invoke(CommonDaoCallback<T> callback, DaoContext context) throws SQLException {
+        context.checkDeadline();
+        acquire(context);
+        try {
+            context.checkDeadline();
+            return callback.call(dao);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 同時実行数の枠を取得する。 期限を持つ場合は期限まで待機し、取得できない場合はSQLTimeoutExceptionを発生させる。
+     *
+     * @param context コンテキスト
+     * @throws SQLException
+     * @author H.Abe
+     */
+    private void acquire(DaoContext context) throws SQLException {
+        try {
+            if (!context.hasDeadline()) {
+                permits.acquire();
+            } else if (!permits.tryAcquire(context.getRemainingNanos(), TimeUnit.NANOSECONDS)) {
+                throw new SQLTimeoutException("deadline exceeded while waiting for database access");
+            }
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(interruptedException);
+        }
+    }
+}
@@ -1,15 +1,33 @@
 package jp.co.ezeus.common.dao.impl;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import javax.sql.DataSource;
+import jp.co.ezeus.common.dao.CancellationScope;
 import jp.co.ezeus.common.dao.CommonDao;
+import jp.co.ezeus.common.dao.DaoContext;
+import jp.co.ezeus.common.dao.KeysetPage;
+import jp.co.ezeus.common.dao.QueryBundle;
+import jp.co.ezeus.common.dto.BindBuffer;
 import jp.co.ezeus.common.dto.BindingDto;
 import jp.co.ezeus.common.rdbControl.CommonRDBControl;
+import jp.co.ezeus.common.rdbControl.ResultCursor;
 import jp.co.ezeus.common.rdbControl.impl.CommonRDBControlImpl;
+import jp.co.ezeus.common.utilities.DBResourceControl;
 
 /**
  * <p>
@@ -19,7 +37,9 @@ import jp.co.ezeus.common.rdbControl.impl.CommonRDBControlImpl;
  * {@link CommonRDBControlImpl}を呼び出す。<br>
  * 当クラスを生成の際には、 DaoFactoryインターフェース@see
  * {@link jp.co.ezeus.common.factory.AbstractDaoFactory}を実装するクラスより生成すること。<br>
- * ConnectionのCLOSEを当クラスで行うため、SQLを単発発行の場合に使用する。
+ * ConnectionのCLOSEを当クラスで行うため、SQLを単発発行の場合に使用する。<br>
+ * Connection、共通データアクセス処理はメソッド内のローカル変数のみで保持し、インスタンスは変更しないため、
+ * 1つのインスタンスを複数のスレッドで共有できる。
  *
  * @see {CommonPluralDaoImple}トランザクション管理無の実装クラス
  *
@@ -28,11 +48,18 @@ import jp.co.ezeus.common.rdbControl.impl.CommonRDBControlImpl;
  */
 public class CommonDaoImpl implements CommonDao {
 
-    private DataSource dataSource;
-
-    private CommonRDBControl rdbControl;
+    /**
+     * SQLキー指定の発行処理で使用するスレッド毎のバインド変数バッファ<br>
+     * 呼出元がBindBuffer.forCurrentThread()で取得したバッファとは別のインスタンスとし、 DAOの呼び出しで呼出元のバッファを上書きしない。
+     */
+    private static final ThreadLocal<BindBuffer> SQL_KEY_BUFFER = new ThreadLocal<BindBuffer>() {
+        @Override
+        protected BindBuffer initialValue() {
+            return new BindBuffer();
+        }
+    };
 
-    private Connection connection;
+    private final DataSource dataSource;
 
     public CommonDaoImpl(DataSource dataSource) {
         this.dataSource = dataSource;
@@ -48,14 +75,17 @@ public class CommonDaoImpl implements CommonDao {
      * @author H.Abe
      */
     public List<Map<String, Object>> commonSelectByQuery(String query) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        Connection connection = this.dataSource.getConnection();
+        CommonRDBControl rdbControl = CommonRDBControlImpl.forConnection(connection);
         List<Map<String, Object>> resultList = null;
+        CancellationScope scope = null;
         try {
+            scope = enter(rdbControl);
             resultList = rdbControl.executeCommonSelectByQuery(query);
         } catch (SQLException sqlException) {
             throw new SQLException(sqlException);
         } finally {
+            exit(rdbControl, scope);
             rdbControl.close(connection);
         }
         return resultList;
@@ -72,14 +102,44 @@ public class CommonDaoImpl implements CommonDao {
      * @author H.Abe
      */
     public List<Map<String, Object>> commonSelectByBindQuery(String query, List<BindingDto> binds) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        Connection connection = this.dataSource.getConnection();
+        CommonRDBControl rdbControl = CommonRDBControlImpl.forConnection(connection);
         List<Map<String, Object>> resultList = null;
+        CancellationScope scope = null;
         try {
+            scope = enter(rdbControl);
             resultList = rdbControl.executeCommonSelectByBindQuery(query, binds);
         } catch (SQLException sqlException) {
             throw new SQLException(sqlException);
         } finally {
+            exit(rdbControl, scope);
+            rdbControl.close(connection);
+        }
+        return resultList;
+    }
+
+    /**
+     * 共通SELECT文発行処理を呼び出す。（バインド変数バッファ） 結果セットをListにて返却する。<br>
+     * 引数のBindBufferはバインド変数。
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public List<Map<String, Object>> commonSelectByBindBuffer(String query, BindBuffer binds) throws SQLException {
+        Connection connection = this.dataSource.getConnection();
+        CommonRDBControl rdbControl = CommonRDBControlImpl.forConnection(connection);
+        List<Map<String, Object>> resultList = null;
+        CancellationScope scope = null;
+        try {
+            scope = enter(rdbControl);
+            resultList = rdbControl.executeCommonSelectByBindBuffer(query, binds);
+        } catch (SQLException sqlException) {
+            throw new SQLException(sqlException);
+        } finally {
+            exit(rdbControl, scope);
             rdbControl.close(connection);
         }
         return resultList;
@@ -94,9 +154,11 @@ public class CommonDaoImpl implements CommonDao {
      * @author H.Abe
      */
     public void commonUpdateByQuery(String query) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        Connection connection = this.dataSource.getConnection();
+        CommonRDBControl rdbControl = CommonRDBControlImpl.forConnection(connection);
+        CancellationScope scope = null;
         try {
+            scope = enter(rdbControl);
             int result = rdbControl.executeCommonDMLByQuery(query);
             if (result > 0) {
                 connection.commit();
@@ -105,6 +167,7 @@ public class CommonDaoImpl implements CommonDao {
             connection.rollback();
             throw new SQLException(sqlException);
         } finally {
+            exit(rdbControl, scope);
             rdbControl.close(connection);
         }
     }
@@ -118,9 +181,11 @@ public class CommonDaoImpl implements CommonDao {
      * @author H.Abe
      */
     public void commonUpdateByBindQuery(String query, List<BindingDto> binds) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        Connection connection = this.dataSource.getConnection();
+        CommonRDBControl rdbControl = CommonRDBControlImpl.forConnection(connection);
+        CancellationScope scope = null;
         try {
+            scope = enter(rdbControl);
             int result = rdbControl.executeCommonDMLByBindQuery(query, binds);
             if (result > 0) {
                 connection.commit();
@@ -129,6 +194,7 @@ public class CommonDaoImpl implements CommonDao {
             connection.rollback();
             throw new SQLException(sqlException);
         } finally {
+            exit(rdbControl, scope);
             rdbControl.close(connection);
         }
     }
@@ -142,9 +208,11 @@ public class CommonDaoImpl implements CommonDao {
      * @author H.Abe
      */
     public void commonInsertByQuery(String query) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        Connection connection = this.dataSource.getConnection();
+        CommonRDBControl rdbControl = CommonRDBControlImpl.forConnection(connection);
+        CancellationScope scope = null;
         try {
+            scope = enter(rdbControl);
             int result = rdbControl.executeCommonDMLByQuery(query);
             if (result > 0) {
                 connection.commit();
@@ -153,6 +221,7 @@ public class CommonDaoImpl implements CommonDao {
             connection.rollback();
             throw new SQLException(sqlException);
         } finally {
+            exit(rdbControl, scope);
             rdbControl.close(connection);
         }
     }
@@ -166,9 +235,11 @@ public class CommonDaoImpl implements CommonDao {
      * @author H.Abe
      */
     public void commonInsertByBindQuery(String query, List<BindingDto> binds) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        Connection connection = this.dataSource.getConnection();
+        CommonRDBControl rdbControl = CommonRDBControlImpl.forConnection(connection);
+        CancellationScope scope = null;
         try {
+            scope = enter(rdbControl);
             int result = rdbControl.executeCommonDMLByBindQuery(query, binds);
             if (result > 0) {
                 connection.commit();
@@ -177,6 +248,7 @@ public class CommonDaoImpl implements CommonDao {
             connection.rollback();
             throw new SQLException(sqlException);
         } finally {
+            exit(rdbControl, scope);
             rdbControl.close(connection);
         }
     }
@@ -190,9 +262,11 @@ public class CommonDaoImpl implements CommonDao {
      * @author H.Abe
      */
     public void commonDeleteByQuery(String query) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        Connection connection = this.dataSource.getConnection();
+        CommonRDBControl rdbControl = CommonRDBControlImpl.forConnection(connection);
+        CancellationScope scope = null;
         try {
+            scope = enter(rdbControl);
             int result = rdbControl.executeCommonDMLByQuery(query);
             if (result > 0) {
                 connection.commit();
@@ -201,6 +275,7 @@ public class CommonDaoImpl implements CommonDao {
             connection.rollback();
             throw new SQLException(sqlException);
         } finally {
+            exit(rdbControl, scope);
             rdbControl.close(connection);
         }
     }
@@ -214,9 +289,11 @@ public class CommonDaoImpl implements CommonDao {
      * @author H.Abe
      */
     public void commonDeleteByBindQuery(String query, List<BindingDto> binds) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        Connection connection = this.dataSource.getConnection();
+        CommonRDBControl rdbControl = CommonRDBControlImpl.forConnection(connection);
+        CancellationScope scope = null;
         try {
+            scope = enter(rdbControl);
             int result = rdbControl.executeCommonDMLByBindQuery(query, binds);
             if (result > 0) {
                 connection.commit();
@@ -225,8 +302,304 @@ public class CommonDaoImpl implements CommonDao {
             connection.rollback();
             throw new SQLException(sqlException);
         } finally {
+            exit(rdbControl, scope);
+            rdbControl.close(connection);
+        }
+    }
+
+    /**
+     * 共通DML文発行処理にてDML文の発行処理を行う。（バインド変数バッファ） 引数のBindBufferはバインド変数。
+     * DML文は（INSERT、UPDATE、DELETE）に対応する。
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public void commonExecuteByBindBuffer(String query, BindBuffer binds) throws SQLException {
+        Connection connection = this.dataSource.getConnection();
+        CommonRDBControl rdbControl = CommonRDBControlImpl.forConnection(connection);
+        CancellationScope scope = null;
+        try {
+            scope = enter(rdbControl);
+            int result = rdbControl.executeCommonDMLByBindBuffer(query, binds);
+            if (result > 0) {
+                connection.commit();
+            }
+        } catch (SQLException sqlException) {
+            connection.rollback();
+            throw new SQLException(sqlException);
+        } finally {
+            exit(rdbControl, scope);
+            rdbControl.close(connection);
+        }
+    }
+
+    /**
+     * SQLキーに対応するSQL文にて共通SELECT文発行処理を呼び出す。（置換文字リスト） 結果セットをListにて返却する。<br>
+     * 置換文字リストはreplaceBind()と同じ形式（'文字列'、数値等）で指定し、PreparedStatementのバインド変数として設定する。
+     * replaceBind()で置換したSQL文をcommonSelectByQuery()で発行している処理は、当メソッドの呼び出しへ置き換える。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param binds 置換文字リスト
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public List<Map<String, Object>> commonSelectBySqlKey(String sqlKey, List<String> binds) throws SQLException {
+        BindBuffer buffer = sqlKeyBuffer();
+        return commonSelectByBindBuffer(parameterizeBind(sqlKey, binds, buffer), buffer);
+    }
+
+    /**
+     * SQLキーに対応するSQL文にて共通DML文発行処理を呼び出す。（置換文字リスト）<br>
+     * 置換文字リストはreplaceBind()と同じ形式（'文字列'、数値等）で指定し、PreparedStatementのバインド変数として設定する。
+     * replaceBind()で置換したSQL文をDML文発行処理で発行している処理は、当メソッドの呼び出しへ置き換える。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param binds 置換文字リスト
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public void commonExecuteBySqlKey(String sqlKey, List<String> binds) throws SQLException {
+        BindBuffer buffer = sqlKeyBuffer();
+        commonExecuteByBindBuffer(parameterizeBind(sqlKey, binds, buffer), buffer);
+    }
+
+    /**
+     * SQLキーに対応するSQL文にて共通SELECT文発行処理を呼び出す。（名前付きパラメータ） 結果セットをListにて返却する。<br>
+     * SQLファイルの名前付きパラメータ（":名前"）へ、引数のMapから同じ名前の値を設定する。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param params パラメータ名をキーとする値
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public List<Map<String, Object>> commonSelectBySqlKey(String sqlKey, Map<String, ?> params) throws SQLException {
+        BindBuffer buffer = sqlKeyBuffer();
+        return commonSelectByBindBuffer(bindNamed(sqlKey, params, buffer), buffer);
+    }
+
+    /**
+     * SQLキーに対応するSQL文にて共通DML文発行処理を呼び出す。（名前付きパラメータ）<br>
+     * SQLファイルの名前付きパラメータ（":名前"）へ、引数のMapから同じ名前の値を設定する。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param params パラメータ名をキーとする値
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public void commonExecuteBySqlKey(String sqlKey, Map<String, ?> params) throws SQLException {
+        BindBuffer buffer = sqlKeyBuffer();
+        commonExecuteByBindBuffer(bindNamed(sqlKey, params, buffer), buffer);
+    }
+
+    /**
+     * SQLキーに対応するSELECT文をキーセットページングで1ページ分取得する。（名前付きパラメータ）<br>
+     * SELECT文をキー列で並び替え、継続トークンを指定した場合は前ページの最終行のキーより後の行のみを取得する。 OFFSETによるページングと
+     * 異なり、読み飛ばす行が無いため、何ページ目でも1ページ目と同じコストで取得できる。 1ページ目は継続トークンにNULLを指定し、
+     * 次ページは返却したKeysetPageの継続トークンを指定する。<br>
+     * キー列は結果セットの列名で指定し、キー列の組み合わせで行が一意となるように主キーを含める。 キー列の指定方法は @see
+     * {@link KeysetQuery} を参照。
+     *
+     * <pre>
+     * KeysetPage page = dao.commonSelectPageBySqlKey(&quot;SQL_SELECT_EMPLOYEE_ID&quot;, params, Arrays.asList(&quot;employee_id&quot;), 100, token);
+     * </pre>
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param params パラメータ名をキーとする値
+     * @param keyColumns キー列（"列名"、または"列名 desc"）
+     * @param pageSize 1ページの件数
+     * @param pageToken 継続トークン（1ページ目の場合はNULL）
+     * @return KeysetPage
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public KeysetPage commonSelectPageBySqlKey(String sqlKey, Map<String, ?> params, List<String> keyColumns, int pageSize,
+            String pageToken) throws SQLException {
+        if (pageSize < 1) {
+            throw new SQLException("pageSize must be positive: " + pageSize);
+        }
+        KeysetQuery keyset = KeysetQuery.of(sqlKey, keyColumns);
+        Object[] after = (null == pageToken) ? null : keyset.decode(pageToken);
+        BindBuffer buffer = sqlKeyBuffer();
+        // 1件多く取得し、次ページの有無を判定する
+        String query = keyset.bind(bindNamed(sqlKey, params, buffer), after, pageSize + 1, buffer);
+        return keyset.toPage(commonSelectByBindBuffer(query, buffer), pageSize);
+    }
+
+    /**
+     * SQLキー指定の発行処理で使用するバインド変数バッファを空の状態で取得する。 SQL発行が完了するまでの間のみ使用する。
+     *
+     * @return BindBuffer
+     */
+    static BindBuffer sqlKeyBuffer() {
+        BindBuffer buffer = SQL_KEY_BUFFER.get();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * 複数のSQLキーに対応するSELECT文を1つのConnectionで1回の発行にまとめて呼び出す。 結果セットのListを登録順に格納したListにて返却する。<br>
+     * DBとの往復は1回となる。 ドライバが複数の結果セットに対応していない場合はSELECT文毎に順に発行する。
+     * 並行に発行する場合はcommonSelectBundle()を使用する。
+     *
+     * @param bundle SELECT文の一括発行定義
+     * @return List<List<Map<String, Object>>>
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public List<List<Map<String, Object>>> commonSelectMultiBySqlKey(QueryBundle bundle) throws SQLException {
+        List<String> queries = new ArrayList<String>(bundle.size());
+        List<BindBuffer> binds = new ArrayList<BindBuffer>(bundle.size());
+        for (QueryBundle.Entry entry : bundle.getEntries()) {
+            BindBuffer buffer = new BindBuffer();
+            queries.add(entry.isNamed() ? bindNamed(entry.getSqlKey(), entry.getParams(), buffer)
+                    : parameterizeBind(entry.getSqlKey(), entry.getBinds(), buffer));
+            binds.add(buffer);
+        }
+        Connection connection = this.dataSource.getConnection();
+        CommonRDBControl rdbControl = CommonRDBControlImpl.forConnection(connection);
+        List<List<Map<String, Object>>> resultList = null;
+        CancellationScope scope = null;
+        try {
+            scope = enter(rdbControl);
+            resultList = rdbControl.executeCommonSelectMultiByBindBuffer(queries, binds);
+        } catch (SQLException sqlException) {
+            throw new SQLException(sqlException);
+        } finally {
+            exit(rdbControl, scope);
+            rdbControl.close(connection);
+        }
+        return resultList;
+    }
+
+    /**
+     * 複数のSELECT文を並行に発行する。 結果セットのListを登録順に格納したListにて返却する。<br>
+     * 各SELECT文は別々のConnectionで発行するため、所要時間は最も遅いSELECT文の時間程度となる。
+     * 期限は全体で1つとし、呼び出し元のコンテキスト（@see {@link DaoContext}）が期限を持つ場合は早い方とする。
+     * 期限を超過した場合、またはいずれかのSELECT文が失敗した場合は、発行中の他のSELECT文をキャンセルして SQLExceptionを発生させる。
+     *
+     * @param bundle SELECT文の一括発行定義
+     * @param timeout 全体の期限までの時間
+     * @param unit 時間の単位
+     * @return List<List<Map<String, Object>>>
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public List<List<Map<String, Object>>> commonSelectBundle(QueryBundle bundle, long timeout, TimeUnit unit) throws SQLException {
+        final CancellationScope scope = new CancellationScope();
+        final DaoContext context = DaoContext.current().withTimeout(timeout, unit).withCancellationScope(scope);
+        List<QueryBundle.Entry> entries = bundle.getEntries();
+        CompletionService<Integer> completionService = new ExecutorCompletionService<Integer>(BundleExecutorHolder.EXECUTOR);
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>(entries.size());
+        // 各要素は別々のスレッドが設定し、完了の取得（Future）を経由して参照する
+        final List<List<Map<String, Object>>> results = new ArrayList<List<Map<String, Object>>>(
+                Collections.<List<Map<String, Object>>> nCopies(entries.size(), null));
+        try {
+            for (int i = 0; i < entries.size(); i++) {
+                final int index = i;
+                final QueryBundle.Entry entry = entries.get(i);
+                futures.add(completionService.submit(new Callable<Integer>() {
+                    public Integer call() throws Exception {
+                        if (scope.isCancelled()) {
+                            // 開始前にキャンセルされた場合はConnectionを取得しない
+                            throw new SQLException("query has been cancelled", "57014");
+                        }
+                        results.set(index, context.call(new Callable<List<Map<String, Object>>>() {
+                            public List<Map<String, Object>> call() throws Exception {
+                                return entry.isNamed() ? commonSelectBySqlKey(entry.getSqlKey(), entry.getParams())
+                                        : commonSelectBySqlKey(entry.getSqlKey(), entry.getBinds());
+                            }
+                        }));
+                        return Integer.valueOf(index);
+                    }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                Future<Integer> completed = completionService.poll(Math.max(context.getRemainingNanos(), 0L), TimeUnit.NANOSECONDS);
+                if (null == completed) {
+                    throw new SQLTimeoutException("deadline exceeded while executing query bundle");
+                }
+                completed.get();
+            }
+        } catch (InterruptedException interruptedException) {
+            cancelBundle(futures, scope);
+            Thread.currentThread().interrupt();
+            throw new SQLException(interruptedException);
+        } catch (ExecutionException executionException) {
+            cancelBundle(futures, scope);
+            Throwable cause = executionException.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new SQLException(cause);
+        } catch (SQLException sqlException) {
+            cancelBundle(futures, scope);
+            throw sqlException;
+        } catch (RuntimeException runtimeException) {
+            cancelBundle(futures, scope);
+            throw new SQLException(runtimeException);
+        }
+        return results;
+    }
+
+    /**
+     * 共通SELECT文発行処理を呼び出す。（バインド変数有り） 結果セットを1行ずつ取得するカーソルを返却する。<br>
+     * 引数のListはバインド変数。 カーソルは専用のConnectionを保持し、カーソルのclose()にて Connectionも解放する。
+     * 大量データの読み込みには結果セットを全件Listへ格納する処理ではなく当メソッドを使用する。
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @param fetchSize 1回の通信で取得する件数（0以下の場合は既定値）
+     * @return ResultCursor
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public ResultCursor commonOpenCursorByBindQuery(String query, List<BindingDto> binds, int fetchSize) throws SQLException {
+        Connection cursorConnection = this.dataSource.getConnection();
+        CommonRDBControl cursorControl = new CommonRDBControlImpl(cursorConnection);
+        ResultCursor cursor = null;
+        try {
+            cursor = cursorControl.openCursorByBindQuery(query, binds, fetchSize);
+            cursor.setCloseConnection(true);
+        } catch (SQLException sqlException) {
+            cursorControl.close(cursorConnection);
+            throw new SQLException(sqlException);
+        }
+        return cursor;
+    }
+
+    /**
+     * 共通DML文一括発行処理を呼び出す。（バインド変数有り） 全行の発行が正常終了した場合にCOMMITを行い、
+     * 行毎の更新件数を配列にて返却する。<br>
+     * 引数のListは1行分のバインド変数を1要素とする。
+     *
+     * @param query SQL文
+     * @param rows 行毎のバインド変数
+     * @param batchSize 一括発行件数
+     * @return int[]
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public int[] commonExecuteBatchByBindQuery(String query, List<List<BindingDto>> rows, int batchSize) throws SQLException {
+        Connection connection = this.dataSource.getConnection();
+        CommonRDBControl rdbControl = CommonRDBControlImpl.forConnection(connection);
+        int[] results = null;
+        CancellationScope scope = null;
+        try {
+            scope = enter(rdbControl);
+            results = rdbControl.executeCommonDMLBatch(query, rows, batchSize);
+            connection.commit();
+        } catch (SQLException sqlException) {
+            connection.rollback();
+            throw new SQLException(sqlException);
+        } finally {
+            exit(rdbControl, scope);
             rdbControl.close(connection);
         }
+        return results;
     }
 
     /**
@@ -239,8 +612,8 @@ public class CommonDaoImpl implements CommonDao {
      * @author H.Abe
      */
     public ResultSet commonGetResultSetSelectByQuery(String query) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        Connection connection = this.dataSource.getConnection();
+        CommonRDBControl rdbControl = CommonRDBControlImpl.forConnection(connection);
         ResultSet resultSet = null;
         try {
             resultSet = rdbControl.getResultSetBySelectQuery(query);
@@ -263,8 +636,8 @@ public class CommonDaoImpl implements CommonDao {
      * @author H.Abe
      */
     public ResultSet commonGetResultSetSelectByBindQuery(String query, List<BindingDto> binds) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        Connection connection = this.dataSource.getConnection();
+        CommonRDBControl rdbControl = CommonRDBControlImpl.forConnection(connection);
         ResultSet resultSet = null;
         try {
             resultSet = rdbControl.getResultSetBySelectBindQuery(query, binds);
@@ -276,4 +649,112 @@ public class CommonDaoImpl implements CommonDao {
         return resultSet;
     }
 
+    /**
+     * 一括発行中のSELECT文をキャンセルする。 未開始の処理は実行せず、Connection取得待ちの処理は割り込みで、
+     * 発行中のSQLはStatement.cancel()で中断する。 キャンセル範囲を先にキャンセルするため、
+     * 割り込み前に開始した処理もConnectionを取得せずに終了する。
+     *
+     * @param futures 一括発行の処理
+     * @param scope 一括発行のキャンセル範囲
+     */
+    private void cancelBundle(List<Future<Integer>> futures, CancellationScope scope) {
+        scope.cancel();
+        for (Future<Integer> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * SQL文の発行前に、呼び出し元のコンテキスト（@see {@link DaoContext}）を共通データアクセス処理へ適用する。
+     * 期限までの残り時間をタイムアウトとし、キャンセル範囲を持つ場合は登録する。
+     *
+     * @param rdbControl 共通データアクセス処理
+     * @return CancellationScope 登録したキャンセル範囲（無い場合はNULL）
+     * @throws SQLException 期限切れの場合、キャンセル済みの場合
+     * @author H.Abe
+     */
+    private CancellationScope enter(CommonRDBControl rdbControl) throws SQLException {
+        DaoContext context = DaoContext.current();
+        context.checkDeadline();
+        CancellationScope scope = context.getCancellationScope();
+        if (null != scope) {
+            scope.register(rdbControl);
+        }
+        rdbControl.setQueryTimeout(context.getQueryTimeoutSeconds());
+        return scope;
+    }
+
+    /**
+     * SQL文の発行後に、キャンセル範囲の登録を解除し、タイムアウトを戻す。 Connectionの解放前に呼び出す。
+     *
+     * @param rdbControl 共通データアクセス処理
+     * @param scope 登録したキャンセル範囲
+     */
+    private void exit(CommonRDBControl rdbControl, CancellationScope scope) {
+        if (null != scope) {
+            scope.unregister(rdbControl);
+        }
+        rdbControl.setQueryTimeout(0);
+    }
+
+    /**
+     * SQLキーに対応するSQL文の置換文字列をバインド変数へ変換する。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param binds 置換文字リスト
+     * @param buffer バインド変数の設定先
+     * @return String 実行するSQL文
+     * @throws SQLException SQLキーが登録されていない場合、"?"の数と置換文字リストの要素数が一致しない場合
+     * @author H.Abe
+     */
+    private String parameterizeBind(String sqlKey, List<String> binds, BindBuffer buffer) throws SQLException {
+        String query = null;
+        try {
+            query = DBResourceControl.getInstance().parameterizeBind(sqlKey, binds, buffer);
+        } catch (IOException ioException) {
+            throw new SQLException(ioException);
+        }
+        if (null == query) {
+            throw new SQLException("bind count does not match SQL: " + sqlKey);
+        }
+        return query;
+    }
+
+    /**
+     * SQLキーに対応するSQL文の名前付きパラメータへ値を設定する。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param params パラメータ名をキーとする値
+     * @param buffer バインド変数の設定先
+     * @return String 実行するSQL文
+     * @throws SQLException SQLキーが登録されていない場合、値が存在しないパラメータ名がある場合
+     * @author H.Abe
+     */
+    private String bindNamed(String sqlKey, Map<String, ?> params, BindBuffer buffer) throws SQLException {
+        try {
+            return DBResourceControl.getInstance().bindNamed(sqlKey, params, buffer);
+        } catch (IOException ioException) {
+            throw new SQLException(ioException);
+        } catch (IllegalArgumentException illegalArgumentException) {
+            throw new SQLException(illegalArgumentException);
+        }
+    }
+
+    /**
+     * <p>
+     * SELECT文の一括発行に使用する実行者の保持クラス
+     * </p>
+     * 初回のcommonSelectBundle()の呼び出し時に実行者を生成する。
+     *
+     * @author H.Abe
+     * @version 1.0
+     *
+     */
+    private static final class BundleExecutorHolder {
+
+        /**
+         * 実行者（全インスタンスで共有する）
+         */
+        static final ExecutorService EXECUTOR = AsyncCommonDaoImpl.createExecutor(AsyncCommonDaoImpl.SHARED_MAX_THREADS);
+    }
 }
@@ -1,15 +1,21 @@
 package jp.co.ezeus.common.dao.impl;
 
-import java.sql.Connection;
+import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import javax.sql.DataSource;
 import jp.co.ezeus.common.dao.CommonPluralDao;
+import jp.co.ezeus.common.dao.QueryBundle;
+import jp.co.ezeus.common.dao.UnitOfWork;
+import jp.co.ezeus.common.dto.BindBuffer;
 import jp.co.ezeus.common.dto.BindingDto;
 import jp.co.ezeus.common.rdbControl.CommonRDBControl;
+import jp.co.ezeus.common.rdbControl.ResultCursor;
 import jp.co.ezeus.common.rdbControl.impl.CommonRDBControlImpl;
+import jp.co.ezeus.common.utilities.DBResourceControl;
 
 /**
  * <p>
@@ -19,18 +25,23 @@ import jp.co.ezeus.common.rdbControl.impl.CommonRDBControlImpl;
  * {@link CommonRDBControlImpl}を呼び出す。<br>
  * 当クラスを生成の際には、 DaoFactoryインターフェース@see
  * {@link jp.co.ezeus.common.factory.AbstractDaoFactory}を実装するクラスより生成すること。<br>
- * ConnectionのCLOSEは当クラスを利用する上位クラスで行う。
+ * ConnectionのCLOSEは当クラスを利用する上位クラスで行う。<br>
+ * 各メソッドはbeginUnitOfWork()で開始した作業単位（@see {@link UnitOfWork}）の1つのConnectionを共有するため、 commit()、rollback()は
+ * 作業単位のclose()、またはcloseConnection()までに発行した全てのSQLに対して行われる。 作業単位はtry-with-resourcesで範囲を明示する。<br>
+ * 作業単位を開始せずに呼び出したSELECT文（結果をListで返却するもの）は、1回の呼び出し毎にConnectionを取得し、必ず解放する。
+ * DML文、一括発行、カーソル、結果セットを返却するメソッドは作業単位を開始していない場合SQLExceptionとする。
+ * 作業単位を暗黙に開始しないため、closeされずに終了した処理の更新が同じスレッドの次の処理へ引き継がれることはない。<br>
+ * 作業単位はスレッド毎に保持し、インスタンスは変更しないため、1つのインスタンスを複数のスレッドで共有できる。
+ * 作業単位はスレッドを跨いで引き継がないため、同じスレッドでcloseConnection()、または作業単位のclose()を行うこと。
  *
  * @author H.Abe
  * @version 1.0
  */
 public class CommonPluralDaoImple implements CommonPluralDao {
 
-    private DataSource dataSource;
+    private final DataSource dataSource;
 
-    private CommonRDBControl rdbControl;
-
-    private Connection connection;
+    private final ThreadLocal<UnitOfWork> unitOfWork = new ThreadLocal<UnitOfWork>();
 
     public CommonPluralDaoImple(DataSource dataSource) {
         this.dataSource = dataSource;
@@ -46,13 +57,17 @@ public class CommonPluralDaoImple implements CommonPluralDao {
      * @author H.Abe
      */
     public List<Map<String, Object>> commonSelectByQuery(String query) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        UnitOfWork current = openUnitOfWork();
+        UnitOfWork used = (null != current) ? current : new UnitOfWork(this.dataSource);
         List<Map<String, Object>> resultList = null;
         try {
-            resultList = rdbControl.executeCommonSelectByQuery(query);
+            resultList = used.getRDBControl().executeCommonSelectByQuery(query);
         } catch (SQLException sqlException) {
             throw new SQLException(sqlException);
+        } finally {
+            if (used != current) {
+                used.close();
+            }
         }
         return resultList;
     }
@@ -68,13 +83,43 @@ public class CommonPluralDaoImple implements CommonPluralDao {
      * @author H.Abe
      */
     public List<Map<String, Object>> commonSelectByBindQuery(String query, List<BindingDto> binds) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        UnitOfWork current = openUnitOfWork();
+        UnitOfWork used = (null != current) ? current : new UnitOfWork(this.dataSource);
+        List<Map<String, Object>> resultList = null;
+        try {
+            resultList = used.getRDBControl().executeCommonSelectByBindQuery(query, binds);
+        } catch (SQLException sqlException) {
+            throw new SQLException(sqlException);
+        } finally {
+            if (used != current) {
+                used.close();
+            }
+        }
+        return resultList;
+    }
+
+    /**
+     * 共通SELECT文発行処理を呼び出す。（バインド変数バッファ） 結果セットをListにて返却する。<br>
+     * 引数のBindBufferはバインド変数。
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public List<Map<String, Object>> commonSelectByBindBuffer(String query, BindBuffer binds) throws SQLException {
+        UnitOfWork current = openUnitOfWork();
+        UnitOfWork used = (null != current) ? current : new UnitOfWork(this.dataSource);
         List<Map<String, Object>> resultList = null;
         try {
-            resultList = rdbControl.executeCommonSelectByBindQuery(query, binds);
+            resultList = used.getRDBControl().executeCommonSelectByBindBuffer(query, binds);
         } catch (SQLException sqlException) {
             throw new SQLException(sqlException);
+        } finally {
+            if (used != current) {
+                used.close();
+            }
         }
         return resultList;
     }
@@ -89,8 +134,7 @@ public class CommonPluralDaoImple implements CommonPluralDao {
      * @author H.Abe
      */
     public int commonUpdateByQuery(String query) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        CommonRDBControl rdbControl = requireUnitOfWork().getRDBControl();
         int result = 0;
         try {
             result = rdbControl.executeCommonDMLByQuery(query);
@@ -110,8 +154,7 @@ public class CommonPluralDaoImple implements CommonPluralDao {
      * @author H.Abe
      */
     public int commonUpdateByBindQuery(String query, List<BindingDto> binds) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        CommonRDBControl rdbControl = requireUnitOfWork().getRDBControl();
         int result = 0;
         try {
             result = rdbControl.executeCommonDMLByBindQuery(query, binds);
@@ -131,8 +174,7 @@ public class CommonPluralDaoImple implements CommonPluralDao {
      * @author H.Abe
      */
     public int commonInsertByQuery(String query) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        CommonRDBControl rdbControl = requireUnitOfWork().getRDBControl();
         int result = 0;
         try {
             result = rdbControl.executeCommonDMLByQuery(query);
@@ -152,8 +194,7 @@ public class CommonPluralDaoImple implements CommonPluralDao {
      * @author H.Abe
      */
     public int commonInsertByBindQuery(String query, List<BindingDto> binds) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        CommonRDBControl rdbControl = requireUnitOfWork().getRDBControl();
         int result = 0;
         try {
             result = rdbControl.executeCommonDMLByBindQuery(query, binds);
@@ -173,8 +214,7 @@ public class CommonPluralDaoImple implements CommonPluralDao {
      * @author H.Abe
      */
     public int commonDeleteByQuery(String query) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        CommonRDBControl rdbControl = requireUnitOfWork().getRDBControl();
         int result = 0;
         try {
             result = rdbControl.executeCommonDMLByQuery(query);
@@ -194,8 +234,7 @@ public class CommonPluralDaoImple implements CommonPluralDao {
      * @author H.Abe
      */
     public int commonDeleteByBindQuery(String query, List<BindingDto> binds) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        CommonRDBControl rdbControl = requireUnitOfWork().getRDBControl();
         int result = 0;
         try {
             result = rdbControl.executeCommonDMLByBindQuery(query, binds);
@@ -205,9 +244,171 @@ public class CommonPluralDaoImple implements CommonPluralDao {
         return result;
     }
 
+    /**
+     * 共通DML文発行処理にてDML文の発行処理を行う。（バインド変数バッファ） 引数のBindBufferはバインド変数。
+     * DML文は（INSERT、UPDATE、DELETE）に対応する。
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return int
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public int commonExecuteByBindBuffer(String query, BindBuffer binds) throws SQLException {
+        CommonRDBControl rdbControl = requireUnitOfWork().getRDBControl();
+        int result = 0;
+        try {
+            result = rdbControl.executeCommonDMLByBindBuffer(query, binds);
+        } catch (SQLException sqlException) {
+            throw new SQLException(sqlException);
+        }
+        return result;
+    }
+
+    /**
+     * SQLキーに対応するSQL文にて共通SELECT文発行処理を呼び出す。（置換文字リスト） 結果セットをListにて返却する。<br>
+     * 置換文字リストはreplaceBind()と同じ形式（'文字列'、数値等）で指定し、PreparedStatementのバインド変数として設定する。
+     * replaceBind()で置換したSQL文をcommonSelectByQuery()で発行している処理は、当メソッドの呼び出しへ置き換える。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param binds 置換文字リスト
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public List<Map<String, Object>> commonSelectBySqlKey(String sqlKey, List<String> binds) throws SQLException {
+        BindBuffer buffer = CommonDaoImpl.sqlKeyBuffer();
+        return commonSelectByBindBuffer(parameterizeBind(sqlKey, binds, buffer), buffer);
+    }
+
+    /**
+     * SQLキーに対応するSQL文にて共通DML文発行処理を呼び出す。（置換文字リスト）<br>
+     * 置換文字リストはreplaceBind()と同じ形式（'文字列'、数値等）で指定し、PreparedStatementのバインド変数として設定する。
+     * replaceBind()で置換したSQL文をDML文発行処理で発行している処理は、当メソッドの呼び出しへ置き換える。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param binds 置換文字リスト
+     * @return int
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public int commonExecuteBySqlKey(String sqlKey, List<String> binds) throws SQLException {
+        BindBuffer buffer = CommonDaoImpl.sqlKeyBuffer();
+        return commonExecuteByBindBuffer(parameterizeBind(sqlKey, binds, buffer), buffer);
+    }
+
+    /**
+     * SQLキーに対応するSQL文にて共通SELECT文発行処理を呼び出す。（名前付きパラメータ） 結果セットをListにて返却する。<br>
+     * SQLファイルの名前付きパラメータ（":名前"）へ、引数のMapから同じ名前の値を設定する。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param params パラメータ名をキーとする値
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public List<Map<String, Object>> commonSelectBySqlKey(String sqlKey, Map<String, ?> params) throws SQLException {
+        BindBuffer buffer = CommonDaoImpl.sqlKeyBuffer();
+        return commonSelectByBindBuffer(bindNamed(sqlKey, params, buffer), buffer);
+    }
+
+    /**
+     * SQLキーに対応するSQL文にて共通DML文発行処理を呼び出す。（名前付きパラメータ）<br>
+     * SQLファイルの名前付きパラメータ（":名前"）へ、引数のMapから同じ名前の値を設定する。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param params パラメータ名をキーとする値
+     * @return int
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public int commonExecuteBySqlKey(String sqlKey, Map<String, ?> params) throws SQLException {
+        BindBuffer buffer = CommonDaoImpl.sqlKeyBuffer();
+        return commonExecuteByBindBuffer(bindNamed(sqlKey, params, buffer), buffer);
+    }
+
+    /**
+     * 複数のSQLキーに対応するSELECT文を作業単位のConnectionで1回の発行にまとめて呼び出す。 結果セットのListを登録順に格納したListにて返却する。<br>
+     * DBとの往復は1回となる。 ドライバが複数の結果セットに対応していない場合はSELECT文毎に順に発行する。
+     *
+     * @param bundle SELECT文の一括発行定義
+     * @return List<List<Map<String, Object>>>
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public List<List<Map<String, Object>>> commonSelectMultiBySqlKey(QueryBundle bundle) throws SQLException {
+        List<String> queries = new ArrayList<String>(bundle.size());
+        List<BindBuffer> binds = new ArrayList<BindBuffer>(bundle.size());
+        for (QueryBundle.Entry entry : bundle.getEntries()) {
+            BindBuffer buffer = new BindBuffer();
+            queries.add(entry.isNamed() ? bindNamed(entry.getSqlKey(), entry.getParams(), buffer)
+                    : parameterizeBind(entry.getSqlKey(), entry.getBinds(), buffer));
+            binds.add(buffer);
+        }
+        UnitOfWork current = openUnitOfWork();
+        UnitOfWork used = (null != current) ? current : new UnitOfWork(this.dataSource);
+        List<List<Map<String, Object>>> resultList = null;
+        try {
+            resultList = used.getRDBControl().executeCommonSelectMultiByBindBuffer(queries, binds);
+        } catch (SQLException sqlException) {
+            throw new SQLException(sqlException);
+        } finally {
+            if (used != current) {
+                used.close();
+            }
+        }
+        return resultList;
+    }
+
+    /**
+     * 共通SELECT文発行処理を呼び出す。（バインド変数有り） 結果セットを1行ずつ取得するカーソルを返却する。<br>
+     * 引数のListはバインド変数。 カーソルは作業単位のConnectionを使用するため、カーソルをcloseした後も Connectionは解放しない。
+     * 大量データの読み込みには結果セットを全件Listへ格納する処理ではなく当メソッドを使用する。
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @param fetchSize 1回の通信で取得する件数（0以下の場合は既定値）
+     * @return ResultCursor
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public ResultCursor commonOpenCursorByBindQuery(String query, List<BindingDto> binds, int fetchSize) throws SQLException {
+        CommonRDBControl rdbControl = requireUnitOfWork().getRDBControl();
+        ResultCursor cursor = null;
+        try {
+            cursor = rdbControl.openCursorByBindQuery(query, binds, fetchSize);
+        } catch (SQLException sqlException) {
+            throw new SQLException(sqlException);
+        }
+        return cursor;
+    }
+
+    /**
+     * 共通DML文一括発行処理を呼び出す。（バインド変数有り） 行毎の更新件数を配列にて返却する。<br>
+     * 引数のListは1行分のバインド変数を1要素とする。COMMITは当クラスを利用する上位クラスで行う。
+     *
+     * @param query SQL文
+     * @param rows 行毎のバインド変数
+     * @param batchSize 一括発行件数
+     * @return int[]
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public int[] commonExecuteBatchByBindQuery(String query, List<List<BindingDto>> rows, int batchSize) throws SQLException {
+        CommonRDBControl rdbControl = requireUnitOfWork().getRDBControl();
+        int[] results = null;
+        try {
+            results = rdbControl.executeCommonDMLBatch(query, rows, batchSize);
+        } catch (SQLException sqlException) {
+            throw new SQLException(sqlException);
+        }
+        return results;
+    }
+
     /**
      * 共通SELECT文発行処理を呼び出す。（バインド変数無し） 結果セットを返却する。<br>
-     * 引数のSQL文はWHERE句に設定するバインド変数を持たないことが前提。
+     * 引数のSQL文はWHERE句に設定するバインド変数を持たないことが前提。 結果セットは作業単位のConnectionを使用するため、
+     * 作業単位のclose()までに参照し、closeすること。
      *
      * @param query SQL文
      * @return ResultSet
@@ -215,22 +416,19 @@ public class CommonPluralDaoImple implements CommonPluralDao {
      * @author H.Abe
      */
     public ResultSet commonGetResultSetSelectByQuery(String query) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        CommonRDBControl rdbControl = requireUnitOfWork().getRDBControl();
         ResultSet resultSet = null;
         try {
             resultSet = rdbControl.getResultSetBySelectQuery(query);
         } catch (SQLException sqlException) {
             throw new SQLException(sqlException);
-        } finally {
-            rdbControl.close(connection);
         }
         return resultSet;
     }
 
     /**
      * 共通SELECT文発行処理を呼び出す。（バインド変数有り） 結果セットを返却する。<br>
-     * 引数のListはバインド変数。
+     * 引数のListはバインド変数。 結果セットは作業単位のConnectionを使用するため、作業単位のclose()までに参照し、closeすること。
      *
      * @param query SQL文
      * @param binds バインド変数
@@ -239,26 +437,55 @@ public class CommonPluralDaoImple implements CommonPluralDao {
      * @author H.Abe
      */
     public ResultSet commonGetResultSetSelectByBindQuery(String query, List<BindingDto> binds) throws SQLException {
-        connection = this.dataSource.getConnection();
-        rdbControl = new CommonRDBControlImpl(connection);
+        CommonRDBControl rdbControl = requireUnitOfWork().getRDBControl();
         ResultSet resultSet = null;
         try {
             resultSet = rdbControl.getResultSetBySelectBindQuery(query, binds);
         } catch (SQLException sqlException) {
             throw new SQLException(sqlException);
-        } finally {
-            rdbControl.close(connection);
         }
         return resultSet;
     }
 
     /**
-     * Connectionのリソースを解放する。
+     * 作業単位を開始する。 以降のメソッドは、返却した作業単位をcloseするまで同じConnectionを使用する。<br>
+     * 作業単位のclose()ではCOMMITされていない更新をROLLBACKし、Connectionを解放する。<br>
+     * 当スレッドで開始済みの作業単位がcloseされていない場合は、その作業単位をROLLBACKして解放し、SQLExceptionとする。
+     *
+     * @return UnitOfWork
+     * @throws SQLException 開始済みの作業単位がcloseされていない場合
+     * @author H.Abe
+     */
+    public UnitOfWork beginUnitOfWork() throws SQLException {
+        UnitOfWork current = unitOfWork.get();
+        if (null != current && !current.isClosed() && current.isConnected()) {
+            // closeされずに残った作業単位は、更新をROLLBACKしてConnectionを解放してから通知する
+            try {
+                current.close();
+            } finally {
+                unitOfWork.remove();
+            }
+            throw new SQLException("previous unit of work was not closed and has been rolled back");
+        }
+        current = new UnitOfWork(this.dataSource);
+        unitOfWork.set(current);
+        return current;
+    }
+
+    /**
+     * Connectionのリソースを解放する。 COMMITされていない更新はROLLBACKする。
      *
      * @throws SQLException
      */
     public void closeConnection() throws SQLException {
-        rdbControl.close(connection);
+        UnitOfWork current = unitOfWork.get();
+        if (null != current) {
+            try {
+                current.close();
+            } finally {
+                unitOfWork.remove();
+            }
+        }
     }
 
     /**
@@ -267,7 +494,10 @@ public class CommonPluralDaoImple implements CommonPluralDao {
      * @throws SQLException
      */
     public void commit() throws SQLException {
-        connection.commit();
+        UnitOfWork current = unitOfWork.get();
+        if (null != current) {
+            current.commit();
+        }
     }
 
     /**
@@ -276,6 +506,77 @@ public class CommonPluralDaoImple implements CommonPluralDao {
      * @throws SQLException
      */
     public void rollback() throws SQLException {
-        connection.rollback();
+        UnitOfWork current = unitOfWork.get();
+        if (null != current) {
+            current.rollback();
+        }
+    }
+
+    /**
+     * 当スレッドでbeginUnitOfWork()により開始し、closeしていない作業単位を取得する。 存在しない場合はNULLを返却する。
+     *
+     * @return UnitOfWork
+     */
+    private UnitOfWork openUnitOfWork() {
+        UnitOfWork current = unitOfWork.get();
+        return (null == current || current.isClosed()) ? null : current;
+    }
+
+    /**
+     * 当スレッドの開始済みの作業単位を取得する。 作業単位を暗黙に開始すると、closeされずに終了した処理のConnection、
+     * COMMITされていない更新がスレッドに残り、同じスレッドの次の処理へ引き継がれるため、開始していない場合はSQLExceptionとする。
+     *
+     * @return UnitOfWork
+     * @throws SQLException 作業単位を開始していない場合
+     */
+    private UnitOfWork requireUnitOfWork() throws SQLException {
+        UnitOfWork current = openUnitOfWork();
+        if (null == current) {
+            throw new SQLException("no unit of work is open: call beginUnitOfWork() first");
+        }
+        return current;
+    }
+
+    /**
+     * SQLキーに対応するSQL文の置換文字列をバインド変数へ変換する。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param binds 置換文字リスト
+     * @param buffer バインド変数の設定先
+     * @return String 実行するSQL文
+     * @throws SQLException SQLキーが登録されていない場合、"?"の数と置換文字リストの要素数が一致しない場合
+     * @author H.Abe
+     */
+    private String parameterizeBind(String sqlKey, List<String> binds, BindBuffer buffer) throws SQLException {
+        String query = null;
+        try {
+            query = DBResourceControl.getInstance().parameterizeBind(sqlKey, binds, buffer);
+        } catch (IOException ioException) {
+            throw new SQLException(ioException);
+        }
+        if (null == query) {
+            throw new SQLException("bind count does not match SQL: " + sqlKey);
+        }
+        return query;
+    }
+
+    /**
+     * SQLキーに対応するSQL文の名前付きパラメータへ値を設定する。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param params パラメータ名をキーとする値
+     * @param buffer バインド変数の設定先
+     * @return String 実行するSQL文
+     * @throws SQLException SQLキーが登録されていない場合、値が存在しないパラメータ名がある場合
+     * @author H.Abe
+     */
+    private String bindNamed(String sqlKey, Map<String, ?> params, BindBuffer buffer) throws SQLException {
+        try {
+            return DBResourceControl.getInstance().bindNamed(sqlKey, params, buffer);
+        } catch (IOException ioException) {
+            throw new SQLException(ioException);
+        } catch (IllegalArgumentException illegalArgumentException) {
+            throw new SQLException(illegalArgumentException);
+        }
     }
 }
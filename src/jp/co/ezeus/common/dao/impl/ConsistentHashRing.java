@@ -0,0 +1,129 @@
+package jp.co.ezeus.common.dao.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <p>
+ * コンシステントハッシュのリングクラス
+ * </p>
+ * 各ノードを名前から求めた複数の位置（仮想ノード）としてリング上に配置し、キーのハッシュ値から時計回りに 最初に位置するノードを選択する。<br>
+ * ノードの位置は名前のみから決まるため、ノードを追加、削除した場合に移動するキーは 追加、削除したノードの担当分のみとなる。
+ * ノードの名前はシャードの追加後も変更しないこと。<br>
+ * 生成後は変更されないため、スレッド間で共有できる。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public final class ConsistentHashRing<T> {
+
+    /**
+     * 1ノードあたりの仮想ノード数の既定値
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    /**
+     * ハッシュ値とノードの対応
+     */
+    private final TreeMap<Long, T> ring = new TreeMap<Long, T>();
+
+    /**
+     * ノード（登録順）
+     */
+    private final List<T> nodes;
+
+    /**
+     * コンストラクタ
+     *
+     * @param nodes ノード名をキーとするノード
+     */
+    public ConsistentHashRing(Map<String, T> nodes) {
+        this(nodes, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * コンストラクタ
+     *
+     * @param nodes ノード名をキーとするノード
+     * @param virtualNodes 1ノードあたりの仮想ノード数
+     * @author H.Abe
+     */
+    public ConsistentHashRing(Map<String, T> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("nodes must not be empty");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be positive: " + virtualNodes);
+        }
+        List<T> list = new ArrayList<T>(nodes.size());
+        for (Map.Entry<String, T> entry : nodes.entrySet()) {
+            list.add(entry.getValue());
+            for (int i = 0; i < virtualNodes; i++) {
+                // 位置が重複した場合は先に登録したノードを優先する
+                Long position = Long.valueOf(hash(entry.getKey() + "#" + i));
+                if (!ring.containsKey(position)) {
+                    ring.put(position, entry.getValue());
+                }
+            }
+        }
+        this.nodes = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * キーを担当するノードを取得する。 数値と文字列は文字列表現が同じ場合に同じノードとなる。
+     *
+     * @param key キー
+     * @return T
+     * @author H.Abe
+     */
+    public T get(Object key) {
+        if (null == key) {
+            throw new IllegalArgumentException("key must not be null");
+        }
+        Map.Entry<Long, T> entry = ring.ceilingEntry(Long.valueOf(hash(String.valueOf(key))));
+        return (null != entry) ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * 全ノードを登録順に取得する。
+     *
+     * @return List<T>
+     */
+    public List<T> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * ノード数を取得する。
+     *
+     * @return int
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * 文字列の64bitハッシュ値を求める。 FNV-1aの結果をビット拡散し、リング上の位置の偏りを抑える。
+     *
+     * @param value 文字列
+     * @return long
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= (hash >>> 33);
+        return hash;
+    }
+}
@@ -0,0 +1,296 @@
+package jp.co.ezeus.common.dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import jp.co.ezeus.common.dao.CommonDao;
+import jp.co.ezeus.common.dao.KeysetPage;
+import jp.co.ezeus.common.dao.QueryBundle;
+import jp.co.ezeus.common.dto.BindBuffer;
+import jp.co.ezeus.common.dto.BindingDto;
+import jp.co.ezeus.common.rdbControl.ResultCursor;
+
+/**
+ * <p>
+ * 共通DAOの委譲クラス
+ * </p>
+ * 全てのメソッドを委譲先の共通DAOへそのまま委譲する。<br>
+ * 接続先の振り分け、呼び出しの監視等、共通DAOの一部のメソッドに処理を追加するクラスは 当クラスを継承し、対象のメソッドのみを
+ * オーバーライドする。 委譲先がスレッドセーフであれば、当クラスもスレッドセーフとなる。
+ *
+ * @see CommonDao
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class DelegatingCommonDao implements CommonDao {
+
+    /**
+     * 委譲先の共通DAO
+     */
+    private final CommonDao delegate;
+
+    /**
+     * コンストラクタ
+     *
+     * @param delegate 委譲先の共通DAO
+     */
+    public DelegatingCommonDao(CommonDao delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * 委譲先の共通DAOを取得する。
+     *
+     * @return CommonDao
+     */
+    public CommonDao getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 共通SELECT文発行処理を呼び出す。（バインド変数無し）
+     *
+     * @param query SQL文
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     */
+    public List<Map<String, Object>> commonSelectByQuery(String query) throws SQLException {
+        return delegate.commonSelectByQuery(query);
+    }
+
+    /**
+     * 共通SELECT文発行処理を呼び出す。（バインド変数有り）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     */
+    public List<Map<String, Object>> commonSelectByBindQuery(String query, List<BindingDto> binds) throws SQLException {
+        return delegate.commonSelectByBindQuery(query, binds);
+    }
+
+    /**
+     * 共通SELECT文発行処理を呼び出す。（バインド変数バッファ）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     */
+    public List<Map<String, Object>> commonSelectByBindBuffer(String query, BindBuffer binds) throws SQLException {
+        return delegate.commonSelectByBindBuffer(query, binds);
+    }
+
+    /**
+     * UPDATE文の発行処理を呼び出す。（バインド変数無し）
+     *
+     * @param query SQL文
+     * @throws SQLException
+     */
+    public void commonUpdateByQuery(String query) throws SQLException {
+        delegate.commonUpdateByQuery(query);
+    }
+
+    /**
+     * UPDATE文の発行処理を呼び出す。（バインド変数有り）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @throws SQLException
+     */
+    public void commonUpdateByBindQuery(String query, List<BindingDto> binds) throws SQLException {
+        delegate.commonUpdateByBindQuery(query, binds);
+    }
+
+    /**
+     * INSERT文の発行処理を呼び出す。（バインド変数無し）
+     *
+     * @param query SQL文
+     * @throws SQLException
+     */
+    public void commonInsertByQuery(String query) throws SQLException {
+        delegate.commonInsertByQuery(query);
+    }
+
+    /**
+     * INSERT文の発行処理を呼び出す。（バインド変数有り）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @throws SQLException
+     */
+    public void commonInsertByBindQuery(String query, List<BindingDto> binds) throws SQLException {
+        delegate.commonInsertByBindQuery(query, binds);
+    }
+
+    /**
+     * DELETE文の発行処理を呼び出す。（バインド変数無し）
+     *
+     * @param query SQL文
+     * @throws SQLException
+     */
+    public void commonDeleteByQuery(String query) throws SQLException {
+        delegate.commonDeleteByQuery(query);
+    }
+
+    /**
+     * DELETE文の発行処理を呼び出す。（バインド変数有り）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @throws SQLException
+     */
+    public void commonDeleteByBindQuery(String query, List<BindingDto> binds) throws SQLException {
+        delegate.commonDeleteByBindQuery(query, binds);
+    }
+
+    /**
+     * 共通DML文発行処理を呼び出す。（バインド変数バッファ）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @throws SQLException
+     */
+    public void commonExecuteByBindBuffer(String query, BindBuffer binds) throws SQLException {
+        delegate.commonExecuteByBindBuffer(query, binds);
+    }
+
+    /**
+     * SQLキーに対応するSELECT文の発行処理を呼び出す。（置換文字リスト）
+     *
+     * @param sqlKey SQLキー
+     * @param binds 置換文字リスト
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     */
+    public List<Map<String, Object>> commonSelectBySqlKey(String sqlKey, List<String> binds) throws SQLException {
+        return delegate.commonSelectBySqlKey(sqlKey, binds);
+    }
+
+    /**
+     * SQLキーに対応するDML文の発行処理を呼び出す。（置換文字リスト）
+     *
+     * @param sqlKey SQLキー
+     * @param binds 置換文字リスト
+     * @throws SQLException
+     */
+    public void commonExecuteBySqlKey(String sqlKey, List<String> binds) throws SQLException {
+        delegate.commonExecuteBySqlKey(sqlKey, binds);
+    }
+
+    /**
+     * SQLキーに対応するSELECT文の発行処理を呼び出す。（名前付きパラメータ）
+     *
+     * @param sqlKey SQLキー
+     * @param params パラメータ名をキーとする値
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     */
+    public List<Map<String, Object>> commonSelectBySqlKey(String sqlKey, Map<String, ?> params) throws SQLException {
+        return delegate.commonSelectBySqlKey(sqlKey, params);
+    }
+
+    /**
+     * SQLキーに対応するDML文の発行処理を呼び出す。（名前付きパラメータ）
+     *
+     * @param sqlKey SQLキー
+     * @param params パラメータ名をキーとする値
+     * @throws SQLException
+     */
+    public void commonExecuteBySqlKey(String sqlKey, Map<String, ?> params) throws SQLException {
+        delegate.commonExecuteBySqlKey(sqlKey, params);
+    }
+
+    /**
+     * 複数のSELECT文を1回の発行にまとめて呼び出す。
+     *
+     * @param bundle SELECT文の一括発行定義
+     * @return List<List<Map<String, Object>>>
+     * @throws SQLException
+     */
+    public List<List<Map<String, Object>>> commonSelectMultiBySqlKey(QueryBundle bundle) throws SQLException {
+        return delegate.commonSelectMultiBySqlKey(bundle);
+    }
+
+    /**
+     * SQLキーに対応するSELECT文をキーセットページングで1ページ分取得する。
+     *
+     * @param sqlKey SQLキー
+     * @param params 名前付きパラメータ
+     * @param keyColumns キー列
+     * @param pageSize 1ページの件数
+     * @param pageToken 継続トークン
+     * @return KeysetPage
+     * @throws SQLException
+     */
+    public KeysetPage commonSelectPageBySqlKey(String sqlKey, Map<String, ?> params, List<String> keyColumns, int pageSize,
+            String pageToken) throws SQLException {
+        return delegate.commonSelectPageBySqlKey(sqlKey, params, keyColumns, pageSize, pageToken);
+    }
+
+    /**
+     * 複数のSELECT文を並行に発行する。
+     *
+     * @param bundle SELECT文の一括発行定義
+     * @param timeout 全体の期限までの時間
+     * @param unit 時間の単位
+     * @return List<List<Map<String, Object>>>
+     * @throws SQLException
+     */
+    public List<List<Map<String, Object>>> commonSelectBundle(QueryBundle bundle, long timeout, TimeUnit unit) throws SQLException {
+        return delegate.commonSelectBundle(bundle, timeout, unit);
+    }
+
+    /**
+     * 共通DML文一括発行処理を呼び出す。
+     *
+     * @param query SQL文
+     * @param rows 行毎のバインド変数
+     * @param batchSize 一括発行件数
+     * @return int[]
+     * @throws SQLException
+     */
+    public int[] commonExecuteBatchByBindQuery(String query, List<List<BindingDto>> rows, int batchSize) throws SQLException {
+        return delegate.commonExecuteBatchByBindQuery(query, rows, batchSize);
+    }
+
+    /**
+     * 共通SELECT文発行処理を呼び出し、結果セットを返却する。（バインド変数無し）
+     *
+     * @param query SQL文
+     * @return ResultSet
+     * @throws SQLException
+     */
+    public ResultSet commonGetResultSetSelectByQuery(String query) throws SQLException {
+        return delegate.commonGetResultSetSelectByQuery(query);
+    }
+
+    /**
+     * 共通SELECT文発行処理を呼び出し、結果セットを返却する。（バインド変数有り）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return ResultSet
+     * @throws SQLException
+     */
+    public ResultSet commonGetResultSetSelectByBindQuery(String query, List<BindingDto> binds) throws SQLException {
+        return delegate.commonGetResultSetSelectByBindQuery(query, binds);
+    }
+
+    /**
+     * 共通SELECT文発行処理を呼び出し、カーソルを返却する。
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @param fetchSize 1回の通信で取得する件数
+     * @return ResultCursor
+     * @throws SQLException
+     */
+    public ResultCursor commonOpenCursorByBindQuery(String query, List<BindingDto> binds, int fetchSize) throws SQLException {
+        return delegate.commonOpenCursorByBindQuery(query, binds, fetchSize);
+    }
+}
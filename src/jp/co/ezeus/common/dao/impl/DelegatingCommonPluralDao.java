@@ -0,0 +1,313 @@
+package jp.co.ezeus.common.dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import jp.co.ezeus.common.dao.CommonPluralDao;
+import jp.co.ezeus.common.dao.QueryBundle;
+import jp.co.ezeus.common.dao.UnitOfWork;
+import jp.co.ezeus.common.dto.BindBuffer;
+import jp.co.ezeus.common.dto.BindingDto;
+import jp.co.ezeus.common.rdbControl.ResultCursor;
+
+/**
+ * <p>
+ * 共通DAOの委譲クラス（トランザクション管理無）
+ * </p>
+ * 全てのメソッドを委譲先の共通DAOへそのまま委譲する。<br>
+ * 共通DAOの一部のメソッドに処理を追加するクラスは 当クラスを継承し、対象のメソッドのみをオーバーライドする。
+ * 作業単位は委譲先が保持する。
+ *
+ * @see CommonPluralDao
+ * @see DelegatingCommonDao
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class DelegatingCommonPluralDao implements CommonPluralDao {
+
+    /**
+     * 委譲先の共通DAO
+     */
+    private final CommonPluralDao delegate;
+
+    /**
+     * コンストラクタ
+     *
+     * @param delegate 委譲先の共通DAO
+     */
+    public DelegatingCommonPluralDao(CommonPluralDao delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * 委譲先の共通DAOを取得する。
+     *
+     * @return CommonPluralDao
+     */
+    public CommonPluralDao getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 共通SELECT文発行処理を呼び出す。（バインド変数無し）
+     *
+     * @param query SQL文
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     */
+    public List<Map<String, Object>> commonSelectByQuery(String query) throws SQLException {
+        return delegate.commonSelectByQuery(query);
+    }
+
+    /**
+     * 共通SELECT文発行処理を呼び出す。（バインド変数有り）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     */
+    public List<Map<String, Object>> commonSelectByBindQuery(String query, List<BindingDto> binds) throws SQLException {
+        return delegate.commonSelectByBindQuery(query, binds);
+    }
+
+    /**
+     * 共通SELECT文発行処理を呼び出す。（バインド変数バッファ）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     */
+    public List<Map<String, Object>> commonSelectByBindBuffer(String query, BindBuffer binds) throws SQLException {
+        return delegate.commonSelectByBindBuffer(query, binds);
+    }
+
+    /**
+     * UPDATE文の発行処理を呼び出す。（バインド変数無し）
+     *
+     * @param query SQL文
+     * @return int
+     * @throws SQLException
+     */
+    public int commonUpdateByQuery(String query) throws SQLException {
+        return delegate.commonUpdateByQuery(query);
+    }
+
+    /**
+     * UPDATE文の発行処理を呼び出す。（バインド変数有り）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return int
+     * @throws SQLException
+     */
+    public int commonUpdateByBindQuery(String query, List<BindingDto> binds) throws SQLException {
+        return delegate.commonUpdateByBindQuery(query, binds);
+    }
+
+    /**
+     * INSERT文の発行処理を呼び出す。（バインド変数無し）
+     *
+     * @param query SQL文
+     * @return int
+     * @throws SQLException
+     */
+    public int commonInsertByQuery(String query) throws SQLException {
+        return delegate.commonInsertByQuery(query);
+    }
+
+    /**
+     * INSERT文の発行処理を呼び出す。（バインド変数有り）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return int
+     * @throws SQLException
+     */
+    public int commonInsertByBindQuery(String query, List<BindingDto> binds) throws SQLException {
+        return delegate.commonInsertByBindQuery(query, binds);
+    }
+
+    /**
+     * DELETE文の発行処理を呼び出す。（バインド変数無し）
+     *
+     * @param query SQL文
+     * @return int
+     * @throws SQLException
+     */
+    public int commonDeleteByQuery(String query) throws SQLException {
+        return delegate.commonDeleteByQuery(query);
+    }
+
+    /**
+     * DELETE文の発行処理を呼び出す。（バインド変数有り）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return int
+     * @throws SQLException
+     */
+    public int commonDeleteByBindQuery(String query, List<BindingDto> binds) throws SQLException {
+        return delegate.commonDeleteByBindQuery(query, binds);
+    }
+
+    /**
+     * 共通DML文発行処理を呼び出す。（バインド変数バッファ）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return int
+     * @throws SQLException
+     */
+    public int commonExecuteByBindBuffer(String query, BindBuffer binds) throws SQLException {
+        return delegate.commonExecuteByBindBuffer(query, binds);
+    }
+
+    /**
+     * SQLキーに対応するSELECT文の発行処理を呼び出す。（置換文字リスト）
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param binds 置換文字リスト
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     */
+    public List<Map<String, Object>> commonSelectBySqlKey(String sqlKey, List<String> binds) throws SQLException {
+        return delegate.commonSelectBySqlKey(sqlKey, binds);
+    }
+
+    /**
+     * SQLキーに対応するDML文の発行処理を呼び出す。（置換文字リスト）
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param binds 置換文字リスト
+     * @return int
+     * @throws SQLException
+     */
+    public int commonExecuteBySqlKey(String sqlKey, List<String> binds) throws SQLException {
+        return delegate.commonExecuteBySqlKey(sqlKey, binds);
+    }
+
+    /**
+     * SQLキーに対応するSELECT文の発行処理を呼び出す。（名前付きパラメータ）
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param params パラメータ名をキーとする値
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     */
+    public List<Map<String, Object>> commonSelectBySqlKey(String sqlKey, Map<String, ?> params) throws SQLException {
+        return delegate.commonSelectBySqlKey(sqlKey, params);
+    }
+
+    /**
+     * SQLキーに対応するDML文の発行処理を呼び出す。（名前付きパラメータ）
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param params パラメータ名をキーとする値
+     * @return int
+     * @throws SQLException
+     */
+    public int commonExecuteBySqlKey(String sqlKey, Map<String, ?> params) throws SQLException {
+        return delegate.commonExecuteBySqlKey(sqlKey, params);
+    }
+
+    /**
+     * 複数のSELECT文を1回の発行にまとめて呼び出す。
+     *
+     * @param bundle SELECT文の一括発行定義
+     * @return List<List<Map<String, Object>>>
+     * @throws SQLException
+     */
+    public List<List<Map<String, Object>>> commonSelectMultiBySqlKey(QueryBundle bundle) throws SQLException {
+        return delegate.commonSelectMultiBySqlKey(bundle);
+    }
+
+    /**
+     * 共通DML文一括発行処理を呼び出す。
+     *
+     * @param query SQL文
+     * @param rows 行毎のバインド変数
+     * @param batchSize 一括発行件数
+     * @return int[]
+     * @throws SQLException
+     */
+    public int[] commonExecuteBatchByBindQuery(String query, List<List<BindingDto>> rows, int batchSize) throws SQLException {
+        return delegate.commonExecuteBatchByBindQuery(query, rows, batchSize);
+    }
+
+    /**
+     * 共通SELECT文発行処理を呼び出し、結果セットを返却する。（バインド変数無し）
+     *
+     * @param query SQL文
+     * @return ResultSet
+     * @throws SQLException
+     */
+    public ResultSet commonGetResultSetSelectByQuery(String query) throws SQLException {
+        return delegate.commonGetResultSetSelectByQuery(query);
+    }
+
+    /**
+     * 共通SELECT文発行処理を呼び出し、結果セットを返却する。（バインド変数有り）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return ResultSet
+     * @throws SQLException
+     */
+    public ResultSet commonGetResultSetSelectByBindQuery(String query, List<BindingDto> binds) throws SQLException {
+        return delegate.commonGetResultSetSelectByBindQuery(query, binds);
+    }
+
+    /**
+     * 共通SELECT文発行処理を呼び出し、カーソルを返却する。
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @param fetchSize 1回の通信で取得する件数
+     * @return ResultCursor
+     * @throws SQLException
+     */
+    public ResultCursor commonOpenCursorByBindQuery(String query, List<BindingDto> binds, int fetchSize) throws SQLException {
+        return delegate.commonOpenCursorByBindQuery(query, binds, fetchSize);
+    }
+
+    /**
+     * 作業単位を開始する。
+     *
+     * @return UnitOfWork
+     * @throws SQLException
+     */
+    public UnitOfWork beginUnitOfWork() throws SQLException {
+        return delegate.beginUnitOfWork();
+    }
+
+    /**
+     * Connectionのリソースを解放する。
+     *
+     * @throws SQLException
+     */
+    public void closeConnection() throws SQLException {
+        delegate.closeConnection();
+    }
+
+    /**
+     * COMMITを行う。
+     *
+     * @throws SQLException
+     */
+    public void commit() throws SQLException {
+        delegate.commit();
+    }
+
+    /**
+     * ROLLBACKを行う。
+     *
+     * @throws SQLException
+     */
+    public void rollback() throws SQLException {
+        delegate.rollback();
+    }
+}
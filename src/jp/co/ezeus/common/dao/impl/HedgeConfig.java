@@ -0,0 +1,264 @@
+package jp.co.ezeus.common.dao.impl;
+
+/**
+ * <p>
+ * ヘッジ読み込み設定クラス
+ * </p>
+ * 参照系振り分け共通DAO（@see {@link ReplicaRoutingCommonDao}）のヘッジ読み込みの待ち時間、予算を保持する。<br>
+ * ヘッジ読み込みは、最初の発行がSQL毎の応答時間の百分位（既定はp95）を超えても応答しない場合に、 同じSELECT文を別の接続先へ発行し、
+ * 先に応答した結果を使用する。 ヘッジの発行数はSELECT文の発行数に対する割合（予算）以下に制限する。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class HedgeConfig {
+
+    /**
+     * ヘッジの予算の既定値（SELECT文の発行数に対する割合、%）
+     */
+    public static final double DEFAULT_BUDGET_PERCENT = 5.0d;
+
+    /**
+     * 待ち時間とする応答時間の百分位の既定値
+     */
+    public static final double DEFAULT_PERCENTILE = 0.95d;
+
+    /**
+     * 応答時間の記録件数が不足する場合の待ち時間の既定値（ミリ秒）
+     */
+    public static final long DEFAULT_INITIAL_DELAY_MILLIS = 50L;
+
+    /**
+     * 待ち時間の下限の既定値（ミリ秒）
+     */
+    public static final long DEFAULT_MIN_DELAY_MILLIS = 5L;
+
+    /**
+     * 百分位の算出に必要な記録件数の既定値
+     */
+    public static final int DEFAULT_MIN_SAMPLES = 20;
+
+    /**
+     * SQL毎に保持する応答時間の件数の既定値
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 128;
+
+    /**
+     * 応答時間を記録するSQLの件数の上限の既定値
+     */
+    public static final int DEFAULT_MAX_TRACKED_QUERIES = 1024;
+
+    /**
+     * ヘッジのタイムアウトの既定値（ミリ秒）
+     */
+    public static final long DEFAULT_HEDGE_TIMEOUT_MILLIS = 30000L;
+
+    /**
+     * ヘッジの予算（%）
+     */
+    private double budgetPercent = DEFAULT_BUDGET_PERCENT;
+
+    /**
+     * 待ち時間とする応答時間の百分位
+     */
+    private double percentile = DEFAULT_PERCENTILE;
+
+    /**
+     * 記録件数が不足する場合の待ち時間（ミリ秒）
+     */
+    private long initialDelayMillis = DEFAULT_INITIAL_DELAY_MILLIS;
+
+    /**
+     * 待ち時間の下限（ミリ秒）
+     */
+    private long minDelayMillis = DEFAULT_MIN_DELAY_MILLIS;
+
+    /**
+     * 百分位の算出に必要な記録件数
+     */
+    private int minSamples = DEFAULT_MIN_SAMPLES;
+
+    /**
+     * SQL毎に保持する応答時間の件数
+     */
+    private int windowSize = DEFAULT_WINDOW_SIZE;
+
+    /**
+     * 応答時間を記録するSQLの件数の上限
+     */
+    private int maxTrackedQueries = DEFAULT_MAX_TRACKED_QUERIES;
+
+    /**
+     * レプリカが1つしか利用できない場合にプライマリへヘッジするか
+     */
+    private boolean hedgeToPrimary;
+
+    /**
+     * ヘッジのタイムアウト（ミリ秒）
+     */
+    private long hedgeTimeoutMillis = DEFAULT_HEDGE_TIMEOUT_MILLIS;
+
+    /**
+     * ヘッジの予算（%）を取得する。
+     *
+     * @return double
+     */
+    public double getBudgetPercent() {
+        return budgetPercent;
+    }
+
+    /**
+     * ヘッジの予算（%）を設定する。 ヘッジの発行数は、SELECT文の発行数に対してこの割合以下となる。
+     *
+     * @param budgetPercent ヘッジの予算（%）
+     */
+    public void setBudgetPercent(double budgetPercent) {
+        this.budgetPercent = budgetPercent;
+    }
+
+    /**
+     * 待ち時間とする応答時間の百分位を取得する。
+     *
+     * @return double
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * 待ち時間とする応答時間の百分位を設定する。
+     *
+     * @param percentile 百分位（0より大きく1以下）
+     */
+    public void setPercentile(double percentile) {
+        this.percentile = percentile;
+    }
+
+    /**
+     * 記録件数が不足する場合の待ち時間（ミリ秒）を取得する。
+     *
+     * @return long
+     */
+    public long getInitialDelayMillis() {
+        return initialDelayMillis;
+    }
+
+    /**
+     * 記録件数が不足する場合の待ち時間（ミリ秒）を設定する。
+     *
+     * @param initialDelayMillis 待ち時間（ミリ秒）
+     */
+    public void setInitialDelayMillis(long initialDelayMillis) {
+        this.initialDelayMillis = initialDelayMillis;
+    }
+
+    /**
+     * 待ち時間の下限（ミリ秒）を取得する。
+     *
+     * @return long
+     */
+    public long getMinDelayMillis() {
+        return minDelayMillis;
+    }
+
+    /**
+     * 待ち時間の下限（ミリ秒）を設定する。
+     *
+     * @param minDelayMillis 待ち時間の下限（ミリ秒）
+     */
+    public void setMinDelayMillis(long minDelayMillis) {
+        this.minDelayMillis = minDelayMillis;
+    }
+
+    /**
+     * 百分位の算出に必要な記録件数を取得する。
+     *
+     * @return int
+     */
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    /**
+     * 百分位の算出に必要な記録件数を設定する。
+     *
+     * @param minSamples 記録件数
+     */
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+
+    /**
+     * SQL毎に保持する応答時間の件数を取得する。
+     *
+     * @return int
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * SQL毎に保持する応答時間の件数を設定する。 古い応答時間から破棄する。
+     *
+     * @param windowSize 保持件数
+     */
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * 応答時間を記録するSQLの件数の上限を取得する。
+     *
+     * @return int
+     */
+    public int getMaxTrackedQueries() {
+        return maxTrackedQueries;
+    }
+
+    /**
+     * 応答時間を記録するSQLの件数の上限を設定する。 上限を超えたSQLは記録件数が不足する場合の待ち時間を使用する。
+     *
+     * @param maxTrackedQueries 上限
+     */
+    public void setMaxTrackedQueries(int maxTrackedQueries) {
+        this.maxTrackedQueries = maxTrackedQueries;
+    }
+
+    /**
+     * レプリカが1つしか利用できない場合にプライマリへヘッジするかを取得する。
+     *
+     * @return boolean
+     */
+    public boolean isHedgeToPrimary() {
+        return hedgeToPrimary;
+    }
+
+    /**
+     * レプリカが1つしか利用できない場合にプライマリへヘッジするかを設定する。
+     *
+     * @param hedgeToPrimary プライマリへヘッジする場合true
+     */
+    public void setHedgeToPrimary(boolean hedgeToPrimary) {
+        this.hedgeToPrimary = hedgeToPrimary;
+    }
+
+    /**
+     * ヘッジのタイムアウト（ミリ秒）を取得する。
+     *
+     * @return long
+     */
+    public long getHedgeTimeoutMillis() {
+        return hedgeTimeoutMillis;
+    }
+
+    /**
+     * ヘッジのタイムアウト（ミリ秒）を設定する。 ヘッジのSELECT文のタイムアウトと、最初の発行が失敗した場合に ヘッジの結果を待つ時間の上限とする。
+     * 呼び出し元のコンテキストが期限を持つ場合は早い方とする。
+     *
+     * @param hedgeTimeoutMillis タイムアウト（ミリ秒）
+     */
+    public void setHedgeTimeoutMillis(long hedgeTimeoutMillis) {
+        this.hedgeTimeoutMillis = hedgeTimeoutMillis;
+    }
+}
@@ -0,0 +1,379 @@
+package jp.co.ezeus.common.dao.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import jp.co.ezeus.common.dao.KeysetPage;
+import jp.co.ezeus.common.dto.BindBuffer;
+import jp.co.ezeus.common.utilities.SqlRegistry;
+
+/**
+ * <p>
+ * キーセットページングのSQL生成クラス
+ * </p>
+ * SQLキーのSELECT文を副問い合わせとし、キー列の並び替えと件数の制限、 前ページの最終行のキーより後の行のみを取得する条件
+ * （"where (キー列) &gt; (前ページの最終行の値)"）を付加したSELECT文を生成する。 条件はキー列の索引で評価されるため、
+ * 何ページ目でも1ページ目と同じコストで取得できる。<br>
+ * 継続トークンは前ページの最終行のキー列の値を型と共にBase64（URL用）で符号化したもので、 SQLキーとキー列が異なるトークンは受け付けない。<br>
+ * キー列は結果セットの列名（別名）で指定し、全てのキー列を同じ並び順とする（末尾に" desc"を付けた場合は全て降順）。
+ * 結果セットの列名とは大文字と小文字を区別せずに照合する。
+ * キー列はNULLを含まず、キー列の組み合わせで行が一意となること（主キーを最後のキー列に含める）。
+ * SQLキーのSELECT文にはORDER BY句、LIMIT句を記載しない。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+final class KeysetQuery {
+
+    /**
+     * 継続トークンの形式のバージョン
+     */
+    private static final byte TOKEN_VERSION = 1;
+
+    /**
+     * キー列の指定の正規表現
+     */
+    private static final Pattern KEY_COLUMN = Pattern.compile("\\s*([A-Za-z_][A-Za-z0-9_]*)(?:\\s+(asc|desc))?\\s*",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * 値の型コード：String
+     */
+    private static final byte TYPE_STRING = 'S';
+
+    /**
+     * 値の型コード：int
+     */
+    private static final byte TYPE_INT = 'I';
+
+    /**
+     * 値の型コード：long
+     */
+    private static final byte TYPE_LONG = 'L';
+
+    /**
+     * 値の型コード：double
+     */
+    private static final byte TYPE_DOUBLE = 'F';
+
+    /**
+     * 値の型コード：boolean
+     */
+    private static final byte TYPE_BOOLEAN = 'B';
+
+    /**
+     * 値の型コード：BigDecimal
+     */
+    private static final byte TYPE_BIG_DECIMAL = 'N';
+
+    /**
+     * 値の型コード：Date
+     */
+    private static final byte TYPE_DATE = 'D';
+
+    /**
+     * 値の型コード：LocalDate
+     */
+    private static final byte TYPE_LOCAL_DATE = 'd';
+
+    /**
+     * 値の型コード：Timestamp
+     */
+    private static final byte TYPE_TIMESTAMP = 'T';
+
+    /**
+     * キー列名（結果セットの列名）
+     */
+    private final String[] columns;
+
+    /**
+     * 降順フラグ
+     */
+    private final boolean descending;
+
+    /**
+     * SQLキーとキー列の指紋（他のSELECT文のトークンの検出用）
+     */
+    private final int fingerprint;
+
+    /**
+     * コンストラクタ
+     *
+     * @param columns キー列名
+     * @param descending 降順フラグ
+     * @param fingerprint 指紋
+     */
+    private KeysetQuery(String[] columns, boolean descending, int fingerprint) {
+        this.columns = columns;
+        this.descending = descending;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * キー列の指定を解析する。
+     *
+     * @param sqlKey SQLキー
+     * @param keyColumns キー列（"列名"、または"列名 desc"）
+     * @return KeysetQuery
+     * @throws SQLException キー列が無い場合、列名が不正な場合、並び順が混在する場合
+     * @author H.Abe
+     */
+    static KeysetQuery of(String sqlKey, List<String> keyColumns) throws SQLException {
+        if (keyColumns.isEmpty()) {
+            throw new SQLException("key columns are required for keyset pagination: " + sqlKey);
+        }
+        String[] columns = new String[keyColumns.size()];
+        Boolean descending = null;
+        for (int i = 0; i < columns.length; i++) {
+            Matcher matcher = KEY_COLUMN.matcher(keyColumns.get(i));
+            if (!matcher.matches()) {
+                throw new SQLException("invalid key column: " + keyColumns.get(i));
+            }
+            boolean desc = "desc".equalsIgnoreCase(matcher.group(2));
+            if (null != descending && descending.booleanValue() != desc) {
+                throw new SQLException("key columns must share one sort direction: " + keyColumns);
+            }
+            descending = Boolean.valueOf(desc);
+            columns[i] = matcher.group(1).toLowerCase(Locale.ROOT);
+        }
+        StringBuilder signature = new StringBuilder(sqlKey);
+        for (String column : columns) {
+            signature.append(',').append(column);
+        }
+        signature.append(descending.booleanValue() ? " desc" : " asc");
+        return new KeysetQuery(columns, descending.booleanValue(), signature.toString().hashCode());
+    }
+
+    /**
+     * ORDER BY句（"order by キー列"）を取得する。
+     *
+     * @return String
+     */
+    String orderBy() {
+        StringBuilder builder = new StringBuilder("order by ");
+        for (int i = 0; i < columns.length; i++) {
+            builder.append((0 == i) ? "" : ", ").append(columns[i]).append(descending ? " desc" : "");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 1ページ分を取得するSELECT文を生成し、キーと件数のバインド変数を設定する。 SQLキーのSELECT文のバインド変数は設定済みとし、
+     * その後ろに設定する。
+     *
+     * @param query SQLキーのSELECT文（名前付きパラメータは"?"へ置換済み）
+     * @param after 前ページの最終行のキー（1ページ目の場合はNULL）
+     * @param limit 取得件数
+     * @param buffer バインド変数の設定先
+     * @return String 実行するSQL文
+     * @author H.Abe
+     */
+    String bind(String query, Object[] after, int limit, BindBuffer buffer) {
+        String base = query.trim();
+        if (base.endsWith(";")) {
+            base = base.substring(0, base.length() - 1);
+        }
+        int index = SqlRegistry.countParameters(base);
+        StringBuilder builder = new StringBuilder(base.length() + 64 + columns.length * 24);
+        builder.append("select * from (\n").append(base).append("\n) keyset_page");
+        if (null != after) {
+            builder.append(" where (");
+            for (int i = 0; i < columns.length; i++) {
+                builder.append((0 == i) ? "" : ", ").append(columns[i]);
+            }
+            builder.append(descending ? ") < (" : ") > (");
+            for (int i = 0; i < columns.length; i++) {
+                builder.append((0 == i) ? "?" : ", ?");
+                buffer.setValue(++index, after[i]);
+            }
+            builder.append(')');
+        }
+        builder.append(' ').append(orderBy()).append(" limit ?");
+        buffer.setInt(++index, limit);
+        return builder.toString();
+    }
+
+    /**
+     * 取得件数（1ページの件数+1件）の結果から1ページ分の結果を生成する。 1ページの件数を超える行がある場合のみ次ページの継続トークンを設定する。
+     *
+     * @param rows 取得した行
+     * @param pageSize 1ページの件数
+     * @return KeysetPage
+     * @throws SQLException キー列が結果セットに無い場合、NULLの場合、トークンに格納できない型の場合
+     */
+    KeysetPage toPage(List<Map<String, Object>> rows, int pageSize) throws SQLException {
+        if (rows.size() <= pageSize) {
+            return new KeysetPage(rows, null);
+        }
+        List<Map<String, Object>> page = new ArrayList<Map<String, Object>>(rows.subList(0, pageSize));
+        return new KeysetPage(page, encode(page.get(pageSize - 1)));
+    }
+
+    /**
+     * 行のキー列に文字列の値が無いことを検査する。 複数のシャードの結果を併合する場合に使用する。<br>
+     * 併合の順序は文字列をコードポイント順で比較するが、各シャードの"where (キー列) &gt; (?)"はDBの照合順序で評価されるため、
+     * 照合順序が"C"でない場合は次ページで行の欠落、重複が起きる。 数値、日付等のキー列を使用するか、シャードキーを指定して1シャードで取得すること。
+     *
+     * @param row 行
+     * @throws SQLException キー列に文字列の値を含む場合
+     * @author H.Abe
+     */
+    void checkMergeable(Map<String, Object> row) throws SQLException {
+        for (String column : columns) {
+            String key = MergeOrder.findColumn(row, column);
+            if (null != key && row.get(key) instanceof String) {
+                throw new SQLException("string key column cannot be paged across shards: " + column
+                        + " (use a numeric or date key, or specify the shard key)");
+            }
+        }
+    }
+
+    /**
+     * 行のキー列の値を継続トークンへ符号化する。
+     *
+     * @param row 行
+     * @return String
+     * @throws SQLException キー列が結果セットに無い場合、NULLの場合、トークンに格納できない型の場合
+     * @author H.Abe
+     */
+    String encode(Map<String, Object> row) throws SQLException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(TOKEN_VERSION);
+            out.writeInt(fingerprint);
+            out.writeByte(columns.length);
+            for (String column : columns) {
+                String key = MergeOrder.findColumn(row, column);
+                Object value = (null == key) ? null : row.get(key);
+                if (null == value) {
+                    throw new SQLException("key column must be in the result and not NULL: " + column);
+                }
+                writeValue(out, column, value);
+            }
+            out.flush();
+        } catch (IOException ioException) {
+            throw new SQLException(ioException);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * 継続トークンからキー列の値を復号する。
+     *
+     * @param token 継続トークン
+     * @return Object[]
+     * @throws SQLException 形式が不正な場合、他のSQLキー、キー列のトークンの場合
+     * @author H.Abe
+     */
+    Object[] decode(String token) throws SQLException {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)));
+            if (TOKEN_VERSION != in.readByte() || fingerprint != in.readInt() || columns.length != in.readByte()) {
+                throw new SQLException("page token does not belong to this query");
+            }
+            Object[] values = new Object[columns.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readValue(in);
+            }
+            return values;
+        } catch (IllegalArgumentException illegalArgumentException) {
+            throw new SQLException("invalid page token", illegalArgumentException);
+        } catch (IOException ioException) {
+            throw new SQLException("invalid page token", ioException);
+        }
+    }
+
+    /**
+     * 値を型コードと共に出力する。
+     *
+     * @param out 出力先
+     * @param column キー列名（例外のメッセージ用）
+     * @param value 値
+     * @throws IOException
+     * @throws SQLException トークンに格納できない型の場合
+     */
+    private static void writeValue(DataOutputStream out, String column, Object value) throws IOException, SQLException {
+        if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            out.writeUTF((String) value);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(TYPE_INT);
+            out.writeInt(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong(((Long) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean(((Boolean) value).booleanValue());
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(TYPE_BIG_DECIMAL);
+            out.writeUTF(((BigDecimal) value).toString());
+        } else if (value instanceof Date) {
+            out.writeByte(TYPE_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof LocalDate) {
+            out.writeByte(TYPE_LOCAL_DATE);
+            out.writeLong(((LocalDate) value).toEpochDay());
+        } else if (value instanceof Timestamp) {
+            out.writeByte(TYPE_TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else {
+            throw new SQLException("unsupported key column type: " + column + " " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * 型コードと共に出力した値を読み込む。
+     *
+     * @param in 入力元
+     * @return Object
+     * @throws IOException 形式が不正な場合
+     */
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+        case TYPE_STRING:
+            return in.readUTF();
+        case TYPE_INT:
+            return Integer.valueOf(in.readInt());
+        case TYPE_LONG:
+            return Long.valueOf(in.readLong());
+        case TYPE_DOUBLE:
+            return Double.valueOf(in.readDouble());
+        case TYPE_BOOLEAN:
+            return Boolean.valueOf(in.readBoolean());
+        case TYPE_BIG_DECIMAL:
+            return new BigDecimal(in.readUTF());
+        case TYPE_DATE:
+            return new Date(in.readLong());
+        case TYPE_LOCAL_DATE:
+            return LocalDate.ofEpochDay(in.readLong());
+        case TYPE_TIMESTAMP:
+            Timestamp timestamp = new Timestamp(in.readLong());
+            timestamp.setNanos(in.readInt());
+            return timestamp;
+        default:
+            throw new IOException("unknown value type: " + type);
+        }
+    }
+}
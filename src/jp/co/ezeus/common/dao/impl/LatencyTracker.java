@@ -0,0 +1,137 @@
+package jp.co.ezeus.common.dao.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * SQL毎の応答時間の記録クラス
+ * </p>
+ * SQL毎に直近の応答時間を保持し、ヘッジ読み込みの待ち時間とする百分位を算出する。<br>
+ * 百分位は記録の度ではなく一定件数毎に算出し、算出結果を保持する。
+ *
+ * @see HedgeConfig
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+final class LatencyTracker {
+
+    /**
+     * 百分位を再算出する記録件数
+     */
+    private static final int RECOMPUTE_INTERVAL = 16;
+
+    /**
+     * SQL毎の応答時間
+     */
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<String, Window>();
+
+    /**
+     * 応答時間を記録する。 記録するSQLの件数が上限に達している場合、新しいSQLは記録しない。
+     *
+     * @param key SQLキー、またはSQL文の定数を除いた形
+     * @param elapsedNanos 応答時間（ナノ秒）
+     * @param config ヘッジ読み込み設定
+     */
+    void record(String key, long elapsedNanos, HedgeConfig config) {
+        Window window = windows.get(key);
+        if (null == window) {
+            if (windows.size() >= config.getMaxTrackedQueries()) {
+                return;
+            }
+            Window created = new Window(config.getWindowSize());
+            window = windows.putIfAbsent(key, created);
+            if (null == window) {
+                window = created;
+            }
+        }
+        window.record(elapsedNanos, config);
+    }
+
+    /**
+     * ヘッジ読み込みの待ち時間（ミリ秒）を取得する。 記録件数が不足する場合は設定の待ち時間を返却する。
+     *
+     * @param key SQLキー、またはSQL文の定数を除いた形
+     * @param config ヘッジ読み込み設定
+     * @return long
+     */
+    long getDelayMillis(String key, HedgeConfig config) {
+        Window window = windows.get(key);
+        long delayNanos = (null == window) ? -1L : window.percentileNanos;
+        if (delayNanos < 0L) {
+            return Math.max(config.getInitialDelayMillis(), config.getMinDelayMillis());
+        }
+        return Math.max(TimeUnit.NANOSECONDS.toMillis(delayNanos), config.getMinDelayMillis());
+    }
+
+    /**
+     * <p>
+     * 1つのSQLの応答時間クラス
+     * </p>
+     * 直近の応答時間をリングバッファで保持する。
+     *
+     * @author H.Abe
+     * @version 1.0
+     *
+     */
+    private static final class Window {
+
+        /**
+         * 応答時間（ナノ秒）
+         */
+        private final long[] samples;
+
+        /**
+         * 保持件数
+         */
+        private int count;
+
+        /**
+         * 次の格納位置
+         */
+        private int next;
+
+        /**
+         * 前回の算出以降の記録件数
+         */
+        private int sinceComputed;
+
+        /**
+         * 算出済みの百分位（ナノ秒、未算出の場合は-1）
+         */
+        volatile long percentileNanos = -1L;
+
+        /**
+         * コンストラクタ
+         *
+         * @param size 保持件数
+         */
+        Window(int size) {
+            this.samples = new long[Math.max(size, 1)];
+        }
+
+        /**
+         * 応答時間を記録し、一定件数毎に百分位を算出する。
+         *
+         * @param elapsedNanos 応答時間（ナノ秒）
+         * @param config ヘッジ読み込み設定
+         */
+        synchronized void record(long elapsedNanos, HedgeConfig config) {
+            samples[next] = elapsedNanos;
+            next = (next + 1) % samples.length;
+            if (count < samples.length) {
+                count++;
+            }
+            if (count < config.getMinSamples() || (++sinceComputed < RECOMPUTE_INTERVAL && 0L <= percentileNanos)) {
+                return;
+            }
+            sinceComputed = 0;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(config.getPercentile() * count) - 1;
+            percentileNanos = sorted[Math.min(Math.max(index, 0), count - 1)];
+        }
+    }
+}
@@ -0,0 +1,698 @@
+package jp.co.ezeus.common.dao.impl;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import jp.co.ezeus.common.dto.ResultRow;
+
+/**
+ * <p>
+ * シャード毎のSELECT結果の併合順序クラス
+ * </p>
+ * SELECT文の最上位のORDER BY句、LIMIT句を解析し、シャード毎に並び替え済みの結果を k-wayマージで1つの順序へ併合する。<br>
+ * 併合は各シャードの先頭行のみを比較するため、全件を保持せずに1行ずつ取得できる。 ORDER BY句の無いSELECT文はシャードの登録順に連結する。<br>
+ * ORDER BY句に指定できるのは列名（別名）、または列番号のみとし、ASC/DESC、NULLS FIRST/LASTに対応する。 式を指定したSELECT文、
+ * OFFSET句を指定したSELECT文は併合できないためSQLExceptionとする。 シャード毎の結果を連結しても正しい結果とならない
+ * 集約関数、GROUP BY句、DISTINCTを最上位に持つSELECT文も同様とする。<br>
+ * ORDER BY句の列名が結果の行に存在しない場合（選択リストに含まれない列で並び替えた場合）は併合できないため、比較時に
+ * IllegalStateExceptionとする。<br>
+ * 値の比較はJavaの比較で行い、文字列はUnicodeのコードポイント順とする。 これはUTF-8のDBの照合順序"C"の並び順と一致するが、
+ * 言語依存の照合順序（ja_JP.UTF-8等）とは一致しない。 文字列の列で並び替える場合は、ORDER BY句の列に COLLATE "C"（"POSIX"、"ucs_basic"も可）を指定するか、
+ * DBの照合順序を"C"とすること。 一致しない場合、併合結果はシャード内の順序を保ったまま誤った順序となる。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+final class MergeOrder implements Comparator<Map<String, Object>> {
+
+    /**
+     * シャード毎の結果を併合できない集約関数
+     */
+    private static final Set<String> AGGREGATE_FUNCTIONS = new HashSet<String>(Arrays.asList("count", "sum", "avg", "min", "max",
+            "array_agg", "string_agg", "bool_and", "bool_or", "every", "bit_and", "bit_or", "json_agg", "jsonb_agg",
+            "json_object_agg", "jsonb_object_agg", "xmlagg", "stddev", "stddev_pop", "stddev_samp", "variance", "var_pop",
+            "var_samp", "percentile_cont", "percentile_disc", "mode"));
+
+    /**
+     * 並び替えの項目
+     */
+    private final List<SortKey> keys;
+
+    /**
+     * 取得件数の上限（指定無しの場合は-1）
+     */
+    private final long limit;
+
+    /**
+     * コンストラクタ
+     *
+     * @param keys 並び替えの項目
+     * @param limit 取得件数の上限
+     */
+    private MergeOrder(List<SortKey> keys, long limit) {
+        this.keys = keys;
+        this.limit = limit;
+    }
+
+    /**
+     * SELECT文を解析し、併合順序を生成する。
+     *
+     * @param query SELECT文
+     * @return MergeOrder
+     * @throws SQLException 併合できないORDER BY句、OFFSET句、集約関数、GROUP BY句、DISTINCTを持つ場合
+     * @author H.Abe
+     */
+    static MergeOrder parse(String query) throws SQLException {
+        List<String> tokens = topLevelTokens(query);
+        int orderBy = -1;
+        for (int i = 0; i < tokens.size() - 1; i++) {
+            if ("order".equalsIgnoreCase(tokens.get(i)) && "by".equalsIgnoreCase(tokens.get(i + 1))) {
+                orderBy = i;
+            }
+        }
+        checkMergeable(tokens, (orderBy < 0) ? tokens.size() : orderBy, query);
+        List<SortKey> keys = new ArrayList<SortKey>();
+        int index;
+        if (orderBy < 0) {
+            index = tokens.size();
+            for (int i = 0; i < tokens.size(); i++) {
+                if (isTailKeyword(tokens.get(i))) {
+                    index = i;
+                    break;
+                }
+            }
+        } else {
+            index = orderBy + 2;
+            List<String> item = new ArrayList<String>();
+            for (; index < tokens.size() && !isTailKeyword(tokens.get(index)); index++) {
+                if (",".equals(tokens.get(index))) {
+                    keys.add(SortKey.parse(item, query));
+                    item.clear();
+                } else {
+                    item.add(tokens.get(index));
+                }
+            }
+            keys.add(SortKey.parse(item, query));
+        }
+        long limit = -1L;
+        for (; index < tokens.size(); index++) {
+            String token = tokens.get(index).toLowerCase(Locale.ROOT);
+            if ("offset".equals(token)) {
+                throw new SQLException("OFFSET cannot be applied across shards: " + query);
+            }
+            if (("limit".equals(token) || "first".equals(token) || "next".equals(token)) && index + 1 < tokens.size()
+                    && isNumber(tokens.get(index + 1))) {
+                limit = Long.parseLong(tokens.get(index + 1));
+            }
+        }
+        return new MergeOrder(Collections.unmodifiableList(keys), limit);
+    }
+
+    /**
+     * ORDER BY句より前の最上位の字句に、シャード毎の結果を連結しても正しい結果とならない 集約関数、GROUP BY句、HAVING句、DISTINCTが無いことを確認する。
+     * 副問い合わせ（括弧内）の集約は行毎に完結するため対象としない。
+     *
+     * @param tokens 最上位の字句
+     * @param end ORDER BY句の位置（無い場合は字句の件数）
+     * @param query SELECT文（例外のメッセージ用）
+     * @throws SQLException 併合できない場合
+     */
+    private static void checkMergeable(List<String> tokens, int end, String query) throws SQLException {
+        for (int i = 0; i < end; i++) {
+            String token = tokens.get(i).toLowerCase(Locale.ROOT);
+            if ("distinct".equals(token) || "having".equals(token)
+                    || ("group".equals(token) && i + 1 < end && "by".equalsIgnoreCase(tokens.get(i + 1)))) {
+                throw new SQLException(token.toUpperCase(Locale.ROOT) + " cannot be applied across shards: " + query);
+            }
+            if (AGGREGATE_FUNCTIONS.contains(token) && i + 1 < end && "(".equals(tokens.get(i + 1))) {
+                throw new SQLException("aggregate " + token + "() cannot be applied across shards: " + query);
+            }
+        }
+    }
+
+    /**
+     * ORDER BY句を持つかを判定する。
+     *
+     * @return boolean
+     */
+    boolean isOrdered() {
+        return !keys.isEmpty();
+    }
+
+    /**
+     * 取得件数の上限を取得する。 指定無しの場合は-1を返却する。
+     *
+     * @return long
+     */
+    long getLimit() {
+        return limit;
+    }
+
+    /**
+     * 2行を並び替えの項目順に比較する。
+     *
+     * @param row1 行
+     * @param row2 行
+     * @return int
+     */
+    public int compare(Map<String, Object> row1, Map<String, Object> row2) {
+        for (SortKey key : keys) {
+            int result = key.compare(row1, row2);
+            if (0 != result) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * シャード毎の結果を併合する。 取得件数の上限を超える行は返却しない。
+     *
+     * @param sources シャード毎の結果（シャードの登録順）
+     * @return Iterator<Map<String, Object>>
+     */
+    Iterator<Map<String, Object>> merge(List<? extends Iterator<Map<String, Object>>> sources) {
+        return new MergeIterator(this, sources);
+    }
+
+    /**
+     * シャード毎のSELECT結果のListを併合する。
+     *
+     * @param results シャード毎のSELECT結果（シャードの登録順）
+     * @return List<Map<String, Object>>
+     * @throws SQLException ORDER BY句の列名が結果の行に存在しない場合
+     * @author H.Abe
+     */
+    List<Map<String, Object>> mergeLists(List<List<Map<String, Object>>> results) throws SQLException {
+        List<Iterator<Map<String, Object>>> sources = new ArrayList<Iterator<Map<String, Object>>>(results.size());
+        int total = 0;
+        for (List<Map<String, Object>> result : results) {
+            sources.add(result.iterator());
+            total += result.size();
+        }
+        List<Map<String, Object>> merged = new ArrayList<Map<String, Object>>((limit < 0L) ? total : (int) Math.min(total, limit));
+        try {
+            for (Iterator<Map<String, Object>> iterator = merge(sources); iterator.hasNext();) {
+                merged.add(iterator.next());
+            }
+        } catch (IllegalStateException illegalStateException) {
+            throw new SQLException(illegalStateException);
+        }
+        return merged;
+    }
+
+    /**
+     * SQL文の最上位（括弧の外）の字句を取得する。 文字列リテラルとコメントは除き、括弧内は"("の1字句とする。
+     *
+     * @param query SQL文
+     * @return List<String>
+     */
+    private static List<String> topLevelTokens(String query) {
+        List<String> tokens = new ArrayList<String>();
+        int depth = 0;
+        int length = query.length();
+        int i = 0;
+        while (i < length) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if ('-' == c && i + 1 < length && '-' == query.charAt(i + 1)) {
+                int end = query.indexOf('\n', i);
+                i = (end < 0) ? length : end + 1;
+            } else if ('/' == c && i + 1 < length && '*' == query.charAt(i + 1)) {
+                int end = query.indexOf("*/", i + 2);
+                i = (end < 0) ? length : end + 2;
+            } else if ('\'' == c) {
+                i = skipQuoted(query, i, '\'');
+                if (0 == depth) {
+                    tokens.add("'");
+                }
+            } else if ('(' == c) {
+                if (0 == depth++) {
+                    tokens.add("(");
+                }
+                i++;
+            } else if (')' == c) {
+                depth--;
+                i++;
+            } else if ('"' == c || isWordChar(c)) {
+                int start = i;
+                while (i < length && ('"' == query.charAt(i) || isWordChar(query.charAt(i)))) {
+                    i = ('"' == query.charAt(i)) ? skipQuoted(query, i, '"') : i + 1;
+                }
+                if (0 == depth) {
+                    tokens.add(query.substring(start, i));
+                }
+            } else {
+                if (0 == depth) {
+                    tokens.add(String.valueOf(c));
+                }
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 引用符で囲まれた部分を読み飛ばす。 引用符の連続（エスケープ）は囲みの内側とする。
+     *
+     * @param query SQL文
+     * @param start 開始の引用符の位置
+     * @param quote 引用符
+     * @return int 終了の引用符の次の位置
+     */
+    private static int skipQuoted(String query, int start, char quote) {
+        int i = start + 1;
+        while (i < query.length()) {
+            if (quote == query.charAt(i)) {
+                if (i + 1 < query.length() && quote == query.charAt(i + 1)) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 識別子を構成する文字かを判定する。
+     *
+     * @param c 文字
+     * @return boolean
+     */
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || '_' == c || '$' == c || '.' == c;
+    }
+
+    /**
+     * ORDER BY句の後に続く句の開始かを判定する。
+     *
+     * @param token 字句
+     * @return boolean
+     */
+    private static boolean isTailKeyword(String token) {
+        String lower = token.toLowerCase(Locale.ROOT);
+        return "limit".equals(lower) || "offset".equals(lower) || "fetch".equals(lower) || "for".equals(lower);
+    }
+
+    /**
+     * 整数の字句かを判定する。
+     *
+     * @param token 字句
+     * @return boolean
+     */
+    private static boolean isNumber(String token) {
+        if (token.isEmpty() || token.length() > 18) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (!Character.isDigit(token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 2つの値を比較する。 型の異なる数値は数値として、文字列と比較できない型は文字列表現をコードポイント順で比較する。
+     *
+     * @param value1 値（NULL以外）
+     * @param value2 値（NULL以外）
+     * @return int
+     */
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object value1, Object value2) {
+        if (value1 instanceof Number && value2 instanceof Number && value1.getClass() != value2.getClass()) {
+            if (value1 instanceof Double || value1 instanceof Float || value2 instanceof Double || value2 instanceof Float) {
+                return Double.compare(((Number) value1).doubleValue(), ((Number) value2).doubleValue());
+            }
+            return new BigDecimal(value1.toString()).compareTo(new BigDecimal(value2.toString()));
+        }
+        if (value1 instanceof String || !(value1 instanceof Comparable) || !value1.getClass().isInstance(value2)) {
+            return compareCodePoints(value1.toString(), value2.toString());
+        }
+        return ((Comparable<Object>) value1).compareTo(value2);
+    }
+
+    /**
+     * 文字列をUnicodeのコードポイント順で比較する。 String.compareTo()はUTF-16の符号単位順のため、
+     * サロゲートペアの文字とU+E000以降の文字の順序がDBの照合順序"C"（UTF-8のバイト順）と異なる。
+     *
+     * @param value1 文字列
+     * @param value2 文字列
+     * @return int
+     */
+    static int compareCodePoints(String value1, String value2) {
+        int length = Math.min(value1.length(), value2.length());
+        for (int i = 0; i < length; i++) {
+            char c1 = value1.charAt(i);
+            char c2 = value2.charAt(i);
+            if (c1 != c2) {
+                if (Character.isSurrogate(c1) || Character.isSurrogate(c2)) {
+                    return Integer.compare(value1.codePointAt(i), value2.codePointAt(i));
+                }
+                return c1 - c2;
+            }
+        }
+        return value1.length() - value2.length();
+    }
+
+    /**
+     * 行から列名に対応するキーを検索する。 一致するキーが無い場合は大文字と小文字を区別せずに検索する。
+     * 引用符で囲まない識別子は小文字として扱うが、ドライバによっては結果セットの列名を大文字で返却するため。
+     *
+     * @param row 行
+     * @param column 列名
+     * @return String 行のキー（存在しない場合はNULL）
+     * @author H.Abe
+     */
+    static String findColumn(Map<String, ?> row, String column) {
+        if (row.containsKey(column)) {
+            return column;
+        }
+        for (String key : row.keySet()) {
+            if (column.equalsIgnoreCase(key)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * <p>
+     * ORDER BY句の1項目クラス
+     * </p>
+     * 列名、または列番号と、並び順、NULLの位置を保持する。 NULLの位置の既定はPostgreSQLと同じく、昇順は最後、降順は最初とする。
+     *
+     * @author H.Abe
+     * @version 1.0
+     *
+     */
+    private static final class SortKey {
+
+        /**
+         * 列名（列番号で指定した場合はNULL）
+         */
+        private final String column;
+
+        /**
+         * 列番号（1始まり、列名で指定した場合は0）
+         */
+        private final int position;
+
+        /**
+         * 降順フラグ
+         */
+        private final boolean descending;
+
+        /**
+         * NULLを先頭とするフラグ
+         */
+        private final boolean nullsFirst;
+
+        /**
+         * コンストラクタ
+         *
+         * @param column 列名
+         * @param position 列番号
+         * @param descending 降順フラグ
+         * @param nullsFirst NULLを先頭とするフラグ
+         */
+        private SortKey(String column, int position, boolean descending, boolean nullsFirst) {
+            this.column = column;
+            this.position = position;
+            this.descending = descending;
+            this.nullsFirst = nullsFirst;
+        }
+
+        /**
+         * ORDER BY句の1項目の字句を解析する。
+         *
+         * @param item 字句
+         * @param query SELECT文（例外のメッセージ用）
+         * @return SortKey
+         * @throws SQLException 併合できない項目の場合
+         */
+        static SortKey parse(List<String> item, String query) throws SQLException {
+            if (item.isEmpty() || "(".equals(item.get(0)) || !isWordChar(item.get(0).charAt(0)) && '"' != item.get(0).charAt(0)) {
+                throw new SQLException("ORDER BY item cannot be merged across shards: " + query);
+            }
+            boolean descending = false;
+            Boolean nullsFirst = null;
+            for (int i = 1; i < item.size(); i++) {
+                String token = item.get(i).toLowerCase(Locale.ROOT);
+                if ("asc".equals(token)) {
+                    descending = false;
+                } else if ("desc".equals(token)) {
+                    descending = true;
+                } else if ("nulls".equals(token) && i + 1 < item.size()) {
+                    nullsFirst = Boolean.valueOf("first".equalsIgnoreCase(item.get(++i)));
+                } else if ("collate".equals(token) && i + 1 < item.size() && isBinaryCollation(item.get(i + 1))) {
+                    i++;
+                } else {
+                    throw new SQLException("ORDER BY item cannot be merged across shards: " + query);
+                }
+            }
+            boolean first = (null == nullsFirst) ? descending : nullsFirst.booleanValue();
+            String name = item.get(0);
+            if (isNumber(name)) {
+                return new SortKey(null, Integer.parseInt(name), descending, first);
+            }
+            return new SortKey(columnLabel(name), 0, descending, first);
+        }
+
+        /**
+         * 併合の比較（コードポイント順）と並び順が一致する照合順序（"C"、"POSIX"、"ucs_basic"）かを判定する。
+         *
+         * @param collation 照合順序の字句
+         * @return boolean
+         */
+        private static boolean isBinaryCollation(String collation) {
+            return "\"C\"".equals(collation) || "\"POSIX\"".equals(collation) || "\"ucs_basic\"".equals(collation);
+        }
+
+        /**
+         * 識別子から結果セットの列名を求める。 修飾（"表名."）を除き、引用符で囲まれていない場合は小文字とする。
+         *
+         * @param name 識別子
+         * @return String
+         */
+        private static String columnLabel(String name) {
+            int dot = -1;
+            boolean quoted = false;
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if ('"' == c) {
+                    quoted = !quoted;
+                } else if ('.' == c && !quoted) {
+                    dot = i;
+                }
+            }
+            String label = name.substring(dot + 1);
+            if (label.length() >= 2 && label.startsWith("\"") && label.endsWith("\"")) {
+                return label.substring(1, label.length() - 1).replace("\"\"", "\"");
+            }
+            return label.toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * 2行の当項目の値を比較する。
+         *
+         * @param row1 行
+         * @param row2 行
+         * @return int
+         */
+        int compare(Map<String, Object> row1, Map<String, Object> row2) {
+            Object value1 = valueOf(row1);
+            Object value2 = valueOf(row2);
+            if (null == value1 || null == value2) {
+                if (value1 == value2) {
+                    return 0;
+                }
+                return ((null == value1) == nullsFirst) ? -1 : 1;
+            }
+            int result = compareValues(value1, value2);
+            return descending ? -result : result;
+        }
+
+        /**
+         * 行から当項目の値を取得する。
+         *
+         * @param row 行
+         * @return Object
+         * @throws IllegalStateException 列名が行に存在しない場合
+         */
+        private Object valueOf(Map<String, Object> row) {
+            if (null != column) {
+                String key = findColumn(row, column);
+                if (null == key) {
+                    throw new IllegalStateException("ORDER BY column '" + column
+                            + "' is not in the result: select it to merge rows across shards");
+                }
+                return row.get(key);
+            }
+            if (position > row.size()) {
+                throw new IllegalStateException("ORDER BY position " + position + " is out of the result columns");
+            }
+            if (row instanceof ResultRow) {
+                return ((ResultRow) row).getValue(position - 1);
+            }
+            int index = 1;
+            for (Object value : row.values()) {
+                if (index++ == position) {
+                    return value;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * <p>
+     * シャード毎の結果の併合クラス
+     * </p>
+     * ORDER BY句を持つ場合は各シャードの先頭行を優先度付きキューで比較し、最小の行から返却する。 同順の行はシャードの登録順とする。
+     * ORDER BY句を持たない場合はシャードの登録順に連結する。
+     *
+     * @author H.Abe
+     * @version 1.0
+     *
+     */
+    private static final class MergeIterator implements Iterator<Map<String, Object>> {
+
+        /**
+         * 併合順序
+         */
+        private final MergeOrder order;
+
+        /**
+         * シャード毎の結果
+         */
+        private final List<? extends Iterator<Map<String, Object>>> sources;
+
+        /**
+         * 各シャードの先頭行（ORDER BY句を持たない場合はNULL）
+         */
+        private final PriorityQueue<Head> heads;
+
+        /**
+         * 連結中のシャードの位置（ORDER BY句を持たない場合）
+         */
+        private int current;
+
+        /**
+         * 返却した件数
+         */
+        private long returned;
+
+        /**
+         * コンストラクタ
+         *
+         * @param order 併合順序
+         * @param sources シャード毎の結果
+         */
+        MergeIterator(final MergeOrder order, List<? extends Iterator<Map<String, Object>>> sources) {
+            this.order = order;
+            this.sources = sources;
+            if (!order.isOrdered()) {
+                this.heads = null;
+                return;
+            }
+            this.heads = new PriorityQueue<Head>(Math.max(sources.size(), 1), new Comparator<Head>() {
+                public int compare(Head head1, Head head2) {
+                    int result = order.compare(head1.row, head2.row);
+                    return (0 != result) ? result : head1.shard - head2.shard;
+                }
+            });
+            for (int i = 0; i < sources.size(); i++) {
+                if (sources.get(i).hasNext()) {
+                    heads.add(new Head(i, sources.get(i).next()));
+                }
+            }
+        }
+
+        public boolean hasNext() {
+            if (order.limit >= 0L && returned >= order.limit) {
+                return false;
+            }
+            if (null != heads) {
+                return !heads.isEmpty();
+            }
+            for (; current < sources.size(); current++) {
+                if (sources.get(current).hasNext()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public Map<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            returned++;
+            if (null == heads) {
+                return sources.get(current).next();
+            }
+            Head head = heads.poll();
+            Map<String, Object> row = head.row;
+            Iterator<Map<String, Object>> source = sources.get(head.shard);
+            if (source.hasNext()) {
+                head.row = source.next();
+                heads.add(head);
+            }
+            return row;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * <p>
+     * シャードの先頭行クラス
+     * </p>
+     *
+     * @author H.Abe
+     * @version 1.0
+     *
+     */
+    private static final class Head {
+
+        /**
+         * シャードの位置
+         */
+        final int shard;
+
+        /**
+         * 先頭行
+         */
+        Map<String, Object> row;
+
+        /**
+         * コンストラクタ
+         *
+         * @param shard シャードの位置
+         * @param row 先頭行
+         */
+        Head(int shard, Map<String, Object> row) {
+            this.shard = shard;
+            this.row = row;
+        }
+    }
+}
@@ -0,0 +1,859 @@
+package jp.co.ezeus.common.dao.impl;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import jp.co.ezeus.common.dao.CancellationScope;
+import jp.co.ezeus.common.dao.CommonDao;
+import jp.co.ezeus.common.dao.CommonDaoCallback;
+import jp.co.ezeus.common.dao.DaoContext;
+import jp.co.ezeus.common.dao.KeysetPage;
+import jp.co.ezeus.common.dao.QueryBundle;
+import jp.co.ezeus.common.dto.BindBuffer;
+import jp.co.ezeus.common.dto.BindingDto;
+import jp.co.ezeus.common.rdbControl.ResultCursor;
+import jp.co.ezeus.common.utilities.SqlRegistry;
+
+/**
+ * <p>
+ * 参照系振り分け共通DAOクラス
+ * </p>
+ * SELECT文の発行をレプリカの共通DAOへ、DML文の発行をプライマリの共通DAOへ振り分ける。<br>
+ * レプリカは発行中の件数が最も少ないものを選択する。 レプリカへの接続に失敗した場合はレプリカを切り離して
+ * プライマリで再発行し、切り離したレプリカは待機時間の経過後に再び選択対象とする。 待機時間は連続した失敗毎に倍増し、 成功した時点で初期化する。<br>
+ * 利用可能なレプリカが無い場合はプライマリで発行する。 レプリカへの反映遅延があるため、
+ * 更新直後の参照等、更新結果を必ず参照する必要がある場合はgetPrimary()の共通DAOを使用すること。<br>
+ * ヘッジ読み込み設定（@see {@link HedgeConfig}）を設定した場合、Listを返却するSELECT文は、 SQL毎の応答時間の百分位を超えても
+ * 応答しない場合に別のレプリカへ同じSELECT文を発行し、先に応答した結果を返却する。 遅い方のSELECT文はStatement.cancel()で中断する。
+ *
+ * @see jp.co.ezeus.common.factory.impl.ReplicaRoutingDaoFactory
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class ReplicaRoutingCommonDao extends DelegatingCommonDao {
+
+    /**
+     * 切り離しの初期待機時間の既定値（ミリ秒）
+     */
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 1000L;
+
+    /**
+     * 切り離しの最大待機時間の既定値（ミリ秒）
+     */
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 60000L;
+
+    /**
+     * ヘッジ1件分の予算
+     */
+    private static final long HEDGE_CREDIT = 1000L;
+
+    /**
+     * 予算の上限（ヘッジ10件分）
+     */
+    private static final long MAX_HEDGE_CREDITS = 10L * HEDGE_CREDIT;
+
+    /**
+     * レプリカ
+     */
+    private final List<Replica> replicas;
+
+    /**
+     * 切り離しの初期待機時間（ミリ秒）
+     */
+    private final long initialBackoffMillis;
+
+    /**
+     * 切り離しの最大待機時間（ミリ秒）
+     */
+    private final long maxBackoffMillis;
+
+    /**
+     * 同数の場合の選択開始位置
+     */
+    private final AtomicInteger nextStart = new AtomicInteger();
+
+    /**
+     * プライマリで発行したSELECT文の件数
+     */
+    private final AtomicLong primaryReadCount = new AtomicLong();
+
+    /**
+     * ヘッジ読み込み設定（ヘッジ読み込みを行わない場合はNULL）
+     */
+    private volatile HedgeConfig hedgeConfig;
+
+    /**
+     * SQL毎の応答時間
+     */
+    private final LatencyTracker latencyTracker = new LatencyTracker();
+
+    /**
+     * ヘッジの予算（1/1000件単位）
+     */
+    private final AtomicLong hedgeCredits = new AtomicLong();
+
+    /**
+     * ヘッジの発行件数
+     */
+    private final AtomicLong hedgeCount = new AtomicLong();
+
+    /**
+     * ヘッジが先に応答した件数
+     */
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+
+    /**
+     * コンストラクタ<br>
+     * 切り離しの待機時間は既定値とする。
+     *
+     * @param primary プライマリの共通DAO
+     * @param replicaDaos レプリカの共通DAO
+     */
+    public ReplicaRoutingCommonDao(CommonDao primary, List<? extends CommonDao> replicaDaos) {
+        this(primary, replicaDaos, DEFAULT_INITIAL_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS);
+    }
+
+    /**
+     * コンストラクタ
+     *
+     * @param primary プライマリの共通DAO
+     * @param replicaDaos レプリカの共通DAO
+     * @param initialBackoffMillis 切り離しの初期待機時間（ミリ秒）
+     * @param maxBackoffMillis 切り離しの最大待機時間（ミリ秒）
+     */
+    public ReplicaRoutingCommonDao(CommonDao primary, List<? extends CommonDao> replicaDaos, long initialBackoffMillis,
+            long maxBackoffMillis) {
+        super(primary);
+        List<Replica> list = new ArrayList<Replica>(replicaDaos.size());
+        for (CommonDao replicaDao : replicaDaos) {
+            list.add(new Replica(replicaDao));
+        }
+        this.replicas = Collections.unmodifiableList(list);
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * プライマリの共通DAOを取得する。
+     *
+     * @return CommonDao
+     */
+    public CommonDao getPrimary() {
+        return getDelegate();
+    }
+
+    /**
+     * ヘッジ読み込み設定を設定する。 NULLの場合はヘッジ読み込みを行わない。
+     *
+     * @param hedgeConfig ヘッジ読み込み設定
+     */
+    public void setHedgeConfig(HedgeConfig hedgeConfig) {
+        this.hedgeConfig = hedgeConfig;
+    }
+
+    /**
+     * ヘッジ読み込み設定を取得する。
+     *
+     * @return HedgeConfig
+     */
+    public HedgeConfig getHedgeConfig() {
+        return hedgeConfig;
+    }
+
+    /**
+     * SELECT文の発行処理をレプリカへ振り分けて実行する。（ヘッジ読み込み無し）
+     *
+     * @param callback SELECT文の発行処理
+     * @return T
+     * @throws SQLException
+     * @see #read(String, CommonDaoCallback)
+     */
+    public <T> T read(CommonDaoCallback<T> callback) throws SQLException {
+        return read(null, callback);
+    }
+
+    /**
+     * SELECT文の発行処理をレプリカへ振り分けて実行する。 レプリカへの接続に失敗した場合は、
+     * レプリカを切り離してプライマリで実行する。 SQL文の誤り等、接続以外の失敗はそのまま例外とする。<br>
+     * ヘッジ読み込み設定を設定している場合、キーを指定した発行処理はヘッジ読み込みを行う。 ヘッジは同じ発行処理を
+     * 別のスレッドで実行するため、発行処理は読み込みのみとし、呼び出し元のスレッドに依存しないこと。
+     *
+     * @param key 応答時間を記録するキー（SQLキー、またはSQL文の定数を除いた形。ヘッジ読み込みを行わない場合はNULL）
+     * @param callback SELECT文の発行処理
+     * @return T
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public <T> T read(String key, CommonDaoCallback<T> callback) throws SQLException {
+        long now = System.currentTimeMillis();
+        Replica replica = select(now, null);
+        HedgeConfig config = hedgeConfig;
+        if (null != config && null != key && null != replica) {
+            addHedgeCredit(config);
+            Replica second = select(now, replica);
+            if (null != second || config.isHedgeToPrimary()) {
+                return hedgedRead(key, replica, second, callback, config);
+            }
+        }
+        if (null != replica) {
+            try {
+                return attempt(replica, callback);
+            } catch (SQLException sqlException) {
+                if (!isConnectionFailure(sqlException)) {
+                    throw sqlException;
+                }
+            }
+        }
+        return attempt(null, callback);
+    }
+
+    /**
+     * 共通SELECT文発行処理をレプリカへ振り分けて呼び出す。（バインド変数無し）
+     *
+     * @param query SQL文
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     */
+    @Override
+    public List<Map<String, Object>> commonSelectByQuery(final String query) throws SQLException {
+        return read(queryKey(query), new CommonDaoCallback<List<Map<String, Object>>>() {
+            public List<Map<String, Object>> call(CommonDao dao) throws SQLException {
+                return dao.commonSelectByQuery(query);
+            }
+        });
+    }
+
+    /**
+     * 共通SELECT文発行処理をレプリカへ振り分けて呼び出す。（バインド変数有り）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     */
+    @Override
+    public List<Map<String, Object>> commonSelectByBindQuery(final String query, final List<BindingDto> binds) throws SQLException {
+        return read(queryKey(query), new CommonDaoCallback<List<Map<String, Object>>>() {
+            public List<Map<String, Object>> call(CommonDao dao) throws SQLException {
+                return dao.commonSelectByBindQuery(query, binds);
+            }
+        });
+    }
+
+    /**
+     * 共通SELECT文発行処理をレプリカへ振り分けて呼び出す。（バインド変数バッファ）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     */
+    @Override
+    public List<Map<String, Object>> commonSelectByBindBuffer(final String query, final BindBuffer binds) throws SQLException {
+        return read(queryKey(query), new CommonDaoCallback<List<Map<String, Object>>>() {
+            public List<Map<String, Object>> call(CommonDao dao) throws SQLException {
+                return dao.commonSelectByBindBuffer(query, binds);
+            }
+        });
+    }
+
+    /**
+     * SQLキーに対応するSELECT文の発行処理をレプリカへ振り分けて呼び出す。（置換文字リスト）
+     *
+     * @param sqlKey SQLキー
+     * @param binds 置換文字リスト
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     */
+    @Override
+    public List<Map<String, Object>> commonSelectBySqlKey(final String sqlKey, final List<String> binds) throws SQLException {
+        return read(sqlKey, new CommonDaoCallback<List<Map<String, Object>>>() {
+            public List<Map<String, Object>> call(CommonDao dao) throws SQLException {
+                return dao.commonSelectBySqlKey(sqlKey, binds);
+            }
+        });
+    }
+
+    /**
+     * SQLキーに対応するSELECT文の発行処理をレプリカへ振り分けて呼び出す。（名前付きパラメータ）
+     *
+     * @param sqlKey SQLキー
+     * @param params パラメータ名をキーとする値
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     */
+    @Override
+    public List<Map<String, Object>> commonSelectBySqlKey(final String sqlKey, final Map<String, ?> params) throws SQLException {
+        return read(sqlKey, new CommonDaoCallback<List<Map<String, Object>>>() {
+            public List<Map<String, Object>> call(CommonDao dao) throws SQLException {
+                return dao.commonSelectBySqlKey(sqlKey, params);
+            }
+        });
+    }
+
+    /**
+     * 複数のSELECT文を1回の発行にまとめてレプリカへ振り分けて呼び出す。
+     *
+     * @param bundle SELECT文の一括発行定義
+     * @return List<List<Map<String, Object>>>
+     * @throws SQLException
+     */
+    @Override
+    public List<List<Map<String, Object>>> commonSelectMultiBySqlKey(final QueryBundle bundle) throws SQLException {
+        return read(new CommonDaoCallback<List<List<Map<String, Object>>>>() {
+            public List<List<Map<String, Object>>> call(CommonDao dao) throws SQLException {
+                return dao.commonSelectMultiBySqlKey(bundle);
+            }
+        });
+    }
+
+    /**
+     * SQLキーに対応するSELECT文をレプリカへ振り分けて、キーセットページングで1ページ分取得する。
+     *
+     * @param sqlKey SQLキー
+     * @param params 名前付きパラメータ
+     * @param keyColumns キー列
+     * @param pageSize 1ページの件数
+     * @param pageToken 継続トークン
+     * @return KeysetPage
+     * @throws SQLException
+     */
+    @Override
+    public KeysetPage commonSelectPageBySqlKey(final String sqlKey, final Map<String, ?> params, final List<String> keyColumns,
+            final int pageSize, final String pageToken) throws SQLException {
+        return read(sqlKey, new CommonDaoCallback<KeysetPage>() {
+            public KeysetPage call(CommonDao dao) throws SQLException {
+                return dao.commonSelectPageBySqlKey(sqlKey, params, keyColumns, pageSize, pageToken);
+            }
+        });
+    }
+
+    /**
+     * 複数のSELECT文をレプリカへ振り分けて並行に発行する。
+     *
+     * @param bundle SELECT文の一括発行定義
+     * @param timeout 全体の期限までの時間
+     * @param unit 時間の単位
+     * @return List<List<Map<String, Object>>>
+     * @throws SQLException
+     */
+    @Override
+    public List<List<Map<String, Object>>> commonSelectBundle(final QueryBundle bundle, final long timeout, final TimeUnit unit)
+            throws SQLException {
+        return read(new CommonDaoCallback<List<List<Map<String, Object>>>>() {
+            public List<List<Map<String, Object>>> call(CommonDao dao) throws SQLException {
+                return dao.commonSelectBundle(bundle, timeout, unit);
+            }
+        });
+    }
+
+    /**
+     * 共通SELECT文発行処理をレプリカへ振り分けて呼び出し、結果セットを返却する。（バインド変数無し）
+     *
+     * @param query SQL文
+     * @return ResultSet
+     * @throws SQLException
+     */
+    @Override
+    public ResultSet commonGetResultSetSelectByQuery(final String query) throws SQLException {
+        return read(new CommonDaoCallback<ResultSet>() {
+            public ResultSet call(CommonDao dao) throws SQLException {
+                return dao.commonGetResultSetSelectByQuery(query);
+            }
+        });
+    }
+
+    /**
+     * 共通SELECT文発行処理をレプリカへ振り分けて呼び出し、結果セットを返却する。（バインド変数有り）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return ResultSet
+     * @throws SQLException
+     */
+    @Override
+    public ResultSet commonGetResultSetSelectByBindQuery(final String query, final List<BindingDto> binds) throws SQLException {
+        return read(new CommonDaoCallback<ResultSet>() {
+            public ResultSet call(CommonDao dao) throws SQLException {
+                return dao.commonGetResultSetSelectByBindQuery(query, binds);
+            }
+        });
+    }
+
+    /**
+     * 共通SELECT文発行処理をレプリカへ振り分けて呼び出し、カーソルを返却する。 発行中の件数はカーソルを開くまでを数える。
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @param fetchSize 1回の通信で取得する件数
+     * @return ResultCursor
+     * @throws SQLException
+     */
+    @Override
+    public ResultCursor commonOpenCursorByBindQuery(final String query, final List<BindingDto> binds, final int fetchSize)
+            throws SQLException {
+        return read(new CommonDaoCallback<ResultCursor>() {
+            public ResultCursor call(CommonDao dao) throws SQLException {
+                return dao.commonOpenCursorByBindQuery(query, binds, fetchSize);
+            }
+        });
+    }
+
+    /**
+     * レプリカの件数を取得する。
+     *
+     * @return int
+     */
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    /**
+     * レプリカの発行中の件数を取得する。
+     *
+     * @param index レプリカの位置（0始まり）
+     * @return int
+     */
+    public int getOutstanding(int index) {
+        return replicas.get(index).outstanding.get();
+    }
+
+    /**
+     * レプリカが切り離し中かを判定する。
+     *
+     * @param index レプリカの位置（0始まり）
+     * @return boolean
+     */
+    public boolean isEjected(int index) {
+        return replicas.get(index).ejectedUntil > System.currentTimeMillis();
+    }
+
+    /**
+     * レプリカの連続した失敗回数を取得する。
+     *
+     * @param index レプリカの位置（0始まり）
+     * @return int
+     */
+    public int getConsecutiveFailures(int index) {
+        return replicas.get(index).consecutiveFailures;
+    }
+
+    /**
+     * プライマリで発行したSELECT文の件数を取得する。
+     *
+     * @return long
+     */
+    public long getPrimaryReadCount() {
+        return primaryReadCount.get();
+    }
+
+    /**
+     * ヘッジの発行件数を取得する。
+     *
+     * @return long
+     */
+    public long getHedgeCount() {
+        return hedgeCount.get();
+    }
+
+    /**
+     * ヘッジが先に応答した件数を取得する。
+     *
+     * @return long
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.get();
+    }
+
+    /**
+     * SQLのヘッジ読み込みの待ち時間（ミリ秒）を取得する。 ヘッジ読み込みを行わない場合は-1を返却する。
+     *
+     * @param key SQLキー、またはSQL文の定数を除いた形（@see {@link SqlRegistry#fingerprint(String)}）
+     * @return long
+     */
+    public long getHedgeDelayMillis(String key) {
+        HedgeConfig config = hedgeConfig;
+        return (null == config) ? -1L : latencyTracker.getDelayMillis(key, config);
+    }
+
+    /**
+     * ヘッジ読み込みを行う。 最初の発行は呼び出し元のスレッドで行い、待ち時間を超えても応答しない場合は
+     * 予算の範囲内でヘッジを別のスレッドで発行する。 先に成功した方の結果を返却し、遅い方はキャンセルする。<br>
+     * 最初の発行が失敗した場合はヘッジの結果を待ち、ヘッジを発行していない場合はプライマリで発行する。
+     *
+     * @param key SQLキー、またはSQL文の定数を除いた形
+     * @param first 最初の発行先のレプリカ
+     * @param second ヘッジの発行先のレプリカ（NULLの場合はプライマリ）
+     * @param callback SELECT文の発行処理
+     * @param config ヘッジ読み込み設定
+     * @return T
+     * @throws SQLException
+     * @author H.Abe
+     */
+    private <T> T hedgedRead(final String key, Replica first, final Replica second, final CommonDaoCallback<T> callback,
+            final HedgeConfig config) throws SQLException {
+        final DaoContext context = DaoContext.current();
+        final CancellationScope firstScope = new CancellationScope();
+        final CancellationScope hedgeScope = new CancellationScope();
+        // 0:応答待ち、1:最初の発行が完了、2:ヘッジを発行
+        final AtomicInteger state = new AtomicInteger();
+        final AtomicInteger winner = new AtomicInteger();
+        final CompletableFuture<T> hedgeResult = new CompletableFuture<T>();
+        ScheduledFuture<?> timer = HedgeExecutorHolder.TIMER.schedule(new Runnable() {
+            public void run() {
+                if (!tryAcquireHedgeCredit() || !state.compareAndSet(0, 2)) {
+                    return;
+                }
+                hedgeCount.incrementAndGet();
+                try {
+                    HedgeExecutorHolder.EXECUTOR.execute(new Runnable() {
+                        public void run() {
+                            long start = System.nanoTime();
+                            try {
+                                T result = attemptIn(context.withTimeout(config.getHedgeTimeoutMillis(), TimeUnit.MILLISECONDS)
+                                        .withCancellationScope(hedgeScope), second, callback);
+                                latencyTracker.record(key, System.nanoTime() - start, config);
+                                if (winner.compareAndSet(0, 2)) {
+                                    hedgeWinCount.incrementAndGet();
+                                    firstScope.cancel();
+                                }
+                                hedgeResult.complete(result);
+                            } catch (SQLException sqlException) {
+                                hedgeResult.completeExceptionally(sqlException);
+                            } catch (RuntimeException runtimeException) {
+                                hedgeResult.completeExceptionally(runtimeException);
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException rejectedExecutionException) {
+                    hedgeResult.completeExceptionally(new SQLException(rejectedExecutionException));
+                }
+            }
+        }, latencyTracker.getDelayMillis(key, config), TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        SQLException failure = null;
+        try {
+            T result = attemptIn(context.withCancellationScope(firstScope), first, callback);
+            latencyTracker.record(key, System.nanoTime() - start, config);
+            winner.compareAndSet(0, 1);
+            hedgeScope.cancel();
+            return result;
+        } catch (SQLException sqlException) {
+            failure = sqlException;
+        } finally {
+            if (state.compareAndSet(0, 1)) {
+                timer.cancel(false);
+            }
+        }
+        if (2 == state.get()) {
+            return awaitHedge(hedgeResult, hedgeScope, context, config, failure);
+        }
+        if (!isConnectionFailure(failure)) {
+            throw failure;
+        }
+        return attempt(null, callback);
+    }
+
+    /**
+     * 最初の発行が失敗した場合に、ヘッジの結果を待つ。 待つ時間はコンテキストの期限と、ヘッジのタイムアウトの早い方までとする。
+     * ヘッジも失敗した場合、または待つ時間を超えた場合はヘッジをキャンセルし、最初の発行の例外を発生させる。
+     *
+     * @param hedgeResult ヘッジの結果
+     * @param hedgeScope ヘッジのキャンセル範囲
+     * @param context コンテキスト
+     * @param config ヘッジ読み込み設定
+     * @param failure 最初の発行の例外
+     * @return T
+     * @throws SQLException
+     */
+    private <T> T awaitHedge(CompletableFuture<T> hedgeResult, CancellationScope hedgeScope, DaoContext context,
+            HedgeConfig config, SQLException failure) throws SQLException {
+        long waitNanos = Math.min(context.getRemainingNanos(), TimeUnit.MILLISECONDS.toNanos(config.getHedgeTimeoutMillis()));
+        try {
+            return hedgeResult.get(Math.max(waitNanos, 0L), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException executionException) {
+            throw failure;
+        } catch (TimeoutException timeoutException) {
+            hedgeScope.cancel();
+            throw failure;
+        } catch (InterruptedException interruptedException) {
+            hedgeScope.cancel();
+            Thread.currentThread().interrupt();
+            throw failure;
+        }
+    }
+
+    /**
+     * 引数のコンテキストを関連付けて、レプリカ（NULLの場合はプライマリ）でSELECT文の発行処理を実行する。
+     *
+     * @param context コンテキスト
+     * @param replica レプリカ
+     * @param callback SELECT文の発行処理
+     * @return T
+     * @throws SQLException
+     */
+    private <T> T attemptIn(DaoContext context, final Replica replica, final CommonDaoCallback<T> callback) throws SQLException {
+        try {
+            return context.call(new Callable<T>() {
+                public T call() throws Exception {
+                    return attempt(replica, callback);
+                }
+            });
+        } catch (SQLException sqlException) {
+            throw sqlException;
+        } catch (RuntimeException runtimeException) {
+            throw runtimeException;
+        } catch (Exception exception) {
+            throw new SQLException(exception);
+        }
+    }
+
+    /**
+     * レプリカ（NULLの場合はプライマリ）でSELECT文の発行処理を実行する。 レプリカへの接続に失敗した場合はレプリカを切り離す。
+     *
+     * @param replica レプリカ
+     * @param callback SELECT文の発行処理
+     * @return T
+     * @throws SQLException
+     */
+    private <T> T attempt(Replica replica, CommonDaoCallback<T> callback) throws SQLException {
+        if (null == replica) {
+            primaryReadCount.incrementAndGet();
+            return callback.call(getDelegate());
+        }
+        replica.outstanding.incrementAndGet();
+        try {
+            T result = callback.call(replica.dao);
+            replica.markSuccess();
+            return result;
+        } catch (SQLException sqlException) {
+            if (isConnectionFailure(sqlException)) {
+                replica.markFailure(System.currentTimeMillis(), initialBackoffMillis, maxBackoffMillis);
+            }
+            throw sqlException;
+        } finally {
+            replica.outstanding.decrementAndGet();
+        }
+    }
+
+    /**
+     * SELECT文1件分のヘッジの予算を加算する。 予算は最大10件分までとする。
+     *
+     * @param config ヘッジ読み込み設定
+     */
+    private void addHedgeCredit(HedgeConfig config) {
+        long credit = (long) (config.getBudgetPercent() * 10.0d);
+        long current;
+        do {
+            current = hedgeCredits.get();
+            if (current >= MAX_HEDGE_CREDITS) {
+                return;
+            }
+        } while (!hedgeCredits.compareAndSet(current, Math.min(current + credit, MAX_HEDGE_CREDITS)));
+    }
+
+    /**
+     * ヘッジ1件分の予算を取得する。
+     *
+     * @return boolean 予算が不足する場合false
+     */
+    private boolean tryAcquireHedgeCredit() {
+        long current;
+        do {
+            current = hedgeCredits.get();
+            if (current < HEDGE_CREDIT) {
+                return false;
+            }
+        } while (!hedgeCredits.compareAndSet(current, current - HEDGE_CREDIT));
+        return true;
+    }
+
+    /**
+     * 発行中の件数が最も少ないレプリカを選択する。 切り離し中のレプリカは選択しない。 件数が同じ場合は、呼び出し毎に
+     * 選択開始位置をずらして偏りを避ける。
+     *
+     * @param now 現在日時（ミリ秒）
+     * @param exclude 選択しないレプリカ（無い場合はNULL）
+     * @return Replica 利用可能なレプリカが無い場合はNULL
+     */
+    private Replica select(long now, Replica exclude) {
+        int size = replicas.size();
+        if (0 == size) {
+            return null;
+        }
+        // ヘッジの発行先の選択では開始位置を進めない（最初の発行先の選択が偏るため）
+        int start = (((null == exclude) ? nextStart.getAndIncrement() : nextStart.get()) & Integer.MAX_VALUE) % size;
+        Replica selected = null;
+        int least = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica == exclude || replica.ejectedUntil > now) {
+                continue;
+            }
+            int outstanding = replica.outstanding.get();
+            if (outstanding < least) {
+                least = outstanding;
+                selected = replica;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * SQL文を指定したSELECT文の応答時間を記録するキーを取得する。 定数のみが異なるSQL文を同じキーとするため、
+     * 定数を除いた形（@see {@link SqlRegistry#fingerprint(String)}）とする。 ヘッジ読み込みを行わない場合はNULLを返却する。
+     *
+     * @param query SQL文
+     * @return String
+     */
+    private String queryKey(String query) {
+        return (null == hedgeConfig) ? null : SqlRegistry.fingerprint(query);
+    }
+
+    /**
+     * 接続の失敗かを判定する。 共通DAOは例外を包んで発生させるため、原因の例外も含めて判定する。<br>
+     * SQLSTATEが"08"（接続例外）で始まる場合、接続を継続できないSQLExceptionのサブクラス（SQLNonTransientConnectionException、
+     * SQLRecoverableException）の場合、原因が入出力例外の場合に接続の失敗とする。<br>
+     * コネクションプールの取得待ちのタイムアウト（SQLSTATEが"HY"で始まるもの、SQLSTATEを持たない
+     * SQLTransientConnectionException）は、レプリカが混雑しているのみで障害ではないため、接続の失敗としない。
+     *
+     * @param sqlException 例外
+     * @return boolean
+     */
+    static boolean isConnectionFailure(SQLException sqlException) {
+        for (Throwable cause = sqlException; null != cause; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+            if (!(cause instanceof SQLException)) {
+                continue;
+            }
+            String sqlState = ((SQLException) cause).getSQLState();
+            if (null != sqlState && sqlState.startsWith("HY")) {
+                return false;
+            }
+            if (cause instanceof SQLNonTransientConnectionException || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (null != sqlState && sqlState.startsWith("08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * <p>
+     * レプリカの状態クラス
+     * </p>
+     * レプリカの共通DAOと、発行中の件数、切り離しの状態を保持する。
+     *
+     * @author H.Abe
+     * @version 1.0
+     *
+     */
+    private static final class Replica {
+
+        /**
+         * レプリカの共通DAO
+         */
+        final CommonDao dao;
+
+        /**
+         * 発行中の件数
+         */
+        final AtomicInteger outstanding = new AtomicInteger();
+
+        /**
+         * 連続した失敗回数
+         */
+        volatile int consecutiveFailures;
+
+        /**
+         * 切り離しの終了日時（ミリ秒、切り離し中でない場合は0）
+         */
+        volatile long ejectedUntil;
+
+        /**
+         * コンストラクタ
+         *
+         * @param dao レプリカの共通DAO
+         */
+        Replica(CommonDao dao) {
+            this.dao = dao;
+        }
+
+        /**
+         * 成功を記録し、切り離しの状態を初期化する。
+         */
+        void markSuccess() {
+            if (0 != consecutiveFailures) {
+                consecutiveFailures = 0;
+                ejectedUntil = 0L;
+            }
+        }
+
+        /**
+         * 失敗を記録し、失敗回数に応じた待機時間の間切り離す。
+         *
+         * @param now 現在日時（ミリ秒）
+         * @param initialBackoffMillis 初期待機時間（ミリ秒）
+         * @param maxBackoffMillis 最大待機時間（ミリ秒）
+         */
+        synchronized void markFailure(long now, long initialBackoffMillis, long maxBackoffMillis) {
+            int failures = consecutiveFailures + 1;
+            consecutiveFailures = failures;
+            long backoff = initialBackoffMillis << Math.min(failures - 1, 20);
+            ejectedUntil = now + Math.min(backoff, maxBackoffMillis);
+        }
+    }
+
+    /**
+     * <p>
+     * ヘッジ読み込みに使用する実行者の保持クラス
+     * </p>
+     * 初回のヘッジ読み込み時に、待ち時間の計測用のタイマーとヘッジの実行者を生成する。
+     *
+     * @author H.Abe
+     * @version 1.0
+     *
+     */
+    private static final class HedgeExecutorHolder {
+
+        /**
+         * 待ち時間の計測用のタイマー（全インスタンスで共有する）
+         */
+        static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "hedge-timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        /**
+         * ヘッジの実行者（全インスタンスで共有する）
+         */
+        static final ExecutorService EXECUTOR = AsyncCommonDaoImpl.createExecutor(AsyncCommonDaoImpl.SHARED_MAX_THREADS);
+    }
+}
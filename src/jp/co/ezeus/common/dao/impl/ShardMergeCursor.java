@@ -0,0 +1,116 @@
+package jp.co.ezeus.common.dao.impl;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import jp.co.ezeus.common.rdbControl.ResultCursor;
+
+/**
+ * <p>
+ * シャード毎のカーソルの併合カーソルクラス
+ * </p>
+ * 各シャードのカーソルを併合順序（@see {@link MergeOrder}）に従って1行ずつ併合する。 各カーソルから同時に保持する行は先頭行のみとなる。<br>
+ * close()にて全シャードのカーソルを解放する。 最終行まで読み込んだ場合、取得件数の上限に達した場合は自動的にcloseする。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+final class ShardMergeCursor extends ResultCursor {
+
+    /**
+     * シャード毎のカーソル
+     */
+    private final List<ResultCursor> cursors;
+
+    /**
+     * 併合結果
+     */
+    private final Iterator<Map<String, Object>> merged;
+
+    /**
+     * CLOSE済みフラグ
+     */
+    private boolean closed;
+
+    /**
+     * コンストラクタ
+     *
+     * @param order 併合順序
+     * @param cursors シャード毎のカーソル（1件以上、シャードの登録順）
+     */
+    ShardMergeCursor(MergeOrder order, List<ResultCursor> cursors) {
+        super(cursors.get(0).getSchema());
+        this.cursors = cursors;
+        this.merged = order.merge(cursors);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        boolean hasNext;
+        try {
+            hasNext = merged.hasNext();
+        } catch (IllegalStateException illegalStateException) {
+            closeQuietly();
+            throw illegalStateException;
+        }
+        if (!hasNext) {
+            closeQuietly();
+        }
+        return hasNext;
+    }
+
+    @Override
+    public Map<String, Object> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return merged.next();
+        } catch (IllegalStateException illegalStateException) {
+            closeQuietly();
+            throw illegalStateException;
+        }
+    }
+
+    /**
+     * 全シャードのカーソルを解放する。 解放に失敗した場合も全カーソルの解放を行い、最初の例外を発生させる。
+     *
+     * @throws SQLException
+     * @author H.Abe
+     */
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        SQLException exception = null;
+        for (ResultCursor cursor : cursors) {
+            try {
+                cursor.close();
+            } catch (SQLException sqlException) {
+                exception = (null == exception) ? sqlException : exception;
+            }
+        }
+        if (null != exception) {
+            throw exception;
+        }
+    }
+
+    /**
+     * closeを行う。 読み込み処理中の解放のため、CLOSE時の例外は無視する。
+     */
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (SQLException sqlException) {
+            // 読み込み処理の例外を優先するため無視する
+        }
+    }
+}
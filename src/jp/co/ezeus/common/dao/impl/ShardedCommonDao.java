@@ -0,0 +1,1044 @@
+package jp.co.ezeus.common.dao.impl;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import jp.co.ezeus.common.dao.CancellationScope;
+import jp.co.ezeus.common.dao.CommonDao;
+import jp.co.ezeus.common.dao.CommonDaoCallback;
+import jp.co.ezeus.common.dao.DaoContext;
+import jp.co.ezeus.common.dao.KeysetPage;
+import jp.co.ezeus.common.dao.QueryBundle;
+import jp.co.ezeus.common.dto.BindBuffer;
+import jp.co.ezeus.common.dto.BindingDto;
+import jp.co.ezeus.common.rdbControl.ResultCursor;
+import jp.co.ezeus.common.utilities.DBResourceControl;
+
+/**
+ * <p>
+ * シャード振り分け共通DAOクラス
+ * </p>
+ * 指定した表（分割表）をシャードキー（社員ID等）で複数のDBへ分割した構成で、共通DAOの呼び出しを各シャードの共通DAOへ振り分ける。<br>
+ * 分割表を参照しないSQL（マスタ表等）は、全シャードへ発行せずにホームシャード1つのみで発行する。 分割表の判定はSQL文の識別子
+ * （文字列リテラル、コメントを除く）に分割表の表名が含まれるかで行う。 分割表と結合するマスタ表は全シャードに複製しておくこと。<br>
+ * シャードはコンシステントハッシュのリング（@see {@link ConsistentHashRing}）で選択する。 名前付きパラメータにシャードキーを含む
+ * SQLキーの呼び出し（1件の参照、更新）はキーを担当するシャードのみで発行する。 シャードキーを含まないSELECT文は全シャードで並行に発行し、
+ * ORDER BY句の順にk-wayマージで併合する（@see {@link MergeOrder}）。 集約関数、GROUP BY句、DISTINCTを持つSELECT文は
+ * シャード毎の結果を併合できないため、発行前にSQLExceptionとする。<br>
+ * シャードキーを含まない更新、削除は全シャードで発行する。 シャード間のトランザクションは無く、各シャードは個別にCOMMITするため
+ * 原子性は無い。 一部のシャードが失敗した場合も他のシャードの発行はキャンセルせずに完了を待ち、失敗したシャード数を含む
+ * SQLExceptionとする（成功したシャードはCOMMIT済みとなる）。 再実行しても結果が変わらない（冪等な）更新、削除のみを発行すること。<br>
+ * シャードキーを含まない登録は、登録先のシャードを決められないためSQLExceptionとする。 位置指定のバインド変数で登録する場合は
+ * forKey()で取得したシャードの共通DAOを使用する。<br>
+ * ResultSetは併合できないため、分割表のResultSetを返却するメソッドはSQLFeatureNotSupportedExceptionとする。 大量データはカーソルを使用する。
+ *
+ * <pre>
+ * Map&lt;String, CommonDao&gt; shards = new LinkedHashMap&lt;String, CommonDao&gt;();
+ * shards.put(&quot;shard-0&quot;, new CommonDaoImpl(dataSource0));
+ * shards.put(&quot;shard-1&quot;, new CommonDaoImpl(dataSource1));
+ * ShardedCommonDao dao = new ShardedCommonDao(shards, &quot;employee_id&quot;, Arrays.asList(&quot;employee_info&quot;), &quot;shard-0&quot;);
+ * dao.commonExecuteBySqlKey(&quot;SQL_INSERT_EMPLOYEE_INFO&quot;, employee);     // employee_idのシャードのみ
+ * dao.commonSelectBySqlKey(&quot;SQL_SELECT_EMPLOYEE_ID&quot;, params);         // 全シャード
+ * dao.commonSelectBySqlKey(&quot;SQL_GENERAL_PURPOSE_MST_QUERY&quot;, params);  // ホームシャードのみ
+ * </pre>
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class ShardedCommonDao implements CommonDao {
+
+    /**
+     * シャードキーのパラメータ名の既定値
+     */
+    public static final String DEFAULT_SHARD_KEY_NAME = "employee_id";
+
+    /**
+     * シャードのリング
+     */
+    private final ConsistentHashRing<CommonDao> ring;
+
+    /**
+     * シャードキーのパラメータ名
+     */
+    private final String shardKeyName;
+
+    /**
+     * 分割表の表名（小文字）
+     */
+    private final Set<String> shardedTables;
+
+    /**
+     * 分割表を参照しないSQLを発行するホームシャードの共通DAO
+     */
+    private final CommonDao homeShard;
+
+    /**
+     * ホームシャードで発行した件数
+     */
+    private final AtomicLong homeCount = new AtomicLong();
+
+    /**
+     * 1シャードへ振り分けた件数
+     */
+    private final AtomicLong routedCount = new AtomicLong();
+
+    /**
+     * 全シャードで発行した件数
+     */
+    private final AtomicLong scatterCount = new AtomicLong();
+
+    /**
+     * コンストラクタ
+     *
+     * @param shards シャード名をキーとする各シャードの共通DAO
+     * @param shardKeyName シャードキーのパラメータ名
+     * @param shardedTables 分割表の表名
+     * @param homeShardName 分割表を参照しないSQLを発行するシャードのシャード名
+     */
+    public ShardedCommonDao(Map<String, ? extends CommonDao> shards, String shardKeyName, Collection<String> shardedTables,
+            String homeShardName) {
+        this(shards, shardKeyName, shardedTables, homeShardName, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * コンストラクタ
+     *
+     * @param shards シャード名をキーとする各シャードの共通DAO
+     * @param shardKeyName シャードキーのパラメータ名
+     * @param shardedTables 分割表の表名
+     * @param homeShardName 分割表を参照しないSQLを発行するシャードのシャード名
+     * @param virtualNodes 1シャードあたりの仮想ノード数
+     * @throws IllegalArgumentException ホームシャードがシャードに含まれない場合
+     * @author H.Abe
+     */
+    public ShardedCommonDao(Map<String, ? extends CommonDao> shards, String shardKeyName, Collection<String> shardedTables,
+            String homeShardName, int virtualNodes) {
+        this.homeShard = shards.get(homeShardName);
+        if (null == homeShard) {
+            throw new IllegalArgumentException("home shard is not one of the shards: " + homeShardName);
+        }
+        this.ring = new ConsistentHashRing<CommonDao>(new LinkedHashMap<String, CommonDao>(shards), virtualNodes);
+        this.shardKeyName = shardKeyName;
+        Set<String> tables = new HashSet<String>();
+        for (String table : shardedTables) {
+            tables.add(table.toLowerCase(Locale.ROOT));
+        }
+        this.shardedTables = Collections.unmodifiableSet(tables);
+    }
+
+    /**
+     * シャードキーを担当するシャードの共通DAOを取得する。
+     *
+     * @param shardKey シャードキーの値
+     * @return CommonDao
+     */
+    public CommonDao forKey(Object shardKey) {
+        return ring.get(shardKey);
+    }
+
+    /**
+     * 全シャードの共通DAOを登録順に取得する。
+     *
+     * @return List<CommonDao>
+     */
+    public List<CommonDao> getShards() {
+        return ring.getNodes();
+    }
+
+    /**
+     * シャードキーのパラメータ名を取得する。
+     *
+     * @return String
+     */
+    public String getShardKeyName() {
+        return shardKeyName;
+    }
+
+    /**
+     * 分割表の表名（小文字）を取得する。
+     *
+     * @return Set<String>
+     */
+    public Set<String> getShardedTables() {
+        return shardedTables;
+    }
+
+    /**
+     * ホームシャードの共通DAOを取得する。
+     *
+     * @return CommonDao
+     */
+    public CommonDao getHomeShard() {
+        return homeShard;
+    }
+
+    /**
+     * ホームシャードで発行した件数を取得する。
+     *
+     * @return long
+     */
+    public long getHomeCount() {
+        return homeCount.get();
+    }
+
+    /**
+     * 1シャードへ振り分けた件数を取得する。
+     *
+     * @return long
+     */
+    public long getRoutedCount() {
+        return routedCount.get();
+    }
+
+    /**
+     * 全シャードで発行した件数を取得する。
+     *
+     * @return long
+     */
+    public long getScatterCount() {
+        return scatterCount.get();
+    }
+
+    /**
+     * 全シャードで共通SELECT文発行処理を呼び出し、ORDER BY句の順に併合して返却する。
+     *
+     * @param query SQL文
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public List<Map<String, Object>> commonSelectByQuery(final String query) throws SQLException {
+        return selectAll(query, new CommonDaoCallback<List<Map<String, Object>>>() {
+            public List<Map<String, Object>> call(CommonDao dao) throws SQLException {
+                return dao.commonSelectByQuery(query);
+            }
+        });
+    }
+
+    /**
+     * 全シャードで共通SELECT文発行処理を呼び出し、ORDER BY句の順に併合して返却する。（バインド変数有り）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public List<Map<String, Object>> commonSelectByBindQuery(final String query, final List<BindingDto> binds) throws SQLException {
+        return selectAll(query, new CommonDaoCallback<List<Map<String, Object>>>() {
+            public List<Map<String, Object>> call(CommonDao dao) throws SQLException {
+                return dao.commonSelectByBindQuery(query, binds);
+            }
+        });
+    }
+
+    /**
+     * 全シャードで共通SELECT文発行処理を呼び出し、ORDER BY句の順に併合して返却する。（BindBuffer）<br>
+     * BindBufferは全シャードの発行処理から参照するため、処理中は変更しないこと。
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public List<Map<String, Object>> commonSelectByBindBuffer(final String query, final BindBuffer binds) throws SQLException {
+        return selectAll(query, new CommonDaoCallback<List<Map<String, Object>>>() {
+            public List<Map<String, Object>> call(CommonDao dao) throws SQLException {
+                return dao.commonSelectByBindBuffer(query, binds);
+            }
+        });
+    }
+
+    /**
+     * 全シャードで共通UPDATE文発行処理を呼び出す。
+     *
+     * @param query SQL文
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public void commonUpdateByQuery(final String query) throws SQLException {
+        executeAll(query, new CommonDaoCallback<Void>() {
+            public Void call(CommonDao dao) throws SQLException {
+                dao.commonUpdateByQuery(query);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 全シャードで共通UPDATE文発行処理を呼び出す。（バインド変数有り）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public void commonUpdateByBindQuery(final String query, final List<BindingDto> binds) throws SQLException {
+        executeAll(query, new CommonDaoCallback<Void>() {
+            public Void call(CommonDao dao) throws SQLException {
+                dao.commonUpdateByBindQuery(query, binds);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 分割表を参照しない場合はホームシャードで共通INSERT文発行処理を呼び出す。 分割表への登録は登録先のシャードを決められないため、
+     * SQLExceptionとする。 forKey()で取得したシャードの共通DAOを使用すること。
+     *
+     * @param query SQL文
+     * @throws SQLException
+     */
+    public void commonInsertByQuery(String query) throws SQLException {
+        if (isSharded(query)) {
+            throw shardKeyRequired(query);
+        }
+        home().commonInsertByQuery(query);
+    }
+
+    /**
+     * 分割表を参照しない場合はホームシャードで共通INSERT文発行処理を呼び出す。（バインド変数有り） 分割表への登録は
+     * 登録先のシャードを決められないため、SQLExceptionとする。 forKey()で取得したシャードの共通DAOを使用すること。
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @throws SQLException
+     */
+    public void commonInsertByBindQuery(String query, List<BindingDto> binds) throws SQLException {
+        if (isSharded(query)) {
+            throw shardKeyRequired(query);
+        }
+        home().commonInsertByBindQuery(query, binds);
+    }
+
+    /**
+     * 全シャードで共通DELETE文発行処理を呼び出す。
+     *
+     * @param query SQL文
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public void commonDeleteByQuery(final String query) throws SQLException {
+        executeAll(query, new CommonDaoCallback<Void>() {
+            public Void call(CommonDao dao) throws SQLException {
+                dao.commonDeleteByQuery(query);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 全シャードで共通DELETE文発行処理を呼び出す。（バインド変数有り）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public void commonDeleteByBindQuery(final String query, final List<BindingDto> binds) throws SQLException {
+        executeAll(query, new CommonDaoCallback<Void>() {
+            public Void call(CommonDao dao) throws SQLException {
+                dao.commonDeleteByBindQuery(query, binds);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 全シャードで共通DML文発行処理を呼び出す。（BindBuffer） INSERT文はSQLExceptionとする。
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public void commonExecuteByBindBuffer(final String query, final BindBuffer binds) throws SQLException {
+        executeAll(query, new CommonDaoCallback<Void>() {
+            public Void call(CommonDao dao) throws SQLException {
+                dao.commonExecuteByBindBuffer(query, binds);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * SQLキーに対応するSELECT文を全シャードで発行し、ORDER BY句の順に併合して返却する。（置換文字リスト）
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param binds 置換文字リスト
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public List<Map<String, Object>> commonSelectBySqlKey(final String sqlKey, final List<String> binds) throws SQLException {
+        return selectAll(sqlOf(sqlKey), new CommonDaoCallback<List<Map<String, Object>>>() {
+            public List<Map<String, Object>> call(CommonDao dao) throws SQLException {
+                return dao.commonSelectBySqlKey(sqlKey, binds);
+            }
+        });
+    }
+
+    /**
+     * SQLキーに対応するDML文を全シャードで発行する。（置換文字リスト） INSERT文はSQLExceptionとする。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param binds 置換文字リスト
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public void commonExecuteBySqlKey(final String sqlKey, final List<String> binds) throws SQLException {
+        executeAll(sqlOf(sqlKey), new CommonDaoCallback<Void>() {
+            public Void call(CommonDao dao) throws SQLException {
+                dao.commonExecuteBySqlKey(sqlKey, binds);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * SQLキーに対応するSELECT文を発行する。（名前付きパラメータ） パラメータにシャードキーを含む場合は担当するシャードのみで発行し、
+     * 含まない場合は全シャードで発行してORDER BY句の順に併合する。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param params パラメータ名をキーとする値
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public List<Map<String, Object>> commonSelectBySqlKey(final String sqlKey, final Map<String, ?> params) throws SQLException {
+        String query = sqlOf(sqlKey);
+        if (!isSharded(query)) {
+            return home().commonSelectBySqlKey(sqlKey, params);
+        }
+        Object shardKey = params.get(shardKeyName);
+        if (null != shardKey) {
+            routedCount.incrementAndGet();
+            return forKey(shardKey).commonSelectBySqlKey(sqlKey, params);
+        }
+        return selectAll(query, new CommonDaoCallback<List<Map<String, Object>>>() {
+            public List<Map<String, Object>> call(CommonDao dao) throws SQLException {
+                return dao.commonSelectBySqlKey(sqlKey, params);
+            }
+        });
+    }
+
+    /**
+     * SQLキーに対応するDML文を発行する。（名前付きパラメータ） パラメータにシャードキーを含む場合は担当するシャードのみで発行し、
+     * 含まない場合は全シャードで発行する。 シャードキーを含まないINSERT文はSQLExceptionとする。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param params パラメータ名をキーとする値
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public void commonExecuteBySqlKey(final String sqlKey, final Map<String, ?> params) throws SQLException {
+        String query = sqlOf(sqlKey);
+        if (!isSharded(query)) {
+            home().commonExecuteBySqlKey(sqlKey, params);
+            return;
+        }
+        Object shardKey = params.get(shardKeyName);
+        if (null != shardKey) {
+            routedCount.incrementAndGet();
+            forKey(shardKey).commonExecuteBySqlKey(sqlKey, params);
+            return;
+        }
+        executeAll(query, new CommonDaoCallback<Void>() {
+            public Void call(CommonDao dao) throws SQLException {
+                dao.commonExecuteBySqlKey(sqlKey, params);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 複数のSQLキーに対応するSELECT文を1回の発行にまとめて呼び出す。 全要素が同じシャードキーを名前付きパラメータに含む場合は
+     * 担当するシャードのみで発行し、それ以外は全シャードで発行して要素毎に併合する。
+     *
+     * @param bundle SELECT文の一括発行定義
+     * @return List<List<Map<String, Object>>>
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public List<List<Map<String, Object>>> commonSelectMultiBySqlKey(final QueryBundle bundle) throws SQLException {
+        if (!isSharded(bundle)) {
+            return home().commonSelectMultiBySqlKey(bundle);
+        }
+        Object shardKey = commonShardKey(bundle);
+        if (null != shardKey) {
+            routedCount.incrementAndGet();
+            return forKey(shardKey).commonSelectMultiBySqlKey(bundle);
+        }
+        List<MergeOrder> orders = ordersOf(bundle);
+        scatterCount.incrementAndGet();
+        return mergeEntries(orders, scatter(new CommonDaoCallback<List<List<Map<String, Object>>>>() {
+            public List<List<Map<String, Object>>> call(CommonDao dao) throws SQLException {
+                return dao.commonSelectMultiBySqlKey(bundle);
+            }
+        }, true));
+    }
+
+    /**
+     * 互いに依存しない複数のSELECT文を並行に発行する。 全要素が同じシャードキーを名前付きパラメータに含む場合は担当するシャードのみで
+     * 発行し、それ以外は全シャードで発行して要素毎に併合する。 期限は全シャードの発行全体に適用する。
+     *
+     * @param bundle SELECT文の一括発行定義
+     * @param timeout 全体の期限までの時間
+     * @param unit 時間の単位
+     * @return List<List<Map<String, Object>>>
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public List<List<Map<String, Object>>> commonSelectBundle(final QueryBundle bundle, final long timeout, final TimeUnit unit)
+            throws SQLException {
+        if (!isSharded(bundle)) {
+            return home().commonSelectBundle(bundle, timeout, unit);
+        }
+        Object shardKey = commonShardKey(bundle);
+        if (null != shardKey) {
+            routedCount.incrementAndGet();
+            return forKey(shardKey).commonSelectBundle(bundle, timeout, unit);
+        }
+        final List<MergeOrder> orders = ordersOf(bundle);
+        scatterCount.incrementAndGet();
+        try {
+            return DaoContext.current().withTimeout(timeout, unit).call(new Callable<List<List<Map<String, Object>>>>() {
+                public List<List<Map<String, Object>>> call() throws Exception {
+                    return mergeEntries(orders, scatter(new CommonDaoCallback<List<List<Map<String, Object>>>>() {
+                        public List<List<Map<String, Object>>> call(CommonDao dao) throws SQLException {
+                            return dao.commonSelectBundle(bundle, timeout, unit);
+                        }
+                    }, true));
+                }
+            });
+        } catch (SQLException sqlException) {
+            throw sqlException;
+        } catch (Exception exception) {
+            throw new SQLException(exception);
+        }
+    }
+
+    /**
+     * SQLキーに対応するSELECT文をキーセットページングで1ページ分取得する。 パラメータにシャードキーを含む場合は担当するシャードのみで
+     * 取得し、含まない場合は全シャードの1ページ分をキー列の順に併合して1ページ分とする。<br>
+     * 継続トークンは併合後の最終行のキーとするため、次ページも各シャードで同じ条件により取得できる。<br>
+     * 全シャードで取得する場合、キー列は数値、日付等とする。 文字列のキー列は併合の順序とDBの照合順序が一致しないためSQLExceptionとする。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @param params パラメータ名をキーとする値
+     * @param keyColumns キー列（"列名"、または"列名 desc"）
+     * @param pageSize 1ページの件数
+     * @param pageToken 継続トークン（1ページ目の場合はNULL）
+     * @return KeysetPage
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public KeysetPage commonSelectPageBySqlKey(final String sqlKey, final Map<String, ?> params, final List<String> keyColumns,
+            final int pageSize, final String pageToken) throws SQLException {
+        if (!isSharded(sqlOf(sqlKey))) {
+            return home().commonSelectPageBySqlKey(sqlKey, params, keyColumns, pageSize, pageToken);
+        }
+        Object shardKey = params.get(shardKeyName);
+        if (null != shardKey) {
+            routedCount.incrementAndGet();
+            return forKey(shardKey).commonSelectPageBySqlKey(sqlKey, params, keyColumns, pageSize, pageToken);
+        }
+        KeysetQuery keyset = KeysetQuery.of(sqlKey, keyColumns);
+        MergeOrder order = MergeOrder.parse(keyset.orderBy());
+        scatterCount.incrementAndGet();
+        List<KeysetPage> pages = scatter(new CommonDaoCallback<KeysetPage>() {
+            public KeysetPage call(CommonDao dao) throws SQLException {
+                return dao.commonSelectPageBySqlKey(sqlKey, params, keyColumns, pageSize, pageToken);
+            }
+        }, true);
+        List<List<Map<String, Object>>> results = new ArrayList<List<Map<String, Object>>>(pages.size());
+        boolean hasNext = false;
+        for (KeysetPage page : pages) {
+            results.add(page.getRows());
+            hasNext |= page.hasNext();
+        }
+        List<Map<String, Object>> merged = order.mergeLists(results);
+        if (!merged.isEmpty()) {
+            keyset.checkMergeable(merged.get(0));
+        }
+        if (merged.size() <= pageSize && !hasNext) {
+            return new KeysetPage(merged, null);
+        }
+        List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>(merged.subList(0, Math.min(pageSize, merged.size())));
+        return new KeysetPage(rows, keyset.encode(rows.get(rows.size() - 1)));
+    }
+
+    /**
+     * 全シャードで共通バッチDML文発行処理を呼び出す。 行毎の更新件数は全シャードの合計とする。 INSERT文はSQLExceptionとする。
+     * 分割表を参照しない場合はホームシャードのみで発行する。 全シャードでの発行は原子性を持たない（@see {@link #executeAll}）。
+     *
+     * @param query SQL文
+     * @param rows 行毎のバインド変数
+     * @param batchSize 1回のexecuteBatch()で送信する行数
+     * @return int[]
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public int[] commonExecuteBatchByBindQuery(final String query, final List<List<BindingDto>> rows, final int batchSize)
+            throws SQLException {
+        if (!isSharded(query)) {
+            return home().commonExecuteBatchByBindQuery(query, rows, batchSize);
+        }
+        if (isInsert(query)) {
+            throw shardKeyRequired(query);
+        }
+        scatterCount.incrementAndGet();
+        List<int[]> results = scatter(new CommonDaoCallback<int[]>() {
+            public int[] call(CommonDao dao) throws SQLException {
+                return dao.commonExecuteBatchByBindQuery(query, rows, batchSize);
+            }
+        }, false);
+        int[] counts = new int[rows.size()];
+        for (int[] result : results) {
+            for (int i = 0; i < counts.length && i < result.length; i++) {
+                // 件数不明（SUCCESS_NO_INFO等の負数）の場合はそのまま返却する
+                counts[i] = (result[i] < 0 || counts[i] < 0) ? Math.min(result[i], counts[i]) : counts[i] + result[i];
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * 分割表を参照しない場合はホームシャードで共通SELECT文発行処理を呼び出し、結果セットを返却する。
+     * 分割表のResultSetは併合できないため、SQLFeatureNotSupportedExceptionとする。
+     *
+     * @param query SQL文
+     * @return ResultSet
+     * @throws SQLException
+     */
+    public ResultSet commonGetResultSetSelectByQuery(String query) throws SQLException {
+        if (isSharded(query)) {
+            throw new SQLFeatureNotSupportedException("ResultSet cannot be merged across shards: use commonOpenCursorByBindQuery()");
+        }
+        return home().commonGetResultSetSelectByQuery(query);
+    }
+
+    /**
+     * 分割表を参照しない場合はホームシャードで共通SELECT文発行処理を呼び出し、結果セットを返却する。（バインド変数有り）
+     * 分割表のResultSetは併合できないため、SQLFeatureNotSupportedExceptionとする。
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return ResultSet
+     * @throws SQLException
+     */
+    public ResultSet commonGetResultSetSelectByBindQuery(String query, List<BindingDto> binds) throws SQLException {
+        if (isSharded(query)) {
+            throw new SQLFeatureNotSupportedException("ResultSet cannot be merged across shards: use commonOpenCursorByBindQuery()");
+        }
+        return home().commonGetResultSetSelectByBindQuery(query, binds);
+    }
+
+    /**
+     * 全シャードでカーソルを開き、ORDER BY句の順に1行ずつ併合するカーソルを返却する。 各シャードから同時に保持する行は
+     * 先頭行とfetchSize分のみとなる。<br>
+     * カーソルは呼び出し元のスレッドでシャードの登録順に開く。 開けないシャードがある場合は、開いたカーソルを解放して例外とする。
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @param fetchSize 1回の通信で取得する行数
+     * @return ResultCursor
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public ResultCursor commonOpenCursorByBindQuery(String query, List<BindingDto> binds, int fetchSize) throws SQLException {
+        if (!isSharded(query)) {
+            return home().commonOpenCursorByBindQuery(query, binds, fetchSize);
+        }
+        MergeOrder order = MergeOrder.parse(query);
+        scatterCount.incrementAndGet();
+        List<CommonDao> shards = ring.getNodes();
+        List<ResultCursor> cursors = new ArrayList<ResultCursor>(shards.size());
+        try {
+            for (CommonDao shard : shards) {
+                cursors.add(shard.commonOpenCursorByBindQuery(query, binds, fetchSize));
+            }
+        } catch (SQLException sqlException) {
+            closeCursors(cursors);
+            throw sqlException;
+        }
+        try {
+            return new ShardMergeCursor(order, cursors);
+        } catch (IllegalStateException illegalStateException) {
+            // 先頭行の比較で併合できないことが判明した場合
+            closeCursors(cursors);
+            throw new SQLException(illegalStateException);
+        }
+    }
+
+    /**
+     * 開いたカーソルを解放する。 発行時の例外を優先するため、解放時の例外は無視する。
+     *
+     * @param cursors シャード毎のカーソル
+     */
+    private void closeCursors(List<ResultCursor> cursors) {
+        for (ResultCursor cursor : cursors) {
+            try {
+                cursor.close();
+            } catch (SQLException closeException) {
+                // 発行時の例外を優先するため無視する
+            }
+        }
+    }
+
+    /**
+     * 全シャードでSELECT文を発行し、ORDER BY句の順に併合する。 併合できないSELECT文は発行前にSQLExceptionとする。
+     * 分割表を参照しないSELECT文はホームシャードのみで発行する。
+     *
+     * @param query 併合順序を解析するSELECT文
+     * @param callback シャード毎のSELECT文の発行処理
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     */
+    private List<Map<String, Object>> selectAll(String query, CommonDaoCallback<List<Map<String, Object>>> callback)
+            throws SQLException {
+        if (!isSharded(query)) {
+            return callback.call(home());
+        }
+        MergeOrder order = MergeOrder.parse(query);
+        scatterCount.incrementAndGet();
+        return order.mergeLists(scatter(callback, true));
+    }
+
+    /**
+     * 全シャードでDML文を発行する。 INSERT文は登録先のシャードを決められないためSQLExceptionとする。
+     * 分割表を参照しないDML文はホームシャードのみで発行する。<br>
+     * 各シャードは個別にCOMMITするため原子性は無い。 一部のシャードが失敗しても他のシャードはキャンセルせずに完了を待ち、
+     * 失敗したシャード数を含むSQLExceptionとする。 キャンセルすると、どのシャードに反映されたかが不定となるためである。
+     *
+     * @param query 判定するDML文
+     * @param callback シャード毎のDML文の発行処理
+     * @throws SQLException
+     */
+    private void executeAll(String query, CommonDaoCallback<Void> callback) throws SQLException {
+        if (!isSharded(query)) {
+            callback.call(home());
+            return;
+        }
+        if (isInsert(query)) {
+            throw shardKeyRequired(query);
+        }
+        scatterCount.incrementAndGet();
+        scatter(callback, false);
+    }
+
+    /**
+     * ホームシャードで発行した件数を加算し、ホームシャードの共通DAOを取得する。
+     *
+     * @return CommonDao
+     */
+    private CommonDao home() {
+        homeCount.incrementAndGet();
+        return homeShard;
+    }
+
+    /**
+     * SQL文が分割表を参照するかを判定する。 文字列リテラル、コメントを除いた識別子に分割表の表名が含まれる場合に参照すると判定する。
+     * 引用符付き識別子は大文字と小文字を区別し、それ以外は区別しない。 表の別名、列名が分割表の表名と同じ場合も参照すると判定する。
+     *
+     * @param query SQL文
+     * @return boolean
+     */
+    private boolean isSharded(String query) {
+        int length = query.length();
+        int i = 0;
+        while (i < length) {
+            char c = query.charAt(i);
+            if (c == '-' && i + 1 < length && query.charAt(i + 1) == '-') {
+                int end = query.indexOf('\n', i);
+                i = (end < 0) ? length : end + 1;
+            } else if (c == '/' && i + 1 < length && query.charAt(i + 1) == '*') {
+                int end = query.indexOf("*/", i + 2);
+                i = (end < 0) ? length : end + 2;
+            } else if (c == '\'') {
+                // 連続した引用符（''）は終端と開始の組として扱われるため、結果は同じとなる
+                int end = query.indexOf('\'', i + 1);
+                i = (end < 0) ? length : end + 1;
+            } else if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                end = (end < 0) ? length : end;
+                if (shardedTables.contains(query.substring(i + 1, end))) {
+                    return true;
+                }
+                i = end + 1;
+            } else if (c == '_' || Character.isLetter(c)) {
+                int start = i;
+                while (i < length && (query.charAt(i) == '_' || query.charAt(i) == '$' || Character.isLetterOrDigit(query.charAt(i)))) {
+                    i++;
+                }
+                if (shardedTables.contains(query.substring(start, i).toLowerCase(Locale.ROOT))) {
+                    return true;
+                }
+            } else {
+                i++;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 一括発行定義のSELECT文が分割表を参照するかを判定する。
+     *
+     * @param bundle SELECT文の一括発行定義
+     * @return boolean 全要素が分割表を参照する場合true、全要素が参照しない場合false
+     * @throws SQLException 分割表を参照する要素と参照しない要素が混在する場合
+     */
+    private boolean isSharded(QueryBundle bundle) throws SQLException {
+        int sharded = 0;
+        for (QueryBundle.Entry entry : bundle.getEntries()) {
+            if (isSharded(sqlOf(entry.getSqlKey()))) {
+                sharded++;
+            }
+        }
+        if (0 != sharded && bundle.size() != sharded) {
+            throw new SQLException("query bundle mixes sharded and home-shard queries: split the bundle");
+        }
+        return 0 != sharded;
+    }
+
+    /**
+     * 全シャードで発行処理を並行に実行し、結果をシャードの登録順に返却する。 呼び出し元のコンテキストの期限を全体に適用する。<br>
+     * cancelOnFailureがtrueの場合、いずれかのシャードが失敗した時点で他のシャードの発行をキャンセルする。 falseの場合は
+     * 全シャードの完了を待ち、失敗したシャードがあれば最初の例外を原因とし、他の例外を抑制された例外とするSQLExceptionとする。
+     * 期限を超過した場合はいずれもキャンセルする。
+     *
+     * @param callback シャード毎の発行処理
+     * @param cancelOnFailure 失敗時に他のシャードをキャンセルするか（参照はtrue、更新はfalse）
+     * @return List<T>
+     * @throws SQLException
+     * @author H.Abe
+     */
+    private <T> List<T> scatter(final CommonDaoCallback<T> callback, boolean cancelOnFailure) throws SQLException {
+        List<CommonDao> shards = ring.getNodes();
+        if (1 == shards.size()) {
+            return Collections.singletonList(callback.call(shards.get(0)));
+        }
+        final CancellationScope scope = new CancellationScope();
+        final DaoContext context = DaoContext.current().withCancellationScope(scope);
+        CompletionService<Integer> completionService = new ExecutorCompletionService<Integer>(ScatterExecutorHolder.EXECUTOR);
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>(shards.size());
+        // 各要素は別々のスレッドが設定し、完了の取得（Future）を経由して参照する
+        final List<T> results = new ArrayList<T>(Collections.<T> nCopies(shards.size(), null));
+        try {
+            for (int i = 0; i < shards.size(); i++) {
+                final int index = i;
+                final CommonDao shard = shards.get(i);
+                futures.add(completionService.submit(new Callable<Integer>() {
+                    public Integer call() throws Exception {
+                        if (scope.isCancelled()) {
+                            // 開始前にキャンセルされた場合はConnectionを取得しない
+                            throw new SQLException("query has been cancelled", "57014");
+                        }
+                        results.set(index, context.call(new Callable<T>() {
+                            public T call() throws Exception {
+                                return callback.call(shard);
+                            }
+                        }));
+                        return Integer.valueOf(index);
+                    }
+                }));
+            }
+            List<Throwable> failures = new ArrayList<Throwable>();
+            for (int i = 0; i < futures.size(); i++) {
+                Future<Integer> completed = completionService.poll(Math.max(context.getRemainingNanos(), 0L), TimeUnit.NANOSECONDS);
+                if (null == completed) {
+                    throw new SQLTimeoutException("deadline exceeded while executing on shards");
+                }
+                try {
+                    completed.get();
+                } catch (ExecutionException executionException) {
+                    if (cancelOnFailure) {
+                        throw executionException;
+                    }
+                    failures.add(executionException.getCause());
+                }
+            }
+            if (!failures.isEmpty()) {
+                SQLException sqlException = new SQLException("failed on " + failures.size() + " of " + futures.size()
+                        + " shards, the other shards have committed", failures.get(0));
+                for (int i = 1; i < failures.size(); i++) {
+                    sqlException.addSuppressed(failures.get(i));
+                }
+                throw sqlException;
+            }
+        } catch (InterruptedException interruptedException) {
+            cancelScatter(futures, scope);
+            Thread.currentThread().interrupt();
+            throw new SQLException(interruptedException);
+        } catch (ExecutionException executionException) {
+            cancelScatter(futures, scope);
+            Throwable cause = executionException.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new SQLException(cause);
+        } catch (SQLException sqlException) {
+            cancelScatter(futures, scope);
+            throw sqlException;
+        } catch (RuntimeException runtimeException) {
+            cancelScatter(futures, scope);
+            throw new SQLException(runtimeException);
+        }
+        return results;
+    }
+
+    /**
+     * 全シャードで実行中の発行処理をキャンセルする。
+     *
+     * @param futures シャード毎の発行処理
+     * @param scope キャンセル範囲
+     */
+    private void cancelScatter(List<Future<Integer>> futures, CancellationScope scope) {
+        scope.cancel();
+        for (Future<Integer> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * 一括発行定義の全要素が名前付きパラメータに同じシャードキーを含む場合に、そのシャードキーを取得する。
+     *
+     * @param bundle SELECT文の一括発行定義
+     * @return Object 全要素で同じシャードキーを含まない場合はNULL
+     */
+    private Object commonShardKey(QueryBundle bundle) {
+        Object shardKey = null;
+        for (QueryBundle.Entry entry : bundle.getEntries()) {
+            Object value = entry.isNamed() ? entry.getParams().get(shardKeyName) : null;
+            if (null == value || (null != shardKey && !String.valueOf(shardKey).equals(String.valueOf(value)))) {
+                return null;
+            }
+            shardKey = value;
+        }
+        return shardKey;
+    }
+
+    /**
+     * 一括発行定義の要素毎の併合順序を取得する。
+     *
+     * @param bundle SELECT文の一括発行定義
+     * @return List<MergeOrder>
+     * @throws SQLException
+     */
+    private List<MergeOrder> ordersOf(QueryBundle bundle) throws SQLException {
+        List<MergeOrder> orders = new ArrayList<MergeOrder>(bundle.size());
+        for (QueryBundle.Entry entry : bundle.getEntries()) {
+            orders.add(MergeOrder.parse(sqlOf(entry.getSqlKey())));
+        }
+        return orders;
+    }
+
+    /**
+     * シャード毎の一括発行の結果を要素毎に併合する。
+     *
+     * @param orders 要素毎の併合順序
+     * @param shardResults シャード毎の一括発行の結果
+     * @return List<List<Map<String, Object>>>
+     * @throws SQLException 併合できない場合
+     */
+    private List<List<Map<String, Object>>> mergeEntries(List<MergeOrder> orders, List<List<List<Map<String, Object>>>> shardResults)
+            throws SQLException {
+        List<List<Map<String, Object>>> merged = new ArrayList<List<Map<String, Object>>>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            List<List<Map<String, Object>>> entryResults = new ArrayList<List<Map<String, Object>>>(shardResults.size());
+            for (List<List<Map<String, Object>>> shardResult : shardResults) {
+                entryResults.add(shardResult.get(i));
+            }
+            merged.add(orders.get(i).mergeLists(entryResults));
+        }
+        return merged;
+    }
+
+    /**
+     * SQLキーに対応するSQL文を取得する。
+     *
+     * @param sqlKey SQLキー（プロパティファイルのキー）
+     * @return String
+     * @throws SQLException SQLキーが登録されていない場合
+     */
+    private String sqlOf(String sqlKey) throws SQLException {
+        try {
+            return DBResourceControl.getInstance().readSQLFile(sqlKey);
+        } catch (IOException ioException) {
+            throw new SQLException(ioException);
+        }
+    }
+
+    /**
+     * INSERT文かを判定する。 先頭の空白、コメントは除いて判定する。
+     *
+     * @param query SQL文
+     * @return boolean
+     */
+    private static boolean isInsert(String query) {
+        int i = 0;
+        while (i < query.length()) {
+            if (Character.isWhitespace(query.charAt(i))) {
+                i++;
+            } else if (query.startsWith("--", i)) {
+                int end = query.indexOf('\n', i);
+                i = (end < 0) ? query.length() : end + 1;
+            } else if (query.startsWith("/*", i)) {
+                int end = query.indexOf("*/", i + 2);
+                i = (end < 0) ? query.length() : end + 2;
+            } else {
+                break;
+            }
+        }
+        return query.regionMatches(true, i, "insert", 0, 6);
+    }
+
+    /**
+     * シャードキーを指定しない登録の例外を生成する。
+     *
+     * @param query SQL文
+     * @return SQLException
+     */
+    private SQLException shardKeyRequired(String query) {
+        return new SQLException("shard key '" + shardKeyName + "' is required to insert: " + query.trim());
+    }
+
+    /**
+     * <p>
+     * 全シャードへの発行に使用する実行者の保持クラス
+     * </p>
+     * 初回の全シャードへの発行時に実行者を生成する。
+     *
+     * @author H.Abe
+     * @version 1.0
+     *
+     */
+    private static final class ScatterExecutorHolder {
+
+        /**
+         * 全シャードへの発行の実行者（全インスタンスで共有する）
+         */
+        static final ExecutorService EXECUTOR = AsyncCommonDaoImpl.createExecutor(AsyncCommonDaoImpl.SHARED_MAX_THREADS);
+    }
+}
@@ -0,0 +1,492 @@
+package jp.co.ezeus.common.dto;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import jp.co.ezeus.common.utilities.UtilDefine;
+
+/**
+ * <p>
+ * 共通データアクセス用バインド変数バッファクラス
+ * </p>
+ * バインド変数の値と型を、パラメータ位置（1始まり）毎に保持する。<br>
+ * int、long、double、booleanの値はlong型の配列へ、String、BigDecimal、LocalDate、 Date、Timestamp、byte[]の値は参照型の配列へ
+ * 格納するため、値の設定でオブジェクトを生成しない。 NULLはSQL型を指定して明示的に設定する。<br>
+ * PreparedStatementへの設定は型コードのswitchで行う。 clear()後に再利用できるため、頻繁に実行する処理では
+ * forCurrentThread()でスレッド毎のインスタンスを取得して使い回す。<br>
+ * 従来のバインド変数（List<BindingDto>）はaddAll()で取り込む。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public final class BindBuffer {
+
+    /****************************************
+     ****** 型コード ******
+     ****************************************/
+    /** 未設定 */
+    public static final byte TYPE_UNSET = 0;
+
+    /** NULL */
+    public static final byte TYPE_NULL = 1;
+
+    /** int */
+    public static final byte TYPE_INT = 2;
+
+    /** long */
+    public static final byte TYPE_LONG = 3;
+
+    /** double */
+    public static final byte TYPE_DOUBLE = 4;
+
+    /** boolean */
+    public static final byte TYPE_BOOLEAN = 5;
+
+    /** String */
+    public static final byte TYPE_STRING = 6;
+
+    /** BigDecimal */
+    public static final byte TYPE_BIG_DECIMAL = 7;
+
+    /** java.sql.Date */
+    public static final byte TYPE_DATE = 8;
+
+    /** LocalDate */
+    public static final byte TYPE_LOCAL_DATE = 9;
+
+    /** Timestamp */
+    public static final byte TYPE_TIMESTAMP = 10;
+
+    /** byte[] */
+    public static final byte TYPE_BYTES = 11;
+
+    /** 型指定無しの文字列（DB側で型を決定する） */
+    public static final byte TYPE_UNTYPED = 12;
+
+    /**
+     * 初期容量
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * スレッド毎のインスタンス
+     */
+    private static final ThreadLocal<BindBuffer> THREAD_BUFFER = new ThreadLocal<BindBuffer>() {
+        @Override
+        protected BindBuffer initialValue() {
+            return new BindBuffer();
+        }
+    };
+
+    /**
+     * 型コード
+     */
+    private byte[] types;
+
+    /**
+     * プリミティブ型の値（NULLの場合はSQL型）
+     */
+    private long[] primitives;
+
+    /**
+     * 参照型の値
+     */
+    private Object[] references;
+
+    /**
+     * 設定済みの最大パラメータ位置
+     */
+    private int size;
+
+    /**
+     * コンストラクタ
+     */
+    public BindBuffer() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * コンストラクタ
+     *
+     * @param capacity 初期容量（パラメータ数）
+     */
+    public BindBuffer(int capacity) {
+        int initial = Math.max(capacity, 1);
+        this.types = new byte[initial];
+        this.primitives = new long[initial];
+        this.references = new Object[initial];
+    }
+
+    /**
+     * 現在のスレッド専用のインスタンスを空の状態で取得する。 取得したインスタンスは同一スレッド内の次回取得時に クリアされるため、
+     * SQL発行が完了するまでの間のみ使用すること。<br>
+     * 共通DAOの内部処理（SQLキー指定の発行、名前付きパラメータの設定等）は別のバッファを使用するため、 当インスタンスをDAOの呼び出しで
+     * 上書きすることは無い。 ただし、別スレッドで発行する非同期処理（@see
+     * {jp.co.ezeus.common.dao.AsyncCommonDao}）には渡さないこと。
+     *
+     * @return BindBuffer
+     */
+    public static BindBuffer forCurrentThread() {
+        BindBuffer buffer = THREAD_BUFFER.get();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * 設定済みの最大パラメータ位置を取得する。
+     *
+     * @return int
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * パラメータ位置の型コードを取得する。
+     *
+     * @param index パラメータ位置（1始まり）
+     * @return byte
+     */
+    public byte getType(int index) {
+        return (index > size) ? TYPE_UNSET : types[index - 1];
+    }
+
+    /**
+     * パラメータ位置の参照型の値を取得する。 プリミティブ型、NULLの場合はnullを返却する。
+     *
+     * @param index パラメータ位置（1始まり）
+     * @return Object
+     */
+    public Object getReference(int index) {
+        return (index > size) ? null : references[index - 1];
+    }
+
+    /**
+     * パラメータ位置の整数型（TYPE_INT、TYPE_LONG）の値を取得する。 それ以外の型の場合は0を返却する。
+     *
+     * @param index パラメータ位置（1始まり）
+     * @return long
+     */
+    public long getLong(int index) {
+        byte type = getType(index);
+        return (TYPE_INT == type || TYPE_LONG == type) ? primitives[index - 1] : 0L;
+    }
+
+    /**
+     * 全てのパラメータを未設定にする。 参照型の値は保持しない。
+     */
+    public void clear() {
+        Arrays.fill(types, 0, size, TYPE_UNSET);
+        Arrays.fill(references, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * NULLを設定する。
+     *
+     * @param index パラメータ位置（1始まり）
+     * @param sqlType SQL型（java.sql.Types）
+     * @return BindBuffer
+     */
+    public BindBuffer setNull(int index, int sqlType) {
+        return put(index, TYPE_NULL, sqlType, null);
+    }
+
+    /**
+     * int型の値を設定する。
+     *
+     * @param index パラメータ位置（1始まり）
+     * @param value 値
+     * @return BindBuffer
+     */
+    public BindBuffer setInt(int index, int value) {
+        return put(index, TYPE_INT, value, null);
+    }
+
+    /**
+     * long型の値を設定する。
+     *
+     * @param index パラメータ位置（1始まり）
+     * @param value 値
+     * @return BindBuffer
+     */
+    public BindBuffer setLong(int index, long value) {
+        return put(index, TYPE_LONG, value, null);
+    }
+
+    /**
+     * double型の値を設定する。
+     *
+     * @param index パラメータ位置（1始まり）
+     * @param value 値
+     * @return BindBuffer
+     */
+    public BindBuffer setDouble(int index, double value) {
+        return put(index, TYPE_DOUBLE, Double.doubleToRawLongBits(value), null);
+    }
+
+    /**
+     * boolean型の値を設定する。
+     *
+     * @param index パラメータ位置（1始まり）
+     * @param value 値
+     * @return BindBuffer
+     */
+    public BindBuffer setBoolean(int index, boolean value) {
+        return put(index, TYPE_BOOLEAN, value ? 1L : 0L, null);
+    }
+
+    /**
+     * String型の値を設定する。
+     *
+     * @param index パラメータ位置（1始まり）
+     * @param value 値
+     * @return BindBuffer
+     */
+    public BindBuffer setString(int index, String value) {
+        return put(index, TYPE_STRING, 0L, value);
+    }
+
+    /**
+     * BigDecimal型の値を設定する。
+     *
+     * @param index パラメータ位置（1始まり）
+     * @param value 値
+     * @return BindBuffer
+     */
+    public BindBuffer setBigDecimal(int index, BigDecimal value) {
+        return put(index, TYPE_BIG_DECIMAL, 0L, value);
+    }
+
+    /**
+     * Date型の値を設定する。
+     *
+     * @param index パラメータ位置（1始まり）
+     * @param value 値
+     * @return BindBuffer
+     */
+    public BindBuffer setDate(int index, Date value) {
+        return put(index, TYPE_DATE, 0L, value);
+    }
+
+    /**
+     * LocalDate型の値を設定する。
+     *
+     * @param index パラメータ位置（1始まり）
+     * @param value 値
+     * @return BindBuffer
+     */
+    public BindBuffer setLocalDate(int index, LocalDate value) {
+        return put(index, TYPE_LOCAL_DATE, 0L, value);
+    }
+
+    /**
+     * Timestamp型の値を設定する。
+     *
+     * @param index パラメータ位置（1始まり）
+     * @param value 値
+     * @return BindBuffer
+     */
+    public BindBuffer setTimestamp(int index, Timestamp value) {
+        return put(index, TYPE_TIMESTAMP, 0L, value);
+    }
+
+    /**
+     * byte[]型の値を設定する。
+     *
+     * @param index パラメータ位置（1始まり）
+     * @param value 値
+     * @return BindBuffer
+     */
+    public BindBuffer setBytes(int index, byte[] value) {
+        return put(index, TYPE_BYTES, 0L, value);
+    }
+
+    /**
+     * 型指定無しの文字列を設定する。 SQL文中のリテラル（'...'、数値）と同様に、 DB側で比較対象の列等から型を決定する。
+     *
+     * @param index パラメータ位置（1始まり）
+     * @param value 値
+     * @return BindBuffer
+     */
+    public BindBuffer setUntyped(int index, String value) {
+        return put(index, TYPE_UNTYPED, 0L, value);
+    }
+
+    /**
+     * 値の型に応じた設定を行う。 NULLは型指定無し（java.sql.Types.NULL）のNULLとして設定する。<br>
+     * Integer、Short、Byte：int、Long：long、Double、Float：double、Boolean：boolean、 String、Character：String、
+     * BigDecimal、Date、LocalDate、Timestamp、byte[]：各型、java.util.Date：Timestampとして設定する。
+     *
+     * @param index パラメータ位置（1始まり）
+     * @param value 値
+     * @return BindBuffer
+     * @throws IllegalArgumentException 対応していない型の場合
+     */
+    public BindBuffer setValue(int index, Object value) {
+        if (null == value) {
+            return setNull(index, Types.NULL);
+        } else if (value instanceof String) {
+            return setString(index, (String) value);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return setInt(index, ((Number) value).intValue());
+        } else if (value instanceof Long) {
+            return setLong(index, ((Long) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            return setDouble(index, ((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            return setBoolean(index, ((Boolean) value).booleanValue());
+        } else if (value instanceof BigDecimal) {
+            return setBigDecimal(index, (BigDecimal) value);
+        } else if (value instanceof Date) {
+            return setDate(index, (Date) value);
+        } else if (value instanceof Timestamp) {
+            return setTimestamp(index, (Timestamp) value);
+        } else if (value instanceof LocalDate) {
+            return setLocalDate(index, (LocalDate) value);
+        } else if (value instanceof java.util.Date) {
+            return setTimestamp(index, new Timestamp(((java.util.Date) value).getTime()));
+        } else if (value instanceof byte[]) {
+            return setBytes(index, (byte[]) value);
+        } else if (value instanceof Character) {
+            return setString(index, value.toString());
+        }
+        throw new IllegalArgumentException("unsupported bind type: " + value.getClass().getName());
+    }
+
+    /**
+     * パラメータ位置の値を、型コードと共に別のBindBufferのパラメータ位置へ複写する。 未設定の場合は複写先も未設定とする。
+     *
+     * @param index 複写元のパラメータ位置（1始まり）
+     * @param target 複写先
+     * @param targetIndex 複写先のパラメータ位置（1始まり）
+     * @return BindBuffer 複写先
+     */
+    public BindBuffer copyTo(int index, BindBuffer target, int targetIndex) {
+        if (index > size) {
+            return target.put(targetIndex, TYPE_UNSET, 0L, null);
+        }
+        return target.put(targetIndex, types[index - 1], primitives[index - 1], references[index - 1]);
+    }
+
+    /**
+     * 従来のバインド変数を末尾のパラメータ位置へ順に追加する。 属性が未定義のバインド変数は未設定のままとする。
+     *
+     * @param binds バインド変数
+     * @return BindBuffer
+     * @author H.Abe
+     */
+    public BindBuffer addAll(List<BindingDto> binds) {
+        if (null == binds) {
+            return this;
+        }
+        int offset = size;
+        for (int i = 0; i < binds.size(); i++) {
+            BindingDto bind = binds.get(i);
+            int index = offset + i + 1;
+            if (UtilDefine.INT_ARGS_TYPE.equals(bind.getArgsType())) {
+                setInt(index, bind.getIntValue());
+            } else if (UtilDefine.STRING_ARGS_TYPE.equals(bind.getArgsType())) {
+                setString(index, bind.getStringValue());
+            } else if (UtilDefine.CHAR_ARGS_TYPE.equals(bind.getArgsType())) {
+                setString(index, bind.getCharValue());
+            } else if (UtilDefine.DATE_ARGS_TYPE.equals(bind.getArgsType())) {
+                setDate(index, bind.getDateValue());
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 保持しているバインド変数をPreparedStatementへ設定する。 未設定のパラメータ位置は設定しない。
+     *
+     * @param preparedStatement PreparedStatementオブジェクト
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public void applyTo(PreparedStatement preparedStatement) throws SQLException {
+        for (int i = 0; i < size; i++) {
+            int index = i + 1;
+            switch (types[i]) {
+            case TYPE_NULL:
+                preparedStatement.setNull(index, (int) primitives[i]);
+                break;
+            case TYPE_INT:
+                preparedStatement.setInt(index, (int) primitives[i]);
+                break;
+            case TYPE_LONG:
+                preparedStatement.setLong(index, primitives[i]);
+                break;
+            case TYPE_DOUBLE:
+                preparedStatement.setDouble(index, Double.longBitsToDouble(primitives[i]));
+                break;
+            case TYPE_BOOLEAN:
+                preparedStatement.setBoolean(index, primitives[i] != 0L);
+                break;
+            case TYPE_STRING:
+                preparedStatement.setString(index, (String) references[i]);
+                break;
+            case TYPE_BIG_DECIMAL:
+                preparedStatement.setBigDecimal(index, (BigDecimal) references[i]);
+                break;
+            case TYPE_DATE:
+                preparedStatement.setDate(index, (Date) references[i]);
+                break;
+            case TYPE_LOCAL_DATE:
+                LocalDate localDate = (LocalDate) references[i];
+                if (null == localDate) {
+                    preparedStatement.setNull(index, Types.DATE);
+                } else {
+                    preparedStatement.setDate(index, Date.valueOf(localDate));
+                }
+                break;
+            case TYPE_TIMESTAMP:
+                preparedStatement.setTimestamp(index, (Timestamp) references[i]);
+                break;
+            case TYPE_BYTES:
+                preparedStatement.setBytes(index, (byte[]) references[i]);
+                break;
+            case TYPE_UNTYPED:
+                preparedStatement.setObject(index, references[i], Types.OTHER);
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    /**
+     * パラメータ位置へ値を格納する。
+     *
+     * @param index パラメータ位置（1始まり）
+     * @param type 型コード
+     * @param primitive プリミティブ型の値
+     * @param reference 参照型の値
+     * @return BindBuffer
+     */
+    private BindBuffer put(int index, byte type, long primitive, Object reference) {
+        if (index < 1) {
+            throw new IndexOutOfBoundsException("parameter index: " + index);
+        }
+        if (index > types.length) {
+            int capacity = Math.max(index, types.length * 2);
+            types = Arrays.copyOf(types, capacity);
+            primitives = Arrays.copyOf(primitives, capacity);
+            references = Arrays.copyOf(references, capacity);
+        }
+        types[index - 1] = type;
+        primitives[index - 1] = primitive;
+        references[index - 1] = reference;
+        if (index > size) {
+            size = index;
+        }
+        return this;
+    }
+}
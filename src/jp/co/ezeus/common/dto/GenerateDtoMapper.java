@@ -0,0 +1,27 @@
+package jp.co.ezeus.common.dto;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * DTOマッパー生成指定アノテーション
+ * </p>
+ * @see {@link BaseDto} を実装するクラスに付与すると、コンパイル時に @see
+ * {jp.co.ezeus.common.processor.DtoMapperProcessor} がマッパーを生成する。<br>
+ * 付与するクラスはabstractでなく、public引数無しコンストラクタを持つこと（満たさない場合はコンパイルエラー）。
+ * 付与していないクラスは実行時にリフレクションで移し替える。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GenerateDtoMapper {
+
+}
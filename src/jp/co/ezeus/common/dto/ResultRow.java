@@ -0,0 +1,235 @@
+package jp.co.ezeus.common.dto;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * <p>
+ * SELECT結果の1行を格納するクラス
+ * </p>
+ * 行の値を列順の配列で保持し、カラム名による参照は共有の列定義 @see {@link ResultSchema} から列位置を求めて行う。<br>
+ * 行毎にHashMapを生成しないため、大量件数のSELECTでもメモリ使用量を抑えることができる。 Map<String, Object>として参照、更新できるため、
+ * Map<String, Object>を前提とする既存の呼出元はそのまま使用できる。<br>
+ * 既存カラムの値の更新は配列へ直接反映する。 カラムの追加、削除を行った場合は、その行のみ値をLinkedHashMapへ複写し、 以降はLinkedHashMapで保持する。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public final class ResultRow extends AbstractMap<String, Object> {
+
+    /**
+     * 列定義
+     */
+    private final ResultSchema schema;
+
+    /**
+     * 値（列順）
+     */
+    private final Object[] values;
+
+    /**
+     * カラムの追加、削除後の値（追加、削除を行っていない場合はNULL）
+     */
+    private Map<String, Object> copied;
+
+    /**
+     * コンストラクタ
+     *
+     * @param schema 列定義
+     * @param values 値（列順）
+     * @author H.Abe
+     */
+    public ResultRow(ResultSchema schema, Object[] values) {
+        this.schema = schema;
+        this.values = values;
+    }
+
+    /**
+     * 列定義を取得する。
+     *
+     * @return ResultSchema
+     */
+    public ResultSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * 列位置（0始まり）の値を取得する。 カラムの追加、削除を行った後は、列位置のカラム名の値を返却する。
+     *
+     * @param index 列位置
+     * @return Object
+     */
+    public Object getValue(int index) {
+        if (null != copied) {
+            return copied.get(schema.getColumnName(index));
+        }
+        return values[index];
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (null != copied) {
+            return copied.get(key);
+        }
+        int index = schema.indexOf(key);
+        return (index < 0) ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (null != copied) {
+            return copied.containsKey(key);
+        }
+        return schema.indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        if (null != copied) {
+            return copied.size();
+        }
+        return schema.getEntryIndexes().length;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (null == copied) {
+            int index = schema.indexOf(key);
+            if (index >= 0) {
+                Object previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+        }
+        return copy().put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (null == copied && !containsKey(key)) {
+            return null;
+        }
+        return copy().remove(key);
+    }
+
+    @Override
+    public void clear() {
+        copied = new LinkedHashMap<String, Object>();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                if (null != copied) {
+                    return copied.entrySet().iterator();
+                }
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return ResultRow.this.size();
+            }
+        };
+    }
+
+    /**
+     * 値をLinkedHashMapへ複写する。 複写済みの場合は複写済みのものを返却する。
+     *
+     * @return Map<String, Object>
+     */
+    private Map<String, Object> copy() {
+        if (null == copied) {
+            int[] entryIndexes = schema.getEntryIndexes();
+            Map<String, Object> map = new LinkedHashMap<String, Object>(entryIndexes.length * 2);
+            for (int index : entryIndexes) {
+                map.put(schema.getColumnName(index), values[index]);
+            }
+            copied = map;
+        }
+        return copied;
+    }
+
+    /**
+     * 有効な列を列順に返却するIterator 返却した要素の値の更新、削除は行に反映する。
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+        /**
+         * 有効な列位置
+         */
+        private final int[] entryIndexes = schema.getEntryIndexes();
+
+        /**
+         * 次に返却する位置
+         */
+        private int cursor;
+
+        /**
+         * 直前に返却した要素（返却していない場合、削除済みの場合はNULL）
+         */
+        private String lastKey;
+
+        public boolean hasNext() {
+            return cursor < entryIndexes.length;
+        }
+
+        public Map.Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final String key = schema.getColumnName(entryIndexes[cursor++]);
+            lastKey = key;
+            return new Map.Entry<String, Object>() {
+                public String getKey() {
+                    return key;
+                }
+
+                public Object getValue() {
+                    return get(key);
+                }
+
+                public Object setValue(Object value) {
+                    return put(key, value);
+                }
+
+                @Override
+                public boolean equals(Object object) {
+                    if (!(object instanceof Map.Entry)) {
+                        return false;
+                    }
+                    Map.Entry<?, ?> entry = (Map.Entry<?, ?>) object;
+                    Object value = getValue();
+                    return key.equals(entry.getKey()) && (null == value ? null == entry.getValue() : value.equals(entry.getValue()));
+                }
+
+                @Override
+                public int hashCode() {
+                    Object value = getValue();
+                    return key.hashCode() ^ (null == value ? 0 : value.hashCode());
+                }
+
+                @Override
+                public String toString() {
+                    return key + "=" + getValue();
+                }
+            };
+        }
+
+        public void remove() {
+            if (null == lastKey) {
+                throw new IllegalStateException();
+            }
+            ResultRow.this.remove(lastKey);
+            lastKey = null;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package jp.co.ezeus.common.dto;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * SELECT結果の列定義クラス
+ * </p>
+ * 結果セットのカラム名と列位置の対応を保持する。 1回のSELECTにつき1度だけ生成し、全ての行 @see {@link ResultRow} で共有する。<br>
+ * 同名のカラムが複数存在する場合は、前方の列を有効とする。（ResultSet.getObject(String)と同じ）
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public final class ResultSchema {
+
+    /**
+     * カラム名（列順）
+     */
+    private final String[] columnNames;
+
+    /**
+     * カラム名から列位置（0始まり）への対応
+     */
+    private final Map<String, Integer> columnIndexes;
+
+    /**
+     * Map形式で参照する際の有効な列位置（同名カラムの後方列を除く）
+     */
+    private final int[] entryIndexes;
+
+    /**
+     * コンストラクタ
+     *
+     * @param columnNames カラム名（列順）
+     * @author H.Abe
+     */
+    public ResultSchema(String[] columnNames) {
+        this.columnNames = columnNames.clone();
+        this.columnIndexes = new HashMap<String, Integer>(columnNames.length * 2);
+        for (int i = 0; i < columnNames.length; i++) {
+            if (!columnIndexes.containsKey(columnNames[i])) {
+                columnIndexes.put(columnNames[i], Integer.valueOf(i));
+            }
+        }
+        this.entryIndexes = new int[columnIndexes.size()];
+        int count = 0;
+        for (int i = 0; i < columnNames.length; i++) {
+            if (columnIndexes.get(columnNames[i]).intValue() == i) {
+                entryIndexes[count++] = i;
+            }
+        }
+    }
+
+    /**
+     * 結果セットのメタデータから列定義を生成する。
+     *
+     * @param metaData 結果セットのメタデータ
+     * @return ResultSchema
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public static ResultSchema of(ResultSetMetaData metaData) throws SQLException {
+        String[] columnNames = new String[metaData.getColumnCount()];
+        for (int i = 0; i < columnNames.length; i++) {
+            columnNames[i] = metaData.getColumnName(i + 1);
+        }
+        return new ResultSchema(columnNames);
+    }
+
+    /**
+     * 列数を取得する。
+     *
+     * @return int
+     */
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    /**
+     * 列位置（0始まり）のカラム名を取得する。
+     *
+     * @param index 列位置
+     * @return String
+     */
+    public String getColumnName(int index) {
+        return columnNames[index];
+    }
+
+    /**
+     * カラム名の列位置（0始まり）を取得する。 存在しない場合は-1を返却する。
+     *
+     * @param columnName カラム名
+     * @return int
+     */
+    public int indexOf(Object columnName) {
+        Integer index = columnIndexes.get(columnName);
+        return (null == index) ? -1 : index.intValue();
+    }
+
+    /**
+     * Map形式で参照する際の有効な列位置を取得する。
+     *
+     * @return int[]
+     */
+    int[] getEntryIndexes() {
+        return entryIndexes;
+    }
+}
@@ -0,0 +1,103 @@
+package jp.co.ezeus.common.dto;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * <p>
+ * SELECT結果の全行を格納するクラス
+ * </p>
+ * 全ての行 @see {@link ResultRow} が1つの列定義 @see {@link ResultSchema} を共有する。<br>
+ * List<Map<String, Object>>として参照、更新（行の追加、削除、並び替え）できるため、共通SELECT文発行処理の戻り値として そのまま返却する。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public final class ResultTable extends AbstractList<Map<String, Object>> implements RandomAccess {
+
+    /**
+     * 列定義
+     */
+    private final ResultSchema schema;
+
+    /**
+     * 行
+     */
+    private final List<Map<String, Object>> rows;
+
+    /**
+     * コンストラクタ
+     *
+     * @param schema 列定義
+     * @author H.Abe
+     */
+    public ResultTable(ResultSchema schema) {
+        this.schema = schema;
+        this.rows = new ArrayList<Map<String, Object>>();
+    }
+
+    /**
+     * 行の値（列順）を追加する。
+     *
+     * @param values 値（列順）
+     * @author H.Abe
+     */
+    public void addRow(Object[] values) {
+        rows.add(new ResultRow(schema, values));
+    }
+
+    /**
+     * 列定義を取得する。
+     *
+     * @return ResultSchema
+     */
+    public ResultSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * 行位置、列位置（共に0始まり）の値を取得する。 呼出元が追加した行の場合は、列位置のカラム名の値を返却する。
+     *
+     * @param rowIndex 行位置
+     * @param columnIndex 列位置
+     * @return Object
+     */
+    public Object getValue(int rowIndex, int columnIndex) {
+        Map<String, Object> row = rows.get(rowIndex);
+        if (row instanceof ResultRow) {
+            return ((ResultRow) row).getValue(columnIndex);
+        }
+        return row.get(schema.getColumnName(columnIndex));
+    }
+
+    @Override
+    public Map<String, Object> get(int index) {
+        return rows.get(index);
+    }
+
+    @Override
+    public Map<String, Object> set(int index, Map<String, Object> row) {
+        return rows.set(index, row);
+    }
+
+    @Override
+    public void add(int index, Map<String, Object> row) {
+        rows.add(index, row);
+        modCount++;
+    }
+
+    @Override
+    public Map<String, Object> remove(int index) {
+        modCount++;
+        return rows.remove(index);
+    }
+
+    @Override
+    public int size() {
+        return rows.size();
+    }
+}
@@ -1,6 +1,7 @@
 package jp.co.ezeus.common.factory;
 
 import javax.sql.DataSource;
+import jp.co.ezeus.common.dao.AsyncCommonDao;
 import jp.co.ezeus.common.dao.CommonDao;
 import jp.co.ezeus.common.dao.CommonPluralDao;
 
@@ -23,4 +24,6 @@ public interface AbstractDaoFactory {
     public abstract CommonDao createCommonDao(DataSource dataSource) throws Exception;
 
     public abstract CommonPluralDao createCommonPluralDao(DataSource dataSource) throws Exception;
+
+    public abstract AsyncCommonDao createAsyncCommonDao(DataSource dataSource) throws Exception;
 }
@@ -1,13 +1,20 @@
 package jp.co.ezeus.common.factory.impl;
 
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
+import jp.co.ezeus.common.dao.AsyncCommonDao;
 import jp.co.ezeus.common.dao.CommonDao;
 import jp.co.ezeus.common.dao.CommonPluralDao;
+import jp.co.ezeus.common.dao.impl.AsyncCommonDaoImpl;
 import jp.co.ezeus.common.dao.impl.CommonDaoImpl;
 import jp.co.ezeus.common.dao.impl.CommonPluralDaoImple;
 import jp.co.ezeus.common.factory.AbstractDaoFactory;
+import jp.co.ezeus.common.pool.ConnectionPoolConfig;
+import jp.co.ezeus.common.pool.PooledDataSource;
 
 /**
  * <p>
@@ -15,7 +22,10 @@ import jp.co.ezeus.common.factory.AbstractDaoFactory;
  * </p>
  * DAOクラス生成メソッドは"create一意名Dao"メソッドを作成し使用する。<br>
  * DAOクラス作成メソッドは@see {@link AbstractDaoFactory} インターフェースへ記載追加を
- * する。JNDI経由でのDataSource取得にはgetDataSource()を使用する。<br>
+ * する。DataSourceの取得にはgetDataSource()を使用する。<br>
+ * 引数無しのコンストラクタで生成した場合はJNDI経由で取得し、 @see {@link ConnectionPoolConfig} を指定して生成した場合は
+ * 組み込みコネクションプール（@see {@link PooledDataSource}）を生成する。 いずれも取得結果を保持し、2回目以降は同じDataSourceを返却する。<br>
+ * DAOはインスタンスを変更しないため、DataSource毎に1つだけ生成し、2回目以降は同じDAOを返却する。<br>
  * RDBMS製品を変更する場合は、当クラスと同列のクラスを作成すること。
  *
  * @see AbstractDaoFactory
@@ -31,34 +41,173 @@ public class PostgreSQLDaoFactory implements AbstractDaoFactory {
     private final String SOURCE_NAME = "java:comp/env/jdbc/postgres";
 
     /**
-     * 共通DAO実装クラスを生成する。（トランザクション管理無）
+     * 組み込みコネクションプールの設定（JNDIを使用する場合はNULL）
+     */
+    private final ConnectionPoolConfig poolConfig;
+
+    /**
+     * 取得済みのDataSource
+     */
+    private volatile DataSource dataSource;
+
+    /**
+     * DataSource毎の共通DAO（トランザクション管理有）
+     */
+    private final ConcurrentMap<DataSource, CommonDao> commonDaos = new ConcurrentHashMap<DataSource, CommonDao>();
+
+    /**
+     * DataSource毎の共通DAO（トランザクション管理無）
+     */
+    private final ConcurrentMap<DataSource, CommonPluralDao> commonPluralDaos = new ConcurrentHashMap<DataSource, CommonPluralDao>();
+
+    /**
+     * DataSource毎の非同期共通DAO
+     */
+    private final ConcurrentMap<DataSource, AsyncCommonDaoImpl> asyncCommonDaos = new ConcurrentHashMap<DataSource, AsyncCommonDaoImpl>();
+
+    /**
+     * コンストラクタ<br>
+     * DataSourceをJNDI経由で取得する。
+     */
+    public PostgreSQLDaoFactory() {
+        this(null);
+    }
+
+    /**
+     * コンストラクタ<br>
+     * DataSourceとして組み込みコネクションプールを使用する。
+     *
+     * @param poolConfig コネクションプールの設定（NULLの場合はJNDI経由で取得する）
+     */
+    public PostgreSQLDaoFactory(ConnectionPoolConfig poolConfig) {
+        this.poolConfig = poolConfig;
+    }
+
+    /**
+     * 共通DAO実装クラスを取得する。（トランザクション管理無） 初回のみ生成し、2回目以降は同じDataSourceに対して同じDAOを返却する。
      *
      * @param dataSource データソース
      * @return CommonDao
      * @author H.Abe
      */
     public CommonDao createCommonDao(DataSource dataSource) throws Exception {
-        return new CommonDaoImpl(dataSource);
+        CommonDao commonDao = commonDaos.get(dataSource);
+        if (null == commonDao) {
+            CommonDao created = new CommonDaoImpl(dataSource);
+            commonDao = commonDaos.putIfAbsent(dataSource, created);
+            if (null == commonDao) {
+                commonDao = created;
+            }
+        }
+        return commonDao;
     }
 
     /**
-     * 共通DAO実装クラスを生成する。（トランザクション管理有）
+     * 共通DAO実装クラスを取得する。（トランザクション管理有） 初回のみ生成し、2回目以降は同じDataSourceに対して同じDAOを返却する。<br>
+     * 作業単位はスレッド毎に保持するため、返却したDAOは複数のスレッドで共有できる。
      *
      * @param dataSource データソース
      * @return CommonDao
      * @author H.Abe
      */
     public CommonPluralDao createCommonPluralDao(DataSource dataSource) throws Exception {
-        return new CommonPluralDaoImple(dataSource);
+        CommonPluralDao commonPluralDao = commonPluralDaos.get(dataSource);
+        if (null == commonPluralDao) {
+            CommonPluralDao created = new CommonPluralDaoImple(dataSource);
+            commonPluralDao = commonPluralDaos.putIfAbsent(dataSource, created);
+            if (null == commonPluralDao) {
+                commonPluralDao = created;
+            }
+        }
+        return commonPluralDao;
     }
 
     /**
-     * JNDI経由でDataSourceを取得する。
+     * 非同期共通DAO実装クラスを取得する。 初回のみ生成し、2回目以降は同じDataSourceに対して同じDAOを返却する。<br>
+     * 同時実行数の上限は、組み込みコネクションプールの場合は最大接続数、それ以外の場合は最大接続数の既定値とする。
+     *
+     * @param dataSource データソース
+     * @return AsyncCommonDao
+     * @author H.Abe
+     */
+    public AsyncCommonDao createAsyncCommonDao(DataSource dataSource) throws Exception {
+        AsyncCommonDaoImpl asyncCommonDao = asyncCommonDaos.get(dataSource);
+        if (null == asyncCommonDao) {
+            synchronized (asyncCommonDaos) {
+                asyncCommonDao = asyncCommonDaos.get(dataSource);
+                if (null == asyncCommonDao) {
+                    int maxConcurrency = (dataSource instanceof PooledDataSource)
+                            ? ((PooledDataSource) dataSource).getConfig().getMaxSize()
+                            : ConnectionPoolConfig.DEFAULT_MAX_SIZE;
+                    asyncCommonDao = new AsyncCommonDaoImpl(createCommonDao(dataSource), maxConcurrency);
+                    asyncCommonDaos.put(dataSource, asyncCommonDao);
+                }
+            }
+        }
+        return asyncCommonDao;
+    }
+
+    /**
+     * DataSourceを取得する。 初回のみJNDI経由での取得、またはコネクションプールの生成を行い、 2回目以降は同じDataSourceを返却する。
      *
      * @return DataSource
      * @author H.Abe
      */
     public DataSource getDataSource() throws Exception {
+        DataSource source = dataSource;
+        if (null != source) {
+            return source;
+        }
+        synchronized (this) {
+            if (null == dataSource) {
+                dataSource = (null != poolConfig) ? createPooledDataSource() : lookupDataSource();
+            }
+            return dataSource;
+        }
+    }
+
+    /**
+     * 非同期共通DAOの実行者と組み込みコネクションプールを終了する。 JNDI経由で取得したDataSourceの場合、コネクションプールは終了しない。
+     *
+     * @author H.Abe
+     */
+    public synchronized void close() {
+        synchronized (asyncCommonDaos) {
+            for (AsyncCommonDaoImpl asyncCommonDao : asyncCommonDaos.values()) {
+                asyncCommonDao.close();
+            }
+            asyncCommonDaos.clear();
+        }
+        if (dataSource instanceof PooledDataSource) {
+            commonDaos.remove(dataSource);
+            commonPluralDaos.remove(dataSource);
+            ((PooledDataSource) dataSource).close();
+            dataSource = null;
+        }
+    }
+
+    /**
+     * 組み込みコネクションプールを生成する。
+     *
+     * @return DataSource
+     * @throws Exception
+     * @author H.Abe
+     */
+    private DataSource createPooledDataSource() throws Exception {
+        try {
+            return new PooledDataSource(poolConfig);
+        } catch (SQLException sqlException) {
+            throw new Exception(sqlException);
+        }
+    }
+
+    /**
+     * JNDI経由でDataSourceを取得する。
+     *
+     * @return DataSource
+     * @author H.Abe
+     */
+    private DataSource lookupDataSource() throws Exception {
         InitialContext context = null;
         DataSource source = null;
         try {
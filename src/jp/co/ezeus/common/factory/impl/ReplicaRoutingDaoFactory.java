@@ -0,0 +1,218 @@
+package jp.co.ezeus.common.factory.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import jp.co.ezeus.common.dao.AsyncCommonDao;
+import jp.co.ezeus.common.dao.CommonDao;
+import jp.co.ezeus.common.dao.CommonPluralDao;
+import jp.co.ezeus.common.dao.impl.AsyncCommonDaoImpl;
+import jp.co.ezeus.common.dao.impl.CommonDaoImpl;
+import jp.co.ezeus.common.dao.impl.CommonPluralDaoImple;
+import jp.co.ezeus.common.dao.impl.HedgeConfig;
+import jp.co.ezeus.common.dao.impl.ReplicaRoutingCommonDao;
+import jp.co.ezeus.common.factory.AbstractDaoFactory;
+import jp.co.ezeus.common.pool.ConnectionPoolConfig;
+import jp.co.ezeus.common.pool.PooledDataSource;
+
+/**
+ * <p>
+ * DaoFactoryの実装クラス（参照系振り分け）
+ * </p>
+ * 1つのプライマリと複数のレプリカのDataSourceを指定して生成し、 SELECT文をレプリカへ、DML文をプライマリへ振り分ける
+ * 共通DAO（@see {@link ReplicaRoutingCommonDao}）を生成する。<br>
+ * トランザクション管理無の共通DAO（作業単位）は、作業単位内の全てのSQLをプライマリで発行する。<br>
+ * DataSourceはRDBMS製品に依存しないため、インメモリDB等の任意のDataSourceをレプリカとして指定できる。
+ * DataSourceの生成、終了は呼び出し元で行う。
+ *
+ * @see AbstractDaoFactory
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class ReplicaRoutingDaoFactory implements AbstractDaoFactory {
+
+    /**
+     * プライマリのDataSource
+     */
+    private final DataSource primary;
+
+    /**
+     * レプリカのDataSource
+     */
+    private final List<DataSource> replicas;
+
+    /**
+     * 振り分けを行う共通DAO（トランザクション管理有）
+     */
+    private final ReplicaRoutingCommonDao routingCommonDao;
+
+    /**
+     * プライマリの共通DAO（トランザクション管理無）
+     */
+    private final CommonPluralDao commonPluralDao;
+
+    /**
+     * 振り分けを行う非同期共通DAO（未生成の場合はNULL）
+     */
+    private AsyncCommonDaoImpl asyncCommonDao;
+
+    /**
+     * プライマリ以外のDataSource毎の非同期共通DAO
+     */
+    private final Map<DataSource, AsyncCommonDaoImpl> directAsyncCommonDaos = new HashMap<DataSource, AsyncCommonDaoImpl>();
+
+    /**
+     * コンストラクタ<br>
+     * レプリカの切り離しの待機時間は既定値とする。
+     *
+     * @param primary プライマリのDataSource
+     * @param replicas レプリカのDataSource
+     */
+    public ReplicaRoutingDaoFactory(DataSource primary, List<DataSource> replicas) {
+        this(primary, replicas, ReplicaRoutingCommonDao.DEFAULT_INITIAL_BACKOFF_MILLIS, ReplicaRoutingCommonDao.DEFAULT_MAX_BACKOFF_MILLIS);
+    }
+
+    /**
+     * コンストラクタ
+     *
+     * @param primary プライマリのDataSource
+     * @param replicas レプリカのDataSource
+     * @param initialBackoffMillis レプリカの切り離しの初期待機時間（ミリ秒）
+     * @param maxBackoffMillis レプリカの切り離しの最大待機時間（ミリ秒）
+     */
+    public ReplicaRoutingDaoFactory(DataSource primary, List<DataSource> replicas, long initialBackoffMillis, long maxBackoffMillis) {
+        this.primary = primary;
+        this.replicas = Collections.unmodifiableList(new ArrayList<DataSource>(replicas));
+        List<CommonDao> replicaDaos = new ArrayList<CommonDao>(replicas.size());
+        for (DataSource replica : replicas) {
+            replicaDaos.add(new CommonDaoImpl(replica));
+        }
+        this.routingCommonDao = new ReplicaRoutingCommonDao(new CommonDaoImpl(primary), replicaDaos, initialBackoffMillis,
+                maxBackoffMillis);
+        this.commonPluralDao = new CommonPluralDaoImple(primary);
+    }
+
+    /**
+     * プライマリのDataSourceを取得する。
+     *
+     * @return DataSource
+     */
+    public DataSource getDataSource() throws Exception {
+        return primary;
+    }
+
+    /**
+     * レプリカのDataSourceを取得する。
+     *
+     * @return List<DataSource>
+     */
+    public List<DataSource> getReplicaDataSources() {
+        return replicas;
+    }
+
+    /**
+     * 共通DAO実装クラスを取得する。 プライマリのDataSourceを指定した場合は振り分けを行う共通DAOを返却し、
+     * それ以外のDataSourceを指定した場合は当DataSourceのみを使用する共通DAOを生成する。
+     *
+     * @param dataSource データソース
+     * @return CommonDao
+     * @author H.Abe
+     */
+    public CommonDao createCommonDao(DataSource dataSource) throws Exception {
+        if (null == dataSource || primary == dataSource) {
+            return routingCommonDao;
+        }
+        return new CommonDaoImpl(dataSource);
+    }
+
+    /**
+     * 共通DAO実装クラスを取得する。（トランザクション管理無） 作業単位内のSQLを振り分けないため、
+     * プライマリのDataSourceを指定した場合はプライマリの共通DAOを返却する。
+     *
+     * @param dataSource データソース
+     * @return CommonPluralDao
+     * @author H.Abe
+     */
+    public CommonPluralDao createCommonPluralDao(DataSource dataSource) throws Exception {
+        if (null == dataSource || primary == dataSource) {
+            return commonPluralDao;
+        }
+        return new CommonPluralDaoImple(dataSource);
+    }
+
+    /**
+     * 非同期共通DAOを取得する。 DataSource毎に初回のみ生成する。<br>
+     * プライマリのDataSourceを指定した場合は振り分けを行う共通DAOの非同期共通DAOを返却する。 DML文と、レプリカが全て
+     * 切り離された場合のSELECT文はプライマリで発行するため、同時実行数の上限はプライマリの最大接続数とする。<br>
+     * それ以外のDataSourceを指定した場合は当DataSourceのみを使用し、同時実行数の上限を当DataSourceの最大接続数とする。
+     *
+     * @param dataSource データソース
+     * @return AsyncCommonDao
+     * @author H.Abe
+     */
+    public synchronized AsyncCommonDao createAsyncCommonDao(DataSource dataSource) throws Exception {
+        if (null == dataSource || primary == dataSource) {
+            if (null == asyncCommonDao) {
+                asyncCommonDao = new AsyncCommonDaoImpl(routingCommonDao, maxSizeOf(primary));
+            }
+            return asyncCommonDao;
+        }
+        AsyncCommonDaoImpl directAsyncCommonDao = directAsyncCommonDaos.get(dataSource);
+        if (null == directAsyncCommonDao) {
+            directAsyncCommonDao = new AsyncCommonDaoImpl(new CommonDaoImpl(dataSource), maxSizeOf(dataSource));
+            directAsyncCommonDaos.put(dataSource, directAsyncCommonDao);
+        }
+        return directAsyncCommonDao;
+    }
+
+    /**
+     * 振り分けを行う共通DAOを取得する。 レプリカの状態の参照に使用する。
+     *
+     * @return ReplicaRoutingCommonDao
+     */
+    public ReplicaRoutingCommonDao getRoutingCommonDao() {
+        return routingCommonDao;
+    }
+
+    /**
+     * 振り分けを行う共通DAOにヘッジ読み込み設定を設定する。 NULLの場合はヘッジ読み込みを行わない。
+     *
+     * @param hedgeConfig ヘッジ読み込み設定
+     */
+    public void setHedgeConfig(HedgeConfig hedgeConfig) {
+        routingCommonDao.setHedgeConfig(hedgeConfig);
+    }
+
+    /**
+     * 非同期共通DAOの実行者を終了する。 DataSourceは終了しない。
+     *
+     * @author H.Abe
+     */
+    public synchronized void close() {
+        if (null != asyncCommonDao) {
+            asyncCommonDao.close();
+            asyncCommonDao = null;
+        }
+        for (AsyncCommonDaoImpl directAsyncCommonDao : directAsyncCommonDaos.values()) {
+            directAsyncCommonDao.close();
+        }
+        directAsyncCommonDaos.clear();
+    }
+
+    /**
+     * DataSourceの最大接続数を取得する。 組み込みコネクションプール以外の場合は最大接続数の既定値とする。
+     *
+     * @param dataSource データソース
+     * @return int
+     */
+    private int maxSizeOf(DataSource dataSource) {
+        if (dataSource instanceof PooledDataSource) {
+            return ((PooledDataSource) dataSource).getConfig().getMaxSize();
+        }
+        return ConnectionPoolConfig.DEFAULT_MAX_SIZE;
+    }
+}
@@ -0,0 +1,220 @@
+package jp.co.ezeus.common.factory.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import jp.co.ezeus.common.dao.AsyncCommonDao;
+import jp.co.ezeus.common.dao.CommonDao;
+import jp.co.ezeus.common.dao.CommonPluralDao;
+import jp.co.ezeus.common.dao.impl.AsyncCommonDaoImpl;
+import jp.co.ezeus.common.dao.impl.CommonDaoImpl;
+import jp.co.ezeus.common.dao.impl.CommonPluralDaoImple;
+import jp.co.ezeus.common.dao.impl.ConsistentHashRing;
+import jp.co.ezeus.common.dao.impl.ShardedCommonDao;
+import jp.co.ezeus.common.factory.AbstractDaoFactory;
+import jp.co.ezeus.common.pool.ConnectionPoolConfig;
+import jp.co.ezeus.common.pool.PooledDataSource;
+
+/**
+ * <p>
+ * DaoFactoryの実装クラス（シャード振り分け）
+ * </p>
+ * シャード名をキーとする複数のDataSourceと分割表の表名を指定して生成し、分割表のSQLをシャードキーで各シャードへ振り分ける
+ * 共通DAO（@see {@link ShardedCommonDao}）を生成する。 分割表を参照しないSQL（マスタ表等）はホームシャードのみで発行する。<br>
+ * トランザクション管理無の共通DAO（作業単位）はシャードを跨げないため、シャード毎に生成する。 シャードキーからgetCommonPluralDao()で
+ * 取得した共通DAOで作業単位を開始すること。<br>
+ * DataSourceはRDBMS製品に依存しないため、ローカルの複数のDB等、任意のDataSourceをシャードとして指定できる。
+ * DataSourceの生成、終了は呼び出し元で行う。 シャード名はシャードの追加後も変更しないこと。
+ *
+ * @see AbstractDaoFactory
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class ShardedDaoFactory implements AbstractDaoFactory {
+
+    /**
+     * シャード名をキーとするDataSource（登録順）
+     */
+    private final Map<String, DataSource> shards;
+
+    /**
+     * シャード振り分け共通DAO（トランザクション管理有）
+     */
+    private final ShardedCommonDao shardedCommonDao;
+
+    /**
+     * シャード毎の共通DAO（トランザクション管理無）
+     */
+    private final Map<DataSource, CommonPluralDao> commonPluralDaos = new IdentityHashMap<DataSource, CommonPluralDao>();
+
+    /**
+     * シャード毎の共通DAO（トランザクション管理無）のリング
+     */
+    private final ConsistentHashRing<CommonPluralDao> pluralRing;
+
+    /**
+     * ホームシャードのシャード名
+     */
+    private final String homeShardName;
+
+    /**
+     * 非同期共通DAO（未生成の場合はNULL）
+     */
+    private AsyncCommonDaoImpl asyncCommonDao;
+
+    /**
+     * コンストラクタ<br>
+     * シャードキーは社員ID（employee_id）とし、最初に登録したシャードをホームシャードとする。
+     *
+     * @param shards シャード名をキーとするDataSource
+     * @param shardedTables 分割表の表名
+     */
+    public ShardedDaoFactory(Map<String, DataSource> shards, Collection<String> shardedTables) {
+        this(shards, ShardedCommonDao.DEFAULT_SHARD_KEY_NAME, shardedTables, shards.keySet().iterator().next());
+    }
+
+    /**
+     * コンストラクタ
+     *
+     * @param shards シャード名をキーとするDataSource
+     * @param shardKeyName シャードキーのパラメータ名
+     * @param shardedTables 分割表の表名
+     * @param homeShardName 分割表を参照しないSQLを発行するシャードのシャード名
+     * @author H.Abe
+     */
+    public ShardedDaoFactory(Map<String, DataSource> shards, String shardKeyName, Collection<String> shardedTables,
+            String homeShardName) {
+        this.shards = Collections.unmodifiableMap(new LinkedHashMap<String, DataSource>(shards));
+        Map<String, CommonDao> commonDaos = new LinkedHashMap<String, CommonDao>();
+        Map<String, CommonPluralDao> pluralDaos = new LinkedHashMap<String, CommonPluralDao>();
+        for (Map.Entry<String, DataSource> entry : this.shards.entrySet()) {
+            commonDaos.put(entry.getKey(), new CommonDaoImpl(entry.getValue()));
+            CommonPluralDao pluralDao = new CommonPluralDaoImple(entry.getValue());
+            pluralDaos.put(entry.getKey(), pluralDao);
+            commonPluralDaos.put(entry.getValue(), pluralDao);
+        }
+        this.shardedCommonDao = new ShardedCommonDao(commonDaos, shardKeyName, shardedTables, homeShardName);
+        this.homeShardName = homeShardName;
+        // シャード名が同じため、シャードキーは共通DAO（トランザクション管理有）と同じシャードとなる
+        this.pluralRing = new ConsistentHashRing<CommonPluralDao>(pluralDaos);
+    }
+
+    /**
+     * ホームシャードのDataSourceを取得する。 当DataSourceを指定したcreateCommonDao()はシャード振り分け共通DAOを返却する。
+     *
+     * @return DataSource
+     */
+    public DataSource getDataSource() throws Exception {
+        return shards.get(homeShardName);
+    }
+
+    /**
+     * シャードのDataSourceを登録順に取得する。
+     *
+     * @return List<DataSource>
+     */
+    public List<DataSource> getShardDataSources() {
+        return new ArrayList<DataSource>(shards.values());
+    }
+
+    /**
+     * 共通DAO実装クラスを取得する。 シャードのDataSourceを指定した場合はシャード振り分け共通DAOを返却し、
+     * それ以外のDataSourceを指定した場合は当DataSourceのみを使用する共通DAOを生成する。 シャード振り分け共通DAOは
+     * 分割表を参照するSQLのみを全シャード（シャードキーを含む場合は担当するシャード）へ振り分け、それ以外は ホームシャードで発行する。
+     *
+     * @param dataSource データソース
+     * @return CommonDao
+     * @author H.Abe
+     */
+    public CommonDao createCommonDao(DataSource dataSource) throws Exception {
+        if (null == dataSource || commonPluralDaos.containsKey(dataSource)) {
+            return shardedCommonDao;
+        }
+        return new CommonDaoImpl(dataSource);
+    }
+
+    /**
+     * 共通DAO実装クラスを取得する。（トランザクション管理無） シャードのDataSourceを指定した場合は当シャードの共通DAOを返却し、
+     * それ以外のDataSourceを指定した場合は当DataSourceのみを使用する共通DAOを生成する。
+     *
+     * @param dataSource データソース
+     * @return CommonPluralDao
+     * @throws IllegalArgumentException DataSourceがNULLの場合（シャードを決められないため）
+     * @author H.Abe
+     */
+    public CommonPluralDao createCommonPluralDao(DataSource dataSource) throws Exception {
+        if (null == dataSource) {
+            throw new IllegalArgumentException("shard is not specified: use getCommonPluralDao(shardKey)");
+        }
+        CommonPluralDao commonPluralDao = commonPluralDaos.get(dataSource);
+        return (null != commonPluralDao) ? commonPluralDao : new CommonPluralDaoImple(dataSource);
+    }
+
+    /**
+     * シャードキーを担当するシャードの共通DAO（トランザクション管理無）を取得する。
+     *
+     * @param shardKey シャードキーの値
+     * @return CommonPluralDao
+     */
+    public CommonPluralDao getCommonPluralDao(Object shardKey) {
+        return pluralRing.get(shardKey);
+    }
+
+    /**
+     * シャード振り分け共通DAOの非同期共通DAOを取得する。 初回のみ生成し、同時実行数の上限は 全てのシャードの最大接続数の合計とする。
+     *
+     * @param dataSource データソース（振り分けを行うため使用しない）
+     * @return AsyncCommonDao
+     * @author H.Abe
+     */
+    public synchronized AsyncCommonDao createAsyncCommonDao(DataSource dataSource) throws Exception {
+        if (null == asyncCommonDao) {
+            int maxConcurrency = 0;
+            for (DataSource shard : shards.values()) {
+                maxConcurrency += maxSizeOf(shard);
+            }
+            asyncCommonDao = new AsyncCommonDaoImpl(shardedCommonDao, maxConcurrency);
+        }
+        return asyncCommonDao;
+    }
+
+    /**
+     * シャード振り分け共通DAOを取得する。
+     *
+     * @return ShardedCommonDao
+     */
+    public ShardedCommonDao getShardedCommonDao() {
+        return shardedCommonDao;
+    }
+
+    /**
+     * 非同期共通DAOの実行者を終了する。 DataSourceは終了しない。
+     *
+     * @author H.Abe
+     */
+    public synchronized void close() {
+        if (null != asyncCommonDao) {
+            asyncCommonDao.close();
+            asyncCommonDao = null;
+        }
+    }
+
+    /**
+     * DataSourceの最大接続数を取得する。 組み込みコネクションプール以外の場合は最大接続数の既定値とする。
+     *
+     * @param dataSource データソース
+     * @return int
+     */
+    private int maxSizeOf(DataSource dataSource) {
+        if (dataSource instanceof PooledDataSource) {
+            return ((PooledDataSource) dataSource).getConfig().getMaxSize();
+        }
+        return ConnectionPoolConfig.DEFAULT_MAX_SIZE;
+    }
+}
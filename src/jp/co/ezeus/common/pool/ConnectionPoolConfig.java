@@ -0,0 +1,296 @@
+package jp.co.ezeus.common.pool;
+
+import java.util.Properties;
+import jp.co.ezeus.common.rdbControl.impl.PreparedStatementCache;
+
+/**
+ * <p>
+ * コネクションプール設定クラス
+ * </p>
+ * 組み込みコネクションプール（@see {@link PooledDataSource}）の接続先と、 プールの件数、待ち時間、検証に関する設定を保持する。<br>
+ * JNDIを使用しない環境（バッチ処理等）でDataSourceを生成する場合に使用する。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class ConnectionPoolConfig {
+
+    /**
+     * 最小接続数の既定値
+     */
+    public static final int DEFAULT_MIN_SIZE = 2;
+
+    /**
+     * 最大接続数の既定値
+     */
+    public static final int DEFAULT_MAX_SIZE = 10;
+
+    /**
+     * 取得待ち時間の既定値（ミリ秒）
+     */
+    public static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 30000L;
+
+    /**
+     * 検証を行う未使用時間の既定値（ミリ秒）
+     */
+    public static final long DEFAULT_VALIDATION_IDLE_MILLIS = 5000L;
+
+    /**
+     * 検証のタイムアウトの既定値（秒）
+     */
+    public static final int DEFAULT_VALIDATION_TIMEOUT_SECONDS = 5;
+
+    /**
+     * JDBCドライバのクラス名（DriverManagerへ自動登録される場合は不要）
+     */
+    private String driverClassName;
+
+    /**
+     * 接続URL
+     */
+    private String jdbcUrl;
+
+    /**
+     * 接続ユーザ
+     */
+    private String user;
+
+    /**
+     * 接続パスワード
+     */
+    private String password;
+
+    /**
+     * ドライバへ渡す追加の接続プロパティ
+     */
+    private Properties properties = new Properties();
+
+    /**
+     * 最小接続数（生成時に接続する件数）
+     */
+    private int minSize = DEFAULT_MIN_SIZE;
+
+    /**
+     * 最大接続数
+     */
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    /**
+     * 取得待ち時間（ミリ秒）
+     */
+    private long acquireTimeoutMillis = DEFAULT_ACQUIRE_TIMEOUT_MILLIS;
+
+    /**
+     * 検証を行う未使用時間（ミリ秒）
+     */
+    private long validationIdleMillis = DEFAULT_VALIDATION_IDLE_MILLIS;
+
+    /**
+     * 検証のタイムアウト（秒）
+     */
+    private int validationTimeoutSeconds = DEFAULT_VALIDATION_TIMEOUT_SECONDS;
+
+    /**
+     * 物理接続毎のPreparedStatementキャッシュ件数
+     */
+    private int statementCacheSize = PreparedStatementCache.DEFAULT_MAX_SIZE;
+
+    /**
+     * JDBCドライバのクラス名を取得する。
+     *
+     * @return String
+     */
+    public String getDriverClassName() {
+        return driverClassName;
+    }
+
+    /**
+     * JDBCドライバのクラス名を設定する。
+     *
+     * @param driverClassName JDBCドライバのクラス名
+     */
+    public void setDriverClassName(String driverClassName) {
+        this.driverClassName = driverClassName;
+    }
+
+    /**
+     * 接続URLを取得する。
+     *
+     * @return String
+     */
+    public String getJdbcUrl() {
+        return jdbcUrl;
+    }
+
+    /**
+     * 接続URLを設定する。
+     *
+     * @param jdbcUrl 接続URL
+     */
+    public void setJdbcUrl(String jdbcUrl) {
+        this.jdbcUrl = jdbcUrl;
+    }
+
+    /**
+     * 接続ユーザを取得する。
+     *
+     * @return String
+     */
+    public String getUser() {
+        return user;
+    }
+
+    /**
+     * 接続ユーザを設定する。
+     *
+     * @param user 接続ユーザ
+     */
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    /**
+     * 接続パスワードを取得する。
+     *
+     * @return String
+     */
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * 接続パスワードを設定する。
+     *
+     * @param password 接続パスワード
+     */
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    /**
+     * ドライバへ渡す追加の接続プロパティを取得する。
+     *
+     * @return Properties
+     */
+    public Properties getProperties() {
+        return properties;
+    }
+
+    /**
+     * ドライバへ渡す追加の接続プロパティを設定する。
+     *
+     * @param properties 接続プロパティ
+     */
+    public void setProperties(Properties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 最小接続数を取得する。
+     *
+     * @return int
+     */
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * 最小接続数を設定する。
+     *
+     * @param minSize 最小接続数
+     */
+    public void setMinSize(int minSize) {
+        this.minSize = minSize;
+    }
+
+    /**
+     * 最大接続数を取得する。
+     *
+     * @return int
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 最大接続数を設定する。
+     *
+     * @param maxSize 最大接続数
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 取得待ち時間（ミリ秒）を取得する。
+     *
+     * @return long
+     */
+    public long getAcquireTimeoutMillis() {
+        return acquireTimeoutMillis;
+    }
+
+    /**
+     * 取得待ち時間（ミリ秒）を設定する。 全ての接続が使用中の場合、この時間を超えて待った取得はSQLExceptionとなる。
+     *
+     * @param acquireTimeoutMillis 取得待ち時間（ミリ秒）
+     */
+    public void setAcquireTimeoutMillis(long acquireTimeoutMillis) {
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    /**
+     * 検証を行う未使用時間（ミリ秒）を取得する。
+     *
+     * @return long
+     */
+    public long getValidationIdleMillis() {
+        return validationIdleMillis;
+    }
+
+    /**
+     * 検証を行う未使用時間（ミリ秒）を設定する。 この時間を超えて未使用だった接続は、貸し出し前に Connection.isValid()で検証する。
+     *
+     * @param validationIdleMillis 検証を行う未使用時間（ミリ秒）
+     */
+    public void setValidationIdleMillis(long validationIdleMillis) {
+        this.validationIdleMillis = validationIdleMillis;
+    }
+
+    /**
+     * 検証のタイムアウト（秒）を取得する。
+     *
+     * @return int
+     */
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+
+    /**
+     * 検証のタイムアウト（秒）を設定する。
+     *
+     * @param validationTimeoutSeconds 検証のタイムアウト（秒）
+     */
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    /**
+     * 物理接続毎のPreparedStatementキャッシュ件数を取得する。
+     *
+     * @return int
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * 物理接続毎のPreparedStatementキャッシュ件数を設定する。
+     *
+     * @param statementCacheSize PreparedStatementキャッシュ件数
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+}
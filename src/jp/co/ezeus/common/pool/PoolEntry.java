@@ -0,0 +1,169 @@
+package jp.co.ezeus.common.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import jp.co.ezeus.common.rdbControl.CommonRDBControl;
+import jp.co.ezeus.common.rdbControl.impl.CommonRDBControlImpl;
+import jp.co.ezeus.common.rdbControl.impl.PreparedStatementCache;
+
+/**
+ * <p>
+ * コネクションプールの要素クラス
+ * </p>
+ * 物理接続と、物理接続単位のPreparedStatementキャッシュ、共通データアクセス処理、貸し出し状態を保持する。<br>
+ * 貸し出し状態はCASで変更するため、同じ要素を複数のスレッドへ貸し出すことはない。
+ *
+ * @see PooledDataSource
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+final class PoolEntry {
+
+    /** 未使用 */
+    static final int STATE_IDLE = 0;
+
+    /** 使用中 */
+    static final int STATE_IN_USE = 1;
+
+    /** 破棄済み */
+    static final int STATE_REMOVED = 2;
+
+    /**
+     * 物理接続
+     */
+    final Connection physical;
+
+    /**
+     * 物理接続単位のPreparedStatementキャッシュ
+     */
+    final PreparedStatementCache statementCache;
+
+    /**
+     * 物理接続単位の共通データアクセス処理
+     */
+    final CommonRDBControl rdbControl;
+
+    /**
+     * 貸し出し状態
+     */
+    private final AtomicInteger state;
+
+    /**
+     * 最終返却日時（ミリ秒）
+     */
+    volatile long lastReturnedAt;
+
+    /**
+     * 接続時の読み取り専用モード
+     */
+    private final boolean defaultReadOnly;
+
+    /**
+     * 接続時のトランザクション分離レベル
+     */
+    private final int defaultTransactionIsolation;
+
+    /**
+     * 接続時のカタログ
+     */
+    private final String defaultCatalog;
+
+    /**
+     * 接続時のスキーマ
+     */
+    private final String defaultSchema;
+
+    /**
+     * 貸し出し中に接続の状態（読み取り専用モード、トランザクション分離レベル、カタログ、スキーマ）を変更したかのフラグ
+     */
+    volatile boolean stateChanged;
+
+    /**
+     * コンストラクタ<br>
+     * 生成時は使用中とする。 返却時に戻すため、接続時の状態を保持する。
+     *
+     * @param physical 物理接続
+     * @param statementCacheSize PreparedStatementキャッシュ件数
+     * @throws SQLException
+     */
+    PoolEntry(Connection physical, int statementCacheSize) throws SQLException {
+        this.physical = physical;
+        this.defaultReadOnly = physical.isReadOnly();
+        this.defaultTransactionIsolation = physical.getTransactionIsolation();
+        this.defaultCatalog = physical.getCatalog();
+        this.defaultSchema = physical.getSchema();
+        this.statementCache = new PreparedStatementCache(physical, statementCacheSize);
+        this.rdbControl = new CommonRDBControlImpl(physical, statementCache);
+        this.state = new AtomicInteger(STATE_IN_USE);
+        this.lastReturnedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 貸し出し中に変更した接続の状態を接続時の状態へ戻す。 トランザクションは終了済みであること。
+     *
+     * @throws SQLException
+     */
+    void restoreState() throws SQLException {
+        if (!stateChanged) {
+            return;
+        }
+        physical.setReadOnly(defaultReadOnly);
+        physical.setTransactionIsolation(defaultTransactionIsolation);
+        if (null != defaultCatalog) {
+            physical.setCatalog(defaultCatalog);
+        }
+        if (null != defaultSchema) {
+            physical.setSchema(defaultSchema);
+        }
+        stateChanged = false;
+    }
+
+    /**
+     * 未使用の場合に使用中へ変更する。
+     *
+     * @return boolean 変更できた場合true
+     */
+    boolean tryReserve() {
+        return state.get() == STATE_IDLE && state.compareAndSet(STATE_IDLE, STATE_IN_USE);
+    }
+
+    /**
+     * 使用中から未使用へ変更する。
+     */
+    void markIdle() {
+        lastReturnedAt = System.currentTimeMillis();
+        state.set(STATE_IDLE);
+    }
+
+    /**
+     * 破棄済みへ変更する。
+     *
+     * @return boolean 変更前が破棄済みでない場合true
+     */
+    boolean markRemoved() {
+        return state.getAndSet(STATE_REMOVED) != STATE_REMOVED;
+    }
+
+    /**
+     * 貸し出し状態を取得する。
+     *
+     * @return int
+     */
+    int getState() {
+        return state.get();
+    }
+
+    /**
+     * PreparedStatementキャッシュと物理接続をCLOSEする。 破棄のため、CLOSE時の例外は無視する。
+     */
+    void closeQuietly() {
+        statementCache.clear();
+        try {
+            physical.close();
+        } catch (SQLException sqlException) {
+            // 破棄のため無視する
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package jp.co.ezeus.common.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import jp.co.ezeus.common.rdbControl.CommonRDBControl;
+import jp.co.ezeus.common.rdbControl.impl.CommonRDBControlImpl;
+import jp.co.ezeus.common.rdbControl.impl.PreparedStatementCache;
+
+/**
+ * <p>
+ * プールから貸し出すConnectionの処理クラス
+ * </p>
+ * 物理接続へ処理を委譲し、close()では物理接続をCLOSEせずにプールへ返却する。<br>
+ * unwrap(PreparedStatementCache.class)では物理接続単位のキャッシュを返却するため、 @see
+ * {@link PreparedStatementCache#forConnection(Connection)} により貸し出しを跨いでPreparedStatementを再利用する。<br>
+ * 同様にunwrap(CommonRDBControl.class)では物理接続単位の共通データアクセス処理を返却し、 @see
+ * {@link CommonRDBControlImpl#forConnection(Connection)} により貸し出し毎の生成を行わない。<br>
+ * 読み取り専用モード、トランザクション分離レベル、カタログ、スキーマを変更した場合は、返却時に接続時の状態へ戻す。<br>
+ * 返却後の操作はSQLExceptionとなる。
+ *
+ * @see PooledDataSource
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+final class PooledConnectionHandler implements InvocationHandler {
+
+    /**
+     * 返却先のプール
+     */
+    private final PooledDataSource pool;
+
+    /**
+     * プールの要素
+     */
+    private final PoolEntry entry;
+
+    /**
+     * 返却済みフラグ
+     */
+    private volatile boolean closed;
+
+    /**
+     * コンストラクタ
+     *
+     * @param pool 返却先のプール
+     * @param entry プールの要素
+     */
+    private PooledConnectionHandler(PooledDataSource pool, PoolEntry entry) {
+        this.pool = pool;
+        this.entry = entry;
+    }
+
+    /**
+     * プールの要素を貸し出し用のConnectionとして生成する。
+     *
+     * @param pool 返却先のプール
+     * @param entry プールの要素
+     * @return Connection
+     */
+    static Connection newConnection(PooledDataSource pool, PoolEntry entry) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+                new PooledConnectionHandler(pool, entry));
+    }
+
+    /**
+     * Connectionのメソッド呼び出しを処理する。
+     *
+     * @param proxy Connection
+     * @param method メソッド
+     * @param args 引数
+     * @return Object
+     * @throws Throwable
+     */
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if ("close".equals(name)) {
+            if (!closed) {
+                closed = true;
+                pool.release(entry);
+            }
+            return null;
+        } else if ("isClosed".equals(name)) {
+            return Boolean.valueOf(closed || entry.physical.isClosed());
+        } else if ("unwrap".equals(name) && PreparedStatementCache.class == args[0]) {
+            return entry.statementCache;
+        } else if ("unwrap".equals(name) && CommonRDBControl.class == args[0]) {
+            return entry.rdbControl;
+        } else if ("isWrapperFor".equals(name) && (PreparedStatementCache.class == args[0] || CommonRDBControl.class == args[0])) {
+            return Boolean.TRUE;
+        } else if ("equals".equals(name)) {
+            return Boolean.valueOf(proxy == args[0]);
+        } else if ("hashCode".equals(name)) {
+            return Integer.valueOf(System.identityHashCode(proxy));
+        } else if ("toString".equals(name)) {
+            return "PooledConnection[" + entry.physical + (closed ? ", closed]" : "]");
+        }
+        if (closed) {
+            throw new SQLException("connection has been returned to the pool", "08003");
+        }
+        if ("setReadOnly".equals(name) || "setTransactionIsolation".equals(name) || "setCatalog".equals(name)
+                || "setSchema".equals(name)) {
+            entry.stateChanged = true;
+        }
+        try {
+            return method.invoke(entry.physical, args);
+        } catch (InvocationTargetException invocationTargetException) {
+            throw invocationTargetException.getCause();
+        }
+    }
+}
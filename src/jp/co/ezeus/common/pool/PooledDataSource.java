@@ -0,0 +1,643 @@
+package jp.co.ezeus.common.pool;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * <p>
+ * 組み込みコネクションプールクラス
+ * </p>
+ * JNDIを使用しない環境でDataSourceとして使用する。 設定は @see {@link ConnectionPoolConfig} で行う。<br>
+ * 接続の取得は以下の順で行い、いずれもロックを取得しない。<br>
+ * 1. 同じスレッドが前回使用した接続（未使用の場合）<br>
+ * 2. 全接続のうち未使用の接続（CopyOnWriteArrayListを走査し、CASで貸し出し状態を変更）<br>
+ * 3. 最大接続数に達していない場合は新たに接続<br>
+ * 4. 取得待ち時間まで、他のスレッドから返却される接続を待つ<br>
+ * 生成時に最小接続数の接続を行う。 一定時間未使用だった接続は貸し出し前にisValid()で検証し、無効な接続は破棄する。
+ * 破棄により最小接続数を下回った場合は、破棄したスレッドで最小接続数まで接続する。<br>
+ * 新たな接続はドライバのloginTimeoutを残りの取得待ち時間に制限して行う（接続プロパティで指定済みの場合は指定値を使用する）。<br>
+ * 貸し出すConnectionのclose()は物理接続をCLOSEせずにプールへ返却する。 物理接続単位のPreparedStatementキャッシュを
+ * unwrapできるため、共通データアクセス処理は貸し出しを跨いでPreparedStatementを再利用する。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class PooledDataSource implements DataSource, AutoCloseable {
+
+    /**
+     * 取得待ちで他のスレッドの返却を待つ最大の間隔（ミリ秒）
+     */
+    private static final long WAIT_SLICE_MILLIS = 50L;
+
+    /**
+     * 取得待ち時間を超えた場合のSQLSTATE（タイムアウト）。 接続の失敗（"08"）と区別するため、接続例外のクラスを使用しない。
+     */
+    public static final String SQLSTATE_ACQUIRE_TIMEOUT = "HYT00";
+
+    /**
+     * 取得待ちで割り込まれた場合のSQLSTATE（処理の取り消し）
+     */
+    public static final String SQLSTATE_ACQUIRE_INTERRUPTED = "HY008";
+
+    /**
+     * 接続のタイムアウト（秒）を指定する接続プロパティ名
+     */
+    private static final String LOGIN_TIMEOUT = "loginTimeout";
+
+    /**
+     * 設定
+     */
+    private final ConnectionPoolConfig config;
+
+    /**
+     * 全ての接続
+     */
+    private final CopyOnWriteArrayList<PoolEntry> entries = new CopyOnWriteArrayList<PoolEntry>();
+
+    /**
+     * スレッドが前回使用した接続
+     */
+    private final ThreadLocal<PoolEntry> lastUsed = new ThreadLocal<PoolEntry>();
+
+    /**
+     * 取得待ちのスレッドへの受け渡し
+     */
+    private final SynchronousQueue<PoolEntry> handoff = new SynchronousQueue<PoolEntry>(true);
+
+    /**
+     * 接続数（接続中を含む）
+     */
+    private final AtomicInteger totalCount = new AtomicInteger();
+
+    /**
+     * 取得待ちのスレッド数
+     */
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    /**
+     * 取得回数
+     */
+    private final AtomicLong acquireCount = new AtomicLong();
+
+    /**
+     * 取得待ち時間の合計（ナノ秒）
+     */
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    /**
+     * 取得待ち時間の最大（ナノ秒）
+     */
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * 取得待ちのタイムアウト回数
+     */
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    /**
+     * 接続回数
+     */
+    private final AtomicLong createdCount = new AtomicLong();
+
+    /**
+     * 破棄回数
+     */
+    private final AtomicLong removedCount = new AtomicLong();
+
+    /**
+     * ログ出力先
+     */
+    private PrintWriter logWriter;
+
+    /**
+     * 終了済みフラグ
+     */
+    private volatile boolean closed;
+
+    /**
+     * コンストラクタ<br>
+     * 最小接続数の接続を行う。 接続に失敗した場合は接続済みの接続をCLOSEし、SQLExceptionを送出する。
+     *
+     * @param config 設定
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public PooledDataSource(ConnectionPoolConfig config) throws SQLException {
+        if (null == config.getJdbcUrl()) {
+            throw new IllegalArgumentException("jdbcUrl is required");
+        }
+        if (config.getMaxSize() < 1 || config.getMinSize() > config.getMaxSize()) {
+            throw new IllegalArgumentException("invalid pool size: min=" + config.getMinSize() + ", max=" + config.getMaxSize());
+        }
+        this.config = config;
+        if (null != config.getDriverClassName()) {
+            try {
+                Class.forName(config.getDriverClassName());
+            } catch (ClassNotFoundException classNotFoundException) {
+                throw new SQLException(classNotFoundException);
+            }
+        }
+        try {
+            for (int i = 0; i < config.getMinSize(); i++) {
+                totalCount.incrementAndGet();
+                PoolEntry entry = createEntry(System.nanoTime()
+                        + TimeUnit.MILLISECONDS.toNanos(config.getAcquireTimeoutMillis()));
+                entry.markIdle();
+            }
+        } catch (SQLException sqlException) {
+            shutdown();
+            throw new SQLException(sqlException);
+        }
+    }
+
+    /**
+     * プールから接続を取得する。 取得待ち時間を超えた場合はSQLSTATEが"HYT00"の
+     * SQLTransientConnectionExceptionを送出する。 プールの枯渇であり、接続先の障害ではない。
+     *
+     * @return Connection
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("pool is closed", "08003");
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.getAcquireTimeoutMillis());
+        PoolEntry entry = acquire(deadline);
+        long waited = System.nanoTime() - start;
+        acquireCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waited);
+        long max;
+        while (waited > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, waited)) {
+            // 最大値の更新を再試行する
+        }
+        lastUsed.set(entry);
+        return PooledConnectionHandler.newConnection(this, entry);
+    }
+
+    /**
+     * 接続を貸し出し状態にして取得する。
+     *
+     * @param deadline 取得期限（System.nanoTime()）
+     * @return PoolEntry
+     * @throws SQLException
+     */
+    private PoolEntry acquire(long deadline) throws SQLException {
+        PoolEntry entry = lastUsed.get();
+        if (null != entry && entry.tryReserve() && validate(entry)) {
+            return entry;
+        }
+        while (true) {
+            entry = reserveIdle();
+            if (null != entry) {
+                return entry;
+            }
+            entry = tryCreate(deadline);
+            if (null != entry) {
+                return entry;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) {
+                timeoutCount.incrementAndGet();
+                throw new SQLTransientConnectionException("connection acquire timeout after " + config.getAcquireTimeoutMillis()
+                        + "ms: " + this, SQLSTATE_ACQUIRE_TIMEOUT);
+            }
+            pendingCount.incrementAndGet();
+            try {
+                entry = handoff.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(WAIT_SLICE_MILLIS)),
+                        TimeUnit.NANOSECONDS);
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("interrupted while waiting for a connection", SQLSTATE_ACQUIRE_INTERRUPTED,
+                        interruptedException);
+            } finally {
+                pendingCount.decrementAndGet();
+            }
+            if (null != entry && entry.tryReserve() && validate(entry)) {
+                return entry;
+            }
+            if (closed) {
+                throw new SQLException("pool is closed", "08003");
+            }
+        }
+    }
+
+    /**
+     * 未使用の接続を走査し、貸し出し状態にして取得する。
+     *
+     * @return PoolEntry 未使用の接続が存在しない場合はNULL
+     */
+    private PoolEntry reserveIdle() {
+        for (PoolEntry entry : entries) {
+            if (entry.tryReserve() && validate(entry)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 最大接続数に達していない場合に新たに接続する。
+     *
+     * @param deadline 取得期限（System.nanoTime()）
+     * @return PoolEntry 最大接続数に達している場合、取得期限を過ぎている場合はNULL
+     * @throws SQLException
+     */
+    private PoolEntry tryCreate(long deadline) throws SQLException {
+        int total;
+        do {
+            total = totalCount.get();
+            if (total >= config.getMaxSize() || deadline - System.nanoTime() <= 0L) {
+                return null;
+            }
+        } while (!totalCount.compareAndSet(total, total + 1));
+        return createEntry(deadline);
+    }
+
+    /**
+     * 最小接続数を下回っている場合に、最小接続数まで新たに接続して未使用の要素とする。 接続に失敗した場合は次回の取得時に接続するため、例外は無視する。
+     */
+    private void fillToMinSize() {
+        int total;
+        while (!closed && (total = totalCount.get()) < config.getMinSize()) {
+            if (!totalCount.compareAndSet(total, total + 1)) {
+                continue;
+            }
+            PoolEntry entry;
+            try {
+                entry = createEntry(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getAcquireTimeoutMillis()));
+            } catch (SQLException sqlException) {
+                // 次回の取得時に接続するため無視する
+                return;
+            }
+            entry.markIdle();
+            if (closed) {
+                if (entry.tryReserve()) {
+                    remove(entry);
+                }
+                return;
+            }
+            if (pendingCount.get() > 0) {
+                handoff.offer(entry);
+            }
+        }
+    }
+
+    /**
+     * 物理接続を行い、使用中の要素として追加する。 接続数は呼び出し元で加算済みであること。<br>
+     * 接続プロパティでloginTimeoutを指定していない場合は、取得期限までの残り時間（秒、切り上げ）を指定する。
+     *
+     * @param deadline 取得期限（System.nanoTime()）
+     * @return PoolEntry
+     * @throws SQLException
+     */
+    private PoolEntry createEntry(long deadline) throws SQLException {
+        Connection physical;
+        try {
+            Properties properties = new Properties();
+            properties.putAll(config.getProperties());
+            if (null != config.getUser()) {
+                properties.setProperty("user", config.getUser());
+            }
+            if (null != config.getPassword()) {
+                properties.setProperty("password", config.getPassword());
+            }
+            if (!properties.containsKey(LOGIN_TIMEOUT)) {
+                long remaining = Math.max(deadline - System.nanoTime(), 1L);
+                properties.setProperty(LOGIN_TIMEOUT, String.valueOf((remaining + 999999999L) / 1000000000L));
+            }
+            physical = DriverManager.getConnection(config.getJdbcUrl(), properties);
+        } catch (SQLException sqlException) {
+            totalCount.decrementAndGet();
+            throw new SQLException(sqlException);
+        }
+        PoolEntry entry;
+        try {
+            entry = new PoolEntry(physical, config.getStatementCacheSize());
+        } catch (SQLException sqlException) {
+            totalCount.decrementAndGet();
+            try {
+                physical.close();
+            } catch (SQLException closeException) {
+                sqlException.addSuppressed(closeException);
+            }
+            throw new SQLException(sqlException);
+        }
+        entries.add(entry);
+        createdCount.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * 一定時間未使用だった接続を検証する。 無効な場合は破棄する。
+     *
+     * @param entry 貸し出し状態の要素
+     * @return boolean 有効な場合true
+     */
+    private boolean validate(PoolEntry entry) {
+        if (System.currentTimeMillis() - entry.lastReturnedAt < config.getValidationIdleMillis()) {
+            return true;
+        }
+        boolean valid;
+        try {
+            valid = entry.physical.isValid(config.getValidationTimeoutSeconds());
+        } catch (SQLException sqlException) {
+            valid = false;
+        }
+        if (!valid) {
+            remove(entry);
+        }
+        return valid;
+    }
+
+    /**
+     * 要素を破棄し、物理接続をCLOSEする。 最小接続数を下回った場合は最小接続数まで接続する。
+     *
+     * @param entry 要素
+     */
+    private void remove(PoolEntry entry) {
+        if (entry.markRemoved()) {
+            entries.remove(entry);
+            totalCount.decrementAndGet();
+            removedCount.incrementAndGet();
+            entry.closeQuietly();
+            fillToMinSize();
+        }
+    }
+
+    /**
+     * 貸し出した接続の返却を行う。 未コミットのトランザクションはロールバックし、AutoCommitを有効へ戻す。
+     * 読み取り専用モード、トランザクション分離レベル、カタログ、スキーマを変更していた場合は接続時の状態へ戻す。
+     * 状態を戻せない接続は破棄する。 取得待ちのスレッドが存在する場合は直接受け渡す。
+     *
+     * @param entry 要素
+     */
+    void release(PoolEntry entry) {
+        try {
+            if (!entry.physical.getAutoCommit()) {
+                entry.physical.rollback();
+                entry.physical.setAutoCommit(true);
+            }
+            entry.restoreState();
+            entry.physical.clearWarnings();
+        } catch (SQLException sqlException) {
+            remove(entry);
+            return;
+        }
+        if (closed) {
+            remove(entry);
+            return;
+        }
+        entry.markIdle();
+        if (pendingCount.get() > 0) {
+            handoff.offer(entry);
+        }
+    }
+
+    /**
+     * 全ての未使用の接続をCLOSEし、プールを終了する。 使用中の接続は返却時にCLOSEする。
+     *
+     * @author H.Abe
+     */
+    public void close() {
+        shutdown();
+    }
+
+    /**
+     * 全ての未使用の接続をCLOSEし、プールを終了する。 コンストラクタからも呼び出すため、オーバーライド可能なメソッドを使用しない。
+     */
+    private void shutdown() {
+        closed = true;
+        for (PoolEntry entry : entries) {
+            if (entry.tryReserve()) {
+                remove(entry);
+            }
+        }
+    }
+
+    /**
+     * 使用中の接続数を取得する。
+     *
+     * @return int
+     */
+    public int getActiveCount() {
+        int active = 0;
+        for (PoolEntry entry : entries) {
+            if (entry.getState() == PoolEntry.STATE_IN_USE) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    /**
+     * 未使用の接続数を取得する。
+     *
+     * @return int
+     */
+    public int getIdleCount() {
+        int idle = 0;
+        for (PoolEntry entry : entries) {
+            if (entry.getState() == PoolEntry.STATE_IDLE) {
+                idle++;
+            }
+        }
+        return idle;
+    }
+
+    /**
+     * 接続数（接続中を含む）を取得する。
+     *
+     * @return int
+     */
+    public int getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * 取得待ちのスレッド数を取得する。
+     *
+     * @return int
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * 取得回数を取得する。
+     *
+     * @return long
+     */
+    public long getAcquireCount() {
+        return acquireCount.get();
+    }
+
+    /**
+     * 取得待ち時間の平均（ミリ秒）を取得する。
+     *
+     * @return double
+     */
+    public double getAverageWaitMillis() {
+        long count = acquireCount.get();
+        return (0L == count) ? 0.0d : totalWaitNanos.get() / (double) count / 1000000.0d;
+    }
+
+    /**
+     * 取得待ち時間の最大（ミリ秒）を取得する。
+     *
+     * @return double
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1000000.0d;
+    }
+
+    /**
+     * 取得待ちのタイムアウト回数を取得する。
+     *
+     * @return long
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * 接続回数を取得する。
+     *
+     * @return long
+     */
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    /**
+     * 破棄回数を取得する。
+     *
+     * @return long
+     */
+    public long getRemovedCount() {
+        return removedCount.get();
+    }
+
+    /**
+     * 設定を取得する。
+     *
+     * @return ConnectionPoolConfig
+     */
+    public ConnectionPoolConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * ユーザを指定した接続は未対応。
+     *
+     * @param username ユーザ
+     * @param password パスワード
+     * @return Connection
+     * @throws SQLException
+     */
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("pooled connections use the configured user");
+    }
+
+    /**
+     * ログ出力先を取得する。
+     *
+     * @return PrintWriter
+     */
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    /**
+     * ログ出力先を設定する。
+     *
+     * @param out ログ出力先
+     */
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    /**
+     * 接続のタイムアウト（秒）を設定する。 取得待ち時間はConnectionPoolConfigで設定するため、DriverManagerへ設定する。
+     *
+     * @param seconds タイムアウト（秒）
+     */
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    /**
+     * 接続のタイムアウト（秒）を取得する。
+     *
+     * @return int
+     */
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    /**
+     * java.util.loggingのLoggerは未対応。
+     *
+     * @return Logger
+     * @throws SQLFeatureNotSupportedException
+     */
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    /**
+     * 当インスタンスを引数のインターフェースとして返却する。
+     *
+     * @param iface インターフェース
+     * @return T
+     * @throws SQLException
+     */
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("not a wrapper for " + iface.getName());
+    }
+
+    /**
+     * 当インスタンスが引数のインターフェースを実装しているかを判定する。
+     *
+     * @param iface インターフェース
+     * @return boolean
+     */
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * プールの状態を文字列で返却する。
+     *
+     * @return String
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("PooledDataSource[");
+        builder.append("total=").append(getTotalCount());
+        builder.append(", active=").append(getActiveCount());
+        builder.append(", idle=").append(getIdleCount());
+        builder.append(", pending=").append(getPendingCount());
+        builder.append(", max=").append(config.getMaxSize());
+        builder.append(", avgWaitMs=").append(String.format("%.3f", Double.valueOf(getAverageWaitMillis())));
+        builder.append(", timeout=").append(timeoutCount.get());
+        return builder.append("]").toString();
+    }
+}
@@ -0,0 +1,336 @@
+package jp.co.ezeus.common.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * <p>
+ * DTOマッパー生成アノテーションプロセッサ
+ * </p>
+ * コンパイル対象のうち @see {jp.co.ezeus.common.dto.GenerateDtoMapper} を付与した
+ * @see {jp.co.ezeus.common.dto.BaseDto} の実装クラス毎に、 ResultSetからDTOへの移し替えと
+ * DTOからバインド変数への変換を行うマッパー （@see {jp.co.ezeus.common.utilities.GeneratedDtoMapper}）を生成する。<br>
+ * 生成したマッパーはsetter、getterを直接呼び出すため、実行時にリフレクションを使用しない。 対応する型、NULLの扱い、
+ * 同名のsetterの選択はリフレクションによる移し替え（@see {jp.co.ezeus.common.utilities.DtoMapper}、
+ * @see {jp.co.ezeus.common.utilities.DBAccessUtil#getBindingsByDto}）と同じとする。<br>
+ * 「META-INF/services/javax.annotation.processing.Processor」に登録しているため、 クラスパスに含めてコンパイルするだけで動作する。
+ * アノテーションを付与したクラスがBaseDtoを実装していない、abstractである、public引数無しコンストラクタを持たない等の
+ * 場合はコンパイルエラーとする。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+@SupportedAnnotationTypes(DtoMapperProcessor.GENERATE_DTO_MAPPER)
+public class DtoMapperProcessor extends AbstractProcessor {
+
+    /**
+     * 生成指定アノテーション名
+     */
+    static final String GENERATE_DTO_MAPPER = "jp.co.ezeus.common.dto.GenerateDtoMapper";
+
+    /**
+     * DTOインターフェース名
+     */
+    private static final String BASE_DTO = "jp.co.ezeus.common.dto.BaseDto";
+
+    /**
+     * 同名のsetterの選択処理
+     */
+    private static final String SELECT_PARAMETER_TYPE = "jp.co.ezeus.common.utilities.DtoMapper.selectParameterType";
+
+    /**
+     * 生成クラス名の接尾辞
+     */
+    private static final String CLASS_SUFFIX = "_DtoMapper";
+
+    /**
+     * setterの引数型と、値取得処理のテンプレート（{0}:列位置、{1}:setter呼出）
+     */
+    private static final Map<String, String> READERS = new HashMap<String, String>();
+
+    /**
+     * getterの戻り値型と、バインド変数設定処理のテンプレート（{0}:getter呼出）
+     */
+    private static final Map<String, String> WRITERS = new HashMap<String, String>();
+
+    static {
+        READERS.put("int", primitiveReader("int", "getInt"));
+        READERS.put("long", primitiveReader("long", "getLong"));
+        READERS.put("short", primitiveReader("short", "getShort"));
+        READERS.put("double", primitiveReader("double", "getDouble"));
+        READERS.put("float", primitiveReader("float", "getFloat"));
+        READERS.put("boolean", primitiveReader("boolean", "getBoolean"));
+        READERS.put("java.lang.Integer", boxedReader("int", "getInt", "java.lang.Integer"));
+        READERS.put("java.lang.Long", boxedReader("long", "getLong", "java.lang.Long"));
+        READERS.put("java.lang.Short", boxedReader("short", "getShort", "java.lang.Short"));
+        READERS.put("java.lang.Double", boxedReader("double", "getDouble", "java.lang.Double"));
+        READERS.put("java.lang.Float", boxedReader("float", "getFloat", "java.lang.Float"));
+        READERS.put("java.lang.Boolean", boxedReader("boolean", "getBoolean", "java.lang.Boolean"));
+        READERS.put("java.lang.String", "dto.{1}(resultSet.getString({0}));");
+        READERS.put("java.math.BigDecimal", "dto.{1}(resultSet.getBigDecimal({0}));");
+        READERS.put("java.sql.Date", "dto.{1}(resultSet.getDate({0}));");
+        READERS.put("java.sql.Time", "dto.{1}(resultSet.getTime({0}));");
+        READERS.put("java.sql.Timestamp", "dto.{1}(resultSet.getTimestamp({0}));");
+        READERS.put("java.util.Date", "dto.{1}(resultSet.getTimestamp({0}));");
+        READERS.put("byte[]", "dto.{1}(resultSet.getBytes({0}));");
+        READERS.put("java.time.LocalDate", "java.sql.Date value = resultSet.getDate({0});"
+                + " dto.{1}(null == value ? null : value.toLocalDate());");
+        READERS.put("java.time.LocalDateTime", "java.sql.Timestamp value = resultSet.getTimestamp({0});"
+                + " dto.{1}(null == value ? null : value.toLocalDateTime());");
+        READERS.put("java.lang.Object", "dto.{1}(resultSet.getObject({0}));");
+
+        WRITERS.put("int", "bind.setArgsType(jp.co.ezeus.common.utilities.UtilDefine.INT_ARGS_TYPE);"
+                + " bind.setIntValue(dto.{0}());");
+        WRITERS.put("java.lang.Integer", "java.lang.Integer value = dto.{0}();"
+                + " if (null == value) '{' throw new IllegalArgumentException(propertyName + \" is null\"); '}'"
+                + " bind.setArgsType(jp.co.ezeus.common.utilities.UtilDefine.INT_ARGS_TYPE); bind.setIntValue(value.intValue());");
+        WRITERS.put("java.lang.String", "bind.setArgsType(jp.co.ezeus.common.utilities.UtilDefine.STRING_ARGS_TYPE);"
+                + " bind.setStringValue(dto.{0}());");
+        WRITERS.put("java.sql.Date", "bind.setArgsType(jp.co.ezeus.common.utilities.UtilDefine.DATE_ARGS_TYPE);"
+                + " bind.setDateValue(dto.{0}());");
+    }
+
+    /**
+     * プリミティブ型の値取得処理テンプレートを作成する。 NULLの場合はsetterを呼び出さない。
+     *
+     * @param type 型
+     * @param getter ResultSetのgetter
+     * @return String
+     */
+    private static String primitiveReader(String type, String getter) {
+        return type + " value = resultSet." + getter + "({0}); if (!resultSet.wasNull()) '{' dto.{1}(value); '}'";
+    }
+
+    /**
+     * ラッパー型の値取得処理テンプレートを作成する。 NULLの場合はnullを設定する。
+     *
+     * @param type プリミティブ型
+     * @param getter ResultSetのgetter
+     * @param wrapper ラッパー型
+     * @return String
+     */
+    private static String boxedReader(String type, String getter, String wrapper) {
+        return type + " value = resultSet." + getter + "({0}); dto.{1}(resultSet.wasNull() ? null : " + wrapper
+                + ".valueOf(value));";
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(GENERATE_DTO_MAPPER);
+        TypeElement baseDto = processingEnv.getElementUtils().getTypeElement(BASE_DTO);
+        if (null == annotation || null == baseDto) {
+            return false;
+        }
+        TypeMirror baseDtoType = baseDto.asType();
+        for (TypeElement target : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+            String reason = rejectReason(target, baseDtoType);
+            if (null != reason) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "DTOマッパーを生成できません: " + reason, target);
+                continue;
+            }
+            try {
+                generate(target);
+            } catch (IOException exception) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "DTOマッパーを生成できません: " + exception.getMessage(), target);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 生成対象とできない理由を返却する。 生成対象とできる場合はNULLを返却する。
+     *
+     * @param type アノテーションを付与したクラス
+     * @param baseDtoType BaseDtoの型
+     * @return String
+     */
+    private String rejectReason(TypeElement type, TypeMirror baseDtoType) {
+        if (type.getKind() != ElementKind.CLASS) {
+            return "クラスではありません";
+        }
+        if (!processingEnv.getTypeUtils().isAssignable(type.asType(), baseDtoType)) {
+            return BASE_DTO + "を実装していません";
+        }
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return "abstractクラスです";
+        }
+        if (type.getModifiers().contains(Modifier.PRIVATE)
+                || (type.getNestingKind() != NestingKind.TOP_LEVEL && !type.getModifiers().contains(Modifier.STATIC))) {
+            return "privateクラス、またはstaticでない入れ子クラスです";
+        }
+        if (!hasDefaultConstructor(type)) {
+            return "public引数無しコンストラクタがありません";
+        }
+        return null;
+    }
+
+    /**
+     * public引数無しコンストラクタを持つかを判定する。
+     *
+     * @param type クラス
+     * @return boolean
+     */
+    private boolean hasDefaultConstructor(TypeElement type) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * マッパーのソースを生成する。
+     *
+     * @param type DTOクラス
+     * @throws IOException
+     */
+    private void generate(TypeElement type) throws IOException {
+        Map<String, List<ExecutableElement>> setters = new LinkedHashMap<String, List<ExecutableElement>>();
+        Map<String, ExecutableElement> getters = new LinkedHashMap<String, ExecutableElement>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (!method.getModifiers().contains(Modifier.PUBLIC) || method.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            String name = method.getSimpleName().toString();
+            if (name.startsWith("set") && name.length() > 3 && method.getParameters().size() == 1
+                    && READERS.containsKey(method.getParameters().get(0).asType().toString())) {
+                String property = name.substring(3).toUpperCase();
+                List<ExecutableElement> candidates = setters.get(property);
+                if (null == candidates) {
+                    candidates = new ArrayList<ExecutableElement>();
+                    setters.put(property, candidates);
+                }
+                candidates.add(method);
+            } else if (name.startsWith("get") && name.length() > 3 && method.getParameters().isEmpty()
+                    && WRITERS.containsKey(method.getReturnType().toString())) {
+                getters.put(name.substring(3).toUpperCase(), method);
+            }
+        }
+
+        String dtoName = type.getQualifiedName().toString();
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                + CLASS_SUFFIX;
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n * DTO mapper for ").append(dtoName).append(" (generated by DtoMapperProcessor)\n */\n");
+        source.append("public final class ").append(simpleName)
+                .append(" implements jp.co.ezeus.common.utilities.GeneratedDtoMapper<").append(dtoName).append("> {\n\n");
+
+        source.append("    public int[] resolveColumns(java.sql.ResultSetMetaData metaData) throws java.sql.SQLException {\n");
+        source.append("        int[] properties = new int[metaData.getColumnCount()];\n");
+        source.append("        for (int i = 0; i < properties.length; i++) {\n");
+        source.append("            switch (metaData.getColumnName(i + 1).toUpperCase()) {\n");
+        int ordinal = 0;
+        for (Map.Entry<String, List<ExecutableElement>> property : setters.entrySet()) {
+            List<ExecutableElement> candidates = property.getValue();
+            source.append("            case \"").append(property.getKey()).append("\":\n");
+            source.append("                properties[i] = ").append(ordinal);
+            if (candidates.size() > 1) {
+                // 同名のsetterは実行時の列の型により、リフレクションによる移し替えと同じものを選択する
+                source.append(" + ").append(SELECT_PARAMETER_TYPE).append("(new Class<?>[] { ");
+                for (int i = 0; i < candidates.size(); i++) {
+                    source.append(0 < i ? ", " : "").append(candidates.get(i).getParameters().get(0).asType().toString())
+                            .append(".class");
+                }
+                source.append(" }, metaData.getColumnType(i + 1))");
+            }
+            source.append(";\n");
+            source.append("                break;\n");
+            ordinal += candidates.size();
+        }
+        source.append("            default:\n");
+        source.append("                properties[i] = -1;\n");
+        source.append("                break;\n");
+        source.append("            }\n        }\n        return properties;\n    }\n\n");
+
+        source.append("    public ").append(dtoName).append(" mapRow(java.sql.ResultSet resultSet, int[] properties)")
+                .append(" throws java.sql.SQLException {\n");
+        source.append("        ").append(dtoName).append(" dto = new ").append(dtoName).append("();\n");
+        source.append("        for (int i = 0; i < properties.length; i++) {\n");
+        source.append("            switch (properties[i]) {\n");
+        ordinal = 0;
+        List<ExecutableElement> allSetters = new ArrayList<ExecutableElement>();
+        for (List<ExecutableElement> candidates : setters.values()) {
+            allSetters.addAll(candidates);
+        }
+        for (ExecutableElement setter : allSetters) {
+            String reader = READERS.get(setter.getParameters().get(0).asType().toString());
+            source.append("            case ").append(ordinal++).append(": {\n");
+            source.append("                ")
+                    .append(MessageFormat.format(reader, "i + 1", setter.getSimpleName().toString())).append("\n");
+            source.append("                break;\n            }\n");
+        }
+        source.append("            default:\n                break;\n            }\n        }\n        return dto;\n    }\n\n");
+
+        source.append("    public java.util.List<jp.co.ezeus.common.dto.BindingDto> toBindings(").append(dtoName)
+                .append(" dto, String... propertyNames) {\n");
+        if (getters.isEmpty()) {
+            source.append("        if (propertyNames.length > 0) {\n");
+            source.append("            throw new IllegalArgumentException(propertyNames[0]);\n");
+            source.append("        }\n");
+        }
+        source.append("        java.util.List<jp.co.ezeus.common.dto.BindingDto> binds = new java.util.ArrayList<")
+                .append("jp.co.ezeus.common.dto.BindingDto>(propertyNames.length);\n");
+        if (getters.isEmpty()) {
+            source.append("        return binds;\n    }\n}\n");
+        } else {
+            source.append("        for (String propertyName : propertyNames) {\n");
+            source.append("            jp.co.ezeus.common.dto.BindingDto bind = new jp.co.ezeus.common.dto.BindingDto();\n");
+            source.append("            switch (propertyName.toUpperCase()) {\n");
+            for (Map.Entry<String, ExecutableElement> getter : getters.entrySet()) {
+                String writer = WRITERS.get(getter.getValue().getReturnType().toString());
+                source.append("            case \"").append(getter.getKey()).append("\": {\n");
+                source.append("                ")
+                        .append(MessageFormat.format(writer, getter.getValue().getSimpleName().toString())).append("\n");
+                source.append("                break;\n            }\n");
+            }
+            source.append("            default:\n");
+            source.append("                throw new IllegalArgumentException(propertyName);\n");
+            source.append("            }\n            binds.add(bind);\n        }\n        return binds;\n    }\n}\n");
+        }
+
+        String generatedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(generatedName, type);
+        Writer writer = file.openWriter();
+        try {
+            writer.write(source.toString());
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
+import jp.co.ezeus.common.dto.BindBuffer;
 import jp.co.ezeus.common.dto.BindingDto;
 
 /**
@@ -24,10 +25,19 @@ public interface CommonRDBControl {
 
     public abstract List<Map<String, Object>> executeCommonSelectByBindQuery(String query, List<BindingDto> binds) throws SQLException;
 
+    public abstract List<Map<String, Object>> executeCommonSelectByBindBuffer(String query, BindBuffer binds) throws SQLException;
+
+    public abstract List<List<Map<String, Object>>> executeCommonSelectMultiByBindBuffer(List<String> queries, List<BindBuffer> binds)
+            throws SQLException;
+
     public abstract int executeCommonDMLByQuery(String query) throws SQLException;
 
     public abstract int executeCommonDMLByBindQuery(String query, List<BindingDto> binds) throws SQLException;
 
+    public abstract int executeCommonDMLByBindBuffer(String query, BindBuffer binds) throws SQLException;
+
+    public abstract int[] executeCommonDMLBatch(String query, List<List<BindingDto>> rows, int batchSize) throws SQLException;
+
     public abstract void close(Connection connection) throws SQLException;
 
     public abstract void close(PreparedStatement preparedStatement) throws SQLException;
@@ -37,4 +47,10 @@ public interface CommonRDBControl {
     public abstract ResultSet getResultSetBySelectQuery(String query) throws SQLException;
 
     public abstract ResultSet getResultSetBySelectBindQuery(String query, List<BindingDto> binds) throws SQLException;
+
+    public abstract ResultCursor openCursorByBindQuery(String query, List<BindingDto> binds, int fetchSize) throws SQLException;
+
+    public abstract void setQueryTimeout(int seconds);
+
+    public abstract void cancel() throws SQLException;
 }
@@ -0,0 +1,265 @@
+package jp.co.ezeus.common.rdbControl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import jp.co.ezeus.common.dto.ResultRow;
+import jp.co.ezeus.common.dto.ResultSchema;
+
+/**
+ * <p>
+ * 共通SELECT結果カーソルクラス
+ * </p>
+ * SELECT文の結果セットを1行ずつ取得する。 結果セットを全件Listへ格納しないため、大量データの読み込みでも 使用メモリはfetchSize分で一定となる。<br>
+ * PreparedStatement、ResultSet（生成元DAOが指定した場合はConnectionも）を保持し、 close()にて全て解放する。
+ * try-with-resources、拡張for文、Streamでの利用が可能。 最終行まで読み込んだ場合は自動的にcloseする。<br>
+ * PostgreSQLにてサーバ側カーソル（portal）を使用させるため、 生成時にAutoCommitを無効にし、close()にて元の設定へ戻す。<br>
+ * 生成前からAutoCommitが無効（トランザクション中）の場合は、close()にてトランザクションを終了しない。
+ *
+ * @see CommonRDBControl
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class ResultCursor implements Iterator<Map<String, Object>>, Iterable<Map<String, Object>>, AutoCloseable {
+
+    /**
+     * fetchSizeの既定値
+     */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    /**
+     * コネクション
+     */
+    private final Connection connection;
+
+    /**
+     * 生成前のAutoCommit設定
+     */
+    private final boolean previousAutoCommit;
+
+    /**
+     * PreparedStatementオブジェクト
+     */
+    private final PreparedStatement preparedStatement;
+
+    /**
+     * 結果セット
+     */
+    private final ResultSet resultSet;
+
+    /**
+     * 列定義（全行で共有）
+     */
+    private final ResultSchema schema;
+
+    /**
+     * close()にてConnectionもCLOSEするか
+     */
+    private boolean closeConnection;
+
+    /**
+     * 次行の読み込み済みフラグ
+     */
+    private boolean fetched;
+
+    /**
+     * 次行の存在フラグ
+     */
+    private boolean hasNextRow;
+
+    /**
+     * CLOSE済みフラグ
+     */
+    private boolean closed;
+
+    /**
+     * コンストラクタ
+     *
+     * @param connection コネクション
+     * @param previousAutoCommit 生成前のAutoCommit設定
+     * @param preparedStatement 実行済みのPreparedStatementオブジェクト
+     * @param resultSet 結果セット
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public ResultCursor(Connection connection, boolean previousAutoCommit, PreparedStatement preparedStatement, ResultSet resultSet)
+            throws SQLException {
+        this.connection = connection;
+        this.previousAutoCommit = previousAutoCommit;
+        this.preparedStatement = preparedStatement;
+        this.resultSet = resultSet;
+        this.schema = ResultSchema.of(resultSet.getMetaData());
+    }
+
+    /**
+     * コンストラクタ<br>
+     * 結果セットを持たないサブクラス（複数のカーソルを併合するもの等）用。 サブクラスはhasNext()、next()、close()を上書きする。
+     *
+     * @param schema 列定義
+     */
+    protected ResultCursor(ResultSchema schema) {
+        this.connection = null;
+        this.previousAutoCommit = false;
+        this.preparedStatement = null;
+        this.resultSet = null;
+        this.schema = schema;
+    }
+
+    /**
+     * close()にてConnectionもCLOSEするかを設定する。 Connectionを当カーソル専用に取得したDAOから設定する。
+     *
+     * @param closeConnection ConnectionもCLOSEする場合true
+     */
+    public void setCloseConnection(boolean closeConnection) {
+        this.closeConnection = closeConnection;
+    }
+
+    /**
+     * 列定義を取得する。
+     *
+     * @return ResultSchema
+     */
+    public ResultSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * 次行が存在するかを判定する。 次行が存在しない場合はcloseする。
+     *
+     * @return boolean
+     */
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (!fetched) {
+            try {
+                hasNextRow = resultSet.next();
+            } catch (SQLException sqlException) {
+                closeQuietly();
+                throw new IllegalStateException(sqlException);
+            }
+            fetched = true;
+            if (!hasNextRow) {
+                closeQuietly();
+            }
+        }
+        return hasNextRow;
+    }
+
+    /**
+     * 次行を取得する。
+     *
+     * @return Map<String, Object>
+     */
+    public Map<String, Object> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        fetched = false;
+        Object[] values = new Object[schema.getColumnCount()];
+        try {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = resultSet.getObject(i + 1);
+            }
+        } catch (SQLException sqlException) {
+            closeQuietly();
+            throw new IllegalStateException(sqlException);
+        }
+        return new ResultRow(schema, values);
+    }
+
+    /**
+     * 行の削除は未対応。
+     */
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 当カーソル自身を返却する。 拡張for文での利用を想定しており、繰り返しの取得は出来ない。
+     *
+     * @return Iterator<Map<String, Object>>
+     */
+    public Iterator<Map<String, Object>> iterator() {
+        return this;
+    }
+
+    /**
+     * 当カーソルを順次Streamとして返却する。 Streamをcloseした場合は当カーソルもcloseする。
+     *
+     * @return Stream<Map<String, Object>>
+     */
+    public Stream<Map<String, Object>> stream() {
+        Spliterator<Map<String, Object>> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED
+                | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+            public void run() {
+                closeQuietly();
+            }
+        });
+    }
+
+    /**
+     * ResultSet、PreparedStatementを解放し、AutoCommit設定を元に戻す。 Connectionの CLOSEが指定されている場合はConnectionも解放する。
+     *
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        SQLException exception = null;
+        try {
+            resultSet.close();
+        } catch (SQLException sqlException) {
+            exception = sqlException;
+        }
+        try {
+            preparedStatement.close();
+        } catch (SQLException sqlException) {
+            exception = (null == exception) ? sqlException : exception;
+        }
+        try {
+            if (previousAutoCommit) {
+                // カーソル用に開始したトランザクションのみを終了する
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException sqlException) {
+            exception = (null == exception) ? sqlException : exception;
+        }
+        if (closeConnection) {
+            try {
+                connection.close();
+            } catch (SQLException sqlException) {
+                exception = (null == exception) ? sqlException : exception;
+            }
+        }
+        if (null != exception) {
+            throw exception;
+        }
+    }
+
+    /**
+     * closeを行う。 読み込み処理中の解放のため、CLOSE時の例外は無視する。
+     */
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (SQLException sqlException) {
+            // 読み込み処理の例外を優先するため無視する
+        }
+    }
+}
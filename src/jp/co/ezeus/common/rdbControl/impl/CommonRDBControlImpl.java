@@ -3,14 +3,17 @@ package jp.co.ezeus.common.rdbControl.impl;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import jp.co.ezeus.common.dto.BindBuffer;
 import jp.co.ezeus.common.dto.BindingDto;
+import jp.co.ezeus.common.dto.ResultSchema;
+import jp.co.ezeus.common.dto.ResultTable;
 import jp.co.ezeus.common.rdbControl.CommonRDBControl;
+import jp.co.ezeus.common.rdbControl.ResultCursor;
+import jp.co.ezeus.common.utilities.SqlRegistry;
 import jp.co.ezeus.common.utilities.UtilDefine;
 
 /**
@@ -18,7 +21,8 @@ import jp.co.ezeus.common.utilities.UtilDefine;
  * 共通データアクセス処理実装クラス
  * </p>
  * Connectionの取得、SQL発行、結果値格納、 リソースの解放をする共通処理を集約。<br>
- * 使用する際にはコンストラクタにConnectionを引数として当クラス を生成する。
+ * 使用する際にはコンストラクタにConnectionを引数として当クラス を生成する。<br>
+ * PreparedStatementCacheを指定して生成した場合、SELECT文、DML文のPreparedStatementは キャッシュから取得し、発行後もCLOSEせずに再利用する。
  *
  * @see CommonRDBControl
  * @author H.Abe
@@ -27,10 +31,35 @@ import jp.co.ezeus.common.utilities.UtilDefine;
  */
 public class CommonRDBControlImpl implements CommonRDBControl {
 
+    /**
+     * 従来のバインド変数（List<BindingDto>）変換用のスレッド毎のバッファ
+     */
+    private static final ThreadLocal<BindBuffer> ADAPTER_BUFFER = new ThreadLocal<BindBuffer>() {
+        @Override
+        protected BindBuffer initialValue() {
+            return new BindBuffer();
+        }
+    };
+
     /**
      * コネクション
      */
-    private Connection connection;
+    private final Connection connection;
+
+    /**
+     * PreparedStatementキャッシュ（未指定の場合はnull）
+     */
+    private final PreparedStatementCache statementCache;
+
+    /**
+     * SQL発行のタイムアウト（秒、0の場合は無制限）
+     */
+    private volatile int queryTimeout;
+
+    /**
+     * 発行中のPreparedStatement（発行中でない場合はNULL）
+     */
+    private volatile PreparedStatement executing;
 
     /**
      * コンストラクタ
@@ -39,7 +68,59 @@ public class CommonRDBControlImpl implements CommonRDBControl {
      * @author H.Abe
      */
     public CommonRDBControlImpl(Connection connection) {
+        this(connection, null);
+    }
+
+    /**
+     * コンストラクタ（PreparedStatementキャッシュ有り）
+     *
+     * @param connection コネクション
+     * @param statementCache PreparedStatementキャッシュ
+     * @author H.Abe
+     */
+    public CommonRDBControlImpl(Connection connection, PreparedStatementCache statementCache) {
         this.connection = connection;
+        this.statementCache = statementCache;
+    }
+
+    /**
+     * 引数のConnectionに対応する共通データアクセス処理を取得する。 ConnectionがCommonRDBControlをunwrap可能な場合
+     * （コネクションプールが物理接続単位に保持している場合）はその共通データアクセス処理を返却し、 それ以外の場合は
+     * 当Connection専用の共通データアクセス処理（PreparedStatementキャッシュ無し）を生成して返却する。<br>
+     * プールから取得したConnectionでは、SQL発行毎に当クラスを生成しない。
+     *
+     * @param connection コネクション
+     * @return CommonRDBControl
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public static CommonRDBControl forConnection(Connection connection) throws SQLException {
+        if (connection.isWrapperFor(CommonRDBControl.class)) {
+            return connection.unwrap(CommonRDBControl.class);
+        }
+        return new CommonRDBControlImpl(connection, PreparedStatementCache.forConnection(connection));
+    }
+
+    /**
+     * 複数のSQLを発行する間保持するConnectionに対応する共通データアクセス処理を取得する。
+     * コネクションプールのConnectionの場合はforConnection()と同じものを返却し、 それ以外の場合は当Connection専用の
+     * PreparedStatementキャッシュを持つ共通データアクセス処理を生成して返却する。 キャッシュはclose(Connection)でCLOSEする。
+     *
+     * @param connection コネクション
+     * @return CommonRDBControl
+     * @throws SQLException
+     * @see jp.co.ezeus.common.dao.UnitOfWork
+     * @author H.Abe
+     */
+    public static CommonRDBControl forUnitOfWork(Connection connection) throws SQLException {
+        if (connection.isWrapperFor(CommonRDBControl.class)) {
+            return connection.unwrap(CommonRDBControl.class);
+        }
+        PreparedStatementCache statementCache = PreparedStatementCache.forConnection(connection);
+        if (null == statementCache) {
+            statementCache = new PreparedStatementCache(connection, PreparedStatementCache.DEFAULT_MAX_SIZE);
+        }
+        return new CommonRDBControlImpl(connection, statementCache);
     }
 
     /**
@@ -57,7 +138,7 @@ public class CommonRDBControlImpl implements CommonRDBControl {
 
     /**
      * 共通SELECT文発行処理を行う。（バインド変数有り） 引数のSELECT文を発行し、結果セットをListにて返却する。<br>
-     * 引数のListはバインド変数。
+     * 引数のListはバインド変数。 列定義は1回のSELECTにつき1度だけ取得し、各行は列順の配列として 格納する。（@see {@link ResultTable}）
      *
      * @param query SQL文
      * @param binds バインド変数
@@ -66,36 +147,106 @@ public class CommonRDBControlImpl implements CommonRDBControl {
      * @author H.Abe
      */
     public List<Map<String, Object>> executeCommonSelectByBindQuery(String query, List<BindingDto> binds) throws SQLException {
-        PreparedStatement preparedStatement = this.connection.prepareStatement(query);
-        if (null != binds) {
-            for (int i = 0; i < binds.size(); i++) {
-                if (UtilDefine.INT_ARGS_TYPE.equals(binds.get(i).getArgsType())) {
-                    preparedStatement.setInt(i, binds.get(i).getIntValue());
-                } else if (UtilDefine.STRING_ARGS_TYPE.equals(binds.get(i).getArgsType())) {
-                    preparedStatement.setString(i, binds.get(i).getStringValue());
-                } else if (UtilDefine.CHAR_ARGS_TYPE.equals(binds.get(i).getArgsType())) {
-                    preparedStatement.setString(i, binds.get(i).getCharValue());
-                } else if (UtilDefine.DATE_ARGS_TYPE.equals(binds.get(i).getArgsType())) {
-                    preparedStatement.setDate(i, binds.get(i).getDateValue());
+        BindBuffer buffer = ADAPTER_BUFFER.get();
+        try {
+            return executeCommonSelectByBindBuffer(query, buffer.addAll(binds));
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * 共通SELECT文発行処理を行う。（バインド変数バッファ） 引数のSELECT文を発行し、結果セットをListにて返却する。<br>
+     * 引数のBindBufferはバインド変数。 列定義は1回のSELECTにつき1度だけ取得し、各行は列順の配列として 格納する。（@see {@link ResultTable}）
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return List<Map<String, Object>>
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public List<Map<String, Object>> executeCommonSelectByBindBuffer(String query, BindBuffer binds) throws SQLException {
+        PreparedStatement preparedStatement = prepare(query);
+        ResultSet resultSet = null;
+        ResultTable resultTable = null;
+        try {
+            applyBindValues(preparedStatement, binds);
+            resultSet = preparedStatement.executeQuery();
+            resultTable = readResultTable(resultSet);
+        } finally {
+            close(resultSet);
+            release(preparedStatement);
+        }
+        return resultTable;
+    }
+
+    /**
+     * 共通SELECT文発行処理を行う。（複数SELECT文） 引数の複数のSELECT文を1回の発行で送信し、
+     * 結果セット毎のListを引数の順に格納したListにて返却する。<br>
+     * 引数のbindsは各SELECT文のバインド変数（NULLの場合、または要素がNULLの場合はバインド変数無し）。
+     * 各SELECT文のバインド変数は、連結したSQL文のパラメータ位置へずらして設定する。<br>
+     * ドライバが複数の結果セットに対応していない場合（DatabaseMetaData.supportsMultipleResultSets()がfalse）、
+     * またはSELECT文が1つの場合は、SELECT文毎に順に発行する。
+     *
+     * @param queries SQL文（末尾の";"は不要）
+     * @param binds SQL文毎のバインド変数
+     * @return List<List<Map<String, Object>>>
+     * @throws SQLException 結果セットの数がSQL文の数と一致しない場合
+     * @author H.Abe
+     */
+    public List<List<Map<String, Object>>> executeCommonSelectMultiByBindBuffer(List<String> queries, List<BindBuffer> binds)
+            throws SQLException {
+        List<List<Map<String, Object>>> resultList = new ArrayList<List<Map<String, Object>>>(queries.size());
+        if (queries.size() < 2 || !this.connection.getMetaData().supportsMultipleResultSets()) {
+            for (int i = 0; i < queries.size(); i++) {
+                resultList.add(executeCommonSelectByBindBuffer(queries.get(i), bindsAt(binds, i)));
+            }
+            return resultList;
+        }
+        BindBuffer combined = ADAPTER_BUFFER.get();
+        StringBuilder query = new StringBuilder();
+        int offset = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            String single = queries.get(i).trim();
+            if (single.endsWith(";")) {
+                single = single.substring(0, single.length() - 1);
+            }
+            if (0 < i) {
+                query.append(";\n");
+            }
+            query.append(single);
+            BindBuffer singleBinds = bindsAt(binds, i);
+            if (null != singleBinds) {
+                for (int index = 1; index <= singleBinds.size(); index++) {
+                    singleBinds.copyTo(index, combined, offset + index);
                 }
             }
+            offset += SqlRegistry.countParameters(single);
         }
-        ResultSet resultSet = preparedStatement.executeQuery();
-        int columnCount = 0;
-        String columnName = null;
-        List<Map<String, Object>> resultList = new ArrayList<Map<String, Object>>();
-        while (resultSet.next()) {
-            ResultSetMetaData metaData = resultSet.getMetaData();
-            columnCount = metaData.getColumnCount();
-            Map<String, Object> resultMap = new HashMap<String, Object>();
-            for (int i = 0; i < columnCount; i++) {
-                columnName = metaData.getColumnName(i + 1);
-                resultMap.put(columnName, resultSet.getObject(columnName));
+        PreparedStatement preparedStatement = prepare(query.toString());
+        try {
+            applyBindValues(preparedStatement, combined);
+            boolean isResultSet = preparedStatement.execute();
+            while (true) {
+                if (isResultSet) {
+                    ResultSet resultSet = preparedStatement.getResultSet();
+                    try {
+                        resultList.add(readResultTable(resultSet));
+                    } finally {
+                        close(resultSet);
+                    }
+                } else if (-1 == preparedStatement.getUpdateCount()) {
+                    break;
+                }
+                isResultSet = preparedStatement.getMoreResults();
             }
-            resultList.add(resultMap);
+        } finally {
+            combined.clear();
+            release(preparedStatement);
+        }
+        if (resultList.size() != queries.size()) {
+            throw new SQLException("expected " + queries.size() + " result sets but received " + resultList.size());
         }
-        close(preparedStatement);
-        close(resultSet);
         return resultList;
     }
 
@@ -123,29 +274,83 @@ public class CommonRDBControlImpl implements CommonRDBControl {
      * @author H.Abe
      */
     public int executeCommonDMLByBindQuery(String query, List<BindingDto> binds) throws SQLException {
+        BindBuffer buffer = ADAPTER_BUFFER.get();
+        try {
+            return executeCommonDMLByBindBuffer(query, buffer.addAll(binds));
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * 共通DML文発行処理を行う。（バインド変数バッファ） 引数のDML文を発行し、結果セットをint型にて返却する。<br>
+     * 引数のBindBufferはバインド変数。 DML文は（INSERT、UPDATE、DELETE）に対応する。
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @return int
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public int executeCommonDMLByBindBuffer(String query, BindBuffer binds) throws SQLException {
+        this.connection.setAutoCommit(false);
+        PreparedStatement preparedStatement = prepare(query);
+        int result = 0;
+        try {
+            applyBindValues(preparedStatement, binds);
+            result = preparedStatement.executeUpdate();
+        } finally {
+            release(preparedStatement);
+        }
+        return result;
+    }
+
+    /**
+     * 共通DML文一括発行処理を行う。（バインド変数有り） 引数のDML文を1つのPreparedStatementで一括発行し、
+     * 行毎の更新件数を配列にて返却する。<br>
+     * 引数のListは1行分のバインド変数を1要素とする。batchSize件毎にexecuteBatchを行い、 DBとの往復回数を削減する。
+     * DML文は（INSERT、UPDATE、DELETE）に対応する。
+     *
+     * @param query SQL文
+     * @param rows 行毎のバインド変数
+     * @param batchSize 一括発行件数
+     * @return int[]
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public int[] executeCommonDMLBatch(String query, List<List<BindingDto>> rows, int batchSize) throws SQLException {
+        if (null == rows || rows.isEmpty()) {
+            return new int[0];
+        }
+        if (batchSize < 1) {
+            batchSize = rows.size();
+        }
         this.connection.setAutoCommit(false);
         PreparedStatement preparedStatement = this.connection.prepareStatement(query);
-        if (null != binds) {
-            for (int i = 0; i < binds.size(); i++) {
-                if (UtilDefine.INT_ARGS_TYPE.equals(binds.get(i).getArgsType())) {
-                    preparedStatement.setInt(i, binds.get(i).getIntValue());
-                } else if (UtilDefine.STRING_ARGS_TYPE.equals(binds.get(i).getArgsType())) {
-                    preparedStatement.setString(i, binds.get(i).getStringValue());
-                } else if (UtilDefine.CHAR_ARGS_TYPE.equals(binds.get(i).getArgsType())) {
-                    preparedStatement.setString(i, binds.get(i).getCharValue());
-                } else if (UtilDefine.DATE_ARGS_TYPE.equals(binds.get(i).getArgsType())) {
-                    preparedStatement.setDate(i, binds.get(i).getDateValue());
+        preparedStatement.setQueryTimeout(queryTimeout);
+        executing = preparedStatement;
+        int[] results = new int[rows.size()];
+        int executed = 0;
+        try {
+            for (int i = 0; i < rows.size(); i++) {
+                setBindValues(preparedStatement, rows.get(i));
+                preparedStatement.addBatch();
+                if ((i + 1) % batchSize == 0 || i + 1 == rows.size()) {
+                    int[] counts = preparedStatement.executeBatch();
+                    System.arraycopy(counts, 0, results, executed, counts.length);
+                    executed += counts.length;
                 }
             }
+        } finally {
+            executing = null;
+            close(preparedStatement);
         }
-        int result = 0;
-        result = preparedStatement.executeUpdate();
-        close(preparedStatement);
-        return result;
+        return results;
     }
 
     /**
-     * Connectionのリソースを解放する。
+     * Connectionのリソースを解放する。 当Connection専用のPreparedStatementキャッシュを保持している場合は
+     * キャッシュしているPreparedStatementもCLOSEする。
      *
      * @param connection コネクション
      * @throws SQLException
@@ -153,6 +358,9 @@ public class CommonRDBControlImpl implements CommonRDBControl {
      */
     public void close(Connection connection) throws SQLException {
         if (null != connection) {
+            if (null != this.statementCache && this.statementCache.isOwnedBy(connection)) {
+                this.statementCache.clear();
+            }
             connection.close();
         }
     }
@@ -198,7 +406,8 @@ public class CommonRDBControlImpl implements CommonRDBControl {
 
     /**
      * 共通SELECT文発行処理を行う。（バインド変数有り） 引数のSELECT文を発行し、結果セットを返却する。<br>
-     * 引数のListはバインド変数。
+     * 引数のListはバインド変数。 PreparedStatementをcloseすると結果セットも閉じられるため、PreparedStatementは
+     * closeOnCompletion()を指定して開いたままとし、結果セットのclose時に解放する。 返却した結果セットは必ずcloseすること。
      *
      * @param query SQL文
      * @param binds バインド変数
@@ -208,21 +417,177 @@ public class CommonRDBControlImpl implements CommonRDBControl {
      */
     public ResultSet getResultSetBySelectBindQuery(String query, List<BindingDto> binds) throws SQLException {
         PreparedStatement preparedStatement = this.connection.prepareStatement(query);
-        if (null != binds) {
-            for (int i = 0; i < binds.size(); i++) {
-                if (UtilDefine.INT_ARGS_TYPE.equals(binds.get(i).getArgsType())) {
-                    preparedStatement.setInt(i, binds.get(i).getIntValue());
-                } else if (UtilDefine.STRING_ARGS_TYPE.equals(binds.get(i).getArgsType())) {
-                    preparedStatement.setString(i, binds.get(i).getStringValue());
-                } else if (UtilDefine.CHAR_ARGS_TYPE.equals(binds.get(i).getArgsType())) {
-                    preparedStatement.setString(i, binds.get(i).getCharValue());
-                } else if (UtilDefine.DATE_ARGS_TYPE.equals(binds.get(i).getArgsType())) {
-                    preparedStatement.setDate(i, binds.get(i).getDateValue());
-                }
+        try {
+            setBindValues(preparedStatement, binds);
+            ResultSet resultSet = preparedStatement.executeQuery();
+            preparedStatement.closeOnCompletion();
+            return resultSet;
+        } catch (SQLException sqlException) {
+            close(preparedStatement);
+            throw sqlException;
+        }
+    }
+
+    /**
+     * 共通SELECT文発行処理を行う。（バインド変数有り） 引数のSELECT文を発行し、結果セットを1行ずつ取得する カーソルを返却する。<br>
+     * 引数のListはバインド変数。 AutoCommitを無効にしてfetchSize件ずつ取得するため、 結果セットの件数に関わらず使用メモリは一定となる。
+     * 返却したカーソルは必ずcloseすること。
+     *
+     * @param query SQL文
+     * @param binds バインド変数
+     * @param fetchSize 1回の通信で取得する件数（0以下の場合は既定値）
+     * @return ResultCursor
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public ResultCursor openCursorByBindQuery(String query, List<BindingDto> binds, int fetchSize) throws SQLException {
+        boolean autoCommit = this.connection.getAutoCommit();
+        if (autoCommit) {
+            this.connection.setAutoCommit(false);
+        }
+        PreparedStatement preparedStatement = null;
+        try {
+            preparedStatement = this.connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            preparedStatement.setFetchSize(fetchSize > 0 ? fetchSize : ResultCursor.DEFAULT_FETCH_SIZE);
+            setBindValues(preparedStatement, binds);
+            ResultSet resultSet = preparedStatement.executeQuery();
+            return new ResultCursor(this.connection, autoCommit, preparedStatement, resultSet);
+        } catch (SQLException sqlException) {
+            close(preparedStatement);
+            if (autoCommit) {
+                this.connection.rollback();
+                this.connection.setAutoCommit(true);
             }
+            throw sqlException;
+        }
+    }
+
+    /**
+     * 結果セットの全行を読み込む。 列定義は1度だけ取得し、各行は列順の配列として格納する。
+     *
+     * @param resultSet 結果セット
+     * @return ResultTable
+     * @throws SQLException
+     * @author H.Abe
+     */
+    private ResultTable readResultTable(ResultSet resultSet) throws SQLException {
+        ResultTable resultTable = new ResultTable(ResultSchema.of(resultSet.getMetaData()));
+        int columnCount = resultTable.getSchema().getColumnCount();
+        while (resultSet.next()) {
+            Object[] values = new Object[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                values[i] = resultSet.getObject(i + 1);
+            }
+            resultTable.addRow(values);
+        }
+        return resultTable;
+    }
+
+    /**
+     * SQL文毎のバインド変数から指定位置の要素を取得する。
+     *
+     * @param binds SQL文毎のバインド変数
+     * @param index 位置
+     * @return BindBuffer
+     */
+    private BindBuffer bindsAt(List<BindBuffer> binds, int index) {
+        return (null == binds || binds.size() <= index) ? null : binds.get(index);
+    }
+
+    /**
+     * SQL発行のタイムアウトを設定する。 以降に発行するSQLに適用し、超過した場合はSQLExceptionとなる。<br>
+     * プールの物理接続単位で共有される場合があるため、使用後は0へ戻すこと。
+     *
+     * @param seconds タイムアウト（秒、0の場合は無制限）
+     */
+    public void setQueryTimeout(int seconds) {
+        this.queryTimeout = seconds;
+    }
+
+    /**
+     * 発行中のSELECT文、DML文をキャンセルする。 発行中でない場合は何もしない。<br>
+     * SQLを発行しているスレッドとは別のスレッドから呼び出す。
+     *
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public void cancel() throws SQLException {
+        PreparedStatement preparedStatement = executing;
+        if (null != preparedStatement) {
+            preparedStatement.cancel();
         }
-        ResultSet resultSet = preparedStatement.executeQuery();
-        close(preparedStatement);
-        return resultSet;
     }
+
+    /**
+     * PreparedStatementを取得する。 PreparedStatementキャッシュが指定されている場合はキャッシュから取得し、
+     * 指定されていない場合は新たに生成する。
+     *
+     * @param query SQL文
+     * @return PreparedStatement
+     * @throws SQLException
+     * @author H.Abe
+     */
+    private PreparedStatement prepare(String query) throws SQLException {
+        PreparedStatement preparedStatement = null;
+        if (null != this.statementCache) {
+            preparedStatement = this.statementCache.get(query);
+        } else {
+            preparedStatement = this.connection.prepareStatement(query);
+        }
+        preparedStatement.setQueryTimeout(queryTimeout);
+        executing = preparedStatement;
+        return preparedStatement;
+    }
+
+    /**
+     * 使用済みのPreparedStatementを解放する。 PreparedStatementキャッシュが指定されている場合はキャッシュへ返却し、
+     * 指定されていない場合はCLOSEする。
+     *
+     * @param preparedStatement PreparedStatementオブジェクト
+     * @throws SQLException
+     * @author H.Abe
+     */
+    private void release(PreparedStatement preparedStatement) throws SQLException {
+        executing = null;
+        if (null != this.statementCache) {
+            this.statementCache.release(preparedStatement);
+        } else {
+            close(preparedStatement);
+        }
+    }
+
+    /**
+     * バインド変数の設定を行う。 引数のListの格納順にPreparedStatementのパラメータ（1始まり）へ設定する。
+     *
+     * @param preparedStatement PreparedStatementオブジェクト
+     * @param binds バインド変数
+     * @throws SQLException
+     * @author H.Abe
+     */
+    private void setBindValues(PreparedStatement preparedStatement, List<BindingDto> binds) throws SQLException {
+        if (null == binds) {
+            return;
+        }
+        BindBuffer buffer = ADAPTER_BUFFER.get();
+        try {
+            buffer.addAll(binds).applyTo(preparedStatement);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * バインド変数の設定を行う。 引数のBindBufferのパラメータ位置のままPreparedStatementへ設定する。
+     *
+     * @param preparedStatement PreparedStatementオブジェクト
+     * @param binds バインド変数
+     * @throws SQLException
+     * @author H.Abe
+     */
+    private void applyBindValues(PreparedStatement preparedStatement, BindBuffer binds) throws SQLException {
+        if (null != binds) {
+            binds.applyTo(preparedStatement);
+        }
+    }
+
 }
@@ -0,0 +1,363 @@
+package jp.co.ezeus.common.rdbControl.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * PreparedStatementキャッシュクラス
+ * </p>
+ * 1つのConnectionに対して、SQL文をキーとするPreparedStatementをLRU方式で保持する。<br>
+ * 上限件数を超えた場合は最も長く使用されていないPreparedStatementをCLOSEして破棄する。<br>
+ * 取得したPreparedStatementはrelease()まで貸し出し中とし、貸し出し中のSQL文を再度取得した場合は
+ * キャッシュしないPreparedStatementを生成して返却する（発行中の結果セットを閉じない）。 貸し出し中に破棄対象となったものはrelease()でCLOSEする。<br>
+ * コネクションプール配下で使用する場合は、プールのConnectionが当クラスをunwrapできるよう
+ * 実装することで、物理接続単位にキャッシュを保持し、呼び出しを跨いで再利用する。<br>
+ * SQLファイルの再読み込み等で不要となったSQL文はinvalidateAll()で全キャッシュへ通知する。 通知はSQLキー毎に最新のものを
+ * 世代番号と共に記録するのみで、 各キャッシュは次回のget()にて（Connectionを使用しているスレッド上で）該当するPreparedStatementを破棄する。<br>
+ * 記録はSQLキー毎に1件のため、再読み込みを繰り返しても記録件数はSQLキーの数を超えない。 キャッシュの確認前に同じSQLキーが
+ * 再度無効化された場合、それより前のSQL文は以降取得されないため、LRU方式により破棄される。
+ *
+ * @see CommonRDBControlImpl
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class PreparedStatementCache {
+
+    /**
+     * キャッシュ件数の既定値
+     */
+    public static final int DEFAULT_MAX_SIZE = 64;
+
+    /**
+     * 無効化の世代番号
+     */
+    private static final AtomicLong INVALIDATION_GENERATION = new AtomicLong();
+
+    /**
+     * SQLキー毎の最新の無効化（無効化されたSQL文と無効化時の世代番号）
+     */
+    private static final Map<String, Invalidation> INVALIDATED_QUERIES = new ConcurrentHashMap<String, Invalidation>();
+
+    /**
+     * キャッシュ対象のコネクション
+     */
+    private final Connection connection;
+
+    /**
+     * キャッシュ件数の上限
+     */
+    private final int maxSize;
+
+    /**
+     * SQL文をキーとするPreparedStatement（アクセス順）
+     */
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    /**
+     * 貸し出し中のPreparedStatementと取得時のSQL文
+     */
+    private final Map<PreparedStatement, String> checkedOut;
+
+    /**
+     * ヒット件数
+     */
+    private long hitCount;
+
+    /**
+     * ミス件数
+     */
+    private long missCount;
+
+    /**
+     * 破棄件数
+     */
+    private long evictionCount;
+
+    /**
+     * 反映済みの無効化の世代番号
+     */
+    private long seenGeneration;
+
+    /**
+     * コンストラクタ
+     *
+     * @param connection コネクション
+     * @param maxSize キャッシュ件数の上限
+     * @author H.Abe
+     */
+    public PreparedStatementCache(Connection connection, int maxSize) {
+        this.connection = connection;
+        this.maxSize = maxSize < 1 ? DEFAULT_MAX_SIZE : maxSize;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true);
+        this.checkedOut = new IdentityHashMap<PreparedStatement, String>();
+        this.seenGeneration = INVALIDATION_GENERATION.get();
+    }
+
+    /**
+     * 引数のSQL文を全てのキャッシュで無効化する。 各キャッシュは次回のget()にて該当するPreparedStatementを破棄する。
+     * 呼び出し元のスレッドでは他のキャッシュのPreparedStatementに触れないため、実行中のSQLを妨げない。
+     *
+     * @param queries SQLキーをキーとする無効化するSQL文
+     * @author H.Abe
+     */
+    public static synchronized void invalidateAll(Map<String, String> queries) {
+        if (queries.isEmpty()) {
+            return;
+        }
+        long generation = INVALIDATION_GENERATION.get() + 1L;
+        for (Map.Entry<String, String> entry : queries.entrySet()) {
+            INVALIDATED_QUERIES.put(entry.getKey(), new Invalidation(entry.getValue(), generation));
+        }
+        // SQL文の記録後に世代番号を公開する
+        INVALIDATION_GENERATION.set(generation);
+    }
+
+    /**
+     * 引数のConnectionに対応するキャッシュを取得する。 ConnectionがPreparedStatementCacheをunwrap可能な場合
+     * （コネクションプールが物理接続単位に保持している場合）はそのキャッシュを返却し、 それ以外の場合はNULLを返却する。<br>
+     * JNDI等のデータソースのConnectionは取得毎に異なる論理接続となり、呼び出しを跨いで再利用できないため キャッシュしない。
+     * それらのデータソースではデータソース側のPreparedStatementキャッシュを使用すること。
+     *
+     * @param connection コネクション
+     * @return PreparedStatementCache（キャッシュしない場合はNULL）
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public static PreparedStatementCache forConnection(Connection connection) throws SQLException {
+        if (connection.isWrapperFor(PreparedStatementCache.class)) {
+            return connection.unwrap(PreparedStatementCache.class);
+        }
+        return null;
+    }
+
+    /**
+     * SQL文に対応するPreparedStatementを取得する。 キャッシュに存在しない場合、またはCLOSE済みの場合は 新たに生成してキャッシュへ格納する。
+     * キャッシュのPreparedStatementが貸し出し中の場合は、キャッシュしないPreparedStatementを生成して返却する。<br>
+     * 取得したPreparedStatementは使用後に必ずrelease()すること。
+     *
+     * @param query SQL文
+     * @return PreparedStatement
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public synchronized PreparedStatement get(String query) throws SQLException {
+        long generation = INVALIDATION_GENERATION.get();
+        if (generation != seenGeneration) {
+            applyInvalidations(generation);
+        }
+        PreparedStatement preparedStatement = statements.get(query);
+        if (null != preparedStatement && checkedOut.containsKey(preparedStatement)) {
+            // 貸し出し中のものは再バインドせず、release()でCLOSEする一時的なものを生成する
+            missCount++;
+            return connection.prepareStatement(query);
+        }
+        if (null != preparedStatement && !preparedStatement.isClosed()) {
+            hitCount++;
+            checkedOut.put(preparedStatement, query);
+            return preparedStatement;
+        }
+        missCount++;
+        preparedStatement = connection.prepareStatement(query);
+        statements.put(query, preparedStatement);
+        checkedOut.put(preparedStatement, query);
+        if (statements.size() > maxSize) {
+            Iterator<PreparedStatement> iterator = statements.values().iterator();
+            PreparedStatement eldest = iterator.next();
+            iterator.remove();
+            evict(eldest);
+        }
+        return preparedStatement;
+    }
+
+    /**
+     * キャッシュから外したPreparedStatementを破棄する。 貸し出し中の場合はrelease()でCLOSEする。
+     *
+     * @param preparedStatement PreparedStatementオブジェクト
+     */
+    private void evict(PreparedStatement preparedStatement) {
+        evictionCount++;
+        if (!checkedOut.containsKey(preparedStatement)) {
+            closeQuietly(preparedStatement);
+        }
+    }
+
+    /**
+     * 前回反映後に無効化されたSQL文に該当するPreparedStatementを破棄する。
+     *
+     * @param generation 現在の無効化の世代番号
+     */
+    private void applyInvalidations(long generation) {
+        for (Invalidation invalidation : INVALIDATED_QUERIES.values()) {
+            if (invalidation.generation > seenGeneration) {
+                PreparedStatement preparedStatement = statements.remove(invalidation.query);
+                if (null != preparedStatement) {
+                    evict(preparedStatement);
+                }
+            }
+        }
+        seenGeneration = generation;
+    }
+
+    /**
+     * 使用済みのPreparedStatementをキャッシュへ返却する。 バインド変数をクリアし、次回の使用に備える。<br>
+     * キャッシュしていないもの（貸し出し中の競合で生成したもの、貸し出し中に破棄対象となったもの）はCLOSEする。
+     *
+     * @param preparedStatement PreparedStatementオブジェクト
+     * @throws SQLException
+     * @author H.Abe
+     */
+    public synchronized void release(PreparedStatement preparedStatement) throws SQLException {
+        if (null == preparedStatement) {
+            return;
+        }
+        String query = checkedOut.remove(preparedStatement);
+        if (null != query && preparedStatement == statements.get(query)) {
+            if (!preparedStatement.isClosed()) {
+                preparedStatement.clearParameters();
+            }
+        } else {
+            preparedStatement.close();
+        }
+    }
+
+    /**
+     * 引数のSQL文に対応するPreparedStatementをキャッシュから破棄してCLOSEする。
+     *
+     * @param query SQL文
+     * @author H.Abe
+     */
+    public synchronized void invalidate(String query) {
+        PreparedStatement preparedStatement = statements.remove(query);
+        if (null != preparedStatement) {
+            evict(preparedStatement);
+        }
+    }
+
+    /**
+     * キャッシュしている全てのPreparedStatementをCLOSEしてキャッシュを空にする。
+     *
+     * @author H.Abe
+     */
+    public synchronized void clear() {
+        List<PreparedStatement> closing = new ArrayList<PreparedStatement>(statements.values());
+        statements.clear();
+        checkedOut.clear();
+        for (PreparedStatement preparedStatement : closing) {
+            closeQuietly(preparedStatement);
+        }
+    }
+
+    /**
+     * 当キャッシュが引数のConnection専用に生成されたものかを判定する。 コネクションプールが物理接続単位に保持するキャッシュの場合、
+     * 利用者が取得したConnectionとは一致しないためfalseとなる。
+     *
+     * @param connection コネクション
+     * @return boolean
+     */
+    public boolean isOwnedBy(Connection connection) {
+        return this.connection == connection;
+    }
+
+    /**
+     * キャッシュ件数を取得する。
+     *
+     * @return int
+     */
+    public synchronized int size() {
+        return statements.size();
+    }
+
+    /**
+     * ヒット件数を取得する。
+     *
+     * @return long
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * ミス件数を取得する。
+     *
+     * @return long
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * 破棄件数を取得する。
+     *
+     * @return long
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * PreparedStatementをCLOSEする。 破棄対象のため、CLOSE時の例外は無視する。
+     *
+     * @param preparedStatement PreparedStatementオブジェクト
+     */
+    private void closeQuietly(PreparedStatement preparedStatement) {
+        try {
+            preparedStatement.close();
+        } catch (SQLException sqlException) {
+            // 破棄済みのため無視する
+        }
+    }
+
+    /**
+     * キャッシュの状態を文字列で返却する。
+     *
+     * @return String
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder("PreparedStatementCache[");
+        builder.append("size=").append(statements.size());
+        builder.append(", max=").append(maxSize);
+        builder.append(", hit=").append(hitCount);
+        builder.append(", miss=").append(missCount);
+        builder.append(", eviction=").append(evictionCount);
+        return builder.append("]").toString();
+    }
+
+    /**
+     * 無効化の記録
+     */
+    private static final class Invalidation {
+
+        /**
+         * 無効化されたSQL文
+         */
+        final String query;
+
+        /**
+         * 無効化時の世代番号
+         */
+        final long generation;
+
+        /**
+         * コンストラクタ
+         *
+         * @param query 無効化されたSQL文
+         * @param generation 無効化時の世代番号
+         */
+        Invalidation(String query, long generation) {
+            this.query = query;
+            this.generation = generation;
+        }
+    }
+}
@@ -4,13 +4,11 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.sql.Date;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import jp.co.ezeus.common.dto.BaseDto;
+import jp.co.ezeus.common.dto.BindingDto;
 
 /**
  * <p>
@@ -27,7 +25,10 @@ public class DBAccessUtil {
     /**
      * ResultSetの内容をDTOへ移し替える。 引数にResultSetとDTOを設定し、戻り値のListを受け取る。<br>
      * 引数に設定するDTOは @see {jp.co.ezeus.common.dto.BaseDto} を 継承するようにするのが前提。
-     * DTO内のフィールド名はDBのカラム名と同一（大文字・小文字は問わない）に する必要がある。
+     * DTO内のフィールド名はDBのカラム名と同一（大文字・小文字は問わない）に する必要がある。<br>
+     * 引数のDTOは移し替え先のクラスの指定に使用し、行毎に同クラスのDTOを 引数無しコンストラクタにて新たに生成する。
+     * コンパイル時生成のマッパー（@see {@link GeneratedDtoMapper}）が存在する場合はそれを使用し、 存在しない場合は
+     * カラムとsetterの対応をDTOクラスと列構成毎に1度だけ解決する。（@see {@link DtoMapper}）
      *
      * @param dto データ格納対象のDTOオブジェクト
      * @param resultSet 結果セット
@@ -42,50 +43,91 @@ public class DBAccessUtil {
      */
     public List<BaseDto> getDtoByResultSet(BaseDto dto, ResultSet resultSet) throws ClassNotFoundException, SQLException,
             IllegalArgumentException, IllegalAccessException, InvocationTargetException, SecurityException, NoSuchMethodException {
-        String dtoName = dto.getClass().getName();
-        Class<?> classObj = Class.forName(dtoName);
-        Method[] methods = classObj.getDeclaredMethods();
-        Map<String, String> methodNames = new HashMap<String, String>();
-        for (int i = 0; i < methods.length; i++) {
-            String method = methods[i].getName();
-            if (method.startsWith(UtilDefine.STRING_SET)) {
-                methodNames.put(method.substring(3).toUpperCase(), method);
+        return new ArrayList<BaseDto>(getDtoByResultSet(dto.getClass(), resultSet));
+    }
+
+    /**
+     * ResultSetの内容を引数のクラスのDTOへ移し替える。 行毎に引数のクラスのDTOを生成し、戻り値のListを受け取る。<br>
+     * 引数に設定するクラスは @see {jp.co.ezeus.common.dto.BaseDto} を 継承し、引数無しコンストラクタを持つことが前提。
+     *
+     * @param dtoClass データ格納対象のDTOクラス
+     * @param resultSet 結果セット
+     * @return List<T>
+     * @throws SQLException
+     * @throws IllegalAccessException
+     * @throws InvocationTargetException
+     * @throws NoSuchMethodException
+     * @author H.Abe
+     */
+    public <T extends BaseDto> List<T> getDtoByResultSet(Class<T> dtoClass, ResultSet resultSet) throws SQLException,
+            IllegalAccessException, InvocationTargetException, NoSuchMethodException {
+        List<T> resultList = new ArrayList<T>();
+        GeneratedDtoMapper<T> generatedMapper = GeneratedDtoMappers.find(dtoClass);
+        if (null != generatedMapper) {
+            int[] properties = generatedMapper.resolveColumns(resultSet.getMetaData());
+            while (resultSet.next()) {
+                resultList.add(generatedMapper.mapRow(resultSet, properties));
             }
+            return resultList;
         }
-        int columnCount = 0;
-        String columnName = null;
-        int columnType = 0;
-        List<BaseDto> resultList = new ArrayList<BaseDto>();
+        DtoMapper mapper = DtoMapper.getInstance(dtoClass, resultSet.getMetaData());
         while (resultSet.next()) {
-            ResultSetMetaData metaData = resultSet.getMetaData();
-            columnCount = metaData.getColumnCount();
-            for (int i = 0; i < columnCount; i++) {
-                columnName = metaData.getColumnName(i + 1);
-                columnType = metaData.getColumnType(i + 1);
-                if (java.sql.Types.VARCHAR == columnType) {
-                    String columnValue = resultSet.getString(columnName);
-                    Class<?>[] argsType = { String.class };
-                    Method method = classObj.getDeclaredMethod(methodNames.get(columnName), argsType);
-                    method.invoke(dto, columnValue);
-                } else if (java.sql.Types.INTEGER == columnType) {
-                    int columnValue = resultSet.getInt(columnName);
-                    Class<?>[] argsType = { int.class };
-                    Method method = classObj.getDeclaredMethod(methodNames.get(columnName), argsType);
-                    method.invoke(dto, columnValue);
-                } else if (java.sql.Types.CHAR == columnType) {
-                    String columnValue = resultSet.getString(columnName);
-                    Class<?>[] argsType = { String.class };
-                    Method method = classObj.getDeclaredMethod(methodNames.get(columnName), argsType);
-                    method.invoke(dto, columnValue);
-                } else if (java.sql.Types.DATE == columnType) {
-                    Date columnValue = resultSet.getDate(columnName);
-                    Class<?>[] argsType = { Date.class };
-                    Method method = classObj.getDeclaredMethod(methodNames.get(columnName), argsType);
-                    method.invoke(dto, columnValue);
+            resultList.add(dtoClass.cast(mapper.mapRow(resultSet)));
+        }
+        return resultList;
+    }
+
+    /**
+     * DTOの値を引数のプロパティ名の順にバインド変数へ変換する。 プロパティの型はint、Integer、String、 java.sql.Dateに対応する。<br>
+     * 未対応の型、値がNULLのIntegerはIllegalArgumentExceptionとする。<br>
+     * コンパイル時生成のマッパーが存在する場合はgetterを直接呼び出し、 存在しない場合はリフレクションにてgetterを呼び出す。
+     *
+     * @param dto DTO
+     * @param propertyNames プロパティ名（大文字・小文字は問わない）
+     * @return List<BindingDto>
+     * @throws IllegalAccessException
+     * @throws InvocationTargetException
+     * @author H.Abe
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends BaseDto> List<BindingDto> getBindingsByDto(T dto, String... propertyNames) throws IllegalAccessException,
+            InvocationTargetException {
+        GeneratedDtoMapper<T> generatedMapper = GeneratedDtoMappers.find((Class<T>) dto.getClass());
+        if (null != generatedMapper) {
+            return generatedMapper.toBindings(dto, propertyNames);
+        }
+        Method[] methods = dto.getClass().getMethods();
+        List<BindingDto> binds = new ArrayList<BindingDto>(propertyNames.length);
+        for (String propertyName : propertyNames) {
+            Method getter = null;
+            for (Method method : methods) {
+                if (method.getName().equalsIgnoreCase(UtilDefine.STRING_GET + propertyName) && method.getParameterTypes().length == 0) {
+                    getter = method;
+                    break;
+                }
+            }
+            if (null == getter) {
+                throw new IllegalArgumentException(propertyName);
+            }
+            Object value = getter.invoke(dto);
+            BindingDto bind = new BindingDto();
+            if (int.class == getter.getReturnType() || Integer.class == getter.getReturnType()) {
+                if (null == value) {
+                    throw new IllegalArgumentException(propertyName + " is null");
                 }
+                bind.setArgsType(UtilDefine.INT_ARGS_TYPE);
+                bind.setIntValue(((Integer) value).intValue());
+            } else if (String.class == getter.getReturnType()) {
+                bind.setArgsType(UtilDefine.STRING_ARGS_TYPE);
+                bind.setStringValue((String) value);
+            } else if (Date.class == getter.getReturnType()) {
+                bind.setArgsType(UtilDefine.DATE_ARGS_TYPE);
+                bind.setDateValue((Date) value);
+            } else {
+                throw new IllegalArgumentException(propertyName);
             }
-            resultList.add(dto);
+            binds.add(bind);
         }
-        return resultList;
+        return binds;
     }
 }
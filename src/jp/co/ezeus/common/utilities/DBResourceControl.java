@@ -1,16 +1,25 @@
 package jp.co.ezeus.common.utilities;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jp.co.ezeus.common.dto.BindBuffer;
+import jp.co.ezeus.common.rdbControl.impl.PreparedStatementCache;
 
 /**
  * <p>
  * DBアクセス用リソース管理クラス
  * </p>
- * DBアクセスに関するリソースファイルを管理する。 「resourceControl.properties」の内容からSQLファイル とのマッピングを行う。
+ * DBアクセスに関するリソースファイルを管理する。 「resourceControl.properties」の内容からSQLファイル とのマッピングを行う。<br>
+ * 全てのSQLファイルはインスタンス生成時に @see {@link SqlRegistry} へ読み込むため、 SQL文の取得時にファイルの読み込みは行わない。<br>
+ * 再読み込みモード（startReload()、またはシステムプロパティ「jp.co.ezeus.common.sql.reload=true」）では、
+ * SQLファイルの変更を検知して変更されたSQLキーのみを再読み込みし、新しいバージョンのSqlRegistryへ置き換える。
  *
  * @author H.Abe
  * @version 1.0
@@ -28,11 +37,26 @@ public class DBResourceControl {
      */
     private static final String PATH_PROPERTIES = "properties/resourceControl.properties";
 
+    /**
+     * 再読み込みモードを有効にするシステムプロパティ
+     */
+    public static final String PROPERTY_RELOAD = "jp.co.ezeus.common.sql.reload";
+
     /**
      * Propertiesファイル
      */
     private Properties properties;
 
+    /**
+     * SQL定義の登録
+     */
+    private volatile SqlRegistry registry;
+
+    /**
+     * SQLファイルの再読み込み（再読み込みモードの場合のみ保持）
+     */
+    private SqlReloader reloader;
+
     /**
      * コンストラクタ
      */
@@ -40,10 +64,27 @@ public class DBResourceControl {
         ClassLoader classLoader = getClass().getClassLoader();
         properties = new Properties();
         try {
-            properties.load(classLoader.getResourceAsStream(PATH_PROPERTIES));
+            InputStream inStream = classLoader.getResourceAsStream(PATH_PROPERTIES);
+            if (null != inStream) {
+                try {
+                    properties.load(inStream);
+                } finally {
+                    inStream.close();
+                }
+            }
         } catch (IOException e) {
 
         }
+        registry = SqlRegistry.load(properties);
+        if (Boolean.getBoolean(PROPERTY_RELOAD)) {
+            try {
+                startReload();
+            } catch (IOException e) {
+                // SQLファイルの読み込みは完了しているため起動は継続し、再読み込みが無効であることを記録する
+                Logger.getLogger(DBResourceControl.class.getName()).log(Level.WARNING,
+                        "SQLファイルの再読み込みを開始できません（" + PROPERTY_RELOAD + "）", e);
+            }
+        }
     }
 
     /**
@@ -67,32 +108,132 @@ public class DBResourceControl {
     }
 
     /**
-     * SQLファイル読み込み処理を行う。 引数にプロパティファイル記載のSQL名を設定し、 該当するSQLファイルのパスを取得する。
-     * 取得したパスからSQLファイルの内容を読み取り SQL文を作成して返却する。
+     * SQLファイル読み込み処理を行う。 引数にプロパティファイル記載のSQL名を設定し、 該当するSQLファイルのSQL文を返却する。<br>
+     * SQL文は生成時に読み込み、空白を正規化済みのものを返却する。
      *
      * @param sqlKeyName SQLファイル名（プロパティファイルのキー）
      * @return String
-     * @throws IOException
+     * @throws IOException SQLキーが登録されていない場合、またはSQLファイルの読み込みに失敗していた場合
      * @author H.Abe
      */
     public String readSQLFile(String sqlKeyName) throws IOException {
-        FileReader file = new FileReader(getPropertiesValue(sqlKeyName));
-        BufferedReader reader = new BufferedReader(file);
-        StringBuilder queryBuilder = new StringBuilder();
-        String str = null;
-        while ((str = reader.readLine()) != null) {
-            str = str.replaceAll(UtilDefine.STRING_TAB, UtilDefine.STRING_HALF_SPACE);
-            queryBuilder.append(str);
+        return registry.getQuery(sqlKeyName);
+    }
+
+    /**
+     * SQLキーに対応するSQL定義を取得する。 登録されていない場合はNULLを返却する。
+     *
+     * @param sqlKeyName SQLキー（プロパティファイルのキー）
+     * @return SqlDefinition
+     * @author H.Abe
+     */
+    public SqlDefinition getSqlDefinition(String sqlKeyName) {
+        return registry.get(sqlKeyName);
+    }
+
+    /**
+     * SQLキーに対応するSQL文の置換文字列をバインド変数へ変換する。 replaceBind()で置換したSQL文と同じ結果となるSQL文を返却し、
+     * バインド変数を引数のBindBufferへ設定する。 変換内容は @see {@link SqlTemplate#parameterize(List, BindBuffer)} を参照。<br>
+     * "?"の数と変数リストの要素数が一致しない場合はNULLを返却する。
+     *
+     * @param sqlKeyName SQLキー（プロパティファイルのキー）
+     * @param binds 置換文字リスト
+     * @param buffer バインド変数の設定先
+     * @return String 実行するSQL文
+     * @throws IOException SQLキーが登録されていない場合、またはSQLファイルの読み込みに失敗していた場合
+     * @author H.Abe
+     */
+    public String parameterizeBind(String sqlKeyName, List<String> binds, BindBuffer buffer) throws IOException {
+        SqlRegistry current = registry;
+        current.getQuery(sqlKeyName);
+        return current.get(sqlKeyName).getTemplate().parameterize(binds, buffer);
+    }
+
+    /**
+     * SQLキーに対応するSQL文の名前付きパラメータへ、Mapの値を設定する。 実行するSQL文（名前付きパラメータは"?"へ置換済み）を返却し、
+     * バインド変数を引数のBindBufferへ設定する。
+     *
+     * @param sqlKeyName SQLキー（プロパティファイルのキー）
+     * @param params パラメータ名をキーとする値
+     * @param buffer バインド変数の設定先
+     * @return String 実行するSQL文
+     * @throws IOException SQLキーが登録されていない場合、またはSQLファイルの読み込みに失敗していた場合
+     * @author H.Abe
+     */
+    public String bindNamed(String sqlKeyName, Map<String, ?> params, BindBuffer buffer) throws IOException {
+        SqlRegistry current = registry;
+        current.getQuery(sqlKeyName);
+        SqlDefinition definition = current.get(sqlKeyName);
+        definition.getTemplate().bind(params, buffer);
+        return definition.getQuery();
+    }
+
+    /**
+     * SQL定義の登録を取得する。
+     *
+     * @return SqlRegistry
+     */
+    public SqlRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * 再読み込みモードを開始する。 SQLファイルのディレクトリの監視を開始する。
+     *
+     * @throws IOException
+     * @author H.Abe
+     */
+    public synchronized void startReload() throws IOException {
+        if (null == reloader) {
+            reloader = new SqlReloader(this);
+            reloader.start();
         }
-        file.close();
-        reader.close();
-        return queryBuilder.toString();
+    }
+
+    /**
+     * 再読み込みモードを終了する。
+     *
+     * @author H.Abe
+     */
+    public synchronized void stopReload() {
+        if (null != reloader) {
+            reloader.stop();
+            reloader = null;
+        }
+    }
+
+    /**
+     * 引数のSQLキーのSQLファイルを再読み込みし、SqlRegistryを置き換える。 SQL文の取得側は置き換え前後のいずれかの
+     * SqlRegistryを参照するため、ロックを取得しない。<br>
+     * 置き換え前のSQL文はPreparedStatementキャッシュから無効化する。
+     *
+     * @param sqlKeyNames SQLキー
+     * @return Collection<String> 置き換えたSQLキー
+     * @author H.Abe
+     */
+    public synchronized Collection<String> reload(Collection<String> sqlKeyNames) {
+        Map<String, SqlDefinition> replaced = new HashMap<String, SqlDefinition>();
+        SqlRegistry next = registry.reload(sqlKeyNames, replaced);
+        if (next == registry) {
+            return replaced.keySet();
+        }
+        registry = next;
+        Map<String, String> oldQueries = new HashMap<String, String>();
+        for (Map.Entry<String, SqlDefinition> entry : replaced.entrySet()) {
+            if (null != entry.getValue()) {
+                oldQueries.put(entry.getKey(), entry.getValue().getQuery());
+            }
+        }
+        PreparedStatementCache.invalidateAll(oldQueries);
+        return replaced.keySet();
     }
 
     /**
      * SQL文のバインド変数設定処理を行う。 引数に変換されるSQL文と変換する変数を受け取り、 バインド後のSQL文を返却する。<br>
-     * SQL文の変換対象となるのは"?"であり、変換されるSQL文字列中で 出現するindex順と変換する変数リストのindexは合わせる必要がある。<br>
-     * 引数がNULL、"?"を含まない、変数リストに格納値が存在しない、 "?"の数と変数リストの要素数が一致しない場合は、 NULLを返却する。
+     * SQL文の変換対象となるのは"?"であり、変換されるSQL文字列中で 出現するindex順と変換する変数リストのindexは合わせる必要がある。
+     * 文字列リテラル、コメント内の"?"は変換対象としない。<br>
+     * 引数がNULL、"?"を含まない、変数リストに格納値が存在しない、 "?"の数と変数リストの要素数が一致しない場合は、 NULLを返却する。<br>
+     * SqlRegistryに登録済みのSQL文は解析済みのテンプレート（@see {@link SqlTemplate}）を使用する。
      *
      * @param query SQL文
      * @param binds 変換文字リスト
@@ -100,18 +241,11 @@ public class DBResourceControl {
      * @author H.Abe
      */
     public String replaceBind(String query, List<String> binds) {
-        if (query == null || binds.size() == 0) {
-            return null;
-        }
-        for (int i = 0; i < binds.size(); i++) {
-            if (query.indexOf(UtilDefine.STRING_QUESTION) == -1 && i < binds.size()) {
-                return null;
-            }
-            query = query.replaceFirst(UtilDefine.STRING_REGEX_QUESTION, binds.get(i));
-        }
-        if (query.indexOf(UtilDefine.STRING_QUESTION) > -1) {
+        if (query == null) {
             return null;
         }
-        return query;
+        SqlDefinition definition = registry.findByQuery(query);
+        SqlTemplate template = (null != definition) ? definition.getTemplate() : SqlTemplate.compile(query);
+        return template.render(binds);
     }
 }
@@ -0,0 +1,500 @@
+package jp.co.ezeus.common.utilities;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import jp.co.ezeus.common.dto.BaseDto;
+
+/**
+ * <p>
+ * ResultSetからDTOへの移し替えクラス
+ * </p>
+ * DTOクラスと結果セットの列構成の組み合わせ毎に、カラムとsetterの対応を1度だけ解決して保持する。<br>
+ * setterとDTOのコンストラクタはMethodHandleとして保持し、行毎のリフレクション（メソッド検索、Method.invoke）を行わない。<br>
+ * カラム値の取得はsetterの引数型に応じたResultSetのgetterで行うため、プリミティブ型の値はボクシングせずに設定する。
+ *
+ * @see DBAccessUtil
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public final class DtoMapper {
+
+    /****************************************
+     ****** setterの引数型 ******
+     ****************************************/
+    private static final int KIND_INT = 0;
+
+    private static final int KIND_INTEGER = 1;
+
+    private static final int KIND_LONG = 2;
+
+    private static final int KIND_LONG_OBJECT = 3;
+
+    private static final int KIND_SHORT = 4;
+
+    private static final int KIND_SHORT_OBJECT = 5;
+
+    private static final int KIND_DOUBLE = 6;
+
+    private static final int KIND_DOUBLE_OBJECT = 7;
+
+    private static final int KIND_FLOAT = 8;
+
+    private static final int KIND_FLOAT_OBJECT = 9;
+
+    private static final int KIND_BOOLEAN = 10;
+
+    private static final int KIND_BOOLEAN_OBJECT = 11;
+
+    private static final int KIND_STRING = 12;
+
+    private static final int KIND_BIG_DECIMAL = 13;
+
+    private static final int KIND_DATE = 14;
+
+    private static final int KIND_TIME = 15;
+
+    private static final int KIND_TIMESTAMP = 16;
+
+    private static final int KIND_UTIL_DATE = 17;
+
+    private static final int KIND_BYTES = 18;
+
+    private static final int KIND_LOCAL_DATE = 19;
+
+    private static final int KIND_LOCAL_DATE_TIME = 20;
+
+    private static final int KIND_OBJECT = 21;
+
+    /**
+     * setterの引数型と種別の対応
+     */
+    private static final Map<Class<?>, Integer> KINDS = new HashMap<Class<?>, Integer>();
+
+    static {
+        KINDS.put(int.class, KIND_INT);
+        KINDS.put(Integer.class, KIND_INTEGER);
+        KINDS.put(long.class, KIND_LONG);
+        KINDS.put(Long.class, KIND_LONG_OBJECT);
+        KINDS.put(short.class, KIND_SHORT);
+        KINDS.put(Short.class, KIND_SHORT_OBJECT);
+        KINDS.put(double.class, KIND_DOUBLE);
+        KINDS.put(Double.class, KIND_DOUBLE_OBJECT);
+        KINDS.put(float.class, KIND_FLOAT);
+        KINDS.put(Float.class, KIND_FLOAT_OBJECT);
+        KINDS.put(boolean.class, KIND_BOOLEAN);
+        KINDS.put(Boolean.class, KIND_BOOLEAN_OBJECT);
+        KINDS.put(String.class, KIND_STRING);
+        KINDS.put(BigDecimal.class, KIND_BIG_DECIMAL);
+        KINDS.put(Date.class, KIND_DATE);
+        KINDS.put(Time.class, KIND_TIME);
+        KINDS.put(Timestamp.class, KIND_TIMESTAMP);
+        KINDS.put(java.util.Date.class, KIND_UTIL_DATE);
+        KINDS.put(byte[].class, KIND_BYTES);
+        KINDS.put(LocalDate.class, KIND_LOCAL_DATE);
+        KINDS.put(LocalDateTime.class, KIND_LOCAL_DATE_TIME);
+        KINDS.put(Object.class, KIND_OBJECT);
+    }
+
+    /**
+     * DTOクラス毎、列構成毎の移し替え定義
+     */
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<String, DtoMapper>> MAPPERS = new ConcurrentHashMap<Class<?>, ConcurrentMap<String, DtoMapper>>();
+
+    /**
+     * DTOの引数無しコンストラクタ（戻り値はObject型）
+     */
+    private final MethodHandle constructor;
+
+    /**
+     * 設定対象の列位置（1始まり）
+     */
+    private final int[] columnIndexes;
+
+    /**
+     * 設定対象の列のsetterの引数型
+     */
+    private final int[] kinds;
+
+    /**
+     * 設定対象の列のsetter（第1引数はObject型）
+     */
+    private final MethodHandle[] setters;
+
+    /**
+     * コンストラクタ
+     *
+     * @param constructor DTOの引数無しコンストラクタ
+     * @param columnIndexes 設定対象の列位置
+     * @param kinds setterの引数型
+     * @param setters setter
+     */
+    private DtoMapper(MethodHandle constructor, int[] columnIndexes, int[] kinds, MethodHandle[] setters) {
+        this.constructor = constructor;
+        this.columnIndexes = columnIndexes;
+        this.kinds = kinds;
+        this.setters = setters;
+    }
+
+    /**
+     * DTOクラスと結果セットの列構成に対応する移し替え定義を取得する。 未作成の場合は作成してキャッシュする。
+     *
+     * @param dtoClass DTOクラス
+     * @param metaData 結果セットのメタデータ
+     * @return DtoMapper
+     * @throws SQLException
+     * @throws NoSuchMethodException
+     * @throws IllegalAccessException
+     * @author H.Abe
+     */
+    public static DtoMapper getInstance(Class<? extends BaseDto> dtoClass, ResultSetMetaData metaData) throws SQLException,
+            NoSuchMethodException, IllegalAccessException {
+        int columnCount = metaData.getColumnCount();
+        String[] columnNames = new String[columnCount];
+        int[] columnTypes = new int[columnCount];
+        StringBuilder shape = new StringBuilder();
+        for (int i = 0; i < columnCount; i++) {
+            columnNames[i] = metaData.getColumnName(i + 1);
+            columnTypes[i] = metaData.getColumnType(i + 1);
+            shape.append(columnNames[i]).append(':').append(columnTypes[i]).append(',');
+        }
+        ConcurrentMap<String, DtoMapper> mappers = MAPPERS.get(dtoClass);
+        if (null == mappers) {
+            ConcurrentMap<String, DtoMapper> created = new ConcurrentHashMap<String, DtoMapper>();
+            mappers = MAPPERS.putIfAbsent(dtoClass, created);
+            if (null == mappers) {
+                mappers = created;
+            }
+        }
+        String key = shape.toString();
+        DtoMapper mapper = mappers.get(key);
+        if (null == mapper) {
+            mapper = create(dtoClass, columnNames, columnTypes);
+            DtoMapper existing = mappers.putIfAbsent(key, mapper);
+            if (null != existing) {
+                mapper = existing;
+            }
+        }
+        return mapper;
+    }
+
+    /**
+     * 移し替え定義を作成する。 カラム名と同名（大文字・小文字は問わない）のsetterが存在しない列、 引数型が未対応の列は設定対象外とする。
+     *
+     * @param dtoClass DTOクラス
+     * @param columnNames カラム名
+     * @param columnTypes カラムのSQL型
+     * @return DtoMapper
+     * @throws NoSuchMethodException
+     * @throws IllegalAccessException
+     */
+    private static DtoMapper create(Class<?> dtoClass, String[] columnNames, int[] columnTypes) throws NoSuchMethodException,
+            IllegalAccessException {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle constructor = lookup.unreflectConstructor(accessible(dtoClass.getDeclaredConstructor()))
+                .asType(MethodType.methodType(Object.class));
+        Map<String, List<Method>> setterMap = new HashMap<String, List<Method>>();
+        for (Method method : dtoClass.getMethods()) {
+            String name = method.getName();
+            if (name.startsWith(UtilDefine.STRING_SET) && method.getParameterTypes().length == 1
+                    && !Modifier.isStatic(method.getModifiers()) && KINDS.containsKey(method.getParameterTypes()[0])) {
+                String property = name.substring(3).toUpperCase();
+                List<Method> candidates = setterMap.get(property);
+                if (null == candidates) {
+                    candidates = new ArrayList<Method>();
+                    setterMap.put(property, candidates);
+                }
+                candidates.add(method);
+            }
+        }
+        List<Integer> indexList = new ArrayList<Integer>();
+        List<Integer> kindList = new ArrayList<Integer>();
+        List<MethodHandle> setterList = new ArrayList<MethodHandle>();
+        for (int i = 0; i < columnNames.length; i++) {
+            List<Method> candidates = setterMap.get(columnNames[i].toUpperCase());
+            if (null == candidates) {
+                continue;
+            }
+            Method setter = selectSetter(candidates, columnTypes[i]);
+            Class<?> parameterType = setter.getParameterTypes()[0];
+            indexList.add(i + 1);
+            kindList.add(KINDS.get(parameterType));
+            setterList.add(lookup.unreflect(accessible(setter)).asType(
+                    MethodType.methodType(void.class, Object.class, parameterType)));
+        }
+        int[] columnIndexes = new int[indexList.size()];
+        int[] kinds = new int[kindList.size()];
+        for (int i = 0; i < columnIndexes.length; i++) {
+            columnIndexes[i] = indexList.get(i);
+            kinds[i] = kindList.get(i);
+        }
+        return new DtoMapper(constructor, columnIndexes, kinds, setterList.toArray(new MethodHandle[setterList.size()]));
+    }
+
+    /**
+     * 同名のsetterが複数存在する場合に、カラムのSQL型に適合する引数型のsetterを選択する。
+     *
+     * @param candidates setterの候補
+     * @param columnType カラムのSQL型
+     * @return Method
+     */
+    private static Method selectSetter(List<Method> candidates, int columnType) {
+        Class<?>[] parameterTypes = new Class<?>[candidates.size()];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            parameterTypes[i] = candidates.get(i).getParameterTypes()[0];
+        }
+        return candidates.get(selectParameterType(parameterTypes, columnType));
+    }
+
+    /**
+     * 同名のsetterの引数型から、カラムのSQL型に適合するものを選択して位置を返却する。 適合するものが複数、
+     * または存在しない場合は、対応型の定義順（int、Integer、long、…、Object）で先のものを選択する。<br>
+     * setterの宣言順に依存しないため、コンパイル時生成のマッパー（@see {@link GeneratedDtoMapper}）も 同じsetterを選択する。
+     *
+     * @param parameterTypes setterの引数型（対応型のみ）
+     * @param columnType カラムのSQL型
+     * @return int
+     * @author H.Abe
+     */
+    public static int selectParameterType(Class<?>[] parameterTypes, int columnType) {
+        int selected = 0;
+        boolean selectedPreferred = isPreferred(parameterTypes[0], columnType);
+        for (int i = 1; i < parameterTypes.length; i++) {
+            boolean preferred = isPreferred(parameterTypes[i], columnType);
+            if ((preferred && !selectedPreferred)
+                    || (preferred == selectedPreferred && KINDS.get(parameterTypes[i]) < KINDS.get(parameterTypes[selected]))) {
+                selected = i;
+                selectedPreferred = preferred;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * setterの引数型がカラムのSQL型に適合するかを判定する。
+     *
+     * @param parameterType setterの引数型
+     * @param columnType カラムのSQL型
+     * @return boolean
+     */
+    private static boolean isPreferred(Class<?> parameterType, int columnType) {
+        switch (columnType) {
+        case Types.CHAR:
+        case Types.VARCHAR:
+        case Types.LONGVARCHAR:
+        case Types.NCHAR:
+        case Types.NVARCHAR:
+        case Types.LONGNVARCHAR:
+        case Types.CLOB:
+            return String.class == parameterType;
+        case Types.INTEGER:
+        case Types.SMALLINT:
+        case Types.TINYINT:
+            return int.class == parameterType || Integer.class == parameterType;
+        case Types.BIGINT:
+            return long.class == parameterType || Long.class == parameterType;
+        case Types.NUMERIC:
+        case Types.DECIMAL:
+            return BigDecimal.class == parameterType;
+        case Types.REAL:
+        case Types.FLOAT:
+        case Types.DOUBLE:
+            return double.class == parameterType || Double.class == parameterType;
+        case Types.BIT:
+        case Types.BOOLEAN:
+            return boolean.class == parameterType || Boolean.class == parameterType;
+        case Types.DATE:
+            return Date.class == parameterType || LocalDate.class == parameterType;
+        case Types.TIME:
+            return Time.class == parameterType;
+        case Types.TIMESTAMP:
+            return Timestamp.class == parameterType || LocalDateTime.class == parameterType;
+        case Types.BINARY:
+        case Types.VARBINARY:
+        case Types.LONGVARBINARY:
+        case Types.BLOB:
+            return byte[].class == parameterType;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * publicでないクラスのメンバも呼び出せるようにする。 アクセス可否の判定は行わず、常にsetAccessible(true)とする。
+     *
+     * @param method メソッド、コンストラクタ
+     * @return T
+     */
+    private static <T extends java.lang.reflect.AccessibleObject> T accessible(T method) {
+        method.setAccessible(true);
+        return method;
+    }
+
+    /**
+     * 結果セットの現在行から新たなDTOを生成して値を設定する。 NULLのカラムはプリミティブ型のsetterを呼び出さず、初期値のままとする。
+     *
+     * @param resultSet 結果セット
+     * @return BaseDto
+     * @throws SQLException
+     * @throws InvocationTargetException
+     * @author H.Abe
+     */
+    public BaseDto mapRow(ResultSet resultSet) throws SQLException, InvocationTargetException {
+        try {
+            Object dto = (Object) constructor.invokeExact();
+            for (int i = 0; i < kinds.length; i++) {
+                setValue(dto, resultSet, columnIndexes[i], kinds[i], setters[i]);
+            }
+            return (BaseDto) dto;
+        } catch (SQLException sqlException) {
+            throw sqlException;
+        } catch (RuntimeException runtimeException) {
+            throw runtimeException;
+        } catch (Error error) {
+            throw error;
+        } catch (Throwable throwable) {
+            throw new InvocationTargetException(throwable);
+        }
+    }
+
+    /**
+     * setterの引数型に応じたgetterでカラム値を取得し、DTOへ設定する。
+     *
+     * @param dto DTO
+     * @param resultSet 結果セット
+     * @param index 列位置（1始まり）
+     * @param kind setterの引数型
+     * @param setter setter
+     * @throws Throwable
+     */
+    private static void setValue(Object dto, ResultSet resultSet, int index, int kind, MethodHandle setter) throws Throwable {
+        switch (kind) {
+        case KIND_INT: {
+            int value = resultSet.getInt(index);
+            if (!resultSet.wasNull()) {
+                setter.invokeExact(dto, value);
+            }
+            break;
+        }
+        case KIND_INTEGER: {
+            int value = resultSet.getInt(index);
+            setter.invokeExact(dto, resultSet.wasNull() ? (Integer) null : Integer.valueOf(value));
+            break;
+        }
+        case KIND_LONG: {
+            long value = resultSet.getLong(index);
+            if (!resultSet.wasNull()) {
+                setter.invokeExact(dto, value);
+            }
+            break;
+        }
+        case KIND_LONG_OBJECT: {
+            long value = resultSet.getLong(index);
+            setter.invokeExact(dto, resultSet.wasNull() ? (Long) null : Long.valueOf(value));
+            break;
+        }
+        case KIND_SHORT: {
+            short value = resultSet.getShort(index);
+            if (!resultSet.wasNull()) {
+                setter.invokeExact(dto, value);
+            }
+            break;
+        }
+        case KIND_SHORT_OBJECT: {
+            short value = resultSet.getShort(index);
+            setter.invokeExact(dto, resultSet.wasNull() ? (Short) null : Short.valueOf(value));
+            break;
+        }
+        case KIND_DOUBLE: {
+            double value = resultSet.getDouble(index);
+            if (!resultSet.wasNull()) {
+                setter.invokeExact(dto, value);
+            }
+            break;
+        }
+        case KIND_DOUBLE_OBJECT: {
+            double value = resultSet.getDouble(index);
+            setter.invokeExact(dto, resultSet.wasNull() ? (Double) null : Double.valueOf(value));
+            break;
+        }
+        case KIND_FLOAT: {
+            float value = resultSet.getFloat(index);
+            if (!resultSet.wasNull()) {
+                setter.invokeExact(dto, value);
+            }
+            break;
+        }
+        case KIND_FLOAT_OBJECT: {
+            float value = resultSet.getFloat(index);
+            setter.invokeExact(dto, resultSet.wasNull() ? (Float) null : Float.valueOf(value));
+            break;
+        }
+        case KIND_BOOLEAN: {
+            boolean value = resultSet.getBoolean(index);
+            if (!resultSet.wasNull()) {
+                setter.invokeExact(dto, value);
+            }
+            break;
+        }
+        case KIND_BOOLEAN_OBJECT: {
+            boolean value = resultSet.getBoolean(index);
+            setter.invokeExact(dto, resultSet.wasNull() ? (Boolean) null : Boolean.valueOf(value));
+            break;
+        }
+        case KIND_STRING:
+            setter.invokeExact(dto, resultSet.getString(index));
+            break;
+        case KIND_BIG_DECIMAL:
+            setter.invokeExact(dto, resultSet.getBigDecimal(index));
+            break;
+        case KIND_DATE:
+            setter.invokeExact(dto, resultSet.getDate(index));
+            break;
+        case KIND_TIME:
+            setter.invokeExact(dto, resultSet.getTime(index));
+            break;
+        case KIND_TIMESTAMP:
+            setter.invokeExact(dto, resultSet.getTimestamp(index));
+            break;
+        case KIND_UTIL_DATE:
+            setter.invokeExact(dto, (java.util.Date) resultSet.getTimestamp(index));
+            break;
+        case KIND_BYTES:
+            setter.invokeExact(dto, resultSet.getBytes(index));
+            break;
+        case KIND_LOCAL_DATE: {
+            Date value = resultSet.getDate(index);
+            setter.invokeExact(dto, (null == value) ? (LocalDate) null : value.toLocalDate());
+            break;
+        }
+        case KIND_LOCAL_DATE_TIME: {
+            Timestamp value = resultSet.getTimestamp(index);
+            setter.invokeExact(dto, (null == value) ? (LocalDateTime) null : value.toLocalDateTime());
+            break;
+        }
+        default:
+            setter.invokeExact(dto, resultSet.getObject(index));
+            break;
+        }
+    }
+}
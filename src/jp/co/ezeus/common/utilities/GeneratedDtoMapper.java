@@ -0,0 +1,52 @@
+package jp.co.ezeus.common.utilities;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import jp.co.ezeus.common.dto.BaseDto;
+import jp.co.ezeus.common.dto.BindingDto;
+
+/**
+ * <p>
+ * 生成DTOマッパーインターフェース
+ * </p>
+ * BaseDtoを実装するクラス毎にコンパイル時に生成されるマッパーが実装する。（@see
+ * {@link jp.co.ezeus.common.processor.DtoMapperProcessor}）<br>
+ * 生成クラス名は「DTOクラスのバイナリ名 + "_DtoMapper"」とし、 @see {@link GeneratedDtoMappers} が実行時に検索する。
+ *
+ * @param <T> DTOクラス
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public interface GeneratedDtoMapper<T extends BaseDto> {
+
+    /**
+     * 結果セットの列毎に、設定対象のプロパティ番号を解決する。 設定対象外の列は-1とする。
+     *
+     * @param metaData 結果セットのメタデータ
+     * @return int[]
+     * @throws SQLException
+     */
+    public abstract int[] resolveColumns(ResultSetMetaData metaData) throws SQLException;
+
+    /**
+     * 結果セットの現在行から新たなDTOを生成して値を設定する。
+     *
+     * @param resultSet 結果セット
+     * @param properties resolveColumnsで解決したプロパティ番号
+     * @return T
+     * @throws SQLException
+     */
+    public abstract T mapRow(ResultSet resultSet, int[] properties) throws SQLException;
+
+    /**
+     * DTOの値を引数のプロパティ名の順にバインド変数へ変換する。
+     *
+     * @param dto DTO
+     * @param propertyNames プロパティ名（大文字・小文字は問わない）
+     * @return List<BindingDto>
+     */
+    public abstract List<BindingDto> toBindings(T dto, String... propertyNames);
+}
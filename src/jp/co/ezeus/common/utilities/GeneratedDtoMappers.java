@@ -0,0 +1,77 @@
+package jp.co.ezeus.common.utilities;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import jp.co.ezeus.common.dto.BaseDto;
+
+/**
+ * <p>
+ * 生成DTOマッパー検索クラス
+ * </p>
+ * DTOクラスに対応するコンパイル時生成のマッパー @see {@link GeneratedDtoMapper} を検索する。<br>
+ * 検索結果（生成クラスが存在しない場合を含む）はDTOクラス毎にキャッシュし、2回目以降はクラスの検索を行わない。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public final class GeneratedDtoMappers {
+
+    /**
+     * 生成クラス名の接尾辞
+     */
+    public static final String CLASS_SUFFIX = "_DtoMapper";
+
+    /**
+     * 生成クラスが存在しないことを示す値
+     */
+    private static final Object NONE = new Object();
+
+    /**
+     * DTOクラス毎の検索結果
+     */
+    private static final ConcurrentMap<Class<?>, Object> MAPPERS = new ConcurrentHashMap<Class<?>, Object>();
+
+    /**
+     * コンストラクタ
+     */
+    private GeneratedDtoMappers() {
+    }
+
+    /**
+     * DTOクラスに対応する生成マッパーを取得する。 生成クラスが存在しない場合はnullを返却する。
+     *
+     * @param dtoClass DTOクラス
+     * @return GeneratedDtoMapper<T>
+     * @author H.Abe
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends BaseDto> GeneratedDtoMapper<T> find(Class<T> dtoClass) {
+        Object mapper = MAPPERS.get(dtoClass);
+        if (null == mapper) {
+            mapper = load(dtoClass);
+            MAPPERS.putIfAbsent(dtoClass, mapper);
+        }
+        return (NONE == mapper) ? null : (GeneratedDtoMapper<T>) mapper;
+    }
+
+    /**
+     * 生成クラスを読み込んでインスタンスを生成する。
+     *
+     * @param dtoClass DTOクラス
+     * @return Object
+     */
+    private static Object load(Class<?> dtoClass) {
+        try {
+            Class<?> mapperClass = Class.forName(dtoClass.getName() + CLASS_SUFFIX, true, dtoClass.getClassLoader());
+            if (GeneratedDtoMapper.class.isAssignableFrom(mapperClass)) {
+                return mapperClass.getDeclaredConstructor().newInstance();
+            }
+        } catch (ClassNotFoundException exception) {
+            // 生成対象外のDTOはリフレクションで移し替える
+        } catch (ReflectiveOperationException exception) {
+            // 生成クラスを生成できない場合も同上
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,106 @@
+package jp.co.ezeus.common.utilities;
+
+/**
+ * <p>
+ * SQL定義クラス
+ * </p>
+ * プロパティファイルのSQLキーに対応するSQL文と、解析済みのテンプレート（@see {@link SqlTemplate}）を保持する。<br>
+ * SQL文は空白を正規化し、名前付きパラメータ（":名前"）を"?"へ置換して、internした状態で保持する。 生成後は変更されないため、複数スレッドから同期化せずに参照できる。
+ *
+ * @see SqlRegistry
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public final class SqlDefinition {
+
+    /**
+     * SQLキー
+     */
+    private final String key;
+
+    /**
+     * SQLファイルのパス
+     */
+    private final String path;
+
+    /**
+     * SQL文
+     */
+    private final String query;
+
+    /**
+     * 解析済みのテンプレート
+     */
+    private final SqlTemplate template;
+
+    /**
+     * コンストラクタ
+     *
+     * @param key SQLキー
+     * @param path SQLファイルのパス
+     * @param query 正規化済みのSQL文（名前付きパラメータを含む）
+     * @author H.Abe
+     */
+    public SqlDefinition(String key, String path, String query) {
+        this.key = key;
+        this.path = path;
+        this.template = SqlTemplate.compile(query.intern());
+        this.query = template.getQuery().intern();
+    }
+
+    /**
+     * SQLキーを取得する。
+     *
+     * @return String
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * SQLファイルのパスを取得する。
+     *
+     * @return String
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * SQL文を取得する。 名前付きパラメータは"?"へ置換済み。
+     *
+     * @return String
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * バインド変数の数を取得する。
+     *
+     * @return int
+     */
+    public int getParameterCount() {
+        return template.getParameterCount();
+    }
+
+    /**
+     * 解析済みのテンプレートを取得する。
+     *
+     * @return SqlTemplate
+     */
+    public SqlTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * SQL定義を文字列で返却する。
+     *
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return "SqlDefinition[" + key + ", parameters=" + template.getParameterCount() + "]";
+    }
+}
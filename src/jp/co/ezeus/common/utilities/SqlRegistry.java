@@ -0,0 +1,413 @@
+package jp.co.ezeus.common.utilities;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * <p>
+ * SQL定義の登録クラス
+ * </p>
+ * 「resourceControl.properties」に記載された全てのSQLキーについて、SQLファイルを一括で読み込み、 @see {@link SqlDefinition}
+ * として保持する。<br>
+ * 読み込みは生成時の1回のみで、生成後は変更されない。 SQL文の取得はMapの参照のみとなり、ファイルの読み込みを行わない。<br>
+ * SQLファイルはファイルパスとして読み込み、存在しない場合はクラスパスから読み込む。 読み込みに失敗したSQLキーは例外を保持し、
+ * 取得時に同じ例外を返却する。<br>
+ * SQLファイルの再読み込み（@see {@link SqlReloader}）は、変更されたSQLキーのみを置き換えた 新しいバージョンのインスタンスを生成する。
+ *
+ * @see DBResourceControl
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public final class SqlRegistry {
+
+    /**
+     * SQLファイルの文字コード
+     */
+    private static final Charset SQL_CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * SQLファイルのパスの接頭辞（クラスパスから読み込む場合に除く）
+     */
+    private static final String RESOURCE_PREFIX = "resources/";
+
+    /**
+     * SQLキーをキーとするSQL定義
+     */
+    private final Map<String, SqlDefinition> definitions;
+
+    /**
+     * SQLキーをキーとするSQLファイルのパス
+     */
+    private final Map<String, String> paths;
+
+    /**
+     * SQLキーをキーとする読み込み失敗時の例外
+     */
+    private final Map<String, IOException> failures;
+
+    /**
+     * SQL文をキーとするSQL定義
+     */
+    private final Map<String, SqlDefinition> definitionsByQuery;
+
+    /**
+     * バージョン（再読み込み毎に加算）
+     */
+    private final long version;
+
+    /**
+     * コンストラクタ
+     *
+     * @param paths SQLファイルのパス
+     * @param definitions SQL定義
+     * @param failures 読み込み失敗時の例外
+     * @param version バージョン
+     */
+    private SqlRegistry(Map<String, String> paths, Map<String, SqlDefinition> definitions, Map<String, IOException> failures,
+            long version) {
+        this.paths = Collections.unmodifiableMap(paths);
+        this.definitions = Collections.unmodifiableMap(definitions);
+        this.failures = Collections.unmodifiableMap(failures);
+        Map<String, SqlDefinition> byQuery = new HashMap<String, SqlDefinition>();
+        for (SqlDefinition definition : definitions.values()) {
+            byQuery.put(definition.getQuery(), definition);
+        }
+        this.definitionsByQuery = byQuery;
+        this.version = version;
+    }
+
+    /**
+     * プロパティファイルの全てのSQLキーについてSQLファイルを読み込み、SQL定義を登録する。
+     *
+     * @param properties プロパティファイル（SQLキー → SQLファイルのパス）
+     * @return SqlRegistry
+     * @author H.Abe
+     */
+    public static SqlRegistry load(Properties properties) {
+        Map<String, SqlDefinition> definitions = new HashMap<String, SqlDefinition>();
+        Map<String, IOException> failures = new HashMap<String, IOException>();
+        Map<String, String> paths = new HashMap<String, String>();
+        for (String key : properties.stringPropertyNames()) {
+            String path = properties.getProperty(key);
+            paths.put(key, path);
+            try {
+                definitions.put(key, createDefinition(key, path));
+            } catch (IOException ioException) {
+                failures.put(key, ioException);
+            }
+        }
+        return new SqlRegistry(paths, definitions, failures, 1L);
+    }
+
+    /**
+     * 引数のSQLキーのみSQLファイルを再読み込みし、次のバージョンのインスタンスを生成する。 当インスタンスは変更しない。<br>
+     * 再読み込みに失敗したSQLキーは、読み込み済みのSQL定義がある場合はそのまま保持する。 （書き込み途中のファイルを読み込んだ場合等に、
+     * 実行中の処理へ影響させないため）
+     *
+     * @param keys 再読み込みするSQLキー
+     * @param replaced 置き換えたSQLキーと置き換え前のSQL定義（初回読み込みの場合はNULL）を格納するMap
+     * @return SqlRegistry
+     * @author H.Abe
+     */
+    public SqlRegistry reload(Collection<String> keys, Map<String, SqlDefinition> replaced) {
+        Map<String, SqlDefinition> nextDefinitions = new HashMap<String, SqlDefinition>(definitions);
+        Map<String, IOException> nextFailures = new HashMap<String, IOException>(failures);
+        for (String key : keys) {
+            String path = paths.get(key);
+            if (null == path) {
+                continue;
+            }
+            SqlDefinition current = definitions.get(key);
+            try {
+                SqlDefinition definition = createDefinition(key, path);
+                if (null == current || !definition.getQuery().equals(current.getQuery())) {
+                    nextDefinitions.put(key, definition);
+                    replaced.put(key, current);
+                }
+                nextFailures.remove(key);
+            } catch (IOException ioException) {
+                // 読み込み済みのSQL定義を保持する
+            }
+        }
+        if (replaced.isEmpty()) {
+            return this;
+        }
+        return new SqlRegistry(paths, nextDefinitions, nextFailures, version + 1L);
+    }
+
+    /**
+     * SQLファイルを読み込み、SQL定義を作成する。
+     *
+     * @param key SQLキー
+     * @param path SQLファイルのパス
+     * @return SqlDefinition
+     * @throws IOException
+     * @author H.Abe
+     */
+    public static SqlDefinition createDefinition(String key, String path) throws IOException {
+        String query = normalize(readFile(path));
+        return new SqlDefinition(key, path, query);
+    }
+
+    /**
+     * SQLキーに対応するSQL定義を取得する。 登録されていない場合はNULLを返却する。
+     *
+     * @param key SQLキー
+     * @return SqlDefinition
+     */
+    public SqlDefinition get(String key) {
+        return definitions.get(key);
+    }
+
+    /**
+     * SQL文に一致するSQL定義を取得する。 登録済みのSQL文でない場合はNULLを返却する。
+     *
+     * @param query SQL文
+     * @return SqlDefinition
+     */
+    public SqlDefinition findByQuery(String query) {
+        return definitionsByQuery.get(query);
+    }
+
+    /**
+     * SQLキーに対応するSQL文を取得する。
+     *
+     * @param key SQLキー
+     * @return String
+     * @throws IOException SQLキーが登録されていない場合、またはSQLファイルの読み込みに失敗していた場合
+     * @author H.Abe
+     */
+    public String getQuery(String key) throws IOException {
+        SqlDefinition definition = definitions.get(key);
+        if (null != definition) {
+            return definition.getQuery();
+        }
+        IOException failure = failures.get(key);
+        if (null != failure) {
+            throw new IOException(failure);
+        }
+        throw new FileNotFoundException("SQL key not registered: " + key);
+    }
+
+    /**
+     * 登録済みのSQLキーを取得する。
+     *
+     * @return Set<String>
+     */
+    public Set<String> keys() {
+        return definitions.keySet();
+    }
+
+    /**
+     * SQLキーとSQLファイルのパスを取得する。 読み込みに失敗したSQLキーも含む。
+     *
+     * @return Map<String, String>
+     */
+    public Map<String, String> getPaths() {
+        return paths;
+    }
+
+    /**
+     * 登録済みのSQL定義を取得する。
+     *
+     * @return Collection<SqlDefinition>
+     */
+    public Collection<SqlDefinition> definitions() {
+        return definitions.values();
+    }
+
+    /**
+     * バージョンを取得する。 生成時は1で、SQL定義を置き換える毎に加算する。
+     *
+     * @return long
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 登録件数を取得する。
+     *
+     * @return int
+     */
+    public int size() {
+        return definitions.size();
+    }
+
+    /**
+     * 読み込みに失敗したSQLキーと例外を取得する。
+     *
+     * @return Map<String, IOException>
+     */
+    public Map<String, IOException> getFailures() {
+        return failures;
+    }
+
+    /**
+     * SQL文の空白を正規化する。<br>
+     * 改行、タブを含む連続した空白を半角スペース1つにまとめ、前後の空白を除く。 コメント（"--"、"/* *&#47;"）は除く。<br>
+     * 文字列リテラル（'...'）、引用符付き識別子（"..."）、ドル引用符（$tag$...$tag$）の内容は変更しない。
+     *
+     * @param sql SQL文
+     * @return String
+     * @author H.Abe
+     */
+    public static String normalize(String sql) {
+        StringBuilder builder = new StringBuilder(sql.length());
+        boolean pendingSpace = false;
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                i++;
+                continue;
+            }
+            if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                i = (end < 0) ? length : end;
+                pendingSpace = true;
+                continue;
+            }
+            if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = (end < 0) ? length : end + 2;
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace && builder.length() > 0) {
+                builder.append(UtilDefine.STRING_HALF_SPACE);
+            }
+            pendingSpace = false;
+            int end = SqlTemplate.skipLiteral(sql, i);
+            builder.append(sql, i, end);
+            i = end;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * SQL文の定数を除いた形を取得する。 SQL文毎の統計のキーとして使用する。<br>
+     * 空白を正規化（@see {@link #normalize(String)}）し、文字列リテラル（'...'）、ドル引用符（$tag$...$tag$）、
+     * 数値リテラルを"?"へ置換する。 引用符付き識別子（"..."）と、識別子の一部の数字は変更しない。
+     * 定数のみが異なるSQL文は同じ結果となる。
+     *
+     * @param sql SQL文
+     * @return String
+     * @author H.Abe
+     */
+    public static String fingerprint(String sql) {
+        String normalized = normalize(sql);
+        int length = normalized.length();
+        StringBuilder builder = new StringBuilder(length);
+        int i = 0;
+        while (i < length) {
+            char c = normalized.charAt(i);
+            int end = SqlTemplate.skipLiteral(normalized, i);
+            if (c == '\'' || (c == '$' && end > i + 1)) {
+                while (c == '\'' && end < length && normalized.charAt(end) == '\'') {
+                    // 引用符のエスケープ（''）で分かれた残りの部分も同じリテラルとする
+                    end = SqlTemplate.skipLiteral(normalized, end);
+                }
+                builder.append('?');
+            } else if (Character.isDigit(c) && !isIdentifierPart(builder)) {
+                end = i + 1;
+                while (end < length && (Character.isLetterOrDigit(normalized.charAt(end)) || normalized.charAt(end) == '.')) {
+                    end++;
+                }
+                builder.append('?');
+            } else {
+                builder.append(normalized, i, end);
+            }
+            i = end;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 出力済みの末尾の文字が識別子の一部（英数字、"_"、"$"）かを判定する。
+     *
+     * @param builder 出力済みの文字列
+     * @return boolean
+     */
+    private static boolean isIdentifierPart(StringBuilder builder) {
+        if (0 == builder.length()) {
+            return false;
+        }
+        char last = builder.charAt(builder.length() - 1);
+        return last == '_' || last == '$' || Character.isLetterOrDigit(last);
+    }
+
+    /**
+     * 正規化済みのSQL文に含まれるバインド変数（"?"）の数を数える。 文字列リテラル等の内容に含まれる"?"は数えない。
+     *
+     * @param query 正規化済みのSQL文
+     * @return int
+     * @author H.Abe
+     */
+    public static int countParameters(String query) {
+        return SqlTemplate.compile(query).getParameterCount();
+    }
+
+    /**
+     * SQLファイルの内容を読み込む。 ファイルパスに存在しない場合はクラスパスから読み込む。
+     *
+     * @param path SQLファイルのパス
+     * @return String
+     * @throws IOException
+     * @author H.Abe
+     */
+    static String readFile(String path) throws IOException {
+        if (null == path) {
+            throw new FileNotFoundException("SQL file path is null");
+        }
+        InputStream inStream;
+        File file = new File(path);
+        if (file.isFile()) {
+            inStream = new FileInputStream(file);
+        } else {
+            ClassLoader classLoader = SqlRegistry.class.getClassLoader();
+            inStream = classLoader.getResourceAsStream(path);
+            if (null == inStream && path.startsWith(RESOURCE_PREFIX)) {
+                inStream = classLoader.getResourceAsStream(path.substring(RESOURCE_PREFIX.length()));
+            }
+            if (null == inStream) {
+                throw new FileNotFoundException(path);
+            }
+        }
+        try {
+            ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inStream.read(buffer)) != -1) {
+                outStream.write(buffer, 0, read);
+            }
+            return new String(outStream.toByteArray(), SQL_CHARSET);
+        } finally {
+            inStream.close();
+        }
+    }
+
+    /**
+     * 登録状況を文字列で返却する。
+     *
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return "SqlRegistry[version=" + version + ", size=" + definitions.size() + ", failures=" + failures.keySet() + "]";
+    }
+}
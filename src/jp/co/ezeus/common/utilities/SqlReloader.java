@@ -0,0 +1,189 @@
+package jp.co.ezeus.common.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * SQLファイルの再読み込みクラス
+ * </p>
+ * SQLファイルを格納したディレクトリをWatchServiceで監視し、変更されたSQLファイルに対応する SQLキーのみを再読み込みする。<br>
+ * 再読み込み結果は @see {@link DBResourceControl#reload(java.util.Collection)} にて新しいバージョンの
+ * SqlRegistryとして公開するため、SQL文の取得はロックを取得せず、実行中のSQLも待たせない。<br>
+ * エディタの保存等で短時間に複数のイベントが発生するため、最初のイベントから一定時間のイベントを まとめて再読み込みする。<br>
+ * 監視対象はファイルパスとして存在するSQLファイルのみで、クラスパス（jarファイル内）のSQLファイルは対象外。
+ * SQLキーの追加、削除（プロパティファイルの変更）は再起動時に反映する。
+ *
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public class SqlReloader implements Runnable {
+
+    /**
+     * イベントをまとめる時間（ミリ秒）
+     */
+    private static final long DEBOUNCE_MILLIS = 200L;
+
+    /**
+     * 再読み込み先
+     */
+    private final DBResourceControl resourceControl;
+
+    /**
+     * 監視サービス
+     */
+    private final WatchService watchService;
+
+    /**
+     * SQLファイル（絶対パス）をキーとするSQLキー
+     */
+    private final Map<Path, Set<String>> keysByFile;
+
+    /**
+     * 監視スレッド
+     */
+    private Thread thread;
+
+    /**
+     * コンストラクタ<br>
+     * 再読み込み先に登録された全てのSQLファイルのディレクトリを監視対象とする。
+     *
+     * @param resourceControl 再読み込み先
+     * @throws IOException
+     * @author H.Abe
+     */
+    public SqlReloader(DBResourceControl resourceControl) throws IOException {
+        this.resourceControl = resourceControl;
+        this.keysByFile = new HashMap<Path, Set<String>>();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        Set<Path> directories = new HashSet<Path>();
+        for (Map.Entry<String, String> entry : resourceControl.getRegistry().getPaths().entrySet()) {
+            File file = new File(entry.getValue());
+            if (!file.isFile()) {
+                continue;
+            }
+            Path path = file.toPath().toAbsolutePath().normalize();
+            Set<String> keys = keysByFile.get(path);
+            if (null == keys) {
+                keys = new HashSet<String>();
+                keysByFile.put(path, keys);
+            }
+            keys.add(entry.getKey());
+            directories.add(path.getParent());
+        }
+        for (Path directory : directories) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+    }
+
+    /**
+     * 監視を開始する。 監視はデーモンスレッドで行う。
+     *
+     * @author H.Abe
+     */
+    public synchronized void start() {
+        if (null != thread) {
+            return;
+        }
+        thread = new Thread(this, "sql-reloader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 監視を終了する。
+     *
+     * @author H.Abe
+     */
+    public synchronized void stop() {
+        try {
+            watchService.close();
+        } catch (IOException ioException) {
+            // 終了処理のため無視する
+        }
+        if (null != thread) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    /**
+     * 監視対象のSQLファイル数を取得する。
+     *
+     * @return int
+     */
+    public int getWatchedFileCount() {
+        return keysByFile.size();
+    }
+
+    /**
+     * 変更イベントを待ち受け、変更されたSQLファイルのSQLキーを再読み込みする。
+     */
+    public void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<String> changed = new HashSet<String>();
+                WatchKey watchKey = watchService.take();
+                collect(watchKey, changed);
+                // 同一ファイルへの連続した書き込みをまとめる
+                long deadline = System.currentTimeMillis() + DEBOUNCE_MILLIS;
+                long remaining;
+                while ((remaining = deadline - System.currentTimeMillis()) > 0L) {
+                    watchKey = watchService.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (null == watchKey) {
+                        break;
+                    }
+                    collect(watchKey, changed);
+                }
+                if (!changed.isEmpty()) {
+                    resourceControl.reload(changed);
+                }
+            }
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException closedException) {
+            // stop()による終了
+        }
+    }
+
+    /**
+     * イベントに該当するSQLキーを取得し、WatchKeyを再度有効にする。
+     *
+     * @param watchKey WatchKey
+     * @param changed 変更されたSQLキーを格納するSet
+     */
+    private void collect(WatchKey watchKey, Set<String> changed) {
+        Path directory = (Path) watchKey.watchable();
+        List<WatchEvent<?>> events = new ArrayList<WatchEvent<?>>(watchKey.pollEvents());
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // イベントが失われた場合は全てのSQLキーを対象とする
+                for (Set<String> keys : keysByFile.values()) {
+                    changed.addAll(keys);
+                }
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context()).toAbsolutePath().normalize();
+            Set<String> keys = keysByFile.get(file);
+            if (null != keys) {
+                changed.addAll(keys);
+            }
+        }
+        watchKey.reset();
+    }
+}
@@ -0,0 +1,661 @@
+package jp.co.ezeus.common.utilities;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+import jp.co.ezeus.common.dto.BaseDto;
+import jp.co.ezeus.common.dto.BindBuffer;
+
+/**
+ * <p>
+ * SQL文のバインド変数置換用テンプレートクラス
+ * </p>
+ * SQL文を1回だけ解析し、バインド変数（"?"）の位置を保持する。 置換は保持した位置を元に、置換後の長さで確保した
+ * StringBuilderへ1回の走査で出力するため、正規表現の生成やSQL文全体の複写をバインド変数毎に行わない。<br>
+ * 文字列リテラル（'...'）、引用符付き識別子（"..."）、ドル引用符（$tag$...$tag$）、 コメント（"--"、"/* *&#47;"）に含まれる"?"は
+ * バインド変数として扱わない。 また、置換する値に"?"や"$"が含まれていても、そのまま出力する。<br>
+ * 名前付きパラメータ（":名前"）は解析時に"?"へ置換し、パラメータ名毎のパラメータ位置を保持する。 値の設定時は保持した位置へ
+ * 設定するのみで、SQL文の再解析は行わない。<br>
+ * 生成後は変更されないため、複数スレッドから同期化せずに参照できる。
+ *
+ * @see SqlDefinition
+ * @author H.Abe
+ * @version 1.0
+ *
+ */
+public final class SqlTemplate {
+
+    /**
+     * 文字列リテラルの引用符
+     */
+    private static final char QUOTE = '\'';
+
+    /**
+     * NULLリテラル
+     */
+    private static final String LITERAL_NULL = "NULL";
+
+    /**
+     * 数値リテラルの正規表現
+     */
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("[+-]?(\\d+(\\.\\d*)?|\\.\\d+)([eE][+-]?\\d+)?");
+
+    /**
+     * 整数リテラルの正規表現
+     */
+    private static final Pattern INTEGER_LITERAL = Pattern.compile("[+-]?\\d+");
+
+    /**
+     * 真偽値リテラルの正規表現
+     */
+    private static final Pattern BOOLEAN_LITERAL = Pattern.compile("(?i)true|false");
+
+    /**
+     * SQL文（名前付きパラメータは"?"へ置換済み）
+     */
+    private final String query;
+
+    /**
+     * バインド変数の位置
+     */
+    private final int[] offsets;
+
+    /**
+     * パラメータ名（出現順で重複無し）
+     */
+    private final String[] names;
+
+    /**
+     * パラメータ名毎のパラメータ位置（1始まり）
+     */
+    private final int[][] nameIndexes;
+
+    /**
+     * パラメータ位置毎のパラメータ名の添字（names、nameIndexesの添字、"?"の場合は-1）
+     */
+    private final int[] slotOfPosition;
+
+    /**
+     * 複数のパラメータ位置に出現するパラメータ名の有無
+     */
+    private final boolean repeated;
+
+    /**
+     * パラメータ名をキーとするnames、nameIndexesの添字
+     */
+    private final Map<String, Integer> nameLookup;
+
+    /**
+     * DTOクラス毎のパラメータ名に対応するgetter（names順）
+     */
+    private final ConcurrentMap<Class<?>, MethodHandle[]> dtoGetters = new ConcurrentHashMap<Class<?>, MethodHandle[]>();
+
+    /**
+     * コンストラクタ
+     *
+     * @param query SQL文
+     * @param offsets バインド変数の位置
+     * @param positionNames バインド変数毎のパラメータ名（"?"の場合はNULL）
+     */
+    private SqlTemplate(String query, int[] offsets, String[] positionNames) {
+        this.query = query;
+        this.offsets = offsets;
+        Map<String, List<Integer>> plan = new LinkedHashMap<String, List<Integer>>();
+        for (int i = 0; i < positionNames.length; i++) {
+            if (null == positionNames[i]) {
+                continue;
+            }
+            List<Integer> indexes = plan.get(positionNames[i]);
+            if (null == indexes) {
+                indexes = new ArrayList<Integer>();
+                plan.put(positionNames[i], indexes);
+            }
+            indexes.add(Integer.valueOf(i + 1));
+        }
+        this.names = plan.keySet().toArray(new String[plan.size()]);
+        this.nameIndexes = new int[names.length][];
+        this.slotOfPosition = new int[positionNames.length];
+        Arrays.fill(slotOfPosition, -1);
+        Map<String, Integer> lookup = new HashMap<String, Integer>();
+        for (int i = 0; i < names.length; i++) {
+            List<Integer> indexes = plan.get(names[i]);
+            nameIndexes[i] = new int[indexes.size()];
+            for (int j = 0; j < nameIndexes[i].length; j++) {
+                nameIndexes[i][j] = indexes.get(j).intValue();
+                slotOfPosition[nameIndexes[i][j] - 1] = i;
+            }
+            lookup.put(names[i], Integer.valueOf(i));
+        }
+        this.nameLookup = lookup;
+        this.repeated = names.length < positionNames.length - Collections.frequency(Arrays.asList(positionNames), null);
+    }
+
+    /**
+     * SQL文を解析してテンプレートを生成する。<br>
+     * 名前付きパラメータ（":名前"）は"?"へ置換し、パラメータ名毎のパラメータ位置を保持する。 "::"（型変換）は名前付きパラメータとして扱わない。
+     * 名前は英字または"_"で始まり、英数字、"_"で構成する。 （配列のスライス"[lo:hi]"は名前付きパラメータと解釈されるため、"[lo : hi]"と記述する）
+     *
+     * @param query SQL文
+     * @return SqlTemplate
+     * @author H.Abe
+     */
+    public static SqlTemplate compile(String query) {
+        int length = query.length();
+        StringBuilder builder = new StringBuilder(length);
+        int[] offsets = new int[8];
+        String[] positionNames = new String[8];
+        int count = 0;
+        boolean named = false;
+        int i = 0;
+        while (i < length) {
+            char c = query.charAt(i);
+            int end;
+            if (c == '-' && i + 1 < length && query.charAt(i + 1) == '-') {
+                end = query.indexOf('\n', i);
+                end = (end < 0) ? length : end;
+            } else if (c == '/' && i + 1 < length && query.charAt(i + 1) == '*') {
+                end = query.indexOf("*/", i + 2);
+                end = (end < 0) ? length : end + 2;
+            } else if (c == ':' && i + 1 < length && query.charAt(i + 1) == ':') {
+                end = i + 2;
+            } else if (c == '?' || (c == ':' && i + 1 < length && isNameStart(query.charAt(i + 1)))) {
+                String name = null;
+                end = i + 1;
+                if (c == ':') {
+                    while (end < length && isNamePart(query.charAt(end))) {
+                        end++;
+                    }
+                    name = query.substring(i + 1, end);
+                    named = true;
+                }
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                    positionNames = Arrays.copyOf(positionNames, count * 2);
+                }
+                offsets[count] = builder.length();
+                positionNames[count++] = name;
+                builder.append('?');
+                i = end;
+                continue;
+            } else {
+                end = skipLiteral(query, i);
+            }
+            builder.append(query, i, end);
+            i = end;
+        }
+        return new SqlTemplate(named ? builder.toString() : query, Arrays.copyOf(offsets, count), Arrays.copyOf(
+                positionNames, count));
+    }
+
+    /**
+     * パラメータ名の先頭に使用できる文字かを判定する。
+     *
+     * @param c 文字
+     * @return boolean
+     */
+    private static boolean isNameStart(char c) {
+        return c == '_' || Character.isLetter(c);
+    }
+
+    /**
+     * パラメータ名に使用できる文字かを判定する。
+     *
+     * @param c 文字
+     * @return boolean
+     */
+    private static boolean isNamePart(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * SQL文を取得する。
+     *
+     * @return String
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * バインド変数の数を取得する。
+     *
+     * @return int
+     */
+    public int getParameterCount() {
+        return offsets.length;
+    }
+
+    /**
+     * バインド変数の位置（0始まりの文字位置）を取得する。
+     *
+     * @param index バインド変数の番号（0始まり）
+     * @return int
+     */
+    public int getOffset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * 名前付きパラメータを持つかを判定する。
+     *
+     * @return boolean
+     */
+    public boolean isNamed() {
+        return names.length > 0;
+    }
+
+    /**
+     * パラメータ名を出現順（重複無し）で取得する。
+     *
+     * @return List<String>
+     */
+    public List<String> getParameterNames() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /**
+     * パラメータ名に対応するパラメータ位置（1始まり）を取得する。 同じ名前が複数回出現する場合は全ての位置を返却する。
+     *
+     * @param name パラメータ名
+     * @return int[] 該当しない場合は空の配列
+     */
+    public int[] indexesOf(String name) {
+        Integer index = nameLookup.get(name);
+        return (null == index) ? new int[0] : nameIndexes[index.intValue()].clone();
+    }
+
+    /**
+     * 名前付きパラメータの値をMapから取得し、BindBufferの該当する全てのパラメータ位置へ設定する。
+     * 値の型による設定方法は @see {@link BindBuffer#setValue(int, Object)} を参照。<br>
+     * Mapの検索はパラメータ名毎に1回とし、設定はパラメータ位置の順に行う。
+     *
+     * @param values パラメータ名をキーとする値
+     * @param buffer バインド変数の設定先
+     * @return BindBuffer
+     * @throws IllegalArgumentException 値が存在しないパラメータ名がある場合
+     * @author H.Abe
+     */
+    public BindBuffer bind(Map<String, ?> values, BindBuffer buffer) {
+        if (!repeated) {
+            // 全てのパラメータ名が1回のみ出現する場合は、パラメータ位置の順に検索して設定する
+            for (int position = 0; position < slotOfPosition.length; position++) {
+                int slot = slotOfPosition[position];
+                if (slot >= 0) {
+                    buffer.setValue(position + 1, valueOf(values, slot));
+                }
+            }
+            return buffer;
+        }
+        Object[] resolved = new Object[names.length];
+        for (int i = 0; i < names.length; i++) {
+            resolved[i] = valueOf(values, i);
+        }
+        for (int position = 0; position < slotOfPosition.length; position++) {
+            int slot = slotOfPosition[position];
+            if (slot >= 0) {
+                buffer.setValue(position + 1, resolved[slot]);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * パラメータ名の値をMapから取得する。
+     *
+     * @param values パラメータ名をキーとする値
+     * @param slot パラメータ名の添字
+     * @return Object
+     * @throws IllegalArgumentException 値が存在しない場合
+     */
+    private Object valueOf(Map<String, ?> values, int slot) {
+        Object value = values.get(names[slot]);
+        if (null == value && !values.containsKey(names[slot])) {
+            throw new IllegalArgumentException("no value for parameter :" + names[slot]);
+        }
+        return value;
+    }
+
+    /**
+     * 名前付きパラメータの値をDTOのgetterから取得し、BindBufferの該当する全てのパラメータ位置へ設定する。 getterは"get" +
+     * パラメータ名（大文字・小文字、"_"の有無は問わない）で検索し、DTOクラス毎に1度だけ解決する。
+     *
+     * @param dto DTO
+     * @param buffer バインド変数の設定先
+     * @return BindBuffer
+     * @throws IllegalArgumentException getterが存在しないパラメータ名がある場合
+     * @throws InvocationTargetException getterで例外が発生した場合
+     * @author H.Abe
+     */
+    public BindBuffer bind(BaseDto dto, BindBuffer buffer) throws InvocationTargetException {
+        MethodHandle[] getters = dtoGetters.get(dto.getClass());
+        if (null == getters) {
+            getters = resolveGetters(dto.getClass());
+            dtoGetters.putIfAbsent(dto.getClass(), getters);
+        }
+        for (int i = 0; i < names.length; i++) {
+            Object value;
+            try {
+                value = (Object) getters[i].invokeExact((Object) dto);
+            } catch (RuntimeException runtimeException) {
+                throw runtimeException;
+            } catch (Throwable throwable) {
+                throw new InvocationTargetException(throwable);
+            }
+            for (int index : nameIndexes[i]) {
+                buffer.setValue(index, value);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * 名前付きパラメータの値を、パラメータ名の出現順（getParameterNames()の順）に1から設定したBindBufferから取得し、
+     * 設定先のBindBufferの該当する全てのパラメータ位置へ複写する。 値の型変換、オブジェクト生成は行わず、パラメータ位置の順に複写する。
+     *
+     * @param named パラメータ名の出現順に値を設定したBindBuffer
+     * @param buffer バインド変数の設定先
+     * @return BindBuffer
+     * @author H.Abe
+     */
+    public BindBuffer bind(BindBuffer named, BindBuffer buffer) {
+        for (int position = 0; position < slotOfPosition.length; position++) {
+            int slot = slotOfPosition[position];
+            if (slot >= 0) {
+                named.copyTo(slot + 1, buffer, position + 1);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * DTOクラスのパラメータ名に対応するgetterを解決する。
+     *
+     * @param dtoClass DTOクラス
+     * @return MethodHandle[] names順のgetter（(Object)Object型）
+     */
+    private MethodHandle[] resolveGetters(Class<?> dtoClass) {
+        MethodHandle[] getters = new MethodHandle[names.length];
+        Method[] methods = dtoClass.getMethods();
+        for (int i = 0; i < names.length; i++) {
+            String expected = UtilDefine.STRING_GET + names[i].replace("_", "");
+            for (Method method : methods) {
+                if (method.getParameterTypes().length == 0 && !Modifier.isStatic(method.getModifiers())
+                        && method.getName().replace("_", "").equalsIgnoreCase(expected)) {
+                    try {
+                        getters[i] = MethodHandles.publicLookup().unreflect(method).asType(
+                                MethodType.methodType(Object.class, Object.class));
+                    } catch (IllegalAccessException illegalAccessException) {
+                        throw new IllegalArgumentException(method.toString(), illegalAccessException);
+                    }
+                    break;
+                }
+            }
+            if (null == getters[i]) {
+                throw new IllegalArgumentException("no getter for parameter :" + names[i] + " in " + dtoClass.getName());
+            }
+        }
+        return getters;
+    }
+
+    /**
+     * バインド変数を引数の文字列でそのまま置換する。 文字列のエスケープは行わないため、 呼び出し元で値を検証済みの場合のみ使用する。<br>
+     * 引数がNULL、変数リストに格納値が存在しない、バインド変数の数と変数リストの要素数が一致しない場合は、 NULLを返却する。
+     *
+     * @param binds 置換文字リスト
+     * @return String
+     * @author H.Abe
+     */
+    public String render(List<String> binds) {
+        if (null == binds || binds.size() == 0 || binds.size() != offsets.length) {
+            return null;
+        }
+        int capacity = query.length() - offsets.length;
+        for (int i = 0; i < offsets.length; i++) {
+            String bind = binds.get(i);
+            capacity += (null == bind) ? 4 : bind.length();
+        }
+        StringBuilder builder = new StringBuilder(capacity);
+        int start = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            builder.append(query, start, offsets[i]).append(binds.get(i));
+            start = offsets[i] + 1;
+        }
+        return builder.append(query, start, query.length()).toString();
+    }
+
+    /**
+     * render(List)で置換する文字列をバインド変数の値へ変換する。 置換後のSQL文と同じ結果となるよう、置換文字列毎に以下の通り扱う。<br>
+     * 文字列リテラル（'...'）：引用符を除き、"''"を"'"へ戻した値を型指定無しで設定する。（DB側で比較対象の列等から型を決定する）<br>
+     * 数値：PostgreSQLのリテラルと同じ型で設定する。 整数はint、longの範囲によりsetInt()、setLong()、それ以外（範囲外、小数点、
+     * 指数を含む）はsetBigDecimal()とする。<br>
+     * 真偽値：setBoolean()で設定する。<br>
+     * NULL：NULLを設定する。<br>
+     * 上記以外（列名、関数等）：バインド変数にできないため、SQL文へ埋め込む。<br>
+     * 全ての置換文字列をバインド変数にできる場合は当テンプレートのSQL文をそのまま返却するため、 値に依らずSQL文が一定となり、
+     * PreparedStatementキャッシュ、DB側の実行計画キャッシュが有効となる。<br>
+     * 引数がNULL、変数リストに格納値が存在しない、バインド変数の数と変数リストの要素数が一致しない場合は、 NULLを返却する。
+     *
+     * @param binds 置換文字リスト
+     * @param buffer バインド変数の設定先（パラメータ位置1から設定する）
+     * @return String 実行するSQL文
+     * @author H.Abe
+     */
+    public String parameterize(List<String> binds, BindBuffer buffer) {
+        if (null == binds || binds.size() == 0 || binds.size() != offsets.length) {
+            return null;
+        }
+        StringBuilder builder = null;
+        int start = 0;
+        int index = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            String bind = binds.get(i);
+            String trimmed = (null == bind) ? null : bind.trim();
+            String value = null;
+            boolean bindable = true;
+            if (null == trimmed || LITERAL_NULL.equalsIgnoreCase(trimmed)) {
+                buffer.setNull(++index, Types.NULL);
+            } else if (isQuotedLiteral(trimmed)) {
+                value = trimmed.substring(1, trimmed.length() - 1).replace("''", "'");
+            } else if (NUMERIC_LITERAL.matcher(trimmed).matches()) {
+                setNumber(buffer, ++index, trimmed);
+            } else if (BOOLEAN_LITERAL.matcher(trimmed).matches()) {
+                buffer.setBoolean(++index, Boolean.parseBoolean(trimmed));
+            } else {
+                bindable = false;
+            }
+            if (null != value) {
+                buffer.setUntyped(++index, value);
+            }
+            if (!bindable && null == builder) {
+                builder = new StringBuilder(query.length() + bind.length());
+            }
+            if (null != builder) {
+                builder.append(query, start, offsets[i]).append(bindable ? "?" : bind);
+                start = offsets[i] + 1;
+            }
+        }
+        if (null == builder) {
+            return query;
+        }
+        return builder.append(query, start, query.length()).toString();
+    }
+
+    /**
+     * 数値リテラルをPostgreSQLのリテラルと同じ型で設定する。 整数はintの範囲はint、longの範囲はlong、それ以外は
+     * BigDecimal（numeric）とする。
+     *
+     * @param buffer バインド変数の設定先
+     * @param index パラメータ位置
+     * @param literal 数値リテラル
+     */
+    private static void setNumber(BindBuffer buffer, int index, String literal) {
+        BigDecimal number = new BigDecimal(literal);
+        if (INTEGER_LITERAL.matcher(literal).matches()) {
+            try {
+                long value = number.longValueExact();
+                if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                    buffer.setInt(index, (int) value);
+                } else {
+                    buffer.setLong(index, value);
+                }
+                return;
+            } catch (ArithmeticException arithmeticException) {
+                // longの範囲外はnumericとする
+            }
+        }
+        buffer.setBigDecimal(index, number);
+    }
+
+    /**
+     * 1つの文字列リテラル（'...'）かを判定する。 連続した引用符（''）以外の引用符を内部に含む場合は、 複数のリテラルを含む式のためfalseとする。
+     *
+     * @param text 文字列
+     * @return boolean
+     */
+    private static boolean isQuotedLiteral(String text) {
+        int last = text.length() - 1;
+        if (last < 1 || text.charAt(0) != QUOTE || text.charAt(last) != QUOTE) {
+            return false;
+        }
+        for (int i = 1; i < last; i++) {
+            if (text.charAt(i) == QUOTE) {
+                if (i + 1 < last && text.charAt(i + 1) == QUOTE) {
+                    i++;
+                } else {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * バインド変数を引数の値のSQLリテラルで置換する。 値の型によりリテラルの形式を決定する。<br>
+     * NULL：NULL、数値：文字列表現、Boolean：TRUE/FALSE、日付・日時：'...'、 その他：文字列表現を"'"で囲み、"'"を"''"へ変換する。<br>
+     * バインド変数の数と値の数が一致しない場合はIllegalArgumentExceptionを送出する。
+     *
+     * @param values 値
+     * @return String
+     * @author H.Abe
+     */
+    public String renderLiterals(List<?> values) {
+        if (null == values || values.size() != offsets.length) {
+            throw new IllegalArgumentException("expected " + offsets.length + " values but was "
+                    + ((null == values) ? 0 : values.size()));
+        }
+        StringBuilder builder = new StringBuilder(query.length() + offsets.length * 16);
+        int start = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            builder.append(query, start, offsets[i]);
+            appendLiteral(builder, values.get(i));
+            start = offsets[i] + 1;
+        }
+        return builder.append(query, start, query.length()).toString();
+    }
+
+    /**
+     * 値をSQLリテラルとして出力する。
+     *
+     * @param builder 出力先
+     * @param value 値
+     */
+    static void appendLiteral(StringBuilder builder, Object value) {
+        if (null == value) {
+            builder.append(LITERAL_NULL);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            builder.append(value.toString());
+        } else if (value instanceof BigDecimal) {
+            builder.append(((BigDecimal) value).toPlainString());
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                throw new IllegalArgumentException("not a finite number: " + value);
+            }
+            builder.append(value.toString());
+        } else if (value instanceof Boolean) {
+            builder.append(((Boolean) value).booleanValue() ? "TRUE" : "FALSE");
+        } else if (value instanceof Timestamp || value instanceof java.sql.Date || value instanceof java.sql.Time
+                || value instanceof java.time.temporal.Temporal) {
+            builder.append(QUOTE).append(value.toString()).append(QUOTE);
+        } else {
+            String text = value.toString();
+            if (text.indexOf('\0') >= 0) {
+                throw new IllegalArgumentException("string literal contains NUL character");
+            }
+            builder.append(QUOTE);
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == QUOTE) {
+                    builder.append(QUOTE);
+                }
+                builder.append(c);
+            }
+            builder.append(QUOTE);
+        }
+    }
+
+    /**
+     * 位置iから始まる文字列リテラル、引用符付き識別子、ドル引用符の終端の次の位置を返却する。 リテラルの開始でない場合はi + 1を返却する。
+     *
+     * @param sql SQL文
+     * @param i 位置
+     * @return int
+     */
+    static int skipLiteral(String sql, int i) {
+        char c = sql.charAt(i);
+        if (c == '\'' || c == '"') {
+            // 連続した引用符（''）は終端と開始の組として扱われるため、結果は同じとなる
+            int end = sql.indexOf(c, i + 1);
+            return (end < 0) ? sql.length() : end + 1;
+        }
+        if (c == '$') {
+            int tagEnd = i + 1;
+            while (tagEnd < sql.length() && isTagChar(sql.charAt(tagEnd), tagEnd == i + 1)) {
+                tagEnd++;
+            }
+            if (tagEnd < sql.length() && sql.charAt(tagEnd) == '$') {
+                String tag = sql.substring(i, tagEnd + 1);
+                int end = sql.indexOf(tag, tagEnd + 1);
+                return (end < 0) ? sql.length() : end + tag.length();
+            }
+        }
+        return i + 1;
+    }
+
+    /**
+     * ドル引用符のタグに使用できる文字かを判定する。 先頭は数字以外（"$1"等の位置パラメータと区別する）。
+     *
+     * @param c 文字
+     * @param first タグの先頭か
+     * @return boolean
+     */
+    private static boolean isTagChar(char c, boolean first) {
+        return c == '_' || Character.isLetter(c) || (!first && Character.isDigit(c));
+    }
+
+    /**
+     * テンプレートを文字列で返却する。
+     *
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return "SqlTemplate[parameters=" + offsets.length + ", " + query + "]";
+    }
+}
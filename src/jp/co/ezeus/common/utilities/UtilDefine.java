@@ -65,6 +65,9 @@ public class UtilDefine {
     /** "set" */
     public static final String STRING_SET = "set";
 
+    /** "get" */
+    public static final String STRING_GET = "get";
+
     /****************************************
      ****** 日付編集 ******
      ****************************************/